@@ -2,6 +2,7 @@ package Main;
 
 import control.ControlConfig;
 import control.FileController;
+import control.IoExecutor;
 import control.UpdateController;
 import javafx.application.Application;
 import javafx.application.Platform;
@@ -11,11 +12,11 @@ import javafx.stage.Stage;
 import javafx.stage.StageStyle;
 import model.configs.Config;
 import model.interfaces.Observer;
+import model.managers.Metrics;
+import model.managers.OrderArchive;
+import model.managers.ReorderEngine;
 import viewController.SceneController;
 
-import java.util.Timer;
-import java.util.TimerTask;
-
 /**
  * The Main program for this Restaurant program. This program is an
  * ordering program where it allows multiple screen to be opened at once.
@@ -98,15 +99,15 @@ public class main extends Application{
         FileController fileController = FileController.getFileController();
         fileController.setUpdateController(updateController);
 
-        Timer timer = new java.util.Timer();
-
-        // https://stackoverflow.com/questions/16764549/timers-and-javafx/18654916#18654916
-        //The timer schedule will call updateChange every 2 seconds.
-        timer.schedule(new TimerTask() {
-            public void run() {
-                Platform.runLater(() -> fileController.updateChange());
-            }
-        }, 1000, 1000);
+        // The changes of the other programs are read as soon as they are appended to the change log, and the screens
+        // are updated on the JavaFX application thread. The buttons save their changes on the io thread.
+        fileController.startListening(Platform::runLater);
+        // The supply requests are written by the reorder engine every minute instead of after every change.
+        ReorderEngine.getReorderEngine().start();
+        // The finished orders are rolled into the archive segments after they were finished for a while.
+        OrderArchive.getOrderArchive().start();
+        // The times of the operations are exported for the manager screen every minute.
+        Metrics.getMetrics().start();
         primaryStage.setOnCloseRequest(Event::consume);
 
 
@@ -114,8 +115,11 @@ public class main extends Application{
 
         //Make sure everything is processed properly when the program finished.
         primaryStage.setOnHidden(e -> {
-            timer.cancel();
+            IoExecutor.getIoExecutor().shutdown();
             fileController.unregister();
+            ReorderEngine.getReorderEngine().stop();
+            OrderArchive.getOrderArchive().stop();
+            Metrics.getMetrics().stop();
         });
 
     }
@@ -0,0 +1,144 @@
+package benchmark;
+
+import model.configs.Config;
+import model.data.Meal;
+import model.data.Order2;
+import model.data.Supply2;
+import model.managers.FileManager;
+import model.managers.ItemManager;
+import model.managers.MenuItemManager;
+import model.managers.OrderManager;
+import model.managers.SupplyManager;
+
+import java.util.HashMap;
+import java.util.Random;
+
+/**
+ * The DataGenerator class.
+ *
+ * Fills the data folders of the working directory with synthetic supplies, menu items, active orders and finished
+ * orders, so the managers can be measured with as much data as a restaurant has after a long time. Every order has
+ * ITEMS_PER_ORDER items of random menu items, and every menu item needs a few random supplies, which can also be
+ * taken away, and can have a few other supplies added. The supplies have a lot of stock, so the checks of the supplies
+ * don't fail.
+ *
+ * The config file of the working directory is used, or made with the default folders if there is none. It refuses to
+ * run when the orders or stock folder already has files, so the data of a restaurant is never mixed with synthetic
+ * data. The same seed always makes the same data.
+ * Run it with "java -cp out benchmark.DataGenerator [orders] [finished orders] [supplies] [menu items]".
+ */
+public class DataGenerator {
+    private static final int DEFAULT_ORDERS = 1000;
+    private static final int DEFAULT_FINISHED_ORDERS = 1000;
+    private static final int DEFAULT_SUPPLIES = 100;
+    private static final int DEFAULT_MENU_ITEMS = 50;
+    private static final int ITEMS_PER_ORDER = 3;
+    private static final int SUPPLIES_PER_MENU_ITEM = 4;
+    private static final int STOCK = 1000000;
+    private static final long SEED = 42;
+
+    /**
+     * Generates the data.
+     * @param args the number of active orders, finished orders, supplies and menu items, optional
+     */
+    public static void main(String[] args){
+        int orders = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ORDERS;
+        int finishedOrders = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_FINISHED_ORDERS;
+        int supplies = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_SUPPLIES;
+        int menuItems = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_MENU_ITEMS;
+        Config.init();
+        long start = System.nanoTime();
+        if(!generate(orders, finishedOrders, supplies, menuItems)){
+            System.out.println(Config.getOrdersPath() + " or " + Config.getStockPath() + " already has files, run it "
+                    + "in an empty folder");
+            return;
+        }
+        System.out.printf("%d supplies, %d menu items, %d active and %d finished orders with %d items each made in "
+                + "%.1f s%n", supplies, menuItems, orders, finishedOrders, ITEMS_PER_ORDER,
+                (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * Returns whether the orders and stock folders have no files, so data can be generated in them.
+     * @return true if both are empty
+     */
+    public static boolean isEmpty(){
+        FileManager fileManager = new FileManager();
+        return fileManager.getFileList(Config.getOrdersPath()).length == 0
+                && fileManager.getFileList(Config.getStockPath()).length == 0;
+    }
+
+    /**
+     * Generates the data in the folders of the config, which must be loaded first. Does nothing if the orders or
+     * stock folder already has files.
+     * @param orders the number of active orders
+     * @param finishedOrders the number of finished orders
+     * @param supplies the number of supplies
+     * @param menuItems the number of menu items
+     * @return false if the folders already have files
+     */
+    public static boolean generate(int orders, int finishedOrders, int supplies, int menuItems){
+        if(!isEmpty()){
+            return false;
+        }
+        Random random = new Random(SEED);
+
+        SupplyManager supplyManager = new SupplyManager();
+        String[] supplyNames = new String[supplies];
+        for(int i = 0 ; i < supplies ; i++){
+            supplyNames[i] = "Supply " + toLetters(i);
+            Supply2 supply = new Supply2(supplyNames[i], SupplyManager.DEFAULT_QUANTITY_NEEDED, STOCK);
+            supplyManager.saveNewSupply(supply);
+        }
+
+        MenuItemManager menuItemManager = new MenuItemManager();
+        Meal[] menu = new Meal[menuItems];
+        for(int i = 0 ; i < menuItems ; i++){
+            menu[i] = new Meal("Meal " + toLetters(i), 5 + random.nextInt(20));
+            HashMap<String, Integer> ingredients = new HashMap<>();
+            HashMap<String, Integer> additions = new HashMap<>();
+            for(int j = 0 ; j < SUPPLIES_PER_MENU_ITEM ; j++){
+                ingredients.merge(supplyNames[random.nextInt(supplies)], 1 + random.nextInt(3), Integer::sum);
+                additions.put(supplyNames[random.nextInt(supplies)], 1);
+            }
+            menu[i].getIngredients().setBaseIngredient(ingredients);
+            menu[i].getIngredients().setAvailableSubtraction(ingredients);
+            menu[i].getIngredients().setAvailableAddition(additions);
+            menuItemManager.saveMealItemFile(menu[i]);
+        }
+
+        FileManager fileManager = new FileManager();
+        OrderManager orderManager = new OrderManager();
+        ItemManager itemManager = new ItemManager();
+        for(int i = 0 ; i < orders + finishedOrders ; i++){
+            Order2 order = new Order2(orderManager.getCurrentOrderNumber(), 1 + random.nextInt(30));
+            for(int j = 0 ; j < ITEMS_PER_ORDER ; j++){
+                order.addItem(new Meal(menu[random.nextInt(menuItems)], itemManager.getCurrentItemNumber(),
+                        order.getOrderNumber(), order.getTableNumber()));
+            }
+            if(i < orders){
+                fileManager.saveToFile(order, Config.getOrdersPath());
+            }
+            else {
+                order.finished();
+                fileManager.saveToFile(order, Config.getFinishedOrdersPath());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes a number with letters, since the supply names can only have letters and spaces.
+     * @param number the number
+     * @return the letters
+     */
+    private static String toLetters(int number){
+        StringBuilder letters = new StringBuilder();
+        do {
+            letters.insert(0, (char) ('a' + number % 26));
+            number /= 26;
+        } while(number > 0);
+        letters.setCharAt(0, Character.toUpperCase(letters.charAt(0)));
+        return letters.toString();
+    }
+}
@@ -0,0 +1,562 @@
+package benchmark;
+
+import control.ControlConfig;
+import control.CustomerItemController;
+import control.FileController;
+import control.OrderModifier;
+import control.ReceiptController;
+import control.SupplyModifier;
+import control.UpdateController;
+import model.configs.Config;
+import model.data.Item;
+import model.data.Meal;
+import model.data.Order2;
+import model.data.OrderLine;
+import model.managers.LatencyHistogram;
+import model.managers.MenuItemManager;
+import model.managers.OrderManager;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The DinnerRushSimulation class.
+ *
+ * Runs a dinner rush without the JavaFX scenes by calling the control classes the way the scenes do. The tables arrive
+ * at random times at the given rate. Every table orders a random number of menu items, some of them with an addition
+ * or a subtraction, and its order then goes through the kitchen (the items are acknowledged and made), is delivered,
+ * sometimes has an item returned and made again, and is paid and finished. A delivery of supplies is received every
+ * RESTOCK_MINUTES. The time between the steps is random around the times of a real dinner, and the simulated time runs
+ * faster than the real time by the speed, so an hour of dinner rush can be run in a minute.
+ *
+ * The time of every call is kept in a histogram for every operation, and the number of calls per second and the
+ * percentiles of the times are printed at the end. With processes greater than 1 the simulation runs in that many
+ * programs at the same time, which share the data folders like several terminals of the restaurant, and the
+ * histograms of all the programs are added together.
+ *
+ * The options are given as name=value: tables (per hour), minutes (of simulated time), speed, items (per table on
+ * average), modifiers (the chance of a modifier on an item), returns (the chance of a returned item), terminals (the
+ * threads of a program) and processes. It reads the config file of the working directory, so run it in a copy of the
+ * data folders, for example one made by the DataGenerator.
+ * Run it with "java -cp out benchmark.DinnerRushSimulation [name=value...]".
+ */
+public class DinnerRushSimulation {
+    private static final String[] OPERATIONS = {"reserve", "order", "acknowledge", "ready", "deliver", "return",
+            "receipt", "pay", "finish", "receive"};
+    private static final double ACKNOWLEDGE_MINUTES = 1;
+    private static final double COOK_MINUTES = 12;
+    private static final double DELIVER_MINUTES = 2;
+    private static final double EAT_MINUTES = 35;
+    private static final double PAY_MINUTES = 5;
+    private static final double RESTOCK_MINUTES = 15;
+    private static final int RESTOCK_QUANTITY = 500;
+    private static final String HISTOGRAM = "histogram";
+    private static final String COUNTS = "counts";
+
+    private final HashMap<String, String> options;
+    private final double speed;
+    private final double itemsPerTable;
+    private final double modifierChance;
+    private final double returnChance;
+    private final ArrayList<Meal> menu;
+    private final ScheduledExecutorService terminals;
+    private final TreeMap<String, LatencyHistogram> histograms;
+    private final AtomicInteger tables;
+    private final AtomicInteger refused;
+    private final AtomicInteger failed;
+    private final AtomicInteger open;
+    private final ConcurrentHashMap<Integer, Boolean> finished;
+    private volatile boolean draining;
+
+    private OrderModifier orderModifier;
+    private CustomerItemController customerItemController;
+    private SupplyModifier supplyModifier;
+    private ReceiptController receiptController;
+    private OrderManager orderManager;
+
+    /**
+     * Constructs a DinnerRushSimulation with the options.
+     * @param options the options by name
+     */
+    private DinnerRushSimulation(HashMap<String, String> options){
+        this.options = options;
+        speed = getOption("speed", 60);
+        itemsPerTable = getOption("items", 3);
+        modifierChance = getOption("modifiers", 0.3);
+        returnChance = getOption("returns", 0.05);
+        menu = new MenuItemManager().getMealItemList();
+        terminals = Executors.newScheduledThreadPool((int) getOption("terminals", 4));
+        histograms = newHistograms();
+        tables = new AtomicInteger();
+        refused = new AtomicInteger();
+        failed = new AtomicInteger();
+        open = new AtomicInteger();
+        finished = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Runs the simulation.
+     * @param args the options as name=value
+     * @throws Exception if the simulation is interrupted or a program cannot be started
+     */
+    public static void main(String[] args) throws Exception {
+        HashMap<String, String> options = new HashMap<>();
+        for(String arg : args){
+            String[] option = arg.split("=", 2);
+            options.put(option[0], option.length > 1 ? option[1] : "");
+        }
+        int processes = Integer.parseInt(options.getOrDefault("processes", "1"));
+        if(processes > 1 && !options.containsKey("child")){
+            runProcesses(args, processes);
+            return;
+        }
+        Config.init();
+        ControlConfig.init();
+        FileController fileController = FileController.getFileController();
+        fileController.setUpdateController(new UpdateController());
+        // the changes of the other programs are read again like in the scenes, on the thread of the listener
+        fileController.startListening(Runnable::run);
+        DinnerRushSimulation simulation = new DinnerRushSimulation(options);
+        if(simulation.menu.isEmpty()){
+            System.out.println("There are no menu items in " + Config.getFoodPath());
+            return;
+        }
+        long time = simulation.run(processes);
+        fileController.unregister();
+        if(options.containsKey("child")){
+            simulation.printHistograms();
+        }
+        else {
+            printReport(simulation.histograms, time, simulation.tables.get(), simulation.refused.get(),
+                    simulation.failed.get());
+        }
+    }
+
+    /**
+     * Runs the tables that arrive during the simulated minutes and waits for all of them to finish. After the last
+     * arrival the remaining steps run without waiting.
+     * @param processes the number of programs the tables are shared with
+     * @return the real time of the simulation in nanoseconds
+     * @throws InterruptedException if the simulation is interrupted
+     */
+    private long run(int processes) throws InterruptedException {
+        double tablesPerMinute = getOption("tables", 200) / 60 / processes;
+        double minutes = getOption("minutes", 60);
+        long start = System.nanoTime();
+        terminals.scheduleAtFixedRate(this::restock, 0, toNanos(RESTOCK_MINUTES), TimeUnit.NANOSECONDS);
+        double arrival = 0;
+        while(true){
+            arrival += -Math.log(1 - ThreadLocalRandom.current().nextDouble()) / tablesPerMinute;
+            if(arrival >= minutes){
+                break;
+            }
+            long wait = start + toNanos(arrival) - System.nanoTime();
+            if(wait > 0){
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+            int table = 1 + ThreadLocalRandom.current().nextInt(100);
+            open.incrementAndGet();
+            later(0, () -> order(table));
+        }
+        draining = true;
+        while(open.get() > 0){
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        long time = System.nanoTime() - start;
+        terminals.shutdownNow();
+        return time;
+    }
+
+    /**
+     * A table orders: the supplies of every item are reserved and the order is made.
+     * @param table the table number
+     */
+    private void order(int table){
+        ArrayList<OrderLine> lines = new ArrayList<>();
+        ArrayList<Long> reservations = new ArrayList<>();
+        int count = Math.max(1, (int) Math.round(itemsPerTable * -Math.log(1 - ThreadLocalRandom.current().nextDouble())));
+        for(int i = 0 ; i < count ; i++){
+            OrderLine line = makeLine();
+            long reservation = time("reserve", () -> supplyModifier().reserveSupply(line));
+            if(reservation == SupplyModifier.NO_RESERVATION){
+                refused.incrementAndGet();
+            }
+            else {
+                lines.add(line);
+                reservations.add(reservation);
+            }
+        }
+        if(lines.isEmpty()){
+            open.decrementAndGet();
+            return;
+        }
+        tables.incrementAndGet();
+        int orderNumber = time("order", () -> orderModifier().makeNewOrder(table, lines, reservations));
+        later(ACKNOWLEDGE_MINUTES, () -> cook(orderNumber));
+    }
+
+    /**
+     * The kitchen acknowledges the items of the order and makes them.
+     * @param orderNumber the order number
+     */
+    private void cook(int orderNumber){
+        ArrayList<Integer> items = getItemNumbers(orderNumber);
+        for(int item : items){
+            time("acknowledge", () -> {
+                customerItemController().acknowledgeItem(orderNumber, item);
+                return null;
+            });
+        }
+        later(COOK_MINUTES, () -> {
+            for(int item : items){
+                time("ready", () -> {
+                    customerItemController().readyItem(orderNumber, item);
+                    return null;
+                });
+            }
+            later(DELIVER_MINUTES, () -> deliver(orderNumber, items));
+        });
+    }
+
+    /**
+     * The server delivers the items. Sometimes an item is returned and made again before the table pays.
+     * @param orderNumber the order number
+     * @param items the item numbers
+     */
+    private void deliver(int orderNumber, ArrayList<Integer> items){
+        for(int item : items){
+            time("deliver", () -> {
+                customerItemController().confirmDelivery(item);
+                return null;
+            });
+        }
+        if(!items.isEmpty() && ThreadLocalRandom.current().nextDouble() < returnChance){
+            int item = items.get(ThreadLocalRandom.current().nextInt(items.size()));
+            time("return", () -> {
+                orderModifier().returnItem(item, "not what was asked for");
+                return null;
+            });
+            later(COOK_MINUTES, () -> {
+                time("ready", () -> {
+                    customerItemController().readyItem(orderNumber, item);
+                    return null;
+                });
+                later(DELIVER_MINUTES, () -> deliver(orderNumber, new ArrayList<>(Collections.singletonList(item))));
+            });
+            return;
+        }
+        later(EAT_MINUTES, () -> pay(orderNumber));
+    }
+
+    /**
+     * The table asks for the bill, pays and the order is finished.
+     * @param orderNumber the order number
+     */
+    private void pay(int orderNumber){
+        if(finished.putIfAbsent(orderNumber, true) != null){
+            return;
+        }
+        ArrayList<Integer> items = getItemNumbers(orderNumber);
+        double price = time("receipt", () -> receiptController().calculatePaymentPrice(items, false));
+        later(PAY_MINUTES, () -> {
+            time("pay", () -> {
+                receiptController().printPaymentReceipt(items, false, Math.ceil(price));
+                return null;
+            });
+            time("finish", () -> {
+                orderModifier().finishOrder(orderNumber);
+                return null;
+            });
+            open.decrementAndGet();
+        });
+    }
+
+    /**
+     * A delivery of the supplies of the menu items is received.
+     */
+    private void restock(){
+        LinkedHashMap<String, Integer> delivery = new LinkedHashMap<>();
+        for(Meal meal : menu){
+            for(String supply : meal.getIngredients().getNeededIngredients().keySet()){
+                delivery.put(supply, RESTOCK_QUANTITY);
+            }
+        }
+        time("receive", () -> supplyModifier().receiveSupplies(delivery));
+    }
+
+    /**
+     * Makes the order line of a random menu item, with an addition or a subtraction at the chance of modifiers.
+     * @return the order line
+     */
+    private OrderLine makeLine(){
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Meal meal = menu.get(random.nextInt(menu.size()));
+        HashMap<String, Integer> choices = new HashMap<>();
+        if(random.nextDouble() < modifierChance){
+            ArrayList<String> additions = new ArrayList<>(meal.getIngredients().getAvailableAddition().keySet());
+            ArrayList<String> subtractions = new ArrayList<>(meal.getIngredients().getAvailableSubtraction().keySet());
+            if(!additions.isEmpty() && (subtractions.isEmpty() || random.nextBoolean())){
+                choices.put(additions.get(random.nextInt(additions.size())), 1);
+            }
+            else if(!subtractions.isEmpty()){
+                choices.put(subtractions.get(random.nextInt(subtractions.size())), -1);
+            }
+        }
+        return new OrderLine(meal.getName(), choices, "");
+    }
+
+    /**
+     * Returns the numbers of the items of the order.
+     * @param orderNumber the order number
+     * @return the item numbers
+     */
+    private ArrayList<Integer> getItemNumbers(int orderNumber){
+        ArrayList<Integer> items = new ArrayList<>();
+        Order2 order = orderManager().getOrder(orderNumber);
+        if(order != null){
+            for(Item item : order.getItems()){
+                items.add(item.getItemInfo().getItemNumber());
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Runs the step after a random time around the simulated minutes, or at once when the arrivals are over.
+     * @param minutes the average simulated minutes
+     * @param step the step
+     */
+    private void later(double minutes, Runnable step){
+        double wait = draining ? 0 : minutes * -Math.log(1 - ThreadLocalRandom.current().nextDouble());
+        try {
+            terminals.schedule(() -> {
+                try {
+                    step.run();
+                }
+                catch (RuntimeException e){
+                    failed.incrementAndGet();
+                    open.decrementAndGet();
+//                    System.err.println("A step of the simulation failed: " + e);
+                }
+            }, toNanos(wait), TimeUnit.NANOSECONDS);
+        }
+        catch (RuntimeException e){
+            open.decrementAndGet();
+        }
+    }
+
+    /**
+     * Runs the operation and adds its time to the histogram of the operation.
+     * @param operation the name of the operation
+     * @param call the call
+     * @param <T> the type of the result
+     * @return the result of the call
+     */
+    private <T> T time(String operation, Call<T> call){
+        long start = System.nanoTime();
+        T result = call.run();
+        histograms.get(operation).record((System.nanoTime() - start) / 1000);
+        return result;
+    }
+
+    /**
+     * Returns the real time of the simulated minutes.
+     * @param minutes the simulated minutes
+     * @return the real time in nanoseconds
+     */
+    private long toNanos(double minutes){
+        return (long) (minutes * 60e9 / speed);
+    }
+
+    /**
+     * Returns a number option.
+     * @param name the name of the option
+     * @param value the default value
+     * @return the value of the option
+     */
+    private double getOption(String name, double value){
+        return options.containsKey(name) ? Double.parseDouble(options.get(name)) : value;
+    }
+
+    /**
+     * Returns an empty histogram for every operation.
+     * @return the histograms by operation
+     */
+    private static TreeMap<String, LatencyHistogram> newHistograms(){
+        TreeMap<String, LatencyHistogram> histograms = new TreeMap<>();
+        for(String operation : OPERATIONS){
+            histograms.put(operation, new LatencyHistogram());
+        }
+        return histograms;
+    }
+
+    /**
+     * Prints the number of calls per second and the percentiles of the times of every operation.
+     * @param histograms the histograms by operation
+     * @param nanos the real time of the simulation in nanoseconds
+     * @param tableCount the number of tables that ordered
+     * @param refusedCount the number of items that could not be reserved
+     * @param failedCount the number of tables that stopped because a call failed
+     */
+    private static void printReport(TreeMap<String, LatencyHistogram> histograms, long nanos, int tableCount,
+                                    int refusedCount, int failedCount){
+        double seconds = nanos / 1e9;
+        System.out.printf("%d tables in %.1f s, %d items refused for lack of supplies, %d tables stopped by a "
+                + "failed call%n", tableCount, seconds, refusedCount, failedCount);
+        System.out.printf("%-12s %8s %9s %9s %9s %9s %9s%n", "operation", "calls", "calls/s", "p50 ms", "p90 ms",
+                "p99 ms", "max ms");
+        for(Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()){
+            LatencyHistogram histogram = entry.getValue();
+            long count = histogram.getCount();
+            if(count > 0){
+                System.out.printf("%-12s %8d %9.1f %9.2f %9.2f %9.2f %9.2f%n", entry.getKey(), count,
+                        count / seconds, histogram.getPercentile(50) / 1000.0,
+                        histogram.getPercentile(90) / 1000.0, histogram.getPercentile(99) / 1000.0,
+                        histogram.getPercentile(100) / 1000.0);
+            }
+        }
+    }
+
+    /**
+     * Prints the histograms and the counts for the program that started this one.
+     */
+    private void printHistograms(){
+        System.out.println(COUNTS + " " + tables.get() + " " + refused.get() + " " + failed.get());
+        for(Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()){
+            System.out.println(HISTOGRAM + " " + entry.getKey() + entry.getValue().toText());
+        }
+    }
+
+    /**
+     * Runs the simulation in several programs at the same time and prints the report of all of them.
+     * @param args the options
+     * @param processes the number of programs
+     * @throws IOException if a program cannot be started
+     * @throws InterruptedException if the simulation is interrupted
+     */
+    private static void runProcesses(String[] args, int processes) throws IOException, InterruptedException {
+        ArrayList<Process> children = new ArrayList<>();
+        for(int i = 0 ; i < processes ; i++){
+            ArrayList<String> command = new ArrayList<>();
+            command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(DinnerRushSimulation.class.getName());
+            for(String arg : args){
+                command.add(arg);
+            }
+            command.add("child");
+            children.add(new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start());
+        }
+        TreeMap<String, LatencyHistogram> histograms = newHistograms();
+        long start = System.nanoTime();
+        int tableCount = 0;
+        int refusedCount = 0;
+        int failedCount = 0;
+        for(Process child : children){
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(child.getInputStream(),
+                    StandardCharsets.UTF_8))){
+                String line;
+                while((line = reader.readLine()) != null){
+                    String[] fields = line.split(" ");
+                    if(fields[0].equals(COUNTS)){
+                        tableCount += Integer.parseInt(fields[1]);
+                        refusedCount += Integer.parseInt(fields[2]);
+                        failedCount += Integer.parseInt(fields[3]);
+                    }
+                    else if(fields[0].equals(HISTOGRAM)){
+                        histograms.get(fields[1]).add(line.substring(HISTOGRAM.length() + fields[1].length() + 1));
+                    }
+                    else {
+                        System.out.println(line);
+                    }
+                }
+            }
+            child.waitFor();
+        }
+        System.out.println(processes + " programs:");
+        printReport(histograms, System.nanoTime() - start, tableCount, refusedCount, failedCount);
+    }
+
+    /**
+     * Returns the OrderModifier, made the first time it is used.
+     * @return the OrderModifier
+     */
+    private synchronized OrderModifier orderModifier(){
+        if(orderModifier == null){
+            orderModifier = new OrderModifier();
+        }
+        return orderModifier;
+    }
+
+    /**
+     * Returns the CustomerItemController, made the first time it is used.
+     * @return the CustomerItemController
+     */
+    private synchronized CustomerItemController customerItemController(){
+        if(customerItemController == null){
+            customerItemController = new CustomerItemController();
+        }
+        return customerItemController;
+    }
+
+    /**
+     * Returns the SupplyModifier, made the first time it is used.
+     * @return the SupplyModifier
+     */
+    private synchronized SupplyModifier supplyModifier(){
+        if(supplyModifier == null){
+            supplyModifier = new SupplyModifier();
+        }
+        return supplyModifier;
+    }
+
+    /**
+     * Returns the ReceiptController, made the first time it is used.
+     * @return the ReceiptController
+     */
+    private synchronized ReceiptController receiptController(){
+        if(receiptController == null){
+            receiptController = new ReceiptController();
+        }
+        return receiptController;
+    }
+
+    /**
+     * Returns the OrderManager, made the first time it is used.
+     * @return the OrderManager
+     */
+    private synchronized OrderManager orderManager(){
+        if(orderManager == null){
+            orderManager = new OrderManager();
+        }
+        return orderManager;
+    }
+
+    /**
+     * A timed call of the control classes.
+     * @param <T> the type of the result
+     */
+    private interface Call<T> {
+        /**
+         * Runs the call.
+         * @return the result
+         */
+        T run();
+    }
+}
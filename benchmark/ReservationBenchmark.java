@@ -0,0 +1,127 @@
+package benchmark;
+
+import model.configs.Config;
+import model.data.Meal;
+import model.managers.MenuItemManager;
+import model.managers.ReservationLedger;
+import model.managers.SupplyManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The ReservationBenchmark class.
+ *
+ * Runs many simulated servers that reserve the supplies of the menu items in parallel through the SupplyManager.
+ *
+ * In the first part every server picks a random menu item, reserves its ingredients (which checks the stock) and
+ * releases the reservation again, for the given number of seconds. The number of reservations per second is printed.
+ *
+ * In the second part all the servers try to reserve one unit of the same supply until there is none left. The
+ * number of units they got must be the quantity that was free at the start, otherwise two servers got the same unit.
+ * All the reservations are released at the end.
+ *
+ * It reads the config file of the working directory, so run it in a copy of the data folders. Several copies of it
+ * can be run in the same folder at the same time to have servers in more than one program; the check of the second
+ * part is only right when one copy runs it.
+ * Run it with "java -cp out benchmark.ReservationBenchmark [servers] [seconds]".
+ */
+public class ReservationBenchmark {
+    private static final int DEFAULT_SERVERS = 16;
+    private static final int DEFAULT_SECONDS = 10;
+
+    /**
+     * Runs the benchmark.
+     * @param args the number of servers and the number of seconds of the first part, optional
+     * @throws InterruptedException if the benchmark is interrupted
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int servers = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SERVERS;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_SECONDS;
+        Config.init();
+        SupplyManager supplyManager = new SupplyManager();
+        ArrayList<Map<String, Integer>> menu = new ArrayList<>();
+        for(Meal meal : new MenuItemManager().getMealItemList()){
+            menu.add(meal.getIngredients().getNeededIngredients());
+        }
+        if(menu.isEmpty()){
+            System.out.println("There are no menu items in " + Config.getFoodPath());
+            return;
+        }
+
+        AtomicLong reserved = new AtomicLong();
+        AtomicLong refused = new AtomicLong();
+        long end = System.nanoTime() + seconds * 1000000000L;
+        Thread[] threads = new Thread[servers];
+        for(int i = 0 ; i < servers ; i++){
+            threads[i] = new Thread(() -> {
+                while(System.nanoTime() < end){
+                    Map<String, Integer> item = menu.get(ThreadLocalRandom.current().nextInt(menu.size()));
+                    long reservation = supplyManager.reserveNeededSupply(item, -1, -1);
+                    if(reservation == ReservationLedger.NO_RESERVATION){
+                        refused.incrementAndGet();
+                    }
+                    else {
+                        reserved.incrementAndGet();
+                        supplyManager.releaseReservation(reservation);
+                    }
+                }
+            });
+        }
+        run(threads);
+        System.out.printf("%d servers: %.0f reservations/s (%d reserved and released, %d refused)%n", servers,
+                reserved.get() / (double) seconds, reserved.get(), refused.get());
+
+        String supply = Collections.max(supplyManager.getSupplyNameList(),
+                (a, b) -> Integer.compare(free(supplyManager, a), free(supplyManager, b)));
+        int free = free(supplyManager, supply);
+        List<Long> reservations = Collections.synchronizedList(new ArrayList<>());
+        Map<String, Integer> one = Collections.singletonMap(supply, 1);
+        long start = System.nanoTime();
+        for(int i = 0 ; i < servers ; i++){
+            threads[i] = new Thread(() -> {
+                long reservation;
+                while((reservation = supplyManager.reserveNeededSupply(one, -1, -1))
+                        != ReservationLedger.NO_RESERVATION){
+                    reservations.add(reservation);
+                }
+            });
+        }
+        run(threads);
+        double time = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%s: %d of %d free units reserved in %.2f s, %s%n", supply, reservations.size(), free, time,
+                reservations.size() == free ? "no unit was reserved twice" : "THE COUNTS DON'T MATCH");
+        for(long reservation : reservations){
+            supplyManager.releaseReservation(reservation);
+        }
+    }
+
+    /**
+     * Returns the quantity of the supply that is in stock and not reserved.
+     * @param supplyManager the supply manager
+     * @param name the supply name
+     * @return the free quantity
+     */
+    private static int free(SupplyManager supplyManager, String name){
+        return supplyManager.getSupplyByName(name).getQuantity()
+                - ReservationLedger.getReservationLedger().getReserved(name);
+    }
+
+    /**
+     * Starts the threads and waits for all of them.
+     * @param threads the threads
+     * @throws InterruptedException if the benchmark is interrupted
+     */
+    private static void run(Thread[] threads) throws InterruptedException {
+        for(Thread thread : threads){
+            thread.start();
+        }
+        for(Thread thread : threads){
+            thread.join();
+        }
+    }
+}
@@ -7,7 +7,8 @@ import model.data.Order2;
 import model.data.Supply2;
 import model.managers.*;
 
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -22,6 +23,9 @@ public class CustomerItemController {
     private Logger logger;
     private FileManager fileManager;
     private FileController fileController;
+    private Metrics metrics;
+    private final int RETRIES = 5;
+
     public CustomerItemController(){
         orderManager = new OrderManager();
         itemManager = new ItemManager();
@@ -29,45 +33,47 @@ public class CustomerItemController {
         supplyManager = new SupplyManager();
         fileController = FileController.getFileController();
         fileManager = new FileManager();
+        metrics = Metrics.getMetrics();
     }
 
     /**
      * This method is called when an item in the kitchen have
      * been prepared and needs to be served. This class will
      * let the models know the change and log the change to the file.
+     *
+     * The item and the supplies are written together in one UnitOfWork. If another program saved the item in the
+     * meantime, the order is read again and the item is finished again unless it is already ready.
      * @param orderNum - order number that this item is in.
      * @param itemNum - item number for the item that is finished cooking.
      */
     public void readyItem(int orderNum, int itemNum) {
-        Order2 order = orderManager.getOrder(orderNum);
-        if(order != null){
-            for(Item item : order.getItems()){
-                if(item.getItemInfo().getItemNumber() == itemNum){
-                    String msg = order.toString() + " "
-                            + item.toString() + " has been cooked and is waiting for delivery";
-                    logger.info(msg);
-                    itemManager.sendToFront(item);
-                    HashMap<String, Integer> ingredients = item.getIngredients().getNeededIngredients();
-                    supplyManager.deductIngredientUsage(ingredients);
-                    fileController.notifyChange((ObservableItem) item);
-                    notifyAllIngredients(ingredients);
+        metrics.time("CustomerItemController.readyItem", () -> {
+            for(int tries = 0 ; tries < RETRIES ; tries++){
+                Order2 order = orderManager.getOrder(orderNum);
+                if(order == null){
+                    return;
+                }
+                Item item = null;
+                for(Item orderItem : order.getItems()){
+                    if(orderItem.getItemInfo().getItemNumber() == itemNum){
+                        item = orderItem;
+                    }
+                }
+                if(item == null || item.getItemInfo().isReady()){
+                    return;
+                }
+                UnitOfWork work = new UnitOfWork();
+                itemManager.sendToFront(item, work);
+                supplyManager.deductIngredients(item.getIngredients().getNeededIngredients(), InventoryLog.CONSUMED,
+                        Collections.singletonList(itemNum), work);
+                if(work.commit()){
+                    logger.log(Level.INFO, "{0} {1} has been cooked and is waiting for delivery",
+                            new Object[]{order, item});
+                    fileController.notifyChanges(work, order);
+                    return;
                 }
             }
-            fileController.notifyChange(order);
-            supplyManager.updateSupplyRequests();
-
-        }
-    }
-
-    /**
-     * Notify other programs that the supply amount have been changed
-     * @param ingredients hashmap of ingredients and quantity that is been changed.
-     */
-    private void notifyAllIngredients(HashMap<String, Integer> ingredients){
-        for(String supplyName : ingredients.keySet()){
-            Supply2 supply = supplyManager.getSupplyByName(supplyName);
-            fileController.notifyChange(supply);
-        }
+        });
     }
 
     /**
@@ -77,18 +83,19 @@ public class CustomerItemController {
      * @param itemNum - the item  that is been knowledge.
      */
     public void acknowledgeItem(int orderNum, int itemNum) {
-        Order2 order = orderManager.getOrder(orderNum);
-        if(order != null){
-            for(Item item : order.getItems()){
-                if(item.getItemInfo().getItemNumber() == itemNum){
-                    String msg = order.toString() + ":"
-                            + item.toString() + " has been acknowledge by the kitchen";
-                    logger.info(msg);
-                    itemManager.acknowledgeItem(item);
+        metrics.time("CustomerItemController.acknowledgeItem", () -> {
+            Order2 order = orderManager.getOrder(orderNum);
+            if(order != null){
+                for(Item item : order.getItems()){
+                    if(item.getItemInfo().getItemNumber() == itemNum){
+                        logger.log(Level.INFO, "{0}:{1} has been acknowledge by the kitchen",
+                                new Object[]{order, item});
+                        itemManager.acknowledgeItem(item);
+                    }
                 }
+                fileController.notifyChange(order);
             }
-            fileController.notifyChange(order);
-        }
+        });
     }
 
     /**
@@ -97,17 +104,19 @@ public class CustomerItemController {
      * @param itemNumber - item number of the item that have been delivered.
      */
     public void confirmDelivery(int itemNumber){
-        ObservableItem item = (ObservableItem) itemManager.getItem(itemNumber);
-        if(item != null) {
-            String msg = item.toString() + " has been delivered to table #" +item.getItemInfo().getTableNumber();
-            logger.info(msg);
-            itemManager.conFirmDeliveryItem(item);
-            fileController.notifyChange(item);
-            Order2 order = orderManager.getOrder(item.getItemInfo().getOrderNumber());
-            if(order != null){
-                fileController.notifyChange(order);
+        metrics.time("CustomerItemController.confirmDelivery", () -> {
+            ObservableItem item = (ObservableItem) itemManager.getItem(itemNumber);
+            if(item != null) {
+                logger.log(Level.INFO, "{0} has been delivered to table #{1,number,#}",
+                        new Object[]{item, item.getItemInfo().getTableNumber()});
+                itemManager.conFirmDeliveryItem(item);
+                fileController.notifyChange(item);
+                Order2 order = orderManager.getOrder(item.getItemInfo().getOrderNumber());
+                if(order != null){
+                    fileController.notifyChange(order);
+                }
             }
-        }
 
+        });
     }
 }
@@ -6,10 +6,13 @@ import model.data.Order2;
 import model.data.Supply2;
 import model.managers.ItemManager;
 import model.managers.MenuItemManager;
+import model.managers.Metrics;
 import model.managers.OrderManager;
+import model.managers.SalesAnalytics;
 import model.managers.SupplyManager;
 
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * This class is the Getter for the data in the model. View and view controller
@@ -64,13 +67,36 @@ public class DataGetter {
      * @return list of supplies.
      */
     public ArrayList<Supply2> getCurrentSupplies(){
-        ArrayList<Supply2> supplies = new ArrayList<>();
-        for(String name : supplyManager.getSupplyNameList()){
-            Supply2 supply = supplyManager.getSupplyByName(name);
-            if(supply != null) {
-                supplies.add(supplyManager.getSupplyByName(name));
-            }
-        }
-        return supplies;
+        return supplyManager.getSupplyList();
+    }
+
+    /**
+     * Returns the number of items and the revenue of every meal in every hour between the two times.
+     * @param from the start time in milliseconds
+     * @param to the end time in milliseconds
+     * @return the rows of the hours with sales, by hour and then by meal
+     */
+    public List<SalesAnalytics.Row> getHourlySales(long from, long to){
+        return SalesAnalytics.getSalesAnalytics().getSalesByMeal(from, to, 60 * 60 * 1000L);
+    }
+
+    /**
+     * Returns the additions and subtractions that were asked for most often between the two times.
+     * @param from the start time in milliseconds
+     * @param to the end time in milliseconds
+     * @param limit the number of modifiers
+     * @return the rows of the modifiers, the most used first
+     */
+    public List<SalesAnalytics.Row> getTopModifiers(long from, long to, int limit){
+        return SalesAnalytics.getSalesAnalytics().getTopModifiers(from, to, limit);
+    }
+
+    /**
+     * Returns a line for every timed operation of all the programs with its number of calls and percentiles, and a
+     * line for every counter.
+     * @return the lines of the report
+     */
+    public ArrayList<String> getOperationTimes(){
+        return Metrics.getMetrics().getReport();
     }
 }
@@ -1,26 +1,52 @@
 package control;
 
+import model.configs.Config;
 import model.data.Meal;
+import model.data.ObservableItem;
+import model.data.Order2;
+import model.data.Supply2;
 import model.interfaces.Observable;
 import model.interfaces.Savable;
+import model.managers.ChangeBus;
+import model.managers.ChangeLog;
 import model.managers.FileManager;
+import model.managers.ItemManager;
+import model.managers.LockManager;
+import model.managers.MenuItemManager;
+import model.managers.UnitOfWork;
 
-import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * FileController class. It attaches Observable to all of the observers and send the update request to all
  * of the programs that is currently running.
  *
- * Upon receiving changes from the other program, it will uses the updateManager to attach observables to the
- * observers and call update and notify changes to all observers.
+ * The update requests only have the type and the file name of the changed Observable. They are sent over the
+ * ChangeBus when the "change bus" of the config file is "socket" and a broker is running, and are appended to the
+ * ChangeLog otherwise. The changes of a UnitOfWork are sent together as one BATCH record. Both are listened to. Upon
+ * receiving changes from the other program, it reads the changed Observables again, uses the updateManager to attach
+ * them to the observers and call update and notify changes to all observers.
+ *
+ * The observers are screens, so they are only attached and updated by the GUI executor of the IoExecutor. The files
+ * are read and the changes are sent on the thread that calls this class, which is an io thread for the screens and
+ * the thread of the ChangeLog or the ChangeBus for the changes of the other programs.
+ * @see ChangeLog
+ * @see ChangeBus
  */
 public class FileController {
 
-    private static String updatePath = "UpdateFiles/";
     private static FileController fileController = new FileController();
     private long id;
-    private String folderPath;
     private FileManager fileManager;
+    private ItemManager itemManager;
+    private MenuItemManager menuItemManager;
+    private ChangeLog changeLog;
+    private ChangeBus changeBus;
 
     private UpdateManager updateManager;
 
@@ -28,27 +54,56 @@ public class FileController {
      * Constructs a FileController.
      */
     private FileController(){
-        folderPath = ControlConfig.getUpdateFilesPath();
         fileManager = new FileManager();
+        itemManager = new ItemManager();
+        menuItemManager = new MenuItemManager();
         id = System.currentTimeMillis();
-        folderPath += Long.toString(id) + "/";
-        createSaveFolder();
-
+        LockManager.getLockManager().setOwner(id);
+        changeLog = new ChangeLog(ControlConfig.getUpdateFilesPath() + "changeLog", id);
+        changeBus = new ChangeBus(ControlConfig.getUpdateFilesPath(), id);
     }
 
     /**
-     * Send the notifying files to all of other sub folders in the updateFiles folder. Call observable.update()
-     * upon receiving a new observable.
+     * Sends the change of the observable over the change bus, or appends it to the change log if the bus is not
+     * available, so that all of the other programs are notified. Call observable.update() for this program.
      * @param observable the observable
      */
     public void notifyChange(Observable observable){
-        updateManager.hookObserver(observable);
-        for(File folder : fileManager.getFileList(updatePath)){
-            if(!folder.getName().equals(Long.toString(id))){
-                fileManager.saveToFile((Savable) observable, updatePath + folder.getName() + "/");
+        byte type = getType(observable);
+        String fileName = ((Savable) observable).getFileName();
+        if(!changeBus.publish(type, fileName)){
+            changeLog.append(type, fileName);
+        }
+        show(Collections.singletonList(observable));
+    }
+
+    /**
+     * Notifies the other programs of all the changed Observables of a committed UnitOfWork with one BATCH record, and
+     * calls update() of the Observables for this program.
+     * @param work the committed unit of work
+     * @param others the Observables that are not saved by the unit of work but that show its changes (like the order
+     *               of a changed item)
+     */
+    public void notifyChanges(UnitOfWork work, Observable... others){
+        ArrayList<Observable> observables = new ArrayList<>();
+        for(Savable savable : work.getChanged()){
+            if(savable instanceof Observable){
+                observables.add((Observable) savable);
             }
         }
-        observable.update();
+        observables.addAll(Arrays.asList(others));
+        ArrayList<String> lines = new ArrayList<>();
+        for(Observable observable : observables){
+            lines.add(getType(observable) + ":" + ((Savable) observable).getFileName());
+        }
+        if(observables.isEmpty()){
+            return;
+        }
+        String batch = String.join("\n", lines);
+        if(!changeBus.publish(ChangeLog.BATCH, batch)){
+            changeLog.append(ChangeLog.BATCH, batch);
+        }
+        show(observables);
     }
 
     /**
@@ -60,35 +115,132 @@ public class FileController {
     }
 
     /**
-     * Loads update files from its update folder, hook observers to the observables using the
-     * updateManager and notify all current observers.
+     * Starts listening to the changes of the other programs. The changed files are read on the threads that listen,
+     * and the observers are updated by the executor, which should run them on the thread of the GUI. The executor
+     * becomes the GUI executor of the IoExecutor.
+     * @param executor the executor
+     */
+    public void startListening(Executor executor){
+        IoExecutor.getIoExecutor().setGuiExecutor(executor);
+        changeLog.start(Runnable::run, this::updateChange);
+        if(Config.getChangeBus().equals("socket")){
+            changeBus.start(Runnable::run, this::updateChange);
+        }
+        // the changes are followed from now on, so the items are searched through the invalidated files only
+        itemManager.followChanges(true);
+    }
+
+    /**
+     * Reads the changed Observables of the change records, hook observers to the observables using the
+     * updateManager and notify all current observers. An Observable that was changed several times is only read once.
+     * @param changes the change records of the other programs
+     */
+    public void updateChange(ArrayList<ChangeLog.Change> changes){
+        LinkedHashMap<String, ChangeLog.Change> latest = new LinkedHashMap<>();
+        for(ChangeLog.Change batch : changes){
+            for(ChangeLog.Change change : batch.getBatch()){
+                String key = change.getType() + ":" + change.getKey();
+                latest.remove(key);
+                latest.put(key, change);
+            }
+        }
+        ArrayList<Observable> observables = new ArrayList<>();
+        for(ChangeLog.Change change : latest.values()){
+            Observable observable = load(change);
+            if(observable != null) {
+                observables.add(observable);
+            }
+        }
+        show(observables);
+    }
+
+    /**
+     * Hooks the observers to the observables using the updateManager and notifies them, on the thread of the GUI.
+     * @param observables the observables
      */
-    public void updateChange(){
-        for(File file : fileManager.getFileList(folderPath)){
-           Savable savable = fileManager.readFromFile(folderPath + file.getName());
-           updateManager.hookObserver(((Observable) savable));
-            ((Observable) savable).update();
-            file.delete();
+    private void show(List<Observable> observables){
+        if(observables.isEmpty()){
+            return;
         }
+        IoExecutor.getIoExecutor().getGuiExecutor().execute(() -> {
+            for(Observable observable : observables){
+                updateManager.hookObserver(observable);
+                observable.update();
+            }
+        });
     }
 
     /**
-     * Unregister this fileController. This will delete the associated folder from the updateFiles and stop updating.
+     * Unregister this fileController. This will stop listening to the changes of the other programs.
+     * All the leases held by this program are released.
      */
     public void unregister(){
-        File dir = new File(folderPath);
-        dir.delete();
+        itemManager.followChanges(false);
+        changeBus.stop();
+        changeLog.stop();
+        LockManager.getLockManager().releaseAll();
+    }
+
+    /**
+     * Returns the type of the observable that is written in the change log.
+     * @param observable the observable
+     * @return the type
+     */
+    private byte getType(Observable observable){
+        if(observable instanceof ObservableItem){
+            return ((ObservableItem) observable).getItemInfo().getItemNumber() == -1
+                    ? ChangeLog.MENU_ITEM : ChangeLog.ITEM;
+        }
+        return observable instanceof Order2 ? ChangeLog.ORDER : ChangeLog.SUPPLY;
     }
 
     /**
-     * Helper method to create the folder to receive update from other program
+     * Reads the changed Observable from its folder. If it doesn't exist anymore, returns an Observable that only has
+     * the identity of the deleted one, so that the observers can find it and remove it.
+     * @param change the change record
+     * @return the Observable or null if the change record is not valid
      */
-    private void createSaveFolder(){
-        File dir = new File(folderPath);
-        if(!dir.mkdir()){
+    private Observable load(ChangeLog.Change change){
+        String key = change.getKey();
+        Savable savable;
+        try {
+            switch (change.getType()) {
+                case ChangeLog.ITEM:
+                    itemManager.invalidateItem(key);
+                    savable = read(Config.getItemsPath(), Config.getFinishedItemsPath(), key);
+                    return savable != null ? (Observable) savable
+                            : new Meal(new Meal("", 0), Integer.parseInt(key), -1, -1);
+                case ChangeLog.MENU_ITEM:
+                    menuItemManager.invalidateMealItem(key);
+                    savable = read(Config.getFoodPath(), Config.getBeveragePath(), key);
+                    return savable != null ? (Observable) savable : new Meal(key, 0);
+                case ChangeLog.ORDER:
+                    savable = read(Config.getOrdersPath(), Config.getFinishedOrdersPath(), key);
+                    return savable != null ? (Observable) savable : new Order2(Integer.parseInt(key), -1);
+                case ChangeLog.SUPPLY:
+                    savable = fileManager.readFromFile(Config.getStockPath() + key);
+                    return savable != null ? (Observable) savable : new Supply2(key, 0, 0);
+                default:
+                    return null;
+            }
+        }
+        catch (NumberFormatException e){
+            return null;
         }
     }
 
+    /**
+     * Reads a Savable from the first folder, or from the second folder if it is not in the first one.
+     * @param folder the first folder directory
+     * @param otherFolder the second folder directory
+     * @param fileName the file name
+     * @return the Savable or null
+     */
+    private Savable read(String folder, String otherFolder, String fileName){
+        Savable savable = fileManager.readFromFile(folder + fileName);
+        return savable != null ? savable : fileManager.readFromFile(otherFolder + fileName);
+    }
+
     /**
      * Returns this singleton file controller instance
      * @return
@@ -0,0 +1,184 @@
+package control;
+
+import model.configs.Config;
+import model.managers.MyLogger;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+
+/**
+ * The IoExecutor class.
+ *
+ * The IoExecutor runs the calls of the control classes that read and write the files away from the thread of the GUI,
+ * so a screen doesn't stop while the files are busy. The calls are run one after another in the order they are given,
+ * like they were on the thread of the GUI, so a call always sees the changes of the buttons that were clicked before
+ * it. Every call is run on its own virtual thread when the Java version has them, and on a daemon io thread
+ * otherwise. The calls return a CompletableFuture, and what the screen shows of the result is given to the GUI
+ * executor, which runs it on the thread of the GUI. A call that fails doesn't stop the calls after it. Its error is
+ * written to the log, and the screens that give a failure handler are told so they can show it.
+ *
+ * The GUI executor is Platform::runLater for the program. Without the GUI it runs the updates at once on the thread
+ * that gives them.
+ */
+public class IoExecutor {
+    public static final String FAILED = "The files could not be read or saved, please try again.";
+
+    private static IoExecutor ioExecutor = new IoExecutor();
+
+    private ExecutorService executor;
+    private volatile Executor guiExecutor;
+    private CompletableFuture<?> last;
+
+    /**
+     * Constructs the IoExecutor.
+     */
+    private IoExecutor(){
+        executor = newVirtualThreadExecutor();
+        if(executor == null){
+            executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "io");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        guiExecutor = Runnable::run;
+        last = CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Returns this singleton io executor instance
+     * @return the io executor
+     */
+    public static IoExecutor getIoExecutor(){
+        return ioExecutor;
+    }
+
+    /**
+     * Sets the executor that runs the updates of the screens on the thread of the GUI.
+     * @param guiExecutor the executor, like Platform::runLater
+     */
+    public void setGuiExecutor(Executor guiExecutor){
+        this.guiExecutor = guiExecutor;
+    }
+
+    /**
+     * Returns the executor that runs the updates of the screens on the thread of the GUI.
+     * @return the executor
+     */
+    public Executor getGuiExecutor(){
+        return guiExecutor;
+    }
+
+    /**
+     * Runs the call away from the thread of the GUI.
+     * @param call the call
+     * @return the future that is done when the call is finished
+     */
+    public CompletableFuture<Void> run(Runnable call){
+        return supply(() -> {
+            call.run();
+            return null;
+        });
+    }
+
+    /**
+     * Runs the call away from the thread of the GUI, and gives the FAILED message to the failure handler on the
+     * thread of the GUI if the call fails.
+     * @param call the call
+     * @param failure the handler that shows the failure on the screen
+     * @return the future that is done when the call is finished or the failure is shown
+     */
+    public CompletableFuture<Void> run(Runnable call, Consumer<String> failure){
+        return supply(() -> {
+            call.run();
+            return null;
+        }, result -> {}, failure);
+    }
+
+    /**
+     * Runs the call away from the thread of the GUI. The error of a call that fails is written to the log.
+     * @param call the call
+     * @param <T> the type of the result
+     * @return the future of the result
+     */
+    public synchronized <T> CompletableFuture<T> supply(Supplier<T> call){
+        // the error of the previous call is already logged, it must not stop this one
+        CompletableFuture<T> next = last.handleAsync((result, error) -> {
+            try {
+                return call.get();
+            }
+            catch (RuntimeException | Error e){
+                new MyLogger(Config.getLoggerFile()).getLogger().log(Level.SEVERE, "A call of a screen failed", e);
+                throw e;
+            }
+        }, executor);
+        last = next;
+        return next;
+    }
+
+    /**
+     * Runs the call away from the thread of the GUI, then gives its result to the update on the thread of the GUI.
+     * The update is not run if the call fails, the failure is only logged.
+     * @param call the call
+     * @param update the update of the screen
+     * @param <T> the type of the result
+     * @return the future that is done when the screen is updated
+     */
+    public <T> CompletableFuture<Void> supply(Supplier<T> call, Consumer<T> update){
+        return supply(call).thenAcceptAsync(update, guiExecutor);
+    }
+
+    /**
+     * Runs the call away from the thread of the GUI, then gives its result to the update on the thread of the GUI. If
+     * the call fails, the update is not run and the FAILED message is given to the failure handler on the thread of
+     * the GUI instead.
+     * @param call the call
+     * @param update the update of the screen
+     * @param failure the handler that shows the failure on the screen, like the setText of a warning label
+     * @param <T> the type of the result
+     * @return the future that is done when the screen is updated
+     */
+    public <T> CompletableFuture<Void> supply(Supplier<T> call, Consumer<T> update, Consumer<String> failure){
+        return supply(call).handleAsync((result, error) -> {
+            if(error == null){
+                update.accept(result);
+            }
+            else {
+                failure.accept(FAILED);
+            }
+            return null;
+        }, guiExecutor);
+    }
+
+    /**
+     * Waits until the calls that are already given are finished, so their changes are saved, then stops the threads.
+     */
+    public void shutdown(){
+        CompletableFuture<?> pending;
+        synchronized (this){
+            pending = last;
+        }
+        pending.handle((result, error) -> null).join();
+        executor.shutdown();
+    }
+
+    /**
+     * Returns an executor that runs every call on a new virtual thread, or null if the Java version doesn't have
+     * virtual threads.
+     * @return the executor or null
+     */
+    private static ExecutorService newVirtualThreadExecutor(){
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (ReflectiveOperationException | RuntimeException e){
+//            System.err.println("No virtual threads, use the io threads instead");
+            return null;
+        }
+    }
+}
@@ -3,8 +3,11 @@ package control;
 import model.data.Ingredients;
 import model.data.Item;
 import model.data.Meal;
+import model.data.OrderLine;
 import model.managers.MenuItemManager;
 
+import java.util.Map;
+
 /**
  * This class will convert a item to a specific format of String or vice versa.
  * The string format can be used to convert back the the item later one.
@@ -23,25 +26,33 @@ public class ItemConverter {
      * @param itemNumber - the item umber
      * @param itemInfo - the item information
      * @return Item that is being converted from the string.
+     * @see OrderLine
      */
     public Item stringToItem(int orderNumber, int tableNumber, int itemNumber, String itemInfo){
-        String[] infos = itemInfo.split("\n");
-        for (int i = 0; i < infos.length; i++){
-            infos[i] = infos[i].trim();
-        }
-        Meal base = menuItemManager.getMealItem(infos[0]);
+        return orderLineToItem(orderNumber, tableNumber, itemNumber, OrderLine.parse(itemInfo));
+    }
+
+    /**
+     * Makes the Item that the order line describes from the Meal menu item of the same name.
+     * @param orderNumber - the order number of the item
+     * @param tableNumber - the table number of the item
+     * @param itemNumber - the item number
+     * @param orderLine - the order line
+     * @return Item made from the order line.
+     */
+    public Item orderLineToItem(int orderNumber, int tableNumber, int itemNumber, OrderLine orderLine){
+        Meal base = menuItemManager.getMealPrototype(orderLine.getName());
         Meal item = new Meal(base, itemNumber, orderNumber, tableNumber);
-        for(int i = 1; i < infos.length; i++){
-            String text = infos[i];
-            if (text.contains("-")){
-                item.getIngredients().addSubtraction(text.replace("-", ""));
-            }
-            else if(text.contains("+")){
-                item.getIngredients().addAddition(text.replace("+", ""));
-            }else if(text.contains("*")){
-                item.getItemInfo().setAdditionalRequest(text.replace("*", ""));
+        Ingredients ingredients = item.getIngredients();
+        for(Map.Entry<String, Integer> addition : orderLine.getAdditions().entrySet()){
+            for(int i = 0; i < addition.getValue(); i++){
+                ingredients.addAddition(addition.getKey());
             }
         }
+        for(String subtraction : orderLine.getSubtractions()){
+            ingredients.addSubtraction(subtraction);
+        }
+        item.getItemInfo().setAdditionalRequest(orderLine.getAdditionalRequest());
         return item;
     }
 
@@ -52,21 +63,15 @@ public class ItemConverter {
      * @return String converted from the item.
      */
     public String itemToInfoString(Item item){
-        String info = item.getName();
-        Ingredients ingredients = item.getIngredients();
-        for(String addition : ingredients.getAddition().keySet()){
-            int quantity = ingredients.getAddition().get(addition);
-            int baseQuantity = ingredients.getBaseIngredient().get(addition);
-            do{
-                quantity -= baseQuantity;
-                info = info + "\n \t +" + addition;
-            }while (quantity > baseQuantity);
-        }
-        for(String subtraction:ingredients.getSubtraction().keySet()){
-            info = info + "\n \t -" + subtraction;
-        }
-        String additionalRequest = item.getItemInfo().getAdditionalRequest();
-        info = additionalRequest.isEmpty() ? info : info + "\n \t *" + additionalRequest;
-        return info;
+        return itemToOrderLine(item).toString();
+    }
+
+    /**
+     * Returns the order line that describes the item.
+     * @param item - the item
+     * @return the order line of the item
+     */
+    public OrderLine itemToOrderLine(Item item){
+        return OrderLine.fromItem(item);
     }
 }
@@ -6,12 +6,13 @@ import model.interfaces.Observable;
 import model.interfaces.Savable;
 import model.managers.ItemManager;
 import model.managers.MenuItemManager;
+import model.managers.Metrics;
 import model.managers.OrderManager;
 
 /**This class is a lockFileController class
- * This class can lock a file by creating a lock file
- * so that when a file is locked, only one program can
- * modify it.
+ * This class can lock a file by taking a lease from the
+ * LockManager so that when a file is locked, only one
+ * program can modify it.
  */
 public class LockFileController {
     private ItemManager itemManager;
@@ -19,55 +20,64 @@ public class LockFileController {
     private MenuItemManager menuItemManager;
     private FileController fileController;
     private StatusChecker statusChecker;
+    private Metrics metrics;
 
     public LockFileController(){
         itemManager = new ItemManager();
         orderManager = new OrderManager();
         menuItemManager = new MenuItemManager();
         fileController = FileController.getFileController();
+        statusChecker = new StatusChecker();
+        metrics = Metrics.getMetrics();
     }
 
     /**
-     * Lock the file by creating a file with the same name that
-     * ends with .lock . When this file exist, only one program
-     * can edit it.
+     * Lock the file by taking its lease from the LockManager.
+     * While the lease is held, only one program can edit it.
      * @param savable the file that needs to be lock.
+     * @return true if this program holds the lease, false if another program holds it
      */
-    public void lockFile(Savable savable){
-        if(savable instanceof Item){
-            if(statusChecker.isMenuItem((Item)savable)){
-                menuItemManager.lockMenuItemFile((Item) savable);
+    public boolean lockFile(Savable savable){
+        return metrics.time("LockFileController.lockFile", () -> {
+            boolean locked = false;
+            if(savable instanceof Item){
+                if(statusChecker.isMenuItem((Item)savable)){
+                    locked = menuItemManager.lockMenuItemFile((Item) savable);
+                }
+                else {
+                    locked = itemManager.lockItemFile((Item) savable);
+                }
             }
-            else {
-                itemManager.lockItemFile((Item) savable);
+            else if(savable instanceof Order2){
+                locked = orderManager.lockOrderFile((Order2) savable);
             }
-        }
-        else if(savable instanceof Order2){
-            orderManager.lockOrderFile((Order2) savable);
-        }
-        fileController.notifyChange((Observable) savable);
-        ((Observable)savable).update();
+            if(locked){
+                fileController.notifyChange((Observable) savable);
+            }
+            return locked;
+        });
     }
 
     /**
-     * Unlock the file by removing the lock file so that
+     * Unlock the file by releasing its lease so that
      * other program can also edit this file.
      * @param savable the file that need to be unlocked
      */
     public void unlockFile(Savable savable){
-        if(savable instanceof Item){
-            if(statusChecker.isMenuItem((Item)savable)){
-                menuItemManager.unlockMenuItemFile((Item) savable);
+        metrics.time("LockFileController.unlockFile", () -> {
+            if(savable instanceof Item){
+                if(statusChecker.isMenuItem((Item)savable)){
+                    menuItemManager.unlockMenuItemFile((Item) savable);
+                }
+                else {
+                    itemManager.unlockItemFile((Item) savable);
+                }
             }
-            else {
-                itemManager.unlockItemFile((Item) savable);
+            else if(savable instanceof Order2){
+                orderManager.unlockOrderFile((Order2) savable);
             }
-        }
-        else if(savable instanceof Order2){
-            orderManager.unlockOrderFile((Order2) savable);
-        }
-        fileController.notifyChange((Observable) savable);
-        ((Observable)savable).update();
+            fileController.notifyChange((Observable) savable);
+        });
     }
 
 
@@ -3,14 +3,21 @@ package control;
 import model.configs.Config;
 import model.data.Item;
 import model.data.Order2;
-import model.data.Supply2;
+import model.data.OrderLine;
 import model.interfaces.Observable;
+import model.managers.InventoryLog;
 import model.managers.ItemManager;
+import model.managers.Metrics;
 import model.managers.MyLogger;
 import model.managers.OrderManager;
 import model.managers.SupplyManager;
+import model.managers.UnitOfWork;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -20,12 +27,15 @@ import java.util.logging.Logger;
  * This class will also log any activity that happened.
  */
 public class OrderModifier {
+    private final int RETRIES = 5;
+
     private ItemManager itemManager;
     private Logger logger;
     private OrderManager orderManager;
     private FileController fileController;
     private ItemConverter itemConverter;
     private SupplyManager supplyManager;
+    private Metrics metrics;
 
     public OrderModifier(){
         itemManager = new ItemManager();
@@ -34,6 +44,7 @@ public class OrderModifier {
         fileController = FileController.getFileController();
         itemConverter = new ItemConverter();
         supplyManager = new SupplyManager();
+        metrics = Metrics.getMetrics();
     }
 
     /**
@@ -44,80 +55,117 @@ public class OrderModifier {
      *
      * @param itemNumber - the item that is needed to be returned
      * @param reason - the reason for the return
+     * @return false if the item is gone or cannot be saved, in which case nothing is notified
      */
-    public void returnItem(int itemNumber, String reason){
-        Item item = itemManager.getItem(itemNumber);
-        if(item != null){
-            String msg = "Order #" + item.getItemInfo().getOrderNumber()
-                    + item.toString() + " is being returned with the reason of \n \t\"" + reason + "\"";
-            logger.info(msg);
-            item.getItemInfo().addAdditionalRequest(reason);
-            item.getItemInfo().resetStatus();
-            itemManager.sendToKitchen(item);
-
-            fileController.notifyChange((Observable)item);
-
-            Order2 order = orderManager.getOrder(item.getItemInfo().getOrderNumber());
+    public boolean returnItem(int itemNumber, String reason){
+        return metrics.time("OrderModifier.returnItem", () -> {
+            Item item = itemManager.getItem(itemNumber);
+            if(item == null){
+                return false;
+            }
+            logger.log(Level.INFO, "Order #{0,number,#}{1} is being returned with the reason of \n \t\"{2}\"",
+                    new Object[]{item.getItemInfo().getOrderNumber(), item, reason});
+            Item saved = itemManager.updateItem(item, current -> {
+                current.getItemInfo().addAdditionalRequest(reason);
+                current.getItemInfo().resetStatus();
+            });
+            if(saved != null){
+                saved = itemManager.sendToKitchen(saved);
+            }
+            if(saved == null){
+                logger.log(Level.WARNING, "{0} cannot be returned", item);
+                return false;
+            }
+
+            fileController.notifyChange((Observable)saved);
+
+            Order2 order = orderManager.getOrder(saved.getItemInfo().getOrderNumber());
             if(order != null){
                 fileController.notifyChange(order);
             }
-        }
+            return true;
+        });
     }
 
     /**
      * Modify the original item that was already in an order
-     * to a new one
+     * to a new one. The item is saved in a unit of work, which is
+     * tried again with the latest copy if another program saved
+     * the item in the meantime.
      *
-     * Precondition: The string of item follows the item format
      * @param itemNumber - the original item
-     * @param itemInfo - the description of the new item
+     * @param orderLine - the description of the new item
+     * @return false if the item is gone or cannot be saved, in which case nothing is notified
      */
-    public void editItem(int itemNumber, String itemInfo){
-        Item item = itemManager.getItem(itemNumber);
-        if(item != null) {
-            String msg = item.toString() + " has been modified";
-            logger.info(msg);
-            Item newItem = itemConverter.stringToItem(-1, -1, -1, itemInfo);
-            item.getItemInfo().setAdditionalRequest(newItem.getItemInfo().getAdditionalRequest());
-            item.getIngredients().setAddition(newItem.getIngredients().getAddition());
-            item.getIngredients().setSubtraction(newItem.getIngredients().getSubtraction());
-            itemManager.saveItemFile(item);
-            Order2 order = orderManager.getOrder(item.getItemInfo().getOrderNumber());
-            fileController.notifyChange(order);
-            fileController.notifyChange((Observable) item);
-        }
+    public boolean editItem(int itemNumber, OrderLine orderLine){
+        return metrics.time("OrderModifier.editItem", () -> {
+            Item newItem = itemConverter.orderLineToItem(-1, -1, -1, orderLine);
+            for(int tries = 0 ; tries < RETRIES ; tries++){
+                Item item = itemManager.getItem(itemNumber);
+                if(item == null){
+                    return false;
+                }
+                item.getItemInfo().setAdditionalRequest(newItem.getItemInfo().getAdditionalRequest());
+                item.getIngredients().setAddition(newItem.getIngredients().getAddition());
+                item.getIngredients().setSubtraction(newItem.getIngredients().getSubtraction());
+                UnitOfWork work = new UnitOfWork();
+                itemManager.saveItemFile(item, work);
+                if(work.commit()){
+                    logger.log(Level.INFO, "{0} has been modified", item);
+                    Order2 order = orderManager.getOrder(item.getItemInfo().getOrderNumber());
+                    if(order != null){
+                        fileController.notifyChanges(work, order);
+                    }
+                    else {
+                        fileController.notifyChanges(work);
+                    }
+                    return true;
+                }
+            }
+            logger.log(Level.WARNING, "Item #{0,number,#} cannot be modified", itemNumber);
+            return false;
+        });
     }
 
     /**
      * Delete an Ordered Item from the order. When the item is removed,
      * it will subtract the ingredients if the ite is already being made.
+     * The item, the order and the supplies are written in one unit of
+     * work, which is tried again if another program saved the order in
+     * the meantime.
      * @param itemNumber - the item that need to be deleted
      */
     public void deleteItem(int itemNumber){
-        Item item = itemManager.getItem(itemNumber);
-        if(item != null){
-            String msg = item.toString() + " has been deleted";
-            logger.info(msg);
-            Order2 order = orderManager.getOrder(item.getItemInfo().getOrderNumber());
-            if(order != null){
+        metrics.time("OrderModifier.deleteItem", () -> {
+            for(int tries = 0 ; tries < RETRIES ; tries++){
+                Item item = itemManager.getItem(itemNumber);
+                if(item == null){
+                    return;
+                }
+                Order2 order = orderManager.getOrder(item.getItemInfo().getOrderNumber());
+                if(order == null){
+                    return;
+                }
+                UnitOfWork work = new UnitOfWork();
                 if(item.getItemInfo().isSeen()){
-                    supplyManager.deductIngredientUsage(item.getIngredients().getNeededIngredients());
-                    for(String supplyName : item.getIngredients().getNeededIngredients().keySet()){
-                        Supply2 supply = supplyManager.getSupplyByName(supplyName);
-                        fileController.notifyChange(supply);
-                    }
-                }else{
-                    supplyManager.deductIngredientsFromReservedSupply((item.getIngredients().getNeededIngredients()));
+                    // the reservation is released when the used supplies are deducted
+                    supplyManager.deductIngredients(item.getIngredients().getNeededIngredients(),
+                            InventoryLog.WASTED, Collections.singletonList(itemNumber), work);
                 }
-
+                else {
+                    work.onCommit(() -> supplyManager.releaseItemReservation(itemNumber));
+                }
+                itemManager.deleteItemFile(item, work);
                 order.removeItem(item);
-                itemManager.deleteItemFile(item);
-                orderManager.saveOrderFile(order);
-                fileController.notifyChange(order);
-                fileController.notifyChange((Observable)item);
-
+                orderManager.saveOrderFile(order, work);
+                if(work.commit()){
+                    logger.log(Level.INFO, "{0} has been deleted", item);
+                    // the order is saved by the unit of work, so it is notified with the other changes
+                    fileController.notifyChanges(work);
+                    return;
+                }
             }
-        }
+        });
     }
 
     /**
@@ -126,48 +174,71 @@ public class OrderModifier {
      * @param orderNum - the order that want to be deleted.
      */
     public void deleteOrder(int orderNum){
-        Order2 order = orderManager.getOrder(orderNum);
-        if(order != null){
-            for(Item item : order.getItems()){
-                if(item.getItemInfo().isSeen()){
-                    supplyManager.deductIngredientUsage(item.getIngredients().getNeededIngredients());
-                }else{
-                    supplyManager.deductIngredientsFromReservedSupply((item.getIngredients().getNeededIngredients()));
+        metrics.time("OrderModifier.deleteOrder", () -> {
+            Order2 order = orderManager.getOrder(orderNum);
+            if(order != null){
+                HashMap<String, Integer> used = new HashMap<>();
+                ArrayList<Integer> itemNumbers = new ArrayList<>();
+                for(Item item : order.getItems()){
+                    if(item.getItemInfo().isSeen()){
+                        for(Map.Entry<String, Integer> ingredient : item.getIngredients().getNeededIngredients().entrySet()){
+                            used.merge(ingredient.getKey(), ingredient.getValue(), Integer::sum);
+                        }
+                    }
+                    itemNumbers.add(item.getItemInfo().getItemNumber());
+                }
+                // the items, the order and the supplies are written together
+                UnitOfWork work = new UnitOfWork();
+                supplyManager.deductIngredients(used, InventoryLog.WASTED, itemNumbers, work);
+                orderManager.deleteOrderFile(order, work);
+                if(work.commit()){
+                    for(Item item : order.getItems().toArray(new Item[order.getItems().size()])){
+                        order.removeItem(item);
+                    }
+                    fileController.notifyChanges(work);
+                    logger.log(Level.INFO, "{0} has been deleted", order);
                 }
-                itemManager.deleteItemFile(item);
-                fileController.notifyChange((Observable)item);
-            }
-            for(Item item : order.getItems().toArray(new Item[order.getItems().size()])){
-                order.removeItem(item);
             }
-            orderManager.deleteOrderFile(order);
-            fileController.notifyChange(order);
-            String msg = order.toString() + " has been deleted";
-            logger.info(msg);
-
-        }
+        });
     }
 
     /**
-     * Add an item to an existing order.
-     *
-     * Precondition: The String of item meet the format
+     * Add an item to an existing order. The item and the order are
+     * written in one unit of work, which is tried again if another
+     * program saved the order in the meantime. The reservation is
+     * bound to the item once the item is saved.
      *
      * @param orderNum - the order that we want to add into
-     * @param itemInfo - the itemInfo, which represent the item,
+     * @param orderLine - the order line, which represent the item,
      *                 that is needed to be added to the order
+     * @param reservation - the reservation of the supply for the item
      */
-    public void addItemToOrder(int orderNum , String itemInfo){
-        Order2 order = orderManager.getOrder(orderNum);
-        if(order != null){
-            Item item = itemConverter.stringToItem(order.getOrderNumber(), order.getTableNumber(), itemManager.getCurrentItemNumber(), itemInfo);
-            String msg =item.toString() + " has been added to " + order.toString();
-            logger.info(msg);
-            order.addItem(item);
-            orderManager.saveOrderFile(order);
-            fileController.notifyChange(order);
-            fileController.notifyChange((Observable) item);
-        }
+    public void addItemToOrder(int orderNum , OrderLine orderLine, long reservation){
+        metrics.time("OrderModifier.addItemToOrder", () -> {
+            Order2 order = orderManager.getOrder(orderNum);
+            if(order == null){
+                return;
+            }
+            Item item = itemConverter.orderLineToItem(order.getOrderNumber(), order.getTableNumber(), itemManager.getCurrentItemNumber(), orderLine);
+            for(int tries = 0 ; tries < RETRIES && order != null ; tries++){
+                UnitOfWork work = new UnitOfWork();
+                itemManager.saveItemFile(item, work);
+                order.addItem(item);
+                orderManager.saveOrderFile(order, work);
+                Order2 saved = order;
+                work.onCommit(() -> supplyManager.bindReservation(reservation,
+                        item.getIngredients().getNeededIngredients(), saved.getOrderNumber(),
+                        item.getItemInfo().getItemNumber()));
+                if(work.commit()){
+                    logger.log(Level.INFO, "{0} has been added to {1}", new Object[]{item, order});
+                    fileController.notifyChanges(work);
+                    return;
+                }
+                order = orderManager.getOrder(orderNum);
+            }
+            // the item is not added, so its supplies are not needed anymore
+            supplyManager.releaseReservation(reservation);
+        });
     }
 
     /**
@@ -176,36 +247,44 @@ public class OrderModifier {
      * @param orderNum - the order that is finished
      */
     public void finishOrder(int orderNum){
-        Order2 order = orderManager.getOrder(orderNum);
-        if(order != null){
-            orderManager.sendToFinishedOrder(order);
-            fileController.notifyChange(order);
-        }
+        metrics.time("OrderModifier.finishOrder", () -> {
+            Order2 order = orderManager.getOrder(orderNum);
+            if(order != null){
+                orderManager.sendToFinishedOrder(order);
+                fileController.notifyChange(order);
+            }
+        });
     }
 
 
     /**
      * Make a new order that contains the items, which was given by the
-     * string.
-     *
-     * PreCondition: the String of items meet the format.
+     * order lines.
      *
      * @param tableNumber - the table# for this order
-     * @param items - Strings of items that is in the order
+     * @param items - order lines of items that is in the order
+     * @param reservations - the reservations of the supply for the items, in the same order
+     * @return the number of the new order, or -1 if there are no items
      */
-    public void makeNewOrder(int tableNumber, ArrayList<String> items){
-        if(!items.isEmpty()) {
-            int orderNumber = orderManager.getCurrentOrderNumber();
-            Order2 order = new Order2(orderNumber, tableNumber);
-            for (String itemInfo : items) {
-                order.addItem(itemConverter.stringToItem(orderNumber, tableNumber, itemManager.getCurrentItemNumber(), itemInfo));
-            }
-            orderManager.startOrderCycle(order);
-            fileController.notifyChange(order);
+    public int makeNewOrder(int tableNumber, ArrayList<OrderLine> items, ArrayList<Long> reservations){
+        return metrics.time("OrderModifier.makeNewOrder", () -> {
+            if(!items.isEmpty()) {
+                int orderNumber = orderManager.getCurrentOrderNumber();
+                Order2 order = new Order2(orderNumber, tableNumber);
+                for (int i = 0; i < items.size(); i++) {
+                    Item item = itemConverter.orderLineToItem(orderNumber, tableNumber, itemManager.getCurrentItemNumber(), items.get(i));
+                    supplyManager.bindReservation(reservations.get(i), item.getIngredients().getNeededIngredients(),
+                            orderNumber, item.getItemInfo().getItemNumber());
+                    order.addItem(item);
+                }
+                orderManager.startOrderCycle(order);
+                fileController.notifyChange(order);
 
-            String msg = "new order " + order.toString() + " has been created";
-            logger.info(msg);
-        }
+                logger.log(Level.INFO, "new order {0} has been created", order);
+                return orderNumber;
+            }
+            return -1;
+        });
     }
 
 
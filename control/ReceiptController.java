@@ -3,6 +3,7 @@ package control;
 import model.data.CustomerReceipt;
 import model.data.Item;
 import model.managers.ItemManager;
+import model.managers.Metrics;
 
 import java.util.ArrayList;
 
@@ -14,9 +15,11 @@ import java.util.ArrayList;
 public class ReceiptController {
     private ItemManager itemManager;
     private CustomerReceipt customerReceipt;
+    private Metrics metrics;
     public ReceiptController(){
         itemManager = new ItemManager();
         customerReceipt = new CustomerReceipt();
+        metrics = Metrics.getMetrics();
     }
 
     /**
@@ -26,11 +29,13 @@ public class ReceiptController {
      * @param isMoreThanEight - if there is more than 8 people for this bill.
      */
     public void printReceipt(ArrayList<Integer> itemNumbers, boolean isMoreThanEight) {
-        ArrayList<Item> items = new ArrayList<>();
-        for(Integer i: itemNumbers) {
-            items.add(itemManager.getItem(i));
-        }
-        customerReceipt.printBill(items, isMoreThanEight);
+        metrics.time("ReceiptController.printReceipt", () -> {
+            ArrayList<Item> items = new ArrayList<>();
+            for(Integer i: itemNumbers) {
+                items.add(itemManager.getItem(i));
+            }
+            customerReceipt.printBill(items, isMoreThanEight);
+        });
     }
 
     /**
@@ -41,11 +46,13 @@ public class ReceiptController {
      * @return - the payment price.
      */
     public double calculatePaymentPrice(ArrayList<Integer> itemNumbers, boolean isMoreThanEight) {
-        ArrayList<Item> items = new ArrayList<>();
-        for(Integer i: itemNumbers) {
-            items.add(itemManager.getItem(i));
-        }
-        return customerReceipt.calculatePaymentPrice(items, isMoreThanEight);
+        return metrics.time("ReceiptController.calculatePaymentPrice", () -> {
+            ArrayList<Item> items = new ArrayList<>();
+            for(Integer i: itemNumbers) {
+                items.add(itemManager.getItem(i));
+            }
+            return customerReceipt.calculatePaymentPrice(items, isMoreThanEight);
+        });
     }
 
     /**
@@ -59,11 +66,13 @@ public class ReceiptController {
      * @param paidAmount - the amount the customer payed.
      */
     public void printPaymentReceipt(ArrayList<Integer> itemNumbers, boolean isMoreThanEight, double paidAmount) {
-        ArrayList<Item> items = new ArrayList<>();
-        for(Integer i: itemNumbers) {
-            items.add(itemManager.getItem(i));
-        }
-        customerReceipt.printPayment(items, isMoreThanEight, paidAmount);
+        metrics.time("ReceiptController.printPaymentReceipt", () -> {
+            ArrayList<Item> items = new ArrayList<>();
+            for(Integer i: itemNumbers) {
+                items.add(itemManager.getItem(i));
+            }
+            customerReceipt.printPayment(items, isMoreThanEight, paidAmount);
+        });
     }
 
 }
@@ -22,15 +22,14 @@ public class StatusChecker {
     }
 
     /**
-     * Returns true if the order is currently locked, meaning
-     * there exist a lock file for this order
+     * Returns true if the order exists and is not currently locked, meaning
+     * no program holds a lease on this order
      * @param orderNum for the order
      * @return true if the order can be edit
      */
     public boolean isEditableOrder(int orderNum){
-        Order2 order = orderManager.getOrder(orderNum);
-        if(order != null){
-            return !(orderManager.isLockedOrder(order));
+        if(orderManager.isExistingOrder(orderNum)){
+            return !(orderManager.isLockedOrder(orderNum));
         }
         return false;
     }
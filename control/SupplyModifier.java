@@ -2,11 +2,24 @@ package control;
 
 import model.configs.Config;
 import model.data.Item;
+import model.data.ItemInfo;
+import model.data.OrderLine;
 import model.data.Supply2;
+import model.managers.DeliveryManifest;
+import model.managers.InventoryLog;
+import model.managers.Metrics;
 import model.managers.MyLogger;
+import model.managers.ReservationLedger;
 import model.managers.SupplyManager;
+import model.managers.UnitOfWork;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -15,10 +28,13 @@ import java.util.logging.Logger;
  * This class controls the supply parts of the program.
  */
 public class SupplyModifier {
+    public static final long NO_RESERVATION = ReservationLedger.NO_RESERVATION;
+
     private SupplyManager supplyManager;
     private Logger logger;
     private FileController fileController;
     private ItemConverter itemConverter;
+    private Metrics metrics;
 
     /**
      * Constructs a SupplyModifier.
@@ -28,6 +44,7 @@ public class SupplyModifier {
         logger = (new MyLogger(Config.getLoggerFile())).getLogger();
         fileController = FileController.getFileController();
         itemConverter = new ItemConverter();
+        metrics = Metrics.getMetrics();
     }
 
     /**
@@ -36,15 +53,99 @@ public class SupplyModifier {
      * @param quantity the quantity
      */
     public void addQuantityToSupply(String name, int quantity) {
-        Supply2 s = supplyManager.getSupplyByName(name);
-        if(s != null) {
-            String msg = quantity + " " + name +" has been added to the stock";
-            logger.info(msg);
-            s.addQuantity(quantity);
-            supplyManager.saveSupplyFile(s);
-            fileController.notifyChange(s);
-            supplyManager.updateSupplyRequests();
-        }
+        metrics.time("SupplyModifier.addQuantityToSupply", () -> {
+            UnitOfWork work = new UnitOfWork();
+            supplyManager.changeQuantity(name, InventoryLog.RECEIVED, quantity, work);
+            if(work.commit() && !work.getChanged().isEmpty()) {
+                logger.log(Level.INFO, "{0,number,#} {1} has been added to the stock", new Object[]{quantity, name});
+                fileController.notifyChanges(work);
+            }
+        });
+    }
+
+    /**
+     * Adds a whole delivery to the stock in one commit, and notifies the other programs of all the changed supplies
+     * at once. The names are matched to the existing supplies without looking at the case; the other supplies are
+     * created.
+     * @param delivery the supply names and the received quantities
+     * @return false if the delivery could not be saved
+     */
+    public boolean receiveSupplies(Map<String, Integer> delivery) {
+        return metrics.time("SupplyModifier.receiveSupplies", () -> {
+            HashMap<String, String> names = new HashMap<>();
+            for(String name : supplyManager.getSupplyNameList()){
+                names.put(name.toLowerCase(), name);
+            }
+            LinkedHashMap<String, Integer> received = new LinkedHashMap<>();
+            for(Map.Entry<String, Integer> supply : delivery.entrySet()){
+                String name = names.getOrDefault(supply.getKey().toLowerCase(), supply.getKey());
+                received.merge(name, supply.getValue(), Integer::sum);
+            }
+            if(received.isEmpty()){
+                return true;
+            }
+            UnitOfWork work = new UnitOfWork();
+            supplyManager.receiveSupplies(received, work);
+            if(!work.commit()){
+                return false;
+            }
+            logger.log(Level.INFO, "A delivery of {0,number,#} supplies has been added to the stock: {1}",
+                    new Object[]{received.size(), received});
+            fileController.notifyChanges(work);
+            return true;
+        });
+    }
+
+    /**
+     * Reads a CSV delivery manifest and adds the delivery to the stock in one commit.
+     * @param file the CSV file with one "name,quantity" line for every supply
+     * @return the manifest, whose rejected lines were not added, or null if the file cannot be read or the delivery
+     * could not be saved
+     */
+    public DeliveryManifest importDeliveryManifest(File file) {
+        return metrics.time("SupplyModifier.importDeliveryManifest", () -> {
+            try {
+                DeliveryManifest manifest = DeliveryManifest.read(file);
+                return receiveSupplies(manifest.getQuantities()) ? manifest : null;
+            }
+            catch (IOException e) {
+    //            System.err.println("Cannot read the delivery manifest " + file);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Takes the quantity of the supply that was thrown away out of the stock.
+     * @param name the supply name
+     * @param quantity the quantity
+     */
+    public void wasteSupply(String name, int quantity) {
+        metrics.time("SupplyModifier.wasteSupply", () -> {
+            UnitOfWork work = new UnitOfWork();
+            supplyManager.changeQuantity(name, InventoryLog.WASTED, quantity, work);
+            if(work.commit() && !work.getChanged().isEmpty()) {
+                logger.log(Level.INFO, "{0,number,#} {1} has been thrown away", new Object[]{quantity, name});
+                fileController.notifyChanges(work);
+            }
+        });
+    }
+
+    /**
+     * Sets the quantity in stock of the supply to the quantity that was counted, and records the difference to the
+     * quantity in stock at the time it is saved as an adjustment.
+     * @param name the supply name
+     * @param counted the counted quantity
+     */
+    public void countSupply(String name, int counted) {
+        metrics.time("SupplyModifier.countSupply", () -> {
+            UnitOfWork work = new UnitOfWork();
+            supplyManager.countQuantity(name, counted, work);
+            if(work.commit() && !work.getChanged().isEmpty()) {
+                logger.log(Level.INFO, "{0} has been counted: {1,number,#}", new Object[]{name, counted});
+                fileController.notifyChanges(work);
+            }
+        });
     }
 
     /**
@@ -53,15 +154,16 @@ public class SupplyModifier {
      * @param requestAmount the requestAmount
      */
     public void editSupply(String name, int requestAmount) {
-        Supply2 s = supplyManager.getSupplyByName(name);
-        if(s != null) {
-            String msg = s.toString() + " has been modified";
-            logger.info(msg);
-            s.setRequestAmount(requestAmount);
-            supplyManager.saveSupplyFile(s);
-            fileController.notifyChange(s);
-        }
+        metrics.time("SupplyModifier.editSupply", () -> {
+            Supply2 s = supplyManager.getSupplyByName(name);
+            if(s != null) {
+                logger.log(Level.INFO, "{0} has been modified", s);
+                s.setRequestAmount(requestAmount);
+                supplyManager.saveSupplyFile(s);
+                fileController.notifyChange(s);
+            }
 
+        });
     }
 
     /**
@@ -70,11 +172,13 @@ public class SupplyModifier {
      * @param initQuantity the init quantity
      */
     public void createSupply(String name, int initQuantity){
-        String msg = "New supply " + name + " has been added to the stock with quantity of " + initQuantity;
-        logger.info(msg);
-        Supply2 s = new Supply2(name, 20, initQuantity);
-        supplyManager.saveSupplyFile(s);
-        fileController.notifyChange(s);
+        metrics.time("SupplyModifier.createSupply", () -> {
+            logger.log(Level.INFO, "New supply {0} has been added to the stock with quantity of {1,number,#}",
+                    new Object[]{name, initQuantity});
+            Supply2 s = new Supply2(name, SupplyManager.DEFAULT_QUANTITY_NEEDED, initQuantity);
+            supplyManager.saveNewSupply(s);
+            fileController.notifyChange(s);
+        });
     }
 
     /**
@@ -84,32 +188,66 @@ public class SupplyModifier {
      * @return true if there is enough supply
      */
     public boolean haveEnoughSupply(Item item, boolean needReserve){
-        return supplyManager.checkNeededSupply(item.getIngredients().getNeededIngredients(), needReserve);
+        return metrics.time("SupplyModifier.haveEnoughSupply", () -> {
+            if(!needReserve){
+                return supplyManager.checkNeededSupply(item.getIngredients().getNeededIngredients());
+            }
+            ItemInfo info = item.getItemInfo();
+            return supplyManager.reserveNeededSupply(item.getIngredients().getNeededIngredients(),
+                    info.getOrderNumber(), info.getItemNumber()) != NO_RESERVATION;
+        });
     }
 
     /**
-     * Checks if the there is enough supply for this item
-     * @param itemInfo the item
-     * @param needReserve whether there is enough supply for this item to be reserved
-     * @return true if there is enough supply
+     * Reserves the supply for an item of an order that is not made yet, if there is enough supply.
+     * @param orderLine the item
+     * @return the number of the reservation, or NO_RESERVATION if there is not enough supply
+     */
+    public long reserveSupply(OrderLine orderLine){
+        return metrics.time("SupplyModifier.reserveSupply", () -> {
+            Item item = itemConverter.orderLineToItem(-1, -1, -1, orderLine);
+            long reservation = supplyManager.reserveNeededSupply(item.getIngredients().getNeededIngredients(), -1, -1);
+            if(reservation == NO_RESERVATION){
+                metrics.count("SupplyModifier.reserveSupply.refused");
+            }
+            return reservation;
+        });
+    }
+
+    /**
+     * Changes the reserved supply of an item that is edited, if there is enough supply for the edited item.
+     * @param item the item before the edit
+     * @param orderLine the edited item
+     * @return false if there is not enough supply, in which case the old reservation is kept
      */
-    public boolean haveEnoughSupply(String itemInfo, boolean needReserve){
-        Item item = itemConverter.stringToItem(-1, -1, -1, itemInfo);
-        return supplyManager.checkNeededSupply(item.getIngredients().getNeededIngredients(), needReserve);
+    public boolean changeSupplyReserved(Item item, OrderLine orderLine){
+        return metrics.time("SupplyModifier.changeSupplyReserved", () -> {
+            Item newItem = itemConverter.orderLineToItem(-1, -1, -1, orderLine);
+            ItemInfo info = item.getItemInfo();
+            return supplyManager.replaceReservedSupply(newItem.getIngredients().getNeededIngredients(),
+                    info.getOrderNumber(), info.getItemNumber());
+        });
     }
 
     /**
      * Cancel the reserved the supply and reduces the reserved supply
-     * @param itemInfos the item representation
+     * @param reservations the numbers of the reservations
      */
-    public void cancelSupplyReserved(ArrayList<String> itemInfos){
-        for (String itemInfo : itemInfos) {
-            Item item = itemConverter.stringToItem(-1, -1,-1, itemInfo);
-            supplyManager.deductIngredientsFromReservedSupply(item.getIngredients().getNeededIngredients());
-        }
+    public void cancelSupplyReserved(ArrayList<Long> reservations){
+        metrics.time("SupplyModifier.cancelSupplyReserved", () -> {
+            for (long reservation : reservations) {
+                cancelSupplyReserved(reservation);
+            }
+        });
     }
-    public void cancelSupplyReserved(String itemInfo){
-        Item item = itemConverter.stringToItem(-1, -1,-1, itemInfo);
-        supplyManager.deductIngredientsFromReservedSupply(item.getIngredients().getNeededIngredients());
+
+    /**
+     * Cancel the reserved the supply of one item and reduces the reserved supply
+     * @param reservation the number of the reservation
+     */
+    public void cancelSupplyReserved(long reservation){
+        metrics.time("SupplyModifier.cancelSupplyReserved", () -> {
+            supplyManager.releaseReservation(reservation);
+        });
     }
 }
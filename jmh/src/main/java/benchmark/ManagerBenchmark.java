@@ -0,0 +1,153 @@
+package benchmark;
+
+import control.ControlConfig;
+import control.FileController;
+import control.UpdateController;
+import model.configs.Config;
+import model.data.Item;
+import model.data.Meal;
+import model.data.Order2;
+import model.managers.FileManager;
+import model.managers.ItemManager;
+import model.managers.MenuItemManager;
+import model.managers.OrderManager;
+import model.managers.SupplyManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The ManagerBenchmark class.
+ *
+ * The JMH benchmark of the operations of the managers that are used most often: reading an item and an active or
+ * finished order by its number, checking the supplies of a menu item, and notifying the other programs of a changed
+ * order. The data is the data of the working directory. When its orders and stock folders are empty, the DataGenerator
+ * fills them first with the number of active and finished orders of the "orders" parameter, so run it in an empty
+ * folder for every size, like "java -jar benchmarks.jar -p orders=100000" in a folder of its own. A folder that
+ * already has data must have that many active orders.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ManagerBenchmark {
+    private static final int SUPPLIES = 100;
+    private static final int MENU_ITEMS = 50;
+    private static final long SEED = 7;
+
+    @Param("1000")
+    public int orders;
+
+    private ItemManager itemManager;
+    private OrderManager orderManager;
+    private SupplyManager supplyManager;
+    private FileController fileController;
+    private int[] itemNumbers;
+    private int[] orderNumbers;
+    private int[] finishedOrderNumbers;
+    private ArrayList<Map<String, Integer>> menu;
+    private Order2 changedOrder;
+    private Random random;
+
+    /**
+     * Generates the data if the folder is empty and loads the numbers of the items and orders.
+     */
+    @Setup(Level.Trial)
+    public void setUp(){
+        Config.init();
+        DataGenerator.generate(orders, orders, SUPPLIES, MENU_ITEMS);
+        ControlConfig.init();
+        itemManager = new ItemManager();
+        orderManager = new OrderManager();
+        supplyManager = new SupplyManager();
+        itemNumbers = getNumbers(Config.getItemsPath());
+        orderNumbers = getNumbers(Config.getOrdersPath());
+        finishedOrderNumbers = getNumbers(Config.getFinishedOrdersPath());
+        if(orderNumbers.length != orders){
+            throw new IllegalStateException("The folder has " + orderNumbers.length + " active orders instead of "
+                    + orders + ", run it in an empty folder");
+        }
+        menu = new ArrayList<>();
+        for(Meal meal : new MenuItemManager().getMealItemList()){
+            menu.add(meal.getIngredients().getNeededIngredients());
+        }
+        fileController = FileController.getFileController();
+        fileController.setUpdateController(new UpdateController());
+        changedOrder = orderManager.getOrder(orderNumbers[0]);
+        random = new Random(SEED);
+    }
+
+    /**
+     * Stops listening to the other programs.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown(){
+        fileController.unregister();
+    }
+
+    @Benchmark
+    public Item getItem(){
+        return itemManager.getItem(itemNumbers[random.nextInt(itemNumbers.length)]);
+    }
+
+    @Benchmark
+    public Order2 getOrder(){
+        return orderManager.getOrder(orderNumbers[random.nextInt(orderNumbers.length)]);
+    }
+
+    @Benchmark
+    public Order2 getFinishedOrder(){
+        return orderManager.getOrder(finishedOrderNumbers[random.nextInt(finishedOrderNumbers.length)]);
+    }
+
+    @Benchmark
+    public boolean checkNeededSupply(){
+        return supplyManager.checkNeededSupply(menu.get(random.nextInt(menu.size())));
+    }
+
+    @Benchmark
+    public Order2 notifyChange(){
+        fileController.notifyChange(changedOrder);
+        return changedOrder;
+    }
+
+    /**
+     * Returns the numbers of the files of a folder.
+     * @param folder the folder
+     * @return the numbers
+     */
+    private static int[] getNumbers(String folder){
+        File[] files = new FileManager().getFileList(folder);
+        int[] numbers = new int[files.length];
+        int count = 0;
+        for(File file : files){
+            try {
+                numbers[count] = Integer.parseInt(file.getName());
+                count++;
+            }
+            catch (NumberFormatException e){
+//                System.err.println("Not a numbered file: " + file.getName());
+            }
+        }
+        return Arrays.copyOf(numbers, count);
+    }
+}
@@ -0,0 +1,152 @@
+package benchmark;
+
+import model.data.OrderLine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The OrderLineBenchmark class.
+ *
+ * The JMH benchmark of the OrderLine parser and encoder against the text handling that ItemConverter used before:
+ * splitting the text by "\n", trimming every line, telling the lines apart with contains and building the text by
+ * concatenation. Both sides only work on the text, the menu lookup that makes the Item is left out. Every operation
+ * takes the next of a few order lines, from a plain menu item to one with many choices. It needs no data folder, so
+ * run it like "java -jar benchmarks.jar OrderLineBenchmark".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderLineBenchmark {
+    private OrderLine[] lines;
+    private String[] texts;
+    private int next;
+
+    /**
+     * Makes the order lines and their texts, and checks that every text reads back to its order line.
+     */
+    @Setup
+    public void setUp(){
+        lines = sampleLines();
+        texts = new String[lines.length];
+        for(int i = 0 ; i < lines.length ; i++){
+            texts[i] = lines[i].toString();
+            if(!OrderLine.parse(texts[i]).equals(lines[i])){
+                throw new IllegalStateException("The text does not read back: " + texts[i]);
+            }
+        }
+    }
+
+    @Benchmark
+    public Object[] legacyParse(){
+        return legacyParse(texts[nextIndex()]);
+    }
+
+    @Benchmark
+    public OrderLine orderLineParse(){
+        return OrderLine.parse(texts[nextIndex()]);
+    }
+
+    @Benchmark
+    public String legacyEncode(){
+        return legacyEncode(lines[nextIndex()]);
+    }
+
+    @Benchmark
+    public String orderLineEncode(){
+        return lines[nextIndex()].toString();
+    }
+
+    /**
+     * Returns the index of the order line of the next operation.
+     * @return the index
+     */
+    private int nextIndex(){
+        next = next + 1 == lines.length ? 0 : next + 1;
+        return next;
+    }
+
+    /**
+     * Returns the order lines that are parsed and encoded, from a plain menu item to one with many choices.
+     * @return the order lines
+     */
+    private static OrderLine[] sampleLines(){
+        ArrayList<OrderLine> lines = new ArrayList<>();
+        lines.add(new OrderLine("Burger", new LinkedHashMap<>(), ""));
+        LinkedHashMap<String, Integer> choices = new LinkedHashMap<>();
+        choices.put("Cheese", 2);
+        choices.put("Tomato", -1);
+        lines.add(new OrderLine("Cheese Burger", choices, "no salt"));
+        choices = new LinkedHashMap<>();
+        choices.put("Bacon", 3);
+        choices.put("Lettuce", 1);
+        choices.put("Onion", -1);
+        choices.put("Pickle", -1);
+        choices.put("Sauce", 2);
+        lines.add(new OrderLine("Deluxe Burger", choices, "well done, cut in half"));
+        return lines.toArray(new OrderLine[0]);
+    }
+
+    /**
+     * The text reading of the old ItemConverter.stringToItem.
+     * @param itemInfo the text
+     * @return the name, the additions, the subtractions and the additional request
+     */
+    private static Object[] legacyParse(String itemInfo){
+        String[] infos = itemInfo.split("\n");
+        for (int i = 0; i < infos.length; i++){
+            infos[i] = infos[i].trim();
+        }
+        ArrayList<String> additions = new ArrayList<>();
+        ArrayList<String> subtractions = new ArrayList<>();
+        String additionalRequest = "";
+        for(int i = 1; i < infos.length; i++){
+            String text = infos[i];
+            if (text.contains("-")){
+                subtractions.add(text.replace("-", ""));
+            }
+            else if(text.contains("+")){
+                additions.add(text.replace("+", ""));
+            }else if(text.contains("*")){
+                additionalRequest = text.replace("*", "");
+            }
+        }
+        return new Object[]{infos[0], additions, subtractions, additionalRequest};
+    }
+
+    /**
+     * The text building of the old ItemConverter.itemToInfoString.
+     * @param line the order line
+     * @return the text
+     */
+    private static String legacyEncode(OrderLine line){
+        String info = line.getName();
+        for(String addition : line.getAdditions().keySet()){
+            int quantity = line.getAdditions().get(addition);
+            do{
+                quantity--;
+                info = info + "\n \t +" + addition;
+            }while (quantity > 0);
+        }
+        for(String subtraction : line.getSubtractions()){
+            info = info + "\n \t -" + subtraction;
+        }
+        String additionalRequest = line.getAdditionalRequest();
+        info = additionalRequest.isEmpty() ? info : info + "\n \t *" + additionalRequest;
+        return info;
+    }
+}
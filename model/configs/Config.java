@@ -1,5 +1,10 @@
 package model.configs;
 
+import model.managers.FileManager;
+import model.managers.JournalStorage;
+import model.managers.Metrics;
+import model.managers.UnitOfWork;
+
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
@@ -36,6 +41,10 @@ public class Config {
     private static String lockFile = "LockFiles/";
     private static String initOrderNumber = Integer.toString(defaultOrderNumber);
     private static String initItemNumber = Integer.toString(defaultItemNumber);
+    private static String storageBackend = "file";
+    private static String fileFormat = "binary";
+    private static String changeBus = "socket";
+    private static String metrics = "on";
 
     private static String[] properties = {"served order directory",
             "served item directory",
@@ -53,6 +62,11 @@ public class Config {
     // It will be modified when loading the config file
     private static String[] configValues = {finishedOrders, finishedItems, menuItems, beverage, food, items, orders, stock, extras, bills, lockFile, initOrderNumber, initItemNumber};
 
+    // Optional properties come after the properties above. They keep their default values when they are missing,
+    // so that config files written by older versions are still valid.
+    private static String[] optionalProperties = {"storage backend", "file format", "change bus", "metrics"};
+    private static String[] optionalValues = {storageBackend, fileFormat, changeBus, metrics};
+
     /**
      * Initiates all directories and string instances for the directory and file directory.
      *
@@ -68,7 +82,7 @@ public class Config {
             makeDefaultConfig();
         }
         makeDirectory();
-
+        initStorage();
     }
 
     /**
@@ -87,6 +101,14 @@ public class Config {
                     throw new WrongConfigFormatException("Wrong config name in line " + i);
                 }
             }
+            while(fileOutput.hasNextLine()){
+                String[] split = fileOutput.nextLine().split("=");
+                for(int i = 0; i < optionalProperties.length ; i++){
+                    if(split.length == 2 && split[0].trim().equals(optionalProperties[i])){
+                        values.put(optionalProperties[i], split[1].trim());
+                    }
+                }
+            }
             setNewConfigValue(values);
             String regex = "\\d+";
             if(!initOrderNumber.matches(regex)) {
@@ -121,6 +143,9 @@ public class Config {
             for(int i = 0 ; i < properties.length ; i++){
                 fileInput.println(properties[i] + " = " + configValues[i]);
             }
+            for(int i = 0 ; i < optionalProperties.length ; i++){
+                fileInput.println(optionalProperties[i] + " = " + optionalValues[i]);
+            }
         }
         // exit the program for unknown error
         catch (IOException e){
@@ -153,10 +178,6 @@ public class Config {
         if(!new File(getItemNumberFile()).exists()) {
             createTextFile(getItemNumberFile(), initItemNumber);
         }
-        // reserved supply file
-        if(!new File(getReservedSupplyFile()).exists()) {
-            createTextFile(getReservedSupplyFile(), "");
-        }
 //        // log file
 //        if(!new File(getLoggerFile()).exists()) {
 //            createTextFile(getLoggerFile(), "");
@@ -196,6 +217,36 @@ public class Config {
         configValues[11] = values.get(properties[11]);
         initItemNumber = values.get(properties[12]);
         configValues[12] = values.get(properties[12]);
+        storageBackend = values.getOrDefault(optionalProperties[0], optionalValues[0]);
+        optionalValues[0] = storageBackend;
+        fileFormat = values.getOrDefault(optionalProperties[1], optionalValues[1]);
+        optionalValues[1] = fileFormat;
+        changeBus = values.getOrDefault(optionalProperties[2], optionalValues[2]);
+        optionalValues[2] = changeBus;
+        metrics = values.getOrDefault(optionalProperties[3], optionalValues[3]);
+        optionalValues[3] = metrics;
+    }
+
+    /**
+     * Sets the StorageBackend of the FileManager according to the "storage backend" property. The "journal" backend
+     * recovers its content from the journal in the extras directory. Stays with the "file" backend if the journal
+     * cannot be opened. The Savable objects are written in the binary format unless the "file format" property is
+     * "serialized". A UnitOfWork that was not finished by the last program is applied again. The operations are timed
+     * unless the "metrics" property is "off".
+     */
+    private static void initStorage(){
+        FileManager.setBinaryFormat(!fileFormat.equals("serialized"));
+        Metrics.getMetrics().setEnabled(!metrics.equals("off"));
+        if(storageBackend.equals("journal")){
+            String[] folders = {finishedOrders, finishedItems, beverage, food, items, orders, stock};
+            try {
+                FileManager.setStorageBackend(new JournalStorage(folders, extras));
+            }
+            catch (IOException e){
+//                System.err.println("Cannot open the journal, use the file storage instead");
+            }
+        }
+        UnitOfWork.recover();
     }
 
     private static void createTextFile(String fileName, String content){
@@ -285,7 +336,41 @@ public class Config {
     }
 
     /**
-     * Returns the reserved supply file directory.
+     * Returns the storage backend name ("file" or "journal").
+     * @return the storage backend name
+     */
+    public static String getStorageBackend(){
+        return storageBackend;
+    }
+
+    /**
+     * Returns the format of the saved Savable objects ("binary" or "serialized").
+     * @return the file format
+     */
+    public static String getFileFormat(){
+        return fileFormat;
+    }
+
+    /**
+     * Returns how the changes are sent to the other programs: "socket" for the change bus with the change log as
+     * the fall back, or "file" for the change log only.
+     * @return the change bus name
+     */
+    public static String getChangeBus(){
+        return changeBus;
+    }
+
+    /**
+     * Returns whether the operations are timed ("on" or "off").
+     * @return the metrics setting
+     */
+    public static String getMetrics(){
+        return metrics;
+    }
+
+    /**
+     * Returns the reserved supply file directory. The file is only read once, to move its quantities into the
+     * reservation ledger.
      * @return the reserved supply file directory.
      */
     public static String getReservedSupplyFile(){
@@ -0,0 +1,72 @@
+package model.data;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The IngredientDictionary class.
+ *
+ * The IngredientDictionary gives every ingredient name a small number, so the IngredientMaps of all the Items can
+ * keep the ingredients as numbers instead of Strings. The same name always gets the same number while the program
+ * runs. The numbers are never written into the files, the files keep the names.
+ * @see IngredientMap
+ */
+class IngredientDictionary {
+    private static final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private static volatile String[] names = new String[64];
+    private static int size;
+
+    /**
+     * The dictionary only has static methods.
+     */
+    private IngredientDictionary(){
+    }
+
+    /**
+     * Returns the number of the ingredient, and gives it the next number if it doesn't have one yet.
+     * @param name the ingredient name
+     * @return the number of the ingredient
+     */
+    static int idOf(String name){
+        Integer id = ids.get(name);
+        return id != null ? id : add(name);
+    }
+
+    /**
+     * Returns the number of the ingredient without giving it one.
+     * @param name the ingredient name
+     * @return the number of the ingredient, or -1 if it doesn't have one
+     */
+    static int find(Object name){
+        Integer id = name instanceof String ? ids.get(name) : null;
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Returns the name of the ingredient with the number.
+     * @param id the number of the ingredient
+     * @return the ingredient name
+     */
+    static String nameOf(int id){
+        return names[id];
+    }
+
+    /**
+     * Gives the ingredient the next number.
+     * @param name the ingredient name
+     * @return the number of the ingredient
+     */
+    private static synchronized int add(String name){
+        Integer id = ids.get(name);
+        if(id != null){
+            return id;
+        }
+        if(size == names.length){
+            names = Arrays.copyOf(names, size * 2);
+        }
+        // the name is stored before its number is put into the map, so whoever gets the number sees the name
+        names[size] = name;
+        ids.put(name, size);
+        return size++;
+    }
+}
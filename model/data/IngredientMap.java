@@ -0,0 +1,225 @@
+package model.data;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * The IngredientMap class.
+ *
+ * An IngredientMap keeps the quantities of the ingredients of an Item in two int arrays: the numbers of the
+ * ingredients from the IngredientDictionary and their quantities, in the order they were put. An Item only has a
+ * few ingredients, so looking through the arrays is faster than hashing the name and needs no Integer objects.
+ *
+ * Outside of the model.data package an IngredientMap is a read-only Map from the ingredient names to the quantities.
+ * Only Ingredients changes it.
+ * @see Ingredients
+ */
+class IngredientMap extends AbstractMap<String, Integer> {
+    private static final int[] EMPTY = new int[0];
+
+    private int[] ids;
+    private int[] quantities;
+    private int size;
+
+    /**
+     * Constructs an empty IngredientMap.
+     */
+    IngredientMap(){
+        ids = EMPTY;
+        quantities = EMPTY;
+    }
+
+    /**
+     * Constructs an IngredientMap with the quantities of the map.
+     * @param map the ingredient names and quantities
+     */
+    IngredientMap(Map<String, Integer> map){
+        if(map instanceof IngredientMap){
+            IngredientMap other = (IngredientMap) map;
+            ids = Arrays.copyOf(other.ids, other.size);
+            quantities = Arrays.copyOf(other.quantities, other.size);
+            size = other.size;
+        }
+        else {
+            ids = new int[map.size()];
+            quantities = new int[map.size()];
+            for(Map.Entry<String, Integer> entry : map.entrySet()){
+                put(IngredientDictionary.idOf(entry.getKey()), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Returns the position of the ingredient in the arrays.
+     * @param id the number of the ingredient
+     * @return the position, or -1 if the ingredient is not in the map
+     */
+    int indexOf(int id){
+        for(int i = 0 ; i < size ; i++){
+            if(ids[i] == id){
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the quantity of the ingredient.
+     * @param id the number of the ingredient
+     * @param missing the quantity returned if the ingredient is not in the map
+     * @return the quantity
+     */
+    int getQuantity(int id, int missing){
+        int index = indexOf(id);
+        return index < 0 ? missing : quantities[index];
+    }
+
+    /**
+     * Sets the quantity of the ingredient.
+     * @param id the number of the ingredient
+     * @param quantity the quantity
+     */
+    void put(int id, int quantity){
+        int index = indexOf(id);
+        if(index >= 0){
+            quantities[index] = quantity;
+            return;
+        }
+        if(size == ids.length){
+            int capacity = Math.max(4, size * 2);
+            ids = Arrays.copyOf(ids, capacity);
+            quantities = Arrays.copyOf(quantities, capacity);
+        }
+        ids[size] = id;
+        quantities[size] = quantity;
+        size++;
+    }
+
+    /**
+     * Returns the number of the ingredient at the position.
+     * @param index the position
+     * @return the number of the ingredient
+     */
+    int idAt(int index){
+        return ids[index];
+    }
+
+    /**
+     * Returns the quantity at the position.
+     * @param index the position
+     * @return the quantity
+     */
+    int quantityAt(int index){
+        return quantities[index];
+    }
+
+    /**
+     * Returns a HashMap with the same ingredients and quantities, which is how the ingredients are serialized.
+     * @return the HashMap
+     */
+    HashMap<String, Integer> toHashMap(){
+        HashMap<String, Integer> map = new HashMap<>();
+        for(int i = 0 ; i < size ; i++){
+            map.put(IngredientDictionary.nameOf(ids[i]), quantities[i]);
+        }
+        return map;
+    }
+
+    @Override
+    public int size(){
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object name){
+        int id = IngredientDictionary.find(name);
+        return id >= 0 && indexOf(id) >= 0;
+    }
+
+    @Override
+    public Integer get(Object name){
+        int id = IngredientDictionary.find(name);
+        int index = id < 0 ? -1 : indexOf(id);
+        return index < 0 ? null : quantities[index];
+    }
+
+    @Override
+    public Set<Map.Entry<String, Integer>> entrySet(){
+        return new AbstractSet<Map.Entry<String, Integer>>() {
+            @Override
+            public Iterator<Map.Entry<String, Integer>> iterator(){
+                return new Cursor<Map.Entry<String, Integer>>() {
+                    @Override
+                    Map.Entry<String, Integer> at(int index){
+                        return new AbstractMap.SimpleImmutableEntry<>(IngredientDictionary.nameOf(ids[index]),
+                                quantities[index]);
+                    }
+                };
+            }
+
+            @Override
+            public int size(){
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public Set<String> keySet(){
+        return new AbstractSet<String>() {
+            @Override
+            public Iterator<String> iterator(){
+                return new Cursor<String>() {
+                    @Override
+                    String at(int index){
+                        return IngredientDictionary.nameOf(ids[index]);
+                    }
+                };
+            }
+
+            @Override
+            public boolean contains(Object name){
+                return containsKey(name);
+            }
+
+            @Override
+            public int size(){
+                return size;
+            }
+        };
+    }
+
+    /**
+     * An iterator over the positions of the map that can't remove.
+     * @param <T> the type of the elements
+     */
+    private abstract class Cursor<T> implements Iterator<T> {
+        private int next;
+
+        @Override
+        public boolean hasNext(){
+            return next < size;
+        }
+
+        @Override
+        public T next(){
+            if(next >= size){
+                throw new NoSuchElementException();
+            }
+            return at(next++);
+        }
+
+        /**
+         * Returns the element at the position.
+         * @param index the position
+         * @return the element
+         */
+        abstract T at(int index);
+    }
+}
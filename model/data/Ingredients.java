@@ -1,100 +1,119 @@
 package model.data;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.util.HashMap;
+import java.util.Map;
 
 /**
  * The Ingredients class.
  *
  * This class handles all the ingredients in items (menu items and order items). It keeps track and modify all
  * of the item's addition and subtraction of ingredients.
+ *
+ * The ingredients are kept in IngredientMaps that store the numbers of the ingredient names and int quantities. The
+ * getters return read-only views of them instead of copies. The views of the additions and subtractions follow the
+ * changes of this Ingredients; the other maps are replaced, not changed, by their setters, so their views never change
+ * and a clone shares them with the Ingredients it was cloned from.
+ *
+ * The Ingredients are serialized as the five HashMaps they used to be, so the files saved before can still be read.
  */
 public class Ingredients implements Serializable, Cloneable{
-    private HashMap<String, Integer> addition;
-    private HashMap<String, Integer> subtraction;
-    private HashMap<String, Integer> baseIngredient;
-    private HashMap<String, Integer> availableAddition;
-    private HashMap<String, Integer> availableSubtraction;
+    // the id of the class when its fields were HashMaps
+    private static final long serialVersionUID = -2530463435146651214L;
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("addition", HashMap.class),
+            new ObjectStreamField("subtraction", HashMap.class),
+            new ObjectStreamField("baseIngredient", HashMap.class),
+            new ObjectStreamField("availableAddition", HashMap.class),
+            new ObjectStreamField("availableSubtraction", HashMap.class)
+    };
+
+    private IngredientMap addition;
+    private IngredientMap subtraction;
+    private IngredientMap baseIngredient;
+    private IngredientMap availableAddition;
+    private IngredientMap availableSubtraction;
+    private IngredientMap neededIngredients;
 
     /**
      * Constructs Ingredients with additions and subtractions.
      */
     public Ingredients(){
-        addition = new HashMap<>(); //additional ingredients modified when server create an item in order
-        subtraction = new HashMap<>(); //subtraction ingredients modified when server create an item in order
-        baseIngredient = new HashMap<>(); //set ingredients for the menu/ base item.
-        availableAddition = new HashMap<>(); //available ingredients that user can add
-        availableSubtraction = new HashMap<>();//available ingredients that user can subtract
+        addition = new IngredientMap(); //additional ingredients modified when server create an item in order
+        subtraction = new IngredientMap(); //subtraction ingredients modified when server create an item in order
+        baseIngredient = new IngredientMap(); //set ingredients for the menu/ base item.
+        availableAddition = new IngredientMap(); //available ingredients that user can add
+        availableSubtraction = new IngredientMap();//available ingredients that user can subtract
     }
 
     /**
      * Get the additions of the item.
-     * @return HashMap with the addition's name and quantity.
+     * @return read-only Map with the addition's name and quantity.
      */
-    @SuppressWarnings("unchecked")
-    public HashMap<String, Integer> getAddition() {
-        return (HashMap<String, Integer>)addition.clone();
+    public Map<String, Integer> getAddition() {
+        return addition;
     }
 
     /**
-     * Get the available additions of the menu item.
-     * @return HashMap with the addition's name and quantity.
+     * Get the subtractions of the item.
+     * @return read-only Map with the subtraction's name and quantity.
      */
-    @SuppressWarnings("unchecked")
-    public HashMap<String, Integer> getSubtraction() {
-        return (HashMap<String, Integer>)subtraction.clone();
+    public Map<String, Integer> getSubtraction() {
+        return subtraction;
     }
 
     /**
      * Get the base ingredient of the menu item.
-     * @return HashMap with the base ingredients.
+     * @return read-only Map with the base ingredients.
      */
-    @SuppressWarnings("unchecked")
-    public HashMap<String, Integer> getBaseIngredient() {
-        return (HashMap<String, Integer>)baseIngredient.clone();
+    public Map<String, Integer> getBaseIngredient() {
+        return baseIngredient;
     }
 
     /**
      * Get the available additions of the menu item.
-     * @return HashMap with available additional ingredients' name and quantity.
+     * @return read-only Map with available additional ingredients' name and quantity.
      */
-    @SuppressWarnings("unchecked")
-    public HashMap<String, Integer> getAvailableAddition() {
-        return (HashMap<String, Integer>)availableAddition.clone();
+    public Map<String, Integer> getAvailableAddition() {
+        return availableAddition;
     }
 
     /**
      * Get the available subtractions of the menu item.
-     * @return HashMap with available subtraction ingredients' name and quantity.
+     * @return read-only Map with available subtraction ingredients' name and quantity.
      */
-    @SuppressWarnings("unchecked")
-    public HashMap<String, Integer> getAvailableSubtraction() {
-        return (HashMap<String, Integer>)availableSubtraction.clone();
+    public Map<String, Integer> getAvailableSubtraction() {
+        return availableSubtraction;
     }
 
     /**
-     * Calculates all needed ingredients of this Item and returns the ingredients with quantities as a HashMap.
-     * @return needed ingredients
+     * Calculates all needed ingredients of this Item and returns the ingredients with quantities as a Map.
+     * The result is kept until the ingredients change, and it is never changed itself.
+     * @return read-only needed ingredients
      */
-    public HashMap<String, Integer> getNeededIngredients() {
-        HashMap<String, Integer> newIngredients = new HashMap<>();
-        // merge subtraction HashMap
-        for (String name : baseIngredient.keySet()) {
-            if (subtraction.containsKey(name)) {
-                newIngredients.put(name, baseIngredient.get(name) - subtraction.get(name));
-            } else {
-                newIngredients.put(name, baseIngredient.get(name));
-            }
+    public Map<String, Integer> getNeededIngredients() {
+        IngredientMap needed = neededIngredients;
+        if(needed != null){
+            return needed;
         }
-        // merge addition HashMap
-        for (String name : addition.keySet()) {
-            if (newIngredients.containsKey(name)) {
-                newIngredients.put(name, baseIngredient.get(name) + addition.get(name));
-            } else {
-                newIngredients.put(name, addition.get(name));
-            }
+        needed = new IngredientMap();
+        // merge subtraction map
+        for (int i = 0; i < baseIngredient.size(); i++) {
+            int id = baseIngredient.idAt(i);
+            needed.put(id, baseIngredient.quantityAt(i) - subtraction.getQuantity(id, 0));
         }
-        return newIngredients;
+        // merge addition map
+        for (int i = 0; i < addition.size(); i++) {
+            int id = addition.idAt(i);
+            int base = baseIngredient.getQuantity(id, -1);
+            needed.put(id, base < 0 ? addition.quantityAt(i) : base + addition.quantityAt(i));
+        }
+        neededIngredients = needed;
+        return needed;
     }
 
 
@@ -102,63 +121,58 @@ public class Ingredients implements Serializable, Cloneable{
      * Set the available additions to the menu item.
      * @param availableAddition available ingredients that we can add to item.
      */
-    @SuppressWarnings("unchecked")
-    public void setAvailableAddition(HashMap<String, Integer> availableAddition){
-        this.availableAddition = (HashMap<String, Integer>)availableAddition.clone();
+    public void setAvailableAddition(Map<String, Integer> availableAddition){
+        this.availableAddition = new IngredientMap(availableAddition);
     }
 
     /**
      * Set the available subtractions to the menu item.
      * @param availableSubtraction available ingredients that we can subtract from item.
      */
-    @SuppressWarnings("unchecked")
-    public void setAvailableSubtraction(HashMap<String, Integer> availableSubtraction){
-        this.availableSubtraction = (HashMap<String, Integer>)availableSubtraction.clone();
+    public void setAvailableSubtraction(Map<String, Integer> availableSubtraction){
+        this.availableSubtraction = new IngredientMap(availableSubtraction);
     }
 
     /**
      * Set the addition ingredients to the item being created.
      * @param addition ingredients server choose to add to this item.
      */
-    @SuppressWarnings("unchecked")
-    public void setAddition(HashMap<String, Integer> addition) {
-        this.addition = (HashMap<String, Integer>)addition.clone();
+    public void setAddition(Map<String, Integer> addition) {
+        this.addition = new IngredientMap(addition);
+        neededIngredients = null;
     }
 
     /**
      * Set the subtraction ingredients to the item being created.
      * @param subtraction ingredients server choose to delete from this item.
      */
-    @SuppressWarnings("unchecked")
-    public void setSubtraction(HashMap<String, Integer> subtraction) {
-        this.subtraction = (HashMap<String, Integer>)subtraction.clone();
+    public void setSubtraction(Map<String, Integer> subtraction) {
+        this.subtraction = new IngredientMap(subtraction);
+        neededIngredients = null;
     }
 
     /**
      * Set the base ingredients for the menu item being created.
      * @param baseIngredient set ingredients to make this menu item.
      */
-    @SuppressWarnings("unchecked")
-    public void setBaseIngredient(HashMap<String, Integer> baseIngredient) {
-        this.baseIngredient = (HashMap<String, Integer>)baseIngredient.clone();
+    public void setBaseIngredient(Map<String, Integer> baseIngredient) {
+        this.baseIngredient = new IngredientMap(baseIngredient);
+        neededIngredients = null;
     }
 
     /**
      * Records that a addition has been added to this item.
      * The ingredient name parameter has to be one of the available additions.
      *
-     * Do nothing if the addition has been added previously.
+     * Adds the quantity of the addition again if the addition has been added previously.
      *
      * @param name the addition ingredient
      */
     public void addAddition(String name) {
-        int quantity = availableAddition.get(name);
-        if(addition.containsKey(name)) {
-            addition.put(name, addition.get(name) + quantity);
-        }
-        else {
-            addition.put(name, quantity);
-        }
+        int id = IngredientDictionary.idOf(name);
+        int quantity = available(availableAddition, id, name);
+        addition.put(id, addition.getQuantity(id, 0) + quantity);
+        neededIngredients = null;
     }
 
     /**
@@ -170,11 +184,14 @@ public class Ingredients implements Serializable, Cloneable{
      * @param name the subtraction ingredient
      */
     public void addSubtraction(String name){
-        subtraction.put(name, availableSubtraction.get(name));
+        int id = IngredientDictionary.idOf(name);
+        subtraction.put(id, available(availableSubtraction, id, name));
+        neededIngredients = null;
     }
 
     /**
-     * Cloning the ingredients.
+     * Cloning the ingredients. The clone gets its own additions and subtractions and shares the other maps, which
+     * are never changed.
      * @return Ingredients
      */
     @Override
@@ -182,11 +199,8 @@ public class Ingredients implements Serializable, Cloneable{
         Ingredients ingredients;
         try {
             ingredients= (Ingredients) super.clone();
-            ingredients.setAddition(getAddition());
-            ingredients.setSubtraction(getSubtraction());
-            ingredients.setAvailableAddition(getAvailableAddition());
-            ingredients.setAvailableSubtraction(getAvailableSubtraction());
-            ingredients.setBaseIngredient(getBaseIngredient());
+            ingredients.addition = new IngredientMap(addition);
+            ingredients.subtraction = new IngredientMap(subtraction);
         }
         // Not going to happen since we are cloneable
         catch (CloneNotSupportedException e) {
@@ -195,4 +209,61 @@ public class Ingredients implements Serializable, Cloneable{
         return ingredients;
     }
 
+    /**
+     * Returns the quantity of an available ingredient.
+     * @param available the available additions or subtractions
+     * @param id the number of the ingredient
+     * @param name the ingredient name
+     * @return the quantity
+     */
+    private int available(IngredientMap available, int id, String name){
+        int index = available.indexOf(id);
+        if(index < 0){
+            throw new IllegalArgumentException(name + " can't be added to or taken from this item");
+        }
+        return available.quantityAt(index);
+    }
+
+    /**
+     * Serializes the maps as HashMaps.
+     * @param out the output stream
+     * @throws IOException if the output stream fails
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("addition", addition.toHashMap());
+        fields.put("subtraction", subtraction.toHashMap());
+        fields.put("baseIngredient", baseIngredient.toHashMap());
+        fields.put("availableAddition", availableAddition.toHashMap());
+        fields.put("availableSubtraction", availableSubtraction.toHashMap());
+        out.writeFields();
+    }
+
+    /**
+     * De-serializes the HashMaps into IngredientMaps.
+     * @param in the input stream
+     * @throws IOException if the input stream fails
+     * @throws ClassNotFoundException if the class doesn't exist
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        addition = read(fields, "addition");
+        subtraction = read(fields, "subtraction");
+        baseIngredient = read(fields, "baseIngredient");
+        availableAddition = read(fields, "availableAddition");
+        availableSubtraction = read(fields, "availableSubtraction");
+    }
+
+    /**
+     * Reads one of the serialized HashMaps.
+     * @param fields the serialized fields
+     * @param name the name of the field
+     * @return the IngredientMap
+     * @throws IOException if the field has the wrong type
+     */
+    @SuppressWarnings("unchecked")
+    private static IngredientMap read(ObjectInputStream.GetField fields, String name) throws IOException {
+        HashMap<String, Integer> map = (HashMap<String, Integer>) fields.get(name, null);
+        return map == null ? new IngredientMap() : new IngredientMap(map);
+    }
 }
@@ -18,11 +18,15 @@ import model.interfaces.Savable;
  *
  */
 abstract public class Item implements Savable, Comparable<Item> {
+    // the id of the class before the version was added, so the files saved before can still be read
+    private static final long serialVersionUID = -1248608655306330695L;
+
     protected String name;
     protected String description;
     protected double price;
     protected Ingredients ingredients;
     protected ItemInfo itemInfo;
+    protected int version;
 
     /**
      * Constructs an Item (base/ menu item) with name and price.
@@ -99,6 +103,24 @@ abstract public class Item implements Savable, Comparable<Item> {
         return itemNum == -1 ? name : Integer.toString(itemInfo.getItemNumber());
     }
 
+    /**
+     * Returns the version of this Item.
+     * @return the version
+     */
+    @Override
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Sets the version of this Item.
+     * @param version the version
+     */
+    @Override
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     /** Set the description.*/
     public void setDescription(String description){
         this.description = description;
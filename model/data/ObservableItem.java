@@ -1,6 +1,8 @@
 package model.data;
 
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.OptionalDataException;
 import java.util.ArrayList;
 
 import model.interfaces.Observable;
@@ -55,6 +57,7 @@ public abstract class ObservableItem extends Item implements Observable {
         out.writeObject(ingredients);
         out.writeDouble(price);
         out.writeObject(description);
+        out.writeInt(version);
     }
 
     /**
@@ -69,6 +72,13 @@ public abstract class ObservableItem extends Item implements Observable {
         ingredients = (Ingredients) in.readObject();
         price = in.readDouble();
         description = (String) in.readObject();
+        try {
+            version = in.readInt();
+        }
+        // written before the version was added
+        catch (EOFException | OptionalDataException e){
+            version = 0;
+        }
         observers = new ArrayList<>();
     }
 
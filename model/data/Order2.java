@@ -6,7 +6,9 @@ import model.interfaces.Observer;
 import model.interfaces.Savable;
 import model.managers.FileManager;
 
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.OptionalDataException;
 import java.util.ArrayList;
 
 /**
@@ -16,10 +18,15 @@ import java.util.ArrayList;
  * We can modify items in an order and whether the order is finished or not.
  */
 public class Order2 implements Savable, Comparable<Order2>, Observable {
+    // the id of the class before the version was added, so the files saved before can still be read
+    private static final long serialVersionUID = -8862951720372863720L;
+
     private ArrayList<Item> items;
     private int orderNumber;
     private int tableNumber;
     private boolean isFinished; // bill is paid
+    private long finishedAt; // 0 if the order was finished before the time was kept
+    private int version;
 
     public ArrayList<Observer> observers;
 
@@ -76,10 +83,45 @@ public class Order2 implements Savable, Comparable<Order2>, Observable {
     }
 
     /**
-     * Finish this order.
+     * Finish this order. The current time is kept as the time the order was finished.
      */
     public void finished() {
         isFinished = true;
+        finishedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Get the time this order was finished.
+     * @return the time in milliseconds, or 0 if it is not finished or was finished before the time was kept
+     */
+    public long getFinishedAt() {
+        return finishedAt;
+    }
+
+    /**
+     * Set the time this order was finished.
+     * @param finishedAt the time in milliseconds
+     */
+    public void setFinishedAt(long finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+
+    /**
+     * Get the version of this order.
+     * @return the version
+     */
+    @Override
+    public int getVersion(){
+        return version;
+    }
+
+    /**
+     * Set the version of this order.
+     * @param version the version
+     */
+    @Override
+    public void setVersion(int version){
+        this.version = version;
     }
 
     /**
@@ -156,7 +198,8 @@ public class Order2 implements Savable, Comparable<Order2>, Observable {
     }
 
     /**
-     * Serialize object.
+     * Serialize object. The items that are not saved yet are saved in the items folder, the items that are already
+     * saved are not overwritten since they are saved on their own.
      * @param out output
      * @throws IOException
      */
@@ -167,12 +210,16 @@ public class Order2 implements Savable, Comparable<Order2>, Observable {
         for(Item item : items){
             String path = item.getFileName();
             itemPaths.add(path);
-            fileManager.saveToFile(item, folderName);
+            if(!fileManager.isExisted(item, folderName)) {
+                fileManager.saveToFile(item, folderName);
+            }
         }
         out.writeInt(orderNumber);
         out.writeInt(tableNumber);
         out.writeBoolean(isFinished);
         out.writeObject(itemPaths);
+        out.writeInt(version);
+        out.writeLong(finishedAt);
     }
 
     /**
@@ -188,6 +235,20 @@ public class Order2 implements Savable, Comparable<Order2>, Observable {
         tableNumber = in.readInt();
         isFinished = in.readBoolean();
         ArrayList<String> itemPaths = (ArrayList<String>)in.readObject();
+        try {
+            version = in.readInt();
+        }
+        // written before the version was added
+        catch (EOFException | OptionalDataException e){
+            version = 0;
+        }
+        try {
+            finishedAt = in.readLong();
+        }
+        // written before the finished time was added
+        catch (EOFException | OptionalDataException e){
+            finishedAt = 0;
+        }
         String folderName = isFinished ? Config.getFinishedItemsPath() : Config.getItemsPath();
         for(String path : itemPaths){
             Item item = (Item)fileManager.readFromFile(folderName + path);
@@ -0,0 +1,245 @@
+package model.data;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The OrderLine class.
+ *
+ * An OrderLine is what the server chose for one Item of an order: the name of the menu item, the additions (with the
+ * number of times each one is added), the subtractions and the additional request. It can't be changed after it is
+ * made, so the view controllers can hand it to the controllers as it is.
+ *
+ * An OrderLine is written as text in the format that the order displays show:
+ * "name\n \t +(addition) ... \n \t -(subtraction) ... \n \t *(additionalRequest)". Every addition line adds the
+ * addition once more, every line of the additional request is its own "*" line. Only the first character of a line
+ * (after the white space) tells what the line is, so a name or a request may contain "+", "-" and "*".
+ */
+public class OrderLine {
+    private static final String LINE_START = "\n \t ";
+
+    private final String name;
+    private final LinkedHashMap<String, Integer> additions;
+    private final LinkedHashSet<String> subtractions;
+    private final String additionalRequest;
+
+    /**
+     * Constructs an OrderLine from the choices made in the item customizer.
+     * When the ingredient value = -1, the ingredient is needed to be subtracted
+     * When the ingredient value = 0, there nothing need to be changed.
+     * When the ingredient value = n > 0, n times extra ingredient on the item.
+     * @param name the menu item name
+     * @param ingredients the ingredient choices
+     * @param additionalRequest the additional request, or an empty String
+     */
+    public OrderLine(String name, Map<String, Integer> ingredients, String additionalRequest){
+        this(name, new LinkedHashMap<>(), new LinkedHashSet<>(), additionalRequest);
+        for(Map.Entry<String, Integer> ingredient : ingredients.entrySet()){
+            if(ingredient.getValue() < 0){
+                subtractions.add(ingredient.getKey());
+            }
+            else if(ingredient.getValue() > 0){
+                additions.put(ingredient.getKey(), ingredient.getValue());
+            }
+        }
+    }
+
+    /**
+     * Constructs an OrderLine with the given additions and subtractions.
+     * @param name the menu item name
+     * @param additions the number of times each addition is added
+     * @param subtractions the subtractions
+     * @param additionalRequest the additional request, or an empty String
+     */
+    public OrderLine(String name, Map<String, Integer> additions, Set<String> subtractions,
+                     String additionalRequest){
+        this(name, new LinkedHashMap<>(additions), new LinkedHashSet<>(subtractions), additionalRequest);
+    }
+
+    /**
+     * Constructs an OrderLine that keeps the given collections instead of copying them.
+     * @param name the menu item name
+     * @param additions the additions
+     * @param subtractions the subtractions
+     * @param additionalRequest the additional request
+     */
+    private OrderLine(String name, LinkedHashMap<String, Integer> additions, LinkedHashSet<String> subtractions,
+                      String additionalRequest){
+        this.name = name;
+        this.additions = additions;
+        this.subtractions = subtractions;
+        this.additionalRequest = additionalRequest == null ? "" : additionalRequest;
+    }
+
+    /**
+     * Reads an OrderLine from its text in one pass over the characters. The lines that don't start with "+", "-" or
+     * "*" are skipped.
+     * @param text the text of the OrderLine
+     * @return the OrderLine
+     */
+    public static OrderLine parse(String text){
+        int length = text.length();
+        int end = text.indexOf('\n');
+        if(end < 0){
+            end = length;
+        }
+        String name = trimmed(text, 0, end);
+        LinkedHashMap<String, Integer> additions = new LinkedHashMap<>(4);
+        LinkedHashSet<String> subtractions = new LinkedHashSet<>(4);
+        StringBuilder request = null;
+        int start = end + 1;
+        while(start < length){
+            end = text.indexOf('\n', start);
+            if(end < 0){
+                end = length;
+            }
+            while(start < end && Character.isWhitespace(text.charAt(start))){
+                start++;
+            }
+            if(start < end){
+                char marker = text.charAt(start);
+                if(marker == '+'){
+                    additions.merge(trimmed(text, start + 1, end), 1, Integer::sum);
+                }
+                else if(marker == '-'){
+                    subtractions.add(trimmed(text, start + 1, end));
+                }
+                else if(marker == '*'){
+                    if(request == null){
+                        request = new StringBuilder();
+                    }
+                    else {
+                        request.append('\n');
+                    }
+                    request.append(trimmed(text, start + 1, end));
+                }
+            }
+            start = end + 1;
+        }
+        return new OrderLine(name, additions, subtractions, request == null ? "" : request.toString());
+    }
+
+    /**
+     * Returns the OrderLine of an Item. The number of times an addition is added is worked out from the quantity of
+     * the addition and the quantity of one addition.
+     * @param item the Item
+     * @return the OrderLine
+     */
+    public static OrderLine fromItem(Item item){
+        Ingredients ingredients = item.getIngredients();
+        Map<String, Integer> available = ingredients.getAvailableAddition();
+        LinkedHashMap<String, Integer> additions = new LinkedHashMap<>();
+        for(Map.Entry<String, Integer> addition : ingredients.getAddition().entrySet()){
+            Integer one = available.get(addition.getKey());
+            int times = one == null || one <= 0 ? 1 : addition.getValue() / one;
+            additions.put(addition.getKey(), Math.max(times, 1));
+        }
+        return new OrderLine(item.getName(), additions, ingredients.getSubtraction().keySet(),
+                item.getItemInfo().getAdditionalRequest());
+    }
+
+    /**
+     * Returns the name of the menu item.
+     * @return the menu item name
+     */
+    public String getName(){
+        return name;
+    }
+
+    /**
+     * Returns the number of times each addition is added.
+     * @return the additions, which can't be changed
+     */
+    public Map<String, Integer> getAdditions(){
+        return Collections.unmodifiableMap(additions);
+    }
+
+    /**
+     * Returns the subtractions.
+     * @return the subtractions, which can't be changed
+     */
+    public Set<String> getSubtractions(){
+        return Collections.unmodifiableSet(subtractions);
+    }
+
+    /**
+     * Returns the additional request.
+     * @return the additional request, or an empty String
+     */
+    public String getAdditionalRequest(){
+        return additionalRequest;
+    }
+
+    /**
+     * Writes the OrderLine as text.
+     * @return the text of the OrderLine
+     */
+    @Override
+    public String toString(){
+        StringBuilder text = new StringBuilder(name.length() + 16 * (additions.size() + subtractions.size() + 1));
+        text.append(name);
+        for(Map.Entry<String, Integer> addition : additions.entrySet()){
+            for(int i = 0 ; i < addition.getValue() ; i++){
+                text.append(LINE_START).append('+').append(addition.getKey());
+            }
+        }
+        for(String subtraction : subtractions){
+            text.append(LINE_START).append('-').append(subtraction);
+        }
+        if(!additionalRequest.isEmpty()){
+            int start = 0;
+            int end;
+            while((end = additionalRequest.indexOf('\n', start)) >= 0){
+                text.append(LINE_START).append('*').append(additionalRequest, start, end);
+                start = end + 1;
+            }
+            text.append(LINE_START).append('*').append(additionalRequest, start, additionalRequest.length());
+        }
+        return text.toString();
+    }
+
+    /**
+     * Checks if two OrderLines have the same name and choices.
+     * @param o the other object
+     * @return true if they are equal
+     */
+    @Override
+    public boolean equals(Object o){
+        if(!(o instanceof OrderLine)){
+            return false;
+        }
+        OrderLine line = (OrderLine) o;
+        return name.equals(line.name) && additions.equals(line.additions) && subtractions.equals(line.subtractions)
+                && additionalRequest.equals(line.additionalRequest);
+    }
+
+    /**
+     * Returns the hash code made from the name and the choices.
+     * @return the hash code
+     */
+    @Override
+    public int hashCode(){
+        return ((name.hashCode() * 31 + additions.hashCode()) * 31 + subtractions.hashCode()) * 31
+                + additionalRequest.hashCode();
+    }
+
+    /**
+     * Returns the text between start and end without the white space at both ends.
+     * @param text the text
+     * @param start the start index
+     * @param end the end index
+     * @return the trimmed text
+     */
+    private static String trimmed(String text, int start, int end){
+        while(start < end && Character.isWhitespace(text.charAt(start))){
+            start++;
+        }
+        while(end > start && Character.isWhitespace(text.charAt(end - 1))){
+            end--;
+        }
+        return text.substring(start, end);
+    }
+}
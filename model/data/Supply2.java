@@ -4,7 +4,9 @@ import model.interfaces.Observable;
 import model.interfaces.Observer;
 import model.interfaces.Savable;
 
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.OptionalDataException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 
@@ -12,10 +14,14 @@ import java.util.ArrayList;
  * The Supply class. It can add/ remove quantity.
  */
 public class Supply2 implements Savable , Observable, Comparable<Supply2>{
+    // the id of the class before the version was added, so the files saved before can still be read
+    private static final long serialVersionUID = 4553317106417784804L;
+
     private int quantityInStock;
     private int totalQuantityNeeded;
     private String name;
     private int requestAmount;
+    private int version;
 
     private ArrayList<Observer> observers;
 
@@ -89,6 +95,24 @@ public class Supply2 implements Savable , Observable, Comparable<Supply2>{
         return name;
     }
 
+    /**
+     * Get the version of this supply.
+     * @return the version
+     */
+    @Override
+    public int getVersion(){
+        return version;
+    }
+
+    /**
+     * Set the version of this supply.
+     * @param version the version
+     */
+    @Override
+    public void setVersion(int version){
+        this.version = version;
+    }
+
     /**
      * Attach an observer to this supply.
      * @param observer the observer we want to attach.
@@ -154,6 +178,7 @@ public class Supply2 implements Savable , Observable, Comparable<Supply2>{
         out.writeInt(totalQuantityNeeded);
         out.writeInt(requestAmount);
         out.writeObject(name);
+        out.writeInt(version);
     }
 
     /**
@@ -167,6 +192,13 @@ public class Supply2 implements Savable , Observable, Comparable<Supply2>{
         totalQuantityNeeded = in.readInt();
         requestAmount = in.readInt();
         name = (String) in.readObject();
+        try {
+            version = in.readInt();
+        }
+        // written before the version was added
+        catch (EOFException | OptionalDataException e){
+            version = 0;
+        }
 
         observers = new ArrayList<>();
     }
@@ -8,6 +8,9 @@ import java.io.Serializable;
  * The Savable interface represents a savable object and is able to return its unique file name that is used as the
  * file name. This interface also extends from the Serializable and all implementing classes object can be serialize
  * into the file.
+ *
+ * Every Savable has a version which is increased each time it is saved with FileManager.compareAndSave, so a save
+ * based on an old copy of the object can be detected.
  */
 public interface Savable extends Serializable{
 
@@ -16,4 +19,16 @@ public interface Savable extends Serializable{
      * @return the unique file name
      */
     String getFileName();
+
+    /**
+     * Returns the version of the object, which is the number of times it has been saved.
+     * @return the version
+     */
+    int getVersion();
+
+    /**
+     * Sets the version of the object.
+     * @param version the version
+     */
+    void setVersion(int version);
 }
@@ -0,0 +1,56 @@
+package model.interfaces;
+
+/**
+ * The StorageBackend interface.
+ *
+ * The StorageBackend represents the place where the serialized Savable objects are stored. The FileManager
+ * serializes the objects into bytes and passes them to the StorageBackend using the same paths as before, which is
+ * the folder directory followed by the file name of the Savable. The backend that is used can be chosen in the
+ * config file.
+ * @see Savable
+ */
+public interface StorageBackend {
+
+    /**
+     * Reads the bytes stored at the path.
+     * @param path the path
+     * @return the bytes or null if nothing is stored at the path
+     */
+    byte[] read(String path);
+
+    /**
+     * Stores the bytes at the path. Replaces the bytes if the path already exists.
+     * @param path the path
+     * @param data the bytes
+     * @return true iff the bytes are stored
+     */
+    boolean write(String path, byte[] data);
+
+    /**
+     * Deletes the bytes stored at the path.
+     * @param path the path
+     * @return true iff something was deleted
+     */
+    boolean delete(String path);
+
+    /**
+     * Checks if the path exists or not.
+     * @param path the path
+     * @return true if the path exists
+     */
+    boolean exists(String path);
+
+    /**
+     * Returns the names of everything stored in a folder.
+     * @param folderName the folder directory
+     * @return the names
+     */
+    String[] list(String folderName);
+
+    /**
+     * Returns a stamp that changes every time the path is written, or null if the path doesn't exist.
+     * @param path the path
+     * @return the stamp or null
+     */
+    String getStamp(String path);
+}
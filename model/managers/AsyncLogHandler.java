@@ -0,0 +1,208 @@
+package model.managers;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.SimpleFormatter;
+
+/**
+ * The AsyncLogHandler class.
+ *
+ * The AsyncLogHandler writes the log records to the log file on a daemon timer instead of on the thread that logs
+ * them, so logging doesn't wait for the disk. publish() only puts the record in a ring buffer of CAPACITY records;
+ * the threads that log claim their slot with a compare and set, so they never lock. Every FLUSH_MILLIS the timer takes
+ * the records out of the buffer, formats them and appends them to the file in one write. The messages with
+ * parameters, like "{0} has been deleted", are only formatted then, so the parameters must not change after they are
+ * logged. If the buffer is full the record is dropped, and the number of dropped records is written to the log.
+ *
+ * The file is shared by all programs, so it is appended to while holding the lock of the lock file next to it. When
+ * the file is larger than MAX_BYTES or was last written on an earlier day, it is renamed to "log.1", the older files
+ * are moved up by one, and only OLD_FILES of them are kept.
+ * @see MyLogger
+ */
+public class AsyncLogHandler extends Handler {
+    private static final int CAPACITY = 8192;
+    private static final long FLUSH_MILLIS = 200;
+    private static final long MAX_BYTES = 1024 * 1024;
+    private static final int OLD_FILES = 5;
+    private static final String LOCK = ".lock";
+
+    private final AtomicReferenceArray<LogRecord> slots;
+    private final AtomicLong tail;
+    private volatile long head;
+    private final LongAdder dropped;
+    private final String path;
+    private Timer timer;
+
+    /**
+     * Constructs an AsyncLogHandler that appends to the file at the path, with the SimpleFormatter, and starts its
+     * timer.
+     * @param path the path of the log file
+     */
+    public AsyncLogHandler(String path){
+        this.path = path;
+        slots = new AtomicReferenceArray<>(CAPACITY);
+        tail = new AtomicLong();
+        dropped = new LongAdder();
+        setFormatter(new SimpleFormatter());
+        timer = new Timer("log writer", true);
+        timer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                write();
+            }
+        }, FLUSH_MILLIS, FLUSH_MILLIS);
+    }
+
+    /**
+     * Puts the record in the buffer, or drops it if the buffer is full. The class and method that logged it are found
+     * here, since they cannot be found from the thread of the timer.
+     * @param record the log record
+     */
+    @Override
+    public void publish(LogRecord record) {
+        if(!isLoggable(record)){
+            return;
+        }
+        record.getSourceClassName();
+        long slot;
+        do {
+            slot = tail.get();
+            if(slot - head >= CAPACITY){
+                dropped.increment();
+                return;
+            }
+        } while(!tail.compareAndSet(slot, slot + 1));
+        slots.set((int) (slot % CAPACITY), record);
+    }
+
+    /**
+     * Writes the records in the buffer to the file now.
+     */
+    @Override
+    public void flush() {
+        write();
+    }
+
+    /**
+     * Stops the timer and writes the records that are left.
+     */
+    @Override
+    public void close() {
+        synchronized (this){
+            if(timer != null){
+                timer.cancel();
+                timer = null;
+            }
+        }
+        write();
+    }
+
+    /**
+     * Takes the records out of the buffer in the order they were claimed, formats them and appends them to the file.
+     * Stops at a slot that is claimed but not filled yet, which is taken the next time.
+     */
+    private synchronized void write(){
+        StringBuilder text = new StringBuilder();
+        long next = head;
+        long last = tail.get();
+        while(next < last){
+            int index = (int) (next % CAPACITY);
+            LogRecord record = slots.get(index);
+            if(record == null){
+                break;
+            }
+            slots.set(index, null);
+            next++;
+            head = next;
+            try {
+                text.append(getFormatter().format(record));
+            }
+            catch (RuntimeException e){
+                reportError("Cannot format a log record", e, ErrorManager.FORMAT_FAILURE);
+            }
+        }
+        long lost = dropped.sumThenReset();
+        if(lost > 0){
+            LogRecord record = new LogRecord(Level.WARNING, "{0,number,#} log records were dropped because the log "
+                    + "buffer was full");
+            record.setParameters(new Object[]{lost});
+            record.setSourceClassName(AsyncLogHandler.class.getName());
+            record.setSourceMethodName("publish");
+            text.append(getFormatter().format(record));
+        }
+        if(text.length() > 0){
+            append(text.toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Appends the bytes to the file while holding the lock of the lock file, after rotating the file if it is too
+     * large or too old.
+     * @param bytes the bytes
+     */
+    @SuppressWarnings("try")
+    private void append(byte[] bytes){
+        File file = new File(path);
+        try (FileChannel lockChannel = FileChannel.open(new File(path + LOCK).toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+             FileLock lock = FileManager.lock(lockChannel, 0, Long.MAX_VALUE, false)){
+            if(file.exists() && (file.length() + bytes.length > MAX_BYTES || isFromEarlierDay(file))){
+                rotate();
+            }
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND)){
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                while(buffer.hasRemaining()){
+                    channel.write(buffer);
+                }
+            }
+        }
+        catch (IOException e){
+            reportError("Cannot write the log file " + path, e, ErrorManager.WRITE_FAILURE);
+        }
+    }
+
+    /**
+     * Returns whether the file was last written on an earlier day than today.
+     * @param file the file
+     * @return true if it was written on an earlier day
+     */
+    private static boolean isFromEarlierDay(File file){
+        LocalDate written = Instant.ofEpochMilli(file.lastModified()).atZone(ZoneId.systemDefault()).toLocalDate();
+        return written.isBefore(LocalDate.now());
+    }
+
+    /**
+     * Moves the old files up by one, dropping the oldest one, and renames the file to the first old file.
+     * @throws IOException if a file cannot be moved
+     */
+    private void rotate() throws IOException {
+        for(int i = OLD_FILES - 1 ; i >= 1 ; i--){
+            File older = new File(path + "." + i);
+            if(older.exists()){
+                Files.move(older.toPath(), new File(path + "." + (i + 1)).toPath(),
+                        StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Files.move(new File(path).toPath(), new File(path + ".1").toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+}
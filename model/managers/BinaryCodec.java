@@ -0,0 +1,426 @@
+package model.managers;
+
+import model.configs.Config;
+import model.data.Ingredients;
+import model.data.Item;
+import model.data.ItemInfo;
+import model.data.Meal;
+import model.data.Order2;
+import model.data.Supply2;
+import model.interfaces.Savable;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The BinaryCodec class.
+ *
+ * The BinaryCodec writes the Savable objects of the restaurant (Meal, Order2 and Supply2) in a compact binary format
+ * instead of the Java serialization stream. Every record starts with a two byte magic number, the format version,
+ * the type of the object and the version of the object, followed by the fields of that type. Records of format
+ * version 1 have no object version. Integers are written as variable length numbers and the ingredient names of an
+ * Item are written once in a small dictionary, so the five ingredient maps only store the index of the name and the
+ * quantity.
+ *
+ * The magic number never starts a Java serialization stream, so the FileManager can tell the two formats apart and
+ * still read the files that were written before. Like Order2.writeObject, writing an Order2 also saves its Items that
+ * are not saved yet and only keeps their file names in the order record. The time an Order2 was finished is written
+ * at the end of its record, where the older versions of the codec don't look for it.
+ * @see FileManager
+ */
+public class BinaryCodec {
+    private static final byte[] MAGIC = {0x52, 0x42};
+    private static final int VERSION = 2;
+
+    private static final int MEAL = 1;
+    private static final int ORDER = 2;
+    private static final int SUPPLY = 3;
+
+    private static final int NO_STATUS = 0;
+    private static final int SEEN = 1;
+    private static final int READY = 2;
+    private static final int SERVED = 3;
+
+    /**
+     * Checks if the bytes were written by the BinaryCodec.
+     * @param bytes the bytes
+     * @return true if the bytes start with the magic number of the codec
+     */
+    public boolean isBinary(byte[] bytes){
+        return bytes.length > 3 && bytes[0] == MAGIC[0] && bytes[1] == MAGIC[1];
+    }
+
+    /**
+     * Checks if the BinaryCodec can write the Savable object.
+     * @param savable the Savable object
+     * @return true if the type of the object is supported
+     */
+    public boolean canEncode(Savable savable){
+        return savable.getClass() == Meal.class || savable instanceof Order2 || savable instanceof Supply2;
+    }
+
+    /**
+     * Encodes the Savable object into bytes. Returns null if the type of the object is not supported.
+     * @param savable the Savable object
+     * @return the bytes or null
+     */
+    public byte[] encode(Savable savable){
+        if(!canEncode(savable)){
+            return null;
+        }
+        Writer writer = new Writer();
+        writer.bytes.write(MAGIC[0]);
+        writer.bytes.write(MAGIC[1]);
+        writer.bytes.write(VERSION);
+        if(savable instanceof Meal){
+            writer.bytes.write(MEAL);
+            writer.writeInt(savable.getVersion());
+            writeItem(writer, (Item) savable);
+        }
+        else if(savable instanceof Order2){
+            writer.bytes.write(ORDER);
+            writer.writeInt(savable.getVersion());
+            writeOrder(writer, (Order2) savable);
+        }
+        else {
+            writer.bytes.write(SUPPLY);
+            writer.writeInt(savable.getVersion());
+            writeSupply(writer, (Supply2) savable);
+        }
+        return writer.bytes.toByteArray();
+    }
+
+    /**
+     * Decodes the Savable object from bytes written by the BinaryCodec. Returns null if the bytes are corrupted or
+     * were written by a newer version of the codec.
+     * @param bytes the bytes
+     * @return the Savable object or null
+     */
+    public Savable decode(byte[] bytes){
+        if(!isBinary(bytes) || bytes[2] > VERSION){
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 4, bytes.length - 4);
+        try {
+            int version = bytes[2] >= 2 ? readInt(buffer) : 0;
+            Savable savable;
+            switch (bytes[3]) {
+                case MEAL:
+                    savable = readItem(buffer);
+                    break;
+                case ORDER:
+                    savable = readOrder(buffer);
+                    break;
+                case SUPPLY:
+                    savable = readSupply(buffer);
+                    break;
+                default:
+                    return null;
+            }
+            savable.setVersion(version);
+            return savable;
+        }
+        catch (BufferUnderflowException | IllegalArgumentException e){
+//            System.err.println("Cannot decode the binary record");
+            return null;
+        }
+    }
+
+    /**
+     * Returns the object version of a record without decoding the object. Returns -1 if the bytes are not a
+     * record of the codec.
+     * @param bytes the bytes
+     * @return the object version or -1
+     */
+    public int readVersion(byte[] bytes){
+        if(!isBinary(bytes) || bytes[2] > VERSION){
+            return -1;
+        }
+        if(bytes[2] < 2){
+            return 0;
+        }
+        try {
+            return readInt(ByteBuffer.wrap(bytes, 4, bytes.length - 4));
+        }
+        catch (BufferUnderflowException | IllegalArgumentException e){
+            return -1;
+        }
+    }
+
+    /**
+     * Writes the fields of an Item, its ItemInfo and its Ingredients.
+     * @param writer the writer
+     * @param item the Item
+     */
+    private void writeItem(Writer writer, Item item){
+        ItemInfo info = item.getItemInfo();
+        writer.writeString(item.getName());
+        writer.writeString(item.getDescription());
+        writer.writeDouble(item.getPrice());
+        writer.writeInt(info.getItemNumber());
+        writer.writeInt(info.getOrderNumber());
+        writer.writeInt(info.getTableNumber());
+        writer.writeString(info.getLocation());
+        writer.writeString(info.getAdditionalRequest());
+        if(info.isServed()){
+            writer.writeInt(SERVED);
+        }
+        else if(info.isReady()){
+            writer.writeInt(READY);
+        }
+        else if(info.isSeen()){
+            writer.writeInt(SEEN);
+        }
+        else {
+            writer.writeInt(NO_STATUS);
+        }
+
+        Ingredients ingredients = item.getIngredients();
+        ArrayList<Map<String, Integer>> maps = new ArrayList<>();
+        maps.add(ingredients.getBaseIngredient());
+        maps.add(ingredients.getAddition());
+        maps.add(ingredients.getSubtraction());
+        maps.add(ingredients.getAvailableAddition());
+        maps.add(ingredients.getAvailableSubtraction());
+        // every ingredient name is written once and the maps refer to it by index
+        LinkedHashMap<String, Integer> dictionary = new LinkedHashMap<>();
+        for(Map<String, Integer> map : maps){
+            for(String name : map.keySet()){
+                dictionary.putIfAbsent(name, dictionary.size());
+            }
+        }
+        writer.writeInt(dictionary.size());
+        for(String name : dictionary.keySet()){
+            writer.writeString(name);
+        }
+        for(Map<String, Integer> map : maps){
+            writer.writeInt(map.size());
+            for(Map.Entry<String, Integer> entry : map.entrySet()){
+                writer.writeInt(dictionary.get(entry.getKey()));
+                writer.writeInt(entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Reads an Item written by writeItem.
+     * @param buffer the buffer
+     * @return the Item
+     */
+    private Item readItem(ByteBuffer buffer){
+        String name = readString(buffer);
+        String description = readString(buffer);
+        double price = buffer.getDouble();
+        int itemNumber = readInt(buffer);
+        int orderNumber = readInt(buffer);
+        int tableNumber = readInt(buffer);
+        String location = readString(buffer);
+        String additionalRequest = readString(buffer);
+        int status = readInt(buffer);
+
+        String[] dictionary = new String[readInt(buffer)];
+        for(int i = 0 ; i < dictionary.length ; i++){
+            dictionary[i] = readString(buffer);
+        }
+        ArrayList<HashMap<String, Integer>> maps = new ArrayList<>();
+        for(int i = 0 ; i < 5 ; i++){
+            int size = readInt(buffer);
+            HashMap<String, Integer> map = new HashMap<>();
+            for(int j = 0 ; j < size ; j++){
+                String ingredient = dictionary[readInt(buffer)];
+                map.put(ingredient, readInt(buffer));
+            }
+            maps.add(map);
+        }
+
+        Meal meal = new Meal(name, price);
+        meal.setDescription(description);
+        Ingredients ingredients = meal.getIngredients();
+        ingredients.setBaseIngredient(maps.get(0));
+        ingredients.setAddition(maps.get(1));
+        ingredients.setSubtraction(maps.get(2));
+        ingredients.setAvailableAddition(maps.get(3));
+        ingredients.setAvailableSubtraction(maps.get(4));
+        if(itemNumber != -1 || orderNumber != -1 || tableNumber != -1){
+            meal = new Meal(meal, itemNumber, orderNumber, tableNumber);
+        }
+
+        ItemInfo info = meal.getItemInfo();
+        info.setLocation(location);
+        info.setAdditionalRequest(additionalRequest);
+        if(status == SEEN){
+            info.seen();
+        }
+        else if(status == READY){
+            info.ready();
+        }
+        else if(status == SERVED){
+            info.served();
+        }
+        return meal;
+    }
+
+    /**
+     * Writes the fields of an Order2 and the file names of its Items. The Items that are not saved yet are saved in
+     * the Items folder, or in the FinishedItems folder if the order is finished.
+     * @param writer the writer
+     * @param order the Order2
+     */
+    private void writeOrder(Writer writer, Order2 order){
+        FileManager fileManager = new FileManager();
+        String folderName = order.isFinished() ? Config.getFinishedItemsPath() : Config.getItemsPath();
+        writer.writeInt(order.getOrderNumber());
+        writer.writeInt(order.getTableNumber());
+        writer.writeInt(order.isFinished() ? 1 : 0);
+        writer.writeInt(order.getItems().size());
+        for(Item item : order.getItems()){
+            writer.writeString(item.getFileName());
+            if(!fileManager.isExisted(item, folderName)) {
+                fileManager.saveToFile(item, folderName);
+            }
+        }
+        writer.writeLong(order.getFinishedAt());
+    }
+
+    /**
+     * Reads an Order2 written by writeOrder and reads its Items from the Items or FinishedItems folder.
+     * @param buffer the buffer
+     * @return the Order2
+     */
+    private Order2 readOrder(ByteBuffer buffer){
+        FileManager fileManager = new FileManager();
+        Order2 order = new Order2(readInt(buffer), readInt(buffer));
+        if(readInt(buffer) == 1){
+            order.finished();
+        }
+        String folderName = order.isFinished() ? Config.getFinishedItemsPath() : Config.getItemsPath();
+        int size = readInt(buffer);
+        for(int i = 0 ; i < size ; i++){
+            Item item = (Item) fileManager.readFromFile(folderName + readString(buffer));
+            if(item != null){
+                order.addItem(item);
+            }
+        }
+        // written before the finished time was added
+        order.setFinishedAt(buffer.remaining() >= Long.BYTES ? buffer.getLong() : 0);
+        return order;
+    }
+
+    /**
+     * Writes the fields of a Supply2.
+     * @param writer the writer
+     * @param supply the Supply2
+     */
+    private void writeSupply(Writer writer, Supply2 supply){
+        writer.writeString(supply.getName());
+        writer.writeInt(supply.getQuantity());
+        writer.writeInt(supply.getTotalQuantityNeeded());
+        writer.writeInt(supply.getRequestAmount());
+    }
+
+    /**
+     * Reads a Supply2 written by writeSupply.
+     * @param buffer the buffer
+     * @return the Supply2
+     */
+    private Supply2 readSupply(ByteBuffer buffer){
+        String name = readString(buffer);
+        int quantity = readInt(buffer);
+        Supply2 supply = new Supply2(name, readInt(buffer), quantity);
+        supply.setRequestAmount(readInt(buffer));
+        return supply;
+    }
+
+    /**
+     * Reads a variable length int. The sign is moved into the lowest bit so small negative numbers stay short.
+     * @param buffer the buffer
+     * @return the int
+     */
+    private int readInt(ByteBuffer buffer){
+        int value = 0;
+        for(int shift = 0 ; shift < 35 ; shift += 7){
+            int b = buffer.get();
+            value |= (b & 0x7f) << shift;
+            if((b & 0x80) == 0){
+                return (value >>> 1) ^ -(value & 1);
+            }
+        }
+        throw new IllegalArgumentException("Variable length int is too long");
+    }
+
+    /**
+     * Reads a String written as its length plus one followed by its UTF-8 bytes. A length of zero means null.
+     * @param buffer the buffer
+     * @return the String or null
+     */
+    private String readString(ByteBuffer buffer){
+        int length = readInt(buffer) - 1;
+        if(length < 0){
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The Writer of the BinaryCodec. It appends the fields to a byte array.
+     */
+    private static class Writer {
+        private ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+
+        /**
+         * Writes a variable length int. The sign is moved into the lowest bit so small negative numbers stay short.
+         * @param value the int
+         */
+        void writeInt(int value){
+            int zigzag = (value << 1) ^ (value >> 31);
+            while((zigzag & ~0x7f) != 0){
+                bytes.write((zigzag & 0x7f) | 0x80);
+                zigzag >>>= 7;
+            }
+            bytes.write(zigzag);
+        }
+
+        /**
+         * Writes a double as 8 bytes.
+         * @param value the double
+         */
+        void writeDouble(double value){
+            long bits = Double.doubleToLongBits(value);
+            for(int shift = 56 ; shift >= 0 ; shift -= 8){
+                bytes.write((int) (bits >>> shift));
+            }
+        }
+
+        /**
+         * Writes a long as 8 bytes.
+         * @param value the long
+         */
+        void writeLong(long value){
+            for(int shift = 56 ; shift >= 0 ; shift -= 8){
+                bytes.write((int) (value >>> shift));
+            }
+        }
+
+        /**
+         * Writes a String as its length plus one followed by its UTF-8 bytes. Null is written as a length of zero.
+         * @param value the String or null
+         */
+        void writeString(String value){
+            if(value == null){
+                writeInt(0);
+                return;
+            }
+            byte[] utf = value.getBytes(StandardCharsets.UTF_8);
+            writeInt(utf.length + 1);
+            bytes.write(utf, 0, utf.length);
+        }
+    }
+}
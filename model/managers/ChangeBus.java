@@ -0,0 +1,436 @@
+package model.managers;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * The ChangeBus class.
+ *
+ * The ChangeBus carries the same change records as the ChangeLog over a Unix domain socket, so the programs running
+ * on the same computer are notified without writing to the disk. One program elects itself as the broker by taking a
+ * lock on the lock file of the bus and listens on the socket file. The other programs connect to it. The broker
+ * passes every message it receives to all the other programs and to its own listener.
+ *
+ * Every message is the length of the message followed by the type of the changed object, the id of the program
+ * and the file name of the changed object.
+ *
+ * When the broker is closed, the lock is released and another program becomes the broker. A message cannot be sent
+ * while there is no broker (or while the platform doesn't support Unix domain sockets): publish returns false and the
+ * caller appends the change to the ChangeLog instead, which is always tailed as well. The bus does not acknowledge
+ * the messages, so a message that reached a broker that dies before passing it on is lost, and the other programs
+ * only see that change when they read the changed object again.
+ * @see ChangeLog
+ */
+public class ChangeBus {
+    private static final long RETRY_MILLIS = 200;
+    private static final int MAX_MESSAGE = 4096;
+
+    private File socketFile;
+    private File lockFile;
+    private long origin;
+    private Executor executor;
+    private Consumer<ArrayList<ChangeLog.Change>> listener;
+
+    private Thread thread;
+    private volatile boolean running;
+    private FileChannel lockChannel;
+    private FileLock brokerLock;
+    private ServerSocketChannel server;
+    private Selector selector;
+    private SocketChannel connection;
+    private final ArrayList<SocketChannel> clients = new ArrayList<>();
+
+    /**
+     * Constructs a ChangeBus.
+     * @param directory the directory of the socket file and the lock file
+     * @param origin the id of this program which is written in its messages
+     */
+    public ChangeBus(String directory, long origin){
+        socketFile = new File(directory + "bus.sock");
+        lockFile = new File(directory + "bus.lock");
+        this.origin = origin;
+    }
+
+    /**
+     * Starts the bus. The thread of the bus becomes the broker or connects to it, and passes the messages of the
+     * other programs to the listener through the executor.
+     * @param executor the executor that runs the listener
+     * @param listener the listener of the messages
+     */
+    public synchronized void start(Executor executor, Consumer<ArrayList<ChangeLog.Change>> listener){
+        if(running){
+            return;
+        }
+        this.executor = executor;
+        this.listener = listener;
+        running = true;
+        thread = new Thread(this::run, "change bus");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the bus. If this program is the broker, the other programs elect a new one.
+     */
+    public synchronized void stop(){
+        running = false;
+        if(thread != null){
+            thread.interrupt();
+            thread = null;
+        }
+        close();
+    }
+
+    /**
+     * Sends a change to all the other programs.
+     * @param type the type of the changed object
+     * @param key the file name of the changed object
+     * @return false if the change cannot be sent because there is no broker
+     */
+    public boolean publish(byte type, String key){
+        ByteBuffer message;
+        try {
+            message = encode(type, key);
+        }
+        catch (IOException e){
+            return false;
+        }
+        synchronized (clients){
+            if(server != null){
+                sendToClients(message, null);
+                return true;
+            }
+            if(connection != null){
+                try {
+                    while(message.hasRemaining()){
+                        connection.write(message);
+                    }
+                    return true;
+                }
+                catch (IOException e){
+//                    System.err.println("Lost the connection to the broker");
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The loop of the bus thread. Becomes the broker if nobody holds the lock of the bus, or connects to the broker
+     * otherwise, and starts again when the connection is lost.
+     */
+    private void run(){
+        while(running){
+            try {
+                if(becomeBroker()){
+                    serveClients();
+                }
+                else if(connectToBroker()){
+                    readFromBroker();
+                }
+            }
+            catch (IOException | UnsupportedOperationException | ClosedSelectorException e){
+//                System.err.println("The change bus is not available: " + e.getMessage());
+            }
+            close();
+            try {
+                Thread.sleep(RETRY_MILLIS);
+            }
+            catch (InterruptedException e){
+                return;
+            }
+        }
+    }
+
+    /**
+     * Takes the lock of the bus and listens on the socket file.
+     * @return false if another program is the broker
+     * @throws IOException if the socket cannot be opened
+     */
+    private boolean becomeBroker() throws IOException {
+        lockChannel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        brokerLock = lockChannel.tryLock();
+        if(brokerLock == null){
+            lockChannel.close();
+            lockChannel = null;
+            return false;
+        }
+        // the socket file of a broker that was not closed properly
+        Files.deleteIfExists(socketFile.toPath());
+        ServerSocketChannel newServer = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        newServer.bind(UnixDomainSocketAddress.of(socketFile.toPath()));
+        newServer.configureBlocking(false);
+        selector = Selector.open();
+        newServer.register(selector, SelectionKey.OP_ACCEPT);
+        synchronized (clients){
+            server = newServer;
+        }
+        return true;
+    }
+
+    /**
+     * Accepts the other programs and passes their messages to the other clients and to the listener.
+     * @throws IOException if the selector fails
+     */
+    private void serveClients() throws IOException {
+        while(running){
+            selector.select();
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while(keys.hasNext()){
+                SelectionKey key = keys.next();
+                keys.remove();
+                if(key.isAcceptable()){
+                    SocketChannel client = server.accept();
+                    if(client != null){
+                        client.configureBlocking(false);
+                        client.register(selector, SelectionKey.OP_READ, ByteBuffer.allocate(MAX_MESSAGE));
+                        synchronized (clients){
+                            clients.add(client);
+                        }
+                    }
+                }
+                else if(key.isReadable()){
+                    readFromClient(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the messages of a client, passes them to the other clients and to the listener. Drops the client when
+     * it is closed.
+     * @param key the selection key of the client
+     */
+    private void readFromClient(SelectionKey key){
+        SocketChannel client = (SocketChannel) key.channel();
+        ByteBuffer buffer = (ByteBuffer) key.attachment();
+        ArrayList<ChangeLog.Change> changes = new ArrayList<>();
+        try {
+            if(client.read(buffer) < 0){
+                throw new IOException("Client closed");
+            }
+            buffer.flip();
+            while(buffer.remaining() >= 4 && buffer.remaining() >= 4 + buffer.getInt(buffer.position())){
+                int length = buffer.getInt(buffer.position());
+                if(length <= 0 || length > MAX_MESSAGE - 4){
+                    throw new IOException("Broken message");
+                }
+                ByteBuffer message = ByteBuffer.allocate(4 + length);
+                for(int i = 0 ; i < 4 + length ; i++){
+                    message.put(buffer.get());
+                }
+                message.flip();
+                changes.add(decode(message.duplicate()));
+                synchronized (clients){
+                    sendToClients(message, client);
+                }
+            }
+            buffer.compact();
+        }
+        catch (IOException e){
+            key.cancel();
+            synchronized (clients){
+                clients.remove(client);
+            }
+            try {
+                client.close();
+            } catch (IOException ex){
+//                System.err.println("Cannot close the client");
+            }
+        }
+        deliver(changes);
+    }
+
+    /**
+     * Sends a message to all the clients except the sender. A client that cannot receive it is closed and is dropped
+     * when the selector sees it closed. Must be called while holding the clients list.
+     * @param message the message
+     * @param sender the client that sent the message, or null
+     */
+    private void sendToClients(ByteBuffer message, SocketChannel sender){
+        for(SocketChannel client : clients){
+            if(client != sender){
+                ByteBuffer copy = message.duplicate();
+                try {
+                    for(int tries = 0 ; copy.hasRemaining() && tries < 1000 ; tries++){
+                        client.write(copy);
+                    }
+                    if(copy.hasRemaining()){
+                        client.close();
+                    }
+                } catch (IOException e){
+//                    System.err.println("Cannot send the message to a client");
+                }
+            }
+        }
+    }
+
+    /**
+     * Connects to the broker.
+     * @return false if there is no broker yet
+     * @throws IOException if the socket cannot be opened
+     */
+    private boolean connectToBroker() throws IOException {
+        if(!socketFile.exists()){
+            return false;
+        }
+        SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            channel.connect(UnixDomainSocketAddress.of(socketFile.toPath()));
+        }
+        catch (IOException e){
+            channel.close();
+            return false;
+        }
+        synchronized (clients){
+            connection = channel;
+        }
+        return true;
+    }
+
+    /**
+     * Reads the messages that the broker passes to this program until the connection is lost.
+     * @throws IOException if the connection is lost
+     */
+    private void readFromBroker() throws IOException {
+        ByteBuffer length = ByteBuffer.allocate(4);
+        while(running){
+            length.clear();
+            readFully(length);
+            int size = length.getInt(0);
+            if(size <= 0 || size > MAX_MESSAGE - 4){
+                throw new IOException("Broken message");
+            }
+            ByteBuffer message = ByteBuffer.allocate(4 + size);
+            message.putInt(size);
+            readFully(message);
+            message.flip();
+            ArrayList<ChangeLog.Change> changes = new ArrayList<>();
+            changes.add(decode(message));
+            deliver(changes);
+        }
+    }
+
+    /**
+     * Reads from the broker until the buffer is full.
+     * @param buffer the buffer
+     * @throws IOException if the connection is lost
+     */
+    private void readFully(ByteBuffer buffer) throws IOException {
+        while(buffer.hasRemaining()){
+            if(connection.read(buffer) < 0){
+                throw new IOException("Broker closed");
+            }
+        }
+    }
+
+    /**
+     * Passes the changes of the other programs to the listener.
+     * @param changes the changes
+     */
+    private void deliver(ArrayList<ChangeLog.Change> changes){
+        changes.removeIf(change -> change == null || change.getOrigin() == origin);
+        if(!changes.isEmpty()){
+            executor.execute(() -> listener.accept(changes));
+        }
+    }
+
+    /**
+     * Closes the socket and releases the lock of the bus.
+     */
+    private void close(){
+        synchronized (clients){
+            try {
+                for(SocketChannel client : clients){
+                    client.close();
+                }
+                clients.clear();
+                if(server != null){
+                    server.close();
+                    Files.deleteIfExists(socketFile.toPath());
+                    server = null;
+                }
+                if(selector != null){
+                    selector.close();
+                    selector = null;
+                }
+                if(connection != null){
+                    connection.close();
+                    connection = null;
+                }
+                if(brokerLock != null){
+                    brokerLock.release();
+                    brokerLock = null;
+                }
+                if(lockChannel != null){
+                    lockChannel.close();
+                    lockChannel = null;
+                }
+            }
+            catch (IOException e){
+//                System.err.println("Cannot close the change bus");
+            }
+        }
+    }
+
+    /**
+     * Encodes a message.
+     * @param type the type of the changed object
+     * @param key the file name of the changed object
+     * @return the message
+     * @throws IOException if the key is too long
+     */
+    private ByteBuffer encode(byte type, String key) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeInt(0);
+        output.writeByte(type);
+        output.writeLong(origin);
+        output.writeUTF(key);
+        if(bytes.size() > MAX_MESSAGE){
+            throw new IOException("Message is too long");
+        }
+        ByteBuffer message = ByteBuffer.wrap(bytes.toByteArray());
+        message.putInt(0, bytes.size() - 4);
+        return message;
+    }
+
+    /**
+     * Decodes a message.
+     * @param message the message
+     * @return the change or null if the message is broken
+     */
+    private ChangeLog.Change decode(ByteBuffer message){
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(message.array(), 4,
+                message.limit() - 4));
+        try {
+            byte type = input.readByte();
+            long messageOrigin = input.readLong();
+            return new ChangeLog.Change(type, input.readUTF(), 0, messageOrigin);
+        }
+        catch (IOException e){
+            return null;
+        }
+    }
+}
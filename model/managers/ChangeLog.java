@@ -0,0 +1,417 @@
+package model.managers;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * The ChangeLog class.
+ *
+ * The ChangeLog is one append-only file that is shared by all running programs. Every time a program changes an
+ * order, an item, a menu item or a supply, it appends a small record with the type and the file name of the changed
+ * object, a version number and the id of the program. The object itself is not copied: the other programs read the
+ * changed object again from its folder.
+ *
+ * Every program tails the log from a daemon thread that is woken up by a WatchService on the folder of the log, and
+ * passes the new records of the other programs to a listener through an Executor. The thread also looks at the log
+ * every POLL_MILLIS in case the WatchService of the platform is slow or misses an event.
+ *
+ * The changes of one UnitOfWork are appended as one BATCH record, so the other programs are notified once per commit.
+ *
+ * The log starts with a header that has a generation number and the next version number. When the log grows over
+ * MAX_SIZE it is rewritten in place with the last KEEP_RECORDS records and a new generation. A program that sees a
+ * new generation reads the log from the start again and skips the versions it has already seen.
+ */
+public class ChangeLog {
+    public static final byte ITEM = 1;
+    public static final byte MENU_ITEM = 2;
+    public static final byte ORDER = 3;
+    public static final byte SUPPLY = 4;
+    /** The changes of one UnitOfWork. The key has one line with the type and the file name of every change. */
+    public static final byte BATCH = 5;
+
+    private static final int MAGIC = 0x52434C47;
+    private static final int HEADER_SIZE = 16;
+    private static final long MAX_SIZE = 1 << 20;
+    private static final int KEEP_RECORDS = 1000;
+    private static final long POLL_MILLIS = 500;
+
+    private File file;
+    private long origin;
+    private int generation;
+    private long offset;
+    private long lastVersion;
+    private Thread watcher;
+    private WatchService watchService;
+
+    /**
+     * Constructs a ChangeLog for the log file. The file is created when the first record is appended.
+     * @param path the path of the log file
+     * @param origin the id of this program which is written in its records
+     */
+    public ChangeLog(String path, long origin){
+        file = new File(path);
+        this.origin = origin;
+        generation = -1;
+    }
+
+    /**
+     * Appends a change record to the log.
+     * @param type the type of the changed object
+     * @param key the file name of the changed object
+     */
+    @SuppressWarnings("try")
+    public synchronized void append(byte type, String key){
+        try (FileChannel channel = open()){
+            try (FileLock lock = FileManager.lock(channel, 0, Long.MAX_VALUE, false)){
+                ByteBuffer header = readHeader(channel);
+                if(header == null){
+                    header = writeHeader(channel, 0, 1);
+                }
+                else if(channel.size() > MAX_SIZE){
+                    header = compact(channel, header);
+                }
+                long version = header.getLong(8);
+                channel.write(ByteBuffer.wrap(encode(new Change(type, key, version, origin))), channel.size());
+                header.putLong(8, version + 1);
+                channel.write(ByteBuffer.wrap(header.array(), 8, 8), 8);
+            }
+        }
+        catch (IOException e){
+//            System.err.println("Cannot append to the change log: " + file);
+        }
+    }
+
+    /**
+     * Starts tailing the log. Only the records appended from now on by the other programs are passed to the
+     * listener, which is called through the executor (for example the JavaFX application thread).
+     * @param executor the executor that runs the listener
+     * @param listener the listener of the new records
+     */
+    public synchronized void start(Executor executor, Consumer<ArrayList<Change>> listener){
+        if(watcher != null){
+            return;
+        }
+        readChanges(false);
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            Path folder = file.getAbsoluteFile().getParentFile().toPath();
+            folder.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        }
+        catch (IOException e){
+//            System.err.println("Cannot watch the change log, poll it instead");
+            watchService = null;
+        }
+        watcher = new Thread(() -> tail(executor, listener), "change log watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    /**
+     * Stops tailing the log.
+     */
+    public synchronized void stop(){
+        if(watcher == null){
+            return;
+        }
+        watcher.interrupt();
+        watcher = null;
+        if(watchService != null){
+            try {
+                watchService.close();
+            } catch (IOException e){
+//                System.err.println("Cannot close the watch service");
+            }
+        }
+    }
+
+    /**
+     * The loop of the watcher thread. Waits for an event of the WatchService (or for POLL_MILLIS) and passes the new
+     * records to the listener.
+     * @param executor the executor that runs the listener
+     * @param listener the listener of the new records
+     */
+    private void tail(Executor executor, Consumer<ArrayList<Change>> listener){
+        while(!Thread.currentThread().isInterrupted()){
+            try {
+                if(watchService != null){
+                    WatchKey key = watchService.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if(key != null){
+                        key.pollEvents();
+                        key.reset();
+                    }
+                }
+                else {
+                    Thread.sleep(POLL_MILLIS);
+                }
+            }
+            catch (InterruptedException | ClosedWatchServiceException e){
+                return;
+            }
+            ArrayList<Change> changes = readChanges(true);
+            if(!changes.isEmpty()){
+                executor.execute(() -> listener.accept(changes));
+            }
+        }
+    }
+
+    /**
+     * Reads the records that were appended since the last read and returns the ones of the other programs.
+     * @param deliver false to only skip the records that are already in the log
+     * @return the new changes of the other programs
+     */
+    @SuppressWarnings("try")
+    private synchronized ArrayList<Change> readChanges(boolean deliver){
+        ArrayList<Change> changes = new ArrayList<>();
+        if(!file.exists()){
+            return changes;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+             FileLock lock = FileManager.lock(channel, 0, Long.MAX_VALUE, true)){
+            ByteBuffer header = readHeader(channel);
+            if(header == null){
+                return changes;
+            }
+            if(header.getInt(4) != generation){
+                generation = header.getInt(4);
+                offset = HEADER_SIZE;
+            }
+            if(channel.size() <= offset){
+                return changes;
+            }
+            ByteBuffer content = ByteBuffer.allocate((int) (channel.size() - offset));
+            while(content.hasRemaining() && channel.read(content, offset + content.position()) > 0){
+                // keep reading until the rest of the log is in the buffer
+            }
+            content.flip();
+            for(Change change : decode(content)){
+                if(change.version > lastVersion){
+                    lastVersion = change.version;
+                    if(deliver && change.origin != origin){
+                        changes.add(change);
+                    }
+                }
+            }
+            offset = channel.size() - content.remaining();
+        }
+        catch (IOException e){
+//            System.err.println("Cannot read the change log: " + file);
+        }
+        return changes;
+    }
+
+    /**
+     * Opens the log file for reading and writing.
+     * @return the channel
+     * @throws IOException if the file cannot be opened
+     */
+    private FileChannel open() throws IOException {
+        return FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Reads the header of the log: the magic number, the generation and the next version.
+     * @param channel the channel of the log
+     * @return the header or null if the log is empty or not a change log
+     * @throws IOException if the file cannot be read
+     */
+    private ByteBuffer readHeader(FileChannel channel) throws IOException {
+        if(channel.size() < HEADER_SIZE){
+            return null;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while(header.hasRemaining() && channel.read(header, header.position()) > 0){
+            // keep reading until the header is complete
+        }
+        return header.getInt(0) == MAGIC ? header : null;
+    }
+
+    /**
+     * Truncates the log and writes a new header.
+     * @param channel the channel of the log
+     * @param newGeneration the generation
+     * @param nextVersion the next version
+     * @return the header
+     * @throws IOException if the file cannot be written
+     */
+    private ByteBuffer writeHeader(FileChannel channel, int newGeneration, long nextVersion) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(0, MAGIC);
+        header.putInt(4, newGeneration);
+        header.putLong(8, nextVersion);
+        channel.truncate(0);
+        channel.write(ByteBuffer.wrap(header.array()), 0);
+        return header;
+    }
+
+    /**
+     * Rewrites the log with its last KEEP_RECORDS records and the next generation. Must be called while holding the
+     * lock on the log.
+     * @param channel the channel of the log
+     * @param header the current header
+     * @return the new header
+     * @throws IOException if the file cannot be rewritten
+     */
+    private ByteBuffer compact(FileChannel channel, ByteBuffer header) throws IOException {
+        ByteBuffer content = ByteBuffer.allocate((int) (channel.size() - HEADER_SIZE));
+        while(content.hasRemaining() && channel.read(content, HEADER_SIZE + content.position()) > 0){
+            // keep reading until the whole log is in the buffer
+        }
+        content.flip();
+        ArrayList<Change> changes = decode(content);
+        ByteArrayOutputStream kept = new ByteArrayOutputStream();
+        for(int i = Math.max(0, changes.size() - KEEP_RECORDS) ; i < changes.size() ; i++){
+            kept.write(encode(changes.get(i)));
+        }
+        ByteBuffer newHeader = writeHeader(channel, header.getInt(4) + 1, header.getLong(8));
+        channel.write(ByteBuffer.wrap(kept.toByteArray()), HEADER_SIZE);
+        return newHeader;
+    }
+
+    /**
+     * Encodes a record: its length followed by the version, the origin, the type and the key.
+     * @param change the change
+     * @return the record
+     * @throws IOException if the change cannot be encoded
+     */
+    private byte[] encode(Change change) throws IOException {
+        ByteArrayOutputStream record = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(record);
+        output.writeLong(change.version);
+        output.writeLong(change.origin);
+        output.writeByte(change.type);
+        output.writeUTF(change.key);
+        ByteBuffer bytes = ByteBuffer.allocate(4 + record.size());
+        bytes.putInt(record.size());
+        bytes.put(record.toByteArray());
+        return bytes.array();
+    }
+
+    /**
+     * Decodes all the complete records of the buffer. A record that is not completely written yet stays in the
+     * buffer. A broken record is skipped.
+     * @param content the buffer
+     * @return the changes
+     */
+    private ArrayList<Change> decode(ByteBuffer content){
+        ArrayList<Change> changes = new ArrayList<>();
+        while(content.remaining() >= 4){
+            int length = content.getInt(content.position());
+            if(length <= 0 || content.remaining() < 4 + length){
+                break;
+            }
+            content.getInt();
+            byte[] record = new byte[length];
+            content.get(record);
+            DataInputStream input = new DataInputStream(new ByteArrayInputStream(record));
+            try {
+                long version = input.readLong();
+                long recordOrigin = input.readLong();
+                byte type = input.readByte();
+                changes.add(new Change(type, input.readUTF(), version, recordOrigin));
+            }
+            catch (IOException e){
+//                System.err.println("Skip the broken change record");
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * A change record of the log.
+     */
+    public static class Change {
+        private byte type;
+        private String key;
+        private long version;
+        private long origin;
+
+        /**
+         * Constructs a Change.
+         * @param type the type of the changed object
+         * @param key the file name of the changed object
+         * @param version the version number of the record
+         * @param origin the id of the program that made the change
+         */
+        Change(byte type, String key, long version, long origin){
+            this.type = type;
+            this.key = key;
+            this.version = version;
+            this.origin = origin;
+        }
+
+        /**
+         * Returns the type of the changed object.
+         * @return the type
+         */
+        public byte getType(){
+            return type;
+        }
+
+        /**
+         * Returns the file name of the changed object.
+         * @return the file name
+         */
+        public String getKey(){
+            return key;
+        }
+
+        /**
+         * Returns the version number of the record.
+         * @return the version
+         */
+        public long getVersion(){
+            return version;
+        }
+
+        /**
+         * Returns the id of the program that made the change.
+         * @return the origin
+         */
+        public long getOrigin(){
+            return origin;
+        }
+
+        /**
+         * Returns the changes of a BATCH record, or a list with only this change for the other records. The broken
+         * lines of a batch are skipped.
+         * @return the changes
+         */
+        public ArrayList<Change> getBatch(){
+            ArrayList<Change> changes = new ArrayList<>();
+            if(type != BATCH){
+                changes.add(this);
+                return changes;
+            }
+            for(String line : key.split("\n")){
+                int separator = line.indexOf(':');
+                try {
+                    changes.add(new Change(Byte.parseByte(line.substring(0, separator)), line.substring(separator + 1),
+                            version, origin));
+                }
+                catch (NumberFormatException | IndexOutOfBoundsException e){
+//                    System.err.println("Skip the broken batch line: " + line);
+                }
+            }
+            return changes;
+        }
+    }
+}
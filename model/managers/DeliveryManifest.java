@@ -0,0 +1,117 @@
+package model.managers;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+/**
+ * The DeliveryManifest class.
+ *
+ * A DeliveryManifest is the list of the supplies of one delivery and their quantities, read from a CSV file with one
+ * "name,quantity" line for every supply. A first line whose quantity is not a number is taken as the header, and the
+ * empty lines and the lines starting with # are skipped. A supply that is on several lines gets the sum of the
+ * quantities. The lines that can't be read (a wrong number of fields, a name that is not only letters and spaces, or a
+ * quantity that is not a positive number) are kept, so they can be shown to the manager.
+ * @see SupplyManager
+ */
+public class DeliveryManifest {
+    private LinkedHashMap<String, Integer> quantities;
+    private ArrayList<String> rejectedLines;
+
+    /**
+     * Constructs an empty DeliveryManifest.
+     */
+    public DeliveryManifest(){
+        quantities = new LinkedHashMap<>();
+        rejectedLines = new ArrayList<>();
+    }
+
+    /**
+     * Reads a DeliveryManifest from a CSV file.
+     * @param file the CSV file
+     * @return the manifest
+     * @throws IOException if the file cannot be read
+     */
+    public static DeliveryManifest read(File file) throws IOException {
+        DeliveryManifest manifest = new DeliveryManifest();
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)){
+            String line;
+            boolean first = true;
+            while((line = reader.readLine()) != null){
+                if(!line.trim().isEmpty() && !line.trim().startsWith("#")){
+                    manifest.addLine(line, first);
+                    first = false;
+                }
+            }
+        }
+        return manifest;
+    }
+
+    /**
+     * Adds the quantity of the supply to the manifest.
+     * @param name the supply name
+     * @param quantity the quantity
+     */
+    public void add(String name, int quantity){
+        quantities.merge(name, quantity, Integer::sum);
+    }
+
+    /**
+     * Returns the supplies of the delivery and their quantities, in the order of the file.
+     * @return the quantities by supply name
+     */
+    public LinkedHashMap<String, Integer> getQuantities(){
+        return quantities;
+    }
+
+    /**
+     * Returns the lines of the file that can't be read.
+     * @return the rejected lines
+     */
+    public ArrayList<String> getRejectedLines(){
+        return rejectedLines;
+    }
+
+    /**
+     * Reads one line of the file.
+     * @param line the line
+     * @param first true if this is the first line that is not empty
+     */
+    private void addLine(String line, boolean first){
+        String[] fields = line.split(",");
+        if(fields.length != 2){
+            rejectedLines.add(line);
+            return;
+        }
+        String name = String.join(" ", unquote(fields[0]).split("\\s+"));
+        String quantity = unquote(fields[1]);
+        if(!quantity.matches("\\d+")){
+            if(!first){
+                rejectedLines.add(line);
+            }
+            return;
+        }
+        if(!name.matches("[A-Za-z][A-Za-z ]*") || quantity.length() > 9 || Integer.parseInt(quantity) == 0){
+            rejectedLines.add(line);
+            return;
+        }
+        add(name, Integer.parseInt(quantity));
+    }
+
+    /**
+     * Takes the spaces and the quotes around a field away.
+     * @param field the field
+     * @return the value
+     */
+    private static String unquote(String field){
+        String value = field.trim();
+        if(value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")){
+            value = value.substring(1, value.length() - 1).trim();
+        }
+        return value;
+    }
+}
@@ -3,12 +3,15 @@ package model.managers;
 import model.configs.Config;
 import model.data.Item;
 import model.interfaces.Savable;
+import model.interfaces.StorageBackend;
 
 import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Scanner;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.util.function.BooleanSupplier;
 
 
 /**
@@ -17,32 +20,40 @@ import java.util.logging.Logger;
  * The FileManager is responsible for dealing with saving and reading files as well as checking if a file exists
  * or not during the program. It also contains the serializing and de-serializing code of a Savable object which
  * has stores file name and implements the Serializable interface.
+ *
+ * The serialized bytes are stored by the StorageBackend that is chosen in the config file. By default, every
+ * Savable object is stored as its own file.
+ *
+ * The Savable objects are written by the BinaryCodec when the "file format" in the config file is "binary", and by
+ * the Java serialization otherwise (or when the codec doesn't support the type). Both formats can always be read.
  * @see Savable
+ * @see StorageBackend
+ * @see BinaryCodec
  */
 public class FileManager {
-    private static Logger logger;
+    private static final String SAVE_LOCK = "saveLock";
+    private static final int LOCK_ATTEMPTS = 100;
+    private static final long LOCK_RETRY_MILLIS = 5;
 
-    public void writeLockFile(String fileName){
-        try(PrintWriter file = new PrintWriter(Config.getLockFilesPath() + fileName)) {
-            file.println();
-        }catch(Exception e){
-            logger.log(Level.SEVERE, "Lock file cannot be created: " + fileName);
-        }
-    }
+    private static StorageBackend storage = new FileStorage();
+    private static BinaryCodec codec = new BinaryCodec();
+    private static boolean binaryFormat = false;
+    private static Metrics metrics = Metrics.getMetrics();
 
-    public void deleteLockFile(String fileName){
-        File file = new File(Config.getLockFilesPath() + fileName);
-        if (!file.delete()){
-            logger.log(Level.SEVERE,"Fail to delete lock file: " + fileName);
-        }
+    /**
+     * Sets the StorageBackend that is used by all FileManagers.
+     * @param storageBackend the StorageBackend
+     */
+    public static void setStorageBackend(StorageBackend storageBackend){
+        storage = storageBackend;
     }
 
-
-    public boolean checkLockFile(Savable savable){
-        if(new File(Config.getLockFilesPath() + savable.getFileName()).exists()) {
-            return true;
-        }
-        return false;
+    /**
+     * Sets whether the Savable objects are written by the BinaryCodec or by the Java serialization.
+     * @param binary true to use the BinaryCodec
+     */
+    public static void setBinaryFormat(boolean binary){
+        binaryFormat = binary;
     }
 
     /**
@@ -52,7 +63,7 @@ public class FileManager {
      * @return true if the file exists
      */
     public boolean isExisted(Savable savable, String folderName){
-        return new File(folderName + savable.getFileName()).exists();
+        return storage.exists(folderName + savable.getFileName());
     }
 
 
@@ -62,22 +73,152 @@ public class FileManager {
      * @param folderName the folder directory
      */
     public void saveToFile(Savable object, String folderName){
-        String path = folderName + object.getFileName();
+        long begin = metrics.begin();
+        try {
+            byte[] bytes = toBytes(object);
+            if(bytes != null){
+                storage.write(folderName + object.getFileName(), bytes);
+                changed(folderName + object.getFileName());
+            }
+        }
+        finally {
+            metrics.record("FileManager.saveToFile", begin);
+        }
+    }
+
+    /**
+     * Serializes the Savable object into bytes with the BinaryCodec or the Java serialization.
+     * @param object the object
+     * @return the bytes or null if the object cannot be serialized
+     */
+    public byte[] toBytes(Savable object){
+        if(binaryFormat && codec.canEncode(object)){
+            return codec.encode(object);
+        }
         try {
-            OutputStream file = new FileOutputStream(path);
-            OutputStream buffer = new BufferedOutputStream(file);
-            ObjectOutput output = new ObjectOutputStream(buffer);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ObjectOutput output = new ObjectOutputStream(bytes);
 
             // serialize the Object
             output.writeObject(object);
             output.close();
+            return bytes.toByteArray();
         }
         catch (IOException e){
 //            System.err.println(e.getMessage());
-//            System.err.println("Cannot save the file at target directory: " + path);
+//            System.err.println("Cannot serialize the object: " + object.getFileName());
+            return null;
+        }
+    }
+
+    /**
+     * Saves the Savable object only if the saved copy has the same version as the object, which means nobody else
+     * saved the object since this copy was read. A new object (version 0) is only saved if it has no file yet. The
+     * version of the object is increased by one when it is saved. The check and the save are made while holding
+     * the save lock, so two programs cannot both save over the same version.
+     * @param object the object that needs to be saved
+     * @param folderName the folder directory
+     * @return false if the saved copy has a different version
+     */
+    public boolean compareAndSave(Savable object, String folderName){
+        return withSaveLock(() -> {
+            if(!isCurrentVersion(object, folderName)){
+                return false;
+            }
+            object.setVersion(object.getVersion() + 1);
+            saveToFile(object, folderName);
+            return true;
+        });
+    }
+
+    /**
+     * Checks if the saved copy of the Savable object has the same version as the object, or if there is no saved
+     * copy of a new object (version 0).
+     * @param object the object
+     * @param folderName the folder directory
+     * @return true if the object can be saved over its saved copy
+     */
+    boolean isCurrentVersion(Savable object, String folderName){
+        int current = readVersion(folderName + object.getFileName());
+        return current == -1 ? object.getVersion() == 0 : current == object.getVersion();
+    }
+
+    /**
+     * Runs the action while holding the save lock, which is a lock on the save lock file in the extras directory
+     * shared by all programs. The commit of a UnitOfWork that another program could not finish is finished first, so
+     * the action never sees or writes over half of a commit.
+     * @param action the action
+     * @return the result of the action, or false if the lock cannot be taken or the unfinished commit cannot be
+     * finished
+     */
+    @SuppressWarnings("try")
+    boolean withSaveLock(BooleanSupplier action){
+        synchronized (FileManager.class) {
+            try (FileChannel channel = FileChannel.open(new File(Config.getExtrasPath() + SAVE_LOCK).toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                 FileLock lock = lock(channel, 0, Long.MAX_VALUE, false)) {
+                if(!UnitOfWork.rollForward(this)){
+                    return false;
+                }
+                return action.getAsBoolean();
+            }
+            catch (IOException e){
+//                System.err.println("Cannot lock the save lock file");
+                return false;
+            }
         }
     }
 
+    /**
+     * Locks a region of a file shared by all programs, waiting until it is free. The operating system reports a
+     * deadlock when the threads of several programs wait for each other's locks, even if the threads of one program
+     * never wait for each other, since it sees every program as one owner. The lock is taken again a few times then,
+     * because the other thread lets its lock go soon.
+     * @param channel the channel of the file
+     * @param position the start of the region
+     * @param size the size of the region
+     * @param shared true for a shared lock
+     * @return the lock
+     * @throws IOException if the lock cannot be taken
+     */
+    static FileLock lock(FileChannel channel, long position, long size, boolean shared) throws IOException {
+        for(int attempt = 1 ; ; attempt++){
+            try {
+                return channel.lock(position, size, shared);
+            }
+            catch (IOException e){
+                if(attempt >= LOCK_ATTEMPTS || !channel.isOpen()){
+                    throw e;
+                }
+            }
+            try {
+                Thread.sleep(LOCK_RETRY_MILLIS);
+            }
+            catch (InterruptedException e){
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while locking a file");
+            }
+        }
+    }
+
+    /**
+     * Returns the version of the saved Savable object, or -1 if nothing is saved at the path. The version of a
+     * binary file is read from its header, a Java serialized file has to be de-serialized.
+     * @param path the path
+     * @return the version or -1
+     */
+    public int readVersion(String path){
+        byte[] bytes = storage.read(path);
+        if(bytes == null){
+            return -1;
+        }
+        if(codec.isBinary(bytes)){
+            return codec.readVersion(bytes);
+        }
+        Savable savable = readFromBytes(bytes);
+        return savable == null ? -1 : savable.getVersion();
+    }
+
     /**
      * Deletes the Savable object's serialized file from target folder directory.
      * @param savable the Savable object
@@ -85,10 +226,10 @@ public class FileManager {
      */
     public void deleteFile(Savable savable, String folderName){
         String path = folderName + savable.getFileName();
-        File file = new File(path);
-        if (!file.delete()){
+        if (!storage.delete(path)){
 //            System.err.println("Fail to delete file: " + path);
         }
+        changed(path);
     }
 
     /**
@@ -128,18 +269,81 @@ public class FileManager {
      * @return the Savable object
      */
     public Savable readFromFile(String path){
-        Object object = null;
+        long begin = metrics.begin();
         try {
-            InputStream file = new FileInputStream(path);
-            InputStream buffer = new BufferedInputStream(file);
-            ObjectInput input = new ObjectInputStream(buffer);
+            byte[] bytes = storage.read(path);
+            return bytes == null ? null : readFromBytes(bytes);
+        }
+        finally {
+            metrics.record("FileManager.readFromFile", begin);
+        }
+    }
+
+    /**
+     * Reads all the bytes of a file.
+     * @param path the file path
+     * @return the bytes or null if the file cannot be read
+     */
+    public byte[] readBytes(String path){
+        return storage.read(path);
+    }
 
-            //deserialize the Object
+    /**
+     * Writes the bytes of a serialized file. Over write the file if the file exists.
+     * @param path the file path
+     * @param bytes the serialized bytes
+     * @return true iff the bytes are written
+     */
+    public boolean writeBytes(String path, byte[] bytes){
+        boolean written = storage.write(path, bytes);
+        changed(path);
+        return written;
+    }
+
+    /**
+     * Deletes a serialized file.
+     * @param path the file path
+     * @return true iff the file is deleted
+     */
+    public boolean deleteBytes(String path){
+        boolean deleted = storage.delete(path);
+        changed(path);
+        return deleted;
+    }
+
+    /**
+     * Checks if a serialized file exists.
+     * @param path the file path
+     * @return true if the file exists
+     */
+    public boolean isExisted(String path){
+        return storage.exists(path);
+    }
+
+    /**
+     * Returns a stamp of the serialized file which changes every time the file is saved.
+     * @param path the path
+     * @return the stamp or null if the file doesn't exist
+     */
+    public String getStamp(String path){
+        return storage.getStamp(path);
+    }
+
+    /**
+     * De-serializes the object from the bytes of a serializing file.
+     * @param bytes the serialized bytes
+     * @return the Savable object
+     */
+    public Savable readFromBytes(byte[] bytes){
+        if(codec.isBinary(bytes)){
+            return codec.decode(bytes);
+        }
+        Object object = null;
+        try (ObjectInput input = new ObjectInputStream(new ByteArrayInputStream(bytes))){
             object = input.readObject();
-            input.close();
         }
         catch (IOException ex) {
-//            System.err.println("Cannot read from file: " + path);
+//            System.err.println("Cannot read the serialized bytes");
         }
         catch (ClassNotFoundException e){
 //            System.err.println("Class File not Found or Corrupted");
@@ -154,20 +358,36 @@ public class FileManager {
      * @param newFolder the new path
      */
     public void changeFilePath(Savable object, String oldFolder, String newFolder){
-        File oldFile = new File(oldFolder + object.getFileName());
-
-        if (!oldFile.delete()){
+        if (!storage.delete(oldFolder + object.getFileName())){
 //            System.err.println("Fail to delete old file..");
         }
+        changed(oldFolder + object.getFileName());
         saveToFile(object, newFolder);
     }
 
+    /**
+     * Invalidates the Item in the ItemRepository if the written or deleted file is in the Items folder, so the
+     * secondary indexes of the repository see the change.
+     * @param path the path of the written or deleted file
+     */
+    private void changed(String path){
+        String itemsPath = Config.getItemsPath();
+        if(itemsPath != null && path.startsWith(itemsPath)){
+            ItemRepository.getItemRepository().invalidate(path.substring(itemsPath.length()));
+        }
+    }
+
     /**
      * returns the list of files in a given folder path.
      * @param path the folder path
      * @return the list of files
      */
     public File[] getFileList(String path){
-        return new File(path).listFiles();
+        String[] names = storage.list(path);
+        File[] files = new File[names.length];
+        for(int i = 0 ; i < names.length ; i++){
+            files[i] = new File(path + names[i]);
+        }
+        return files;
     }
 }
@@ -0,0 +1,112 @@
+package model.managers;
+
+import model.configs.Config;
+import model.interfaces.Savable;
+
+import java.io.File;
+import java.util.Arrays;
+
+/**
+ * The FileMigrator class.
+ *
+ * The FileMigrator converts the Java serialized files of the Items, FinishedItems, Orders, FinishedOrders, Stock and
+ * menu item folders into the format of the BinaryCodec. It is run once from the directory of the config file, while
+ * no other program is running:
+ *
+ *     java model.managers.FileMigrator
+ *
+ * Every file is checked before it is replaced: the object is encoded, decoded again and encoded a second time, and
+ * the file is only replaced if both encodings are the same. Files that cannot be read or checked are left as they are
+ * and are listed at the end. The Items are converted before the orders that refer to them.
+ * @see BinaryCodec
+ */
+public class FileMigrator {
+    private FileManager fileManager;
+    private BinaryCodec codec;
+    private int converted;
+    private int skipped;
+    private int failed;
+
+    /**
+     * Constructs a FileMigrator.
+     */
+    public FileMigrator(){
+        fileManager = new FileManager();
+        codec = new BinaryCodec();
+    }
+
+    /**
+     * Converts all the folders of the config file.
+     * @param args not used
+     */
+    public static void main(String[] args){
+        Config.init();
+        FileManager.setBinaryFormat(true);
+        FileMigrator migrator = new FileMigrator();
+        String[] folders = {Config.getItemsPath(), Config.getFinishedItemsPath(), Config.getOrdersPath(),
+                Config.getFinishedOrdersPath(), Config.getStockPath(), Config.getFoodPath(), Config.getBeveragePath()};
+        for(String folder : folders){
+            migrator.migrateFolder(folder);
+        }
+        System.out.println("Converted: " + migrator.converted + ", already binary: " + migrator.skipped
+                + ", failed: " + migrator.failed);
+    }
+
+    /**
+     * Converts every file of a folder.
+     * @param folderName the folder directory
+     */
+    public void migrateFolder(String folderName){
+        for(File file : fileManager.getFileList(folderName)){
+            if(file.isDirectory()){
+                continue;
+            }
+            String path = folderName + file.getName();
+            byte[] bytes = fileManager.readBytes(path);
+            if(bytes == null){
+                fail(path, "cannot be read");
+            }
+            else if(codec.isBinary(bytes)){
+                skipped++;
+            }
+            else {
+                migrateFile(path, bytes);
+            }
+        }
+    }
+
+    /**
+     * Converts one Java serialized file after checking the round trip of the object.
+     * @param path the file path
+     * @param bytes the serialized bytes
+     */
+    private void migrateFile(String path, byte[] bytes){
+        Savable savable = fileManager.readFromBytes(bytes);
+        if(savable == null){
+            fail(path, "cannot be de-serialized");
+            return;
+        }
+        if(!codec.canEncode(savable)){
+            fail(path, "has no binary format (" + savable.getClass().getSimpleName() + ")");
+            return;
+        }
+        byte[] encoded = codec.encode(savable);
+        Savable decoded = codec.decode(encoded);
+        if(decoded == null || !Arrays.equals(encoded, codec.encode(decoded))){
+            fail(path, "does not survive the round trip");
+            return;
+        }
+        fileManager.writeBytes(path, encoded);
+        converted++;
+    }
+
+    /**
+     * Records a file that is left as it is.
+     * @param path the file path
+     * @param reason the reason
+     */
+    private void fail(String path, String reason){
+        System.out.println(path + " " + reason + ", left unchanged");
+        failed++;
+    }
+}
@@ -0,0 +1,121 @@
+package model.managers;
+
+import model.interfaces.StorageBackend;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * The FileStorage class.
+ *
+ * The FileStorage is the default StorageBackend. Every Savable object is saved as its own file in the target folder.
+ *
+ * A file is written into a hidden temporary file first and then moved over the old file, so a program that reads the
+ * file at the same time sees either the old or the new content, never a half written file.
+ * @see StorageBackend
+ */
+public class FileStorage implements StorageBackend {
+
+    /**
+     * Reads all the bytes of a file.
+     * @param path the file path
+     * @return the bytes or null if the file cannot be read
+     */
+    @Override
+    public byte[] read(String path) {
+        try {
+            return Files.readAllBytes(new File(path).toPath());
+        }
+        catch (IOException e){
+//            System.err.println("Cannot read from file: " + path);
+            return null;
+        }
+    }
+
+    /**
+     * Writes the bytes into a file. Over write the file if the file exists.
+     * @param path the file path
+     * @param data the bytes
+     * @return true iff the file is written
+     */
+    @Override
+    public boolean write(String path, byte[] data) {
+        Path target = new File(path).toPath();
+        Path temp = getTempFile(target);
+        try {
+            Files.write(temp, data);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        }
+        catch (IOException e){
+//            System.err.println("Cannot save the file at target directory: " + path);
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ex){
+//                System.err.println("Cannot delete the temporary file: " + temp);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Returns the hidden temporary file that is used to write the target file. The name has the id of the program
+     * and of the thread, so two writers never share a temporary file.
+     * @param target the target file
+     * @return the temporary file
+     */
+    static Path getTempFile(Path target){
+        return target.resolveSibling("." + target.getFileName() + "." + ProcessHandle.current().pid() + "."
+                + Thread.currentThread().getId() + ".tmp");
+    }
+
+    /**
+     * Deletes a file.
+     * @param path the file path
+     * @return true iff the file is deleted
+     */
+    @Override
+    public boolean delete(String path) {
+        return new File(path).delete();
+    }
+
+    /**
+     * Checks if a file exists or not.
+     * @param path the file path
+     * @return true if the file exists
+     */
+    @Override
+    public boolean exists(String path) {
+        return new File(path).exists();
+    }
+
+    /**
+     * Returns the names of the files in a folder. Hidden files (like the temporary files) are skipped.
+     * @param folderName the folder directory
+     * @return the file names, or an empty list if the folder doesn't exist
+     */
+    @Override
+    public String[] list(String folderName) {
+        String[] names = new File(folderName).list((folder, name) -> !name.startsWith("."));
+        return names == null ? new String[0] : names;
+    }
+
+    /**
+     * Returns the last modified time and the size of a file as the stamp.
+     * @param path the file path
+     * @return the stamp or null if the file doesn't exist
+     */
+    @Override
+    public String getStamp(String path) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(new File(path).toPath(), BasicFileAttributes.class);
+            return attributes.lastModifiedTime().toString() + ":" + attributes.size();
+        } catch (IOException e){
+            return null;
+        }
+    }
+}
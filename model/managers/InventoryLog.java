@@ -0,0 +1,719 @@
+package model.managers;
+
+import model.configs.Config;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The InventoryLog class.
+ *
+ * The InventoryLog keeps the history of the stock as an append-only file of events in the extras directory that is
+ * shared by all the programs. Every event has the time, the type (received, reserved, consumed, released, wasted or
+ * adjusted) and the quantity of every supply it changed. The received, consumed, wasted and adjusted events change the
+ * quantity in stock; the reserved and released events only record what was put aside for the items.
+ *
+ * Every program keeps the quantities in stock that follow from the events in memory and reads the events that the
+ * others appended since its last look, so the current quantity of a supply is read without going through the file.
+ * After every SNAPSHOT_BYTES of events the quantities are written into the snapshot file together with the position
+ * of the next event. The quantities at a past time are found from the last snapshot before that time and the events
+ * after it, so a look into the past never reads more than SNAPSHOT_BYTES of events.
+ *
+ * The SupplyTable still holds the quantities that the stock checks use. The events are recorded by the SupplyManager
+ * and the ReservationLedger where they change it.
+ * @see SupplyManager
+ * @see ReservationLedger
+ */
+public class InventoryLog {
+    public static final byte RECEIVED = 1;
+    public static final byte RESERVED = 2;
+    public static final byte CONSUMED = 3;
+    public static final byte RELEASED = 4;
+    public static final byte WASTED = 5;
+    public static final byte ADJUSTED = 6;
+
+    private static final String EVENTS = "inventoryEvents";
+    private static final String SNAPSHOTS = "inventorySnapshots";
+    private static final int EVENTS_MAGIC = 0x49564531;
+    private static final int SNAPSHOTS_MAGIC = 0x49565331;
+    private static final int HEADER_SIZE = 4;
+    private static final long SNAPSHOT_BYTES = 64 * 1024;
+
+    private static InventoryLog inventoryLog = new InventoryLog();
+
+    private HashMap<String, Integer> stock;
+    private long offset;
+    private long lastTime;
+    private ArrayList<Snapshot> snapshots;
+    private long snapshotsOffset;
+    private FileChannel eventChannel;
+    private ArrayList<Listener> listeners;
+
+    /**
+     * Constructs an empty InventoryLog. The files are read when the log is first used.
+     */
+    private InventoryLog(){
+        stock = new HashMap<>();
+        snapshots = new ArrayList<>();
+        listeners = new ArrayList<>();
+    }
+
+    /**
+     * Returns this singleton inventory log instance
+     * @return the inventory log
+     */
+    public static InventoryLog getInventoryLog(){
+        return inventoryLog;
+    }
+
+    /**
+     * Records an event of one supply.
+     * @param type the type of the event
+     * @param name the supply name
+     * @param quantity the quantity, which is negative for an adjustment that lowers the stock
+     */
+    public void record(byte type, String name, int quantity){
+        record(type, Collections.singletonMap(name, quantity));
+    }
+
+    /**
+     * Records an event of several supplies, like the ingredients of an item. The supplies with a quantity of 0 are
+     * left out. Nothing is recorded if the file cannot be written.
+     * @param type the type of the event
+     * @param quantities the supply names and quantities
+     */
+    @SuppressWarnings("try")
+    public synchronized void record(byte type, Map<String, Integer> quantities){
+        LinkedHashMap<String, Integer> changed = new LinkedHashMap<>();
+        for(Map.Entry<String, Integer> quantity : quantities.entrySet()){
+            if(quantity.getValue() != 0){
+                changed.put(quantity.getKey(), quantity.getValue());
+            }
+        }
+        if(changed.isEmpty()){
+            return;
+        }
+        try {
+            FileChannel channel = getEventChannel();
+            try (FileLock lock = FileManager.lock(channel, 0, 1, false)){
+                catchUp();
+                if(channel.size() > offset){
+                    // a program stopped in the middle of writing an event
+                    channel.truncate(offset);
+                }
+                long time = Math.max(System.currentTimeMillis(), lastTime);
+                byte[] event = encode(time, type, changed);
+                ByteBuffer buffer = ByteBuffer.allocate(4 + event.length);
+                buffer.putInt(event.length).put(event).flip();
+                while(buffer.hasRemaining()){
+                    channel.write(buffer, offset + buffer.position());
+                }
+                apply(stock, type, changed);
+                lastTime = time;
+                offset += buffer.limit();
+                notifyListeners(time, type, changed);
+                if(offset - lastSnapshotOffset() >= SNAPSHOT_BYTES){
+                    writeSnapshot();
+                }
+            }
+        }
+        catch (IOException e){
+//            System.err.println("Cannot write the inventory log");
+        }
+    }
+
+    /**
+     * Returns the quantity of the supply in stock after the last event.
+     * @param name the supply name
+     * @return the quantity in stock
+     */
+    public synchronized int getStock(String name){
+        read();
+        return stock.getOrDefault(name, 0);
+    }
+
+    /**
+     * Returns the quantities of all the supplies in stock after the last event.
+     * @return the quantities by supply name
+     */
+    public synchronized HashMap<String, Integer> getStock(){
+        read();
+        return new HashMap<>(stock);
+    }
+
+    /**
+     * Returns the quantities of all the supplies in stock at the time, which is empty for a time before the log was
+     * started.
+     * @param time the time in milliseconds
+     * @return the quantities by supply name
+     */
+    public synchronized HashMap<String, Integer> getStockAt(long time){
+        read();
+        if(time >= lastTime){
+            return new HashMap<>(stock);
+        }
+        HashMap<String, Integer> quantities = new HashMap<>();
+        long start = restore(time, quantities);
+        if(start >= 0){
+            scan(start, time, (eventTime, type, changed) -> apply(quantities, type, changed));
+        }
+        return quantities;
+    }
+
+    /**
+     * Returns the movements of every supply between two times, for the reconciliation at the end of the day: the
+     * quantity in stock at the start, the total quantity of every type of event after the start until the end, and
+     * the quantity in stock at the end.
+     * @param from the start time in milliseconds
+     * @param to the end time in milliseconds
+     * @return the movements by supply name, sorted by name
+     */
+    public synchronized TreeMap<String, Movements> getMovements(long from, long to){
+        read();
+        HashMap<String, Integer> quantities = new HashMap<>();
+        TreeMap<String, Movements> movements = new TreeMap<>();
+        // the stock before the log was started is the stock of its first snapshot
+        long start = restore(snapshots.isEmpty() ? from : Math.max(from, snapshots.get(0).time), quantities);
+        if(start < 0){
+            return movements;
+        }
+        scan(start, to, (eventTime, type, changed) -> {
+            if(eventTime > from){
+                for(Map.Entry<String, Integer> quantity : changed.entrySet()){
+                    String name = quantity.getKey();
+                    movements.computeIfAbsent(name, key -> new Movements(quantities.getOrDefault(key, 0)))
+                            .add(type, quantity.getValue());
+                }
+            }
+            apply(quantities, type, changed);
+        });
+        for(Map.Entry<String, Integer> quantity : quantities.entrySet()){
+            movements.computeIfAbsent(quantity.getKey(), key -> new Movements(quantity.getValue()));
+        }
+        return movements;
+    }
+
+    /**
+     * Tells the listener about the events recorded after the time, and then about every new event that is recorded
+     * by this program or read from the others.
+     * @param listener the listener
+     * @param from the time in milliseconds
+     */
+    public synchronized void addListener(Listener listener, long from){
+        read();
+        HashMap<String, Integer> quantities = new HashMap<>();
+        long start = restore(from, quantities);
+        scan(start < 0 ? HEADER_SIZE : start, Long.MAX_VALUE, (time, type, changed) -> {
+            if(time > from){
+                listener.eventRecorded(time, type, changed);
+            }
+        });
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener.
+     * @param listener the listener
+     */
+    public synchronized void removeListener(Listener listener){
+        listeners.remove(listener);
+    }
+
+    /**
+     * Reads the events of the other programs, or starts the log if this is the first time it is used.
+     */
+    @SuppressWarnings("try")
+    private void read(){
+        try {
+            FileChannel channel = getEventChannel();
+            if(offset == 0 || channel.size() < HEADER_SIZE){
+                // the first read waits until the program that starts the log has written its first snapshot
+                try (FileLock lock = FileManager.lock(channel, 0, 1, false)){
+                    catchUp();
+                }
+            }
+            else {
+                catchUp();
+            }
+        }
+        catch (IOException e){
+//            System.err.println("Cannot read the inventory log");
+        }
+    }
+
+    /**
+     * Reads the new snapshots and the events that were appended since the last read. A new program starts from the
+     * last snapshot. Starts the log with a snapshot of the SupplyTable if the file is new, which must only happen
+     * while holding the lock of the event file. An event that is not complete yet is read the next time.
+     * @throws IOException if the files cannot be read
+     */
+    private void catchUp() throws IOException {
+        FileChannel channel = getEventChannel();
+        if(channel.size() < HEADER_SIZE){
+            start();
+        }
+        long size = channel.size();
+        if(offset == 0 || size - lastSnapshotOffset() >= SNAPSHOT_BYTES){
+            // another program may have written a snapshot
+            readSnapshots();
+        }
+        if(offset == 0){
+            if(!snapshots.isEmpty()){
+                Snapshot last = snapshots.get(snapshots.size() - 1);
+                lastTime = readSnapshot(last, stock);
+                offset = last.eventOffset;
+            }
+            else {
+                offset = HEADER_SIZE;
+            }
+        }
+        if(size <= offset){
+            return;
+        }
+        ByteBuffer tail = ByteBuffer.allocate((int) (size - offset));
+        while(tail.hasRemaining() && channel.read(tail, offset + tail.position()) > 0){
+            // read the whole tail
+        }
+        byte[] bytes = tail.array();
+        int position = 0;
+        while(bytes.length - position >= 4){
+            int length = ByteBuffer.wrap(bytes, position, 4).getInt();
+            if(length <= 0 || bytes.length - position - 4 < length){
+                break;
+            }
+            DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes, position + 4,
+                    length));
+            try {
+                long time = input.readLong();
+                byte type = input.readByte();
+                LinkedHashMap<String, Integer> changed = readQuantities(input);
+                apply(stock, type, changed);
+                lastTime = Math.max(lastTime, time);
+                notifyListeners(time, type, changed);
+            }
+            catch (IOException e){
+//                System.err.println("Skip the broken inventory event");
+            }
+            position += 4 + length;
+        }
+        offset += position;
+    }
+
+    /**
+     * Starts a new log: writes the header of the event file and a first snapshot with the quantities of the
+     * SupplyTable, which are the quantities before the first event.
+     * @throws IOException if the files cannot be written
+     */
+    private void start() throws IOException {
+        getEventChannel().write(ByteBuffer.allocate(HEADER_SIZE).putInt(0, EVENTS_MAGIC), 0);
+        try (FileChannel channel = FileChannel.open(getSnapshotFile().toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)){
+            channel.write(ByteBuffer.allocate(HEADER_SIZE).putInt(0, SNAPSHOTS_MAGIC), 0);
+        }
+        SupplyTable supplyTable = SupplyTable.getSupplyTable();
+        stock.clear();
+        snapshots.clear();
+        snapshotsOffset = HEADER_SIZE;
+        for(String name : supplyTable.getNames()){
+            stock.put(name, supplyTable.getQuantity(name));
+        }
+        offset = HEADER_SIZE;
+        lastTime = System.currentTimeMillis();
+        writeSnapshot();
+    }
+
+    /**
+     * Reads the times and positions of the snapshots that were appended since the last read. Only the start of
+     * every snapshot is read; the quantities are read when they are needed.
+     * @throws IOException if the file cannot be read
+     */
+    private void readSnapshots() throws IOException {
+        File file = getSnapshotFile();
+        if(!file.exists()){
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)){
+            long size = channel.size();
+            ByteBuffer start = ByteBuffer.allocate(20);
+            if(snapshotsOffset == 0){
+                start.limit(HEADER_SIZE);
+                if(size < HEADER_SIZE || channel.read(start, 0) < HEADER_SIZE || start.getInt(0) != SNAPSHOTS_MAGIC){
+                    return;
+                }
+                snapshotsOffset = HEADER_SIZE;
+            }
+            while(size - snapshotsOffset >= start.capacity()){
+                start.clear();
+                while(start.hasRemaining() && channel.read(start, snapshotsOffset + start.position()) > 0){
+                    // read the start of the snapshot
+                }
+                int length = start.getInt(0);
+                if(length < 16 || size - snapshotsOffset - 4 < length){
+                    break;
+                }
+                snapshots.add(new Snapshot(start.getLong(4), start.getLong(12), snapshotsOffset));
+                snapshotsOffset += 4 + length;
+            }
+        }
+    }
+
+    /**
+     * Appends a snapshot of the current quantities. Must be called while holding the lock of the event file.
+     * @throws IOException if the file cannot be written
+     */
+    private void writeSnapshot() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeLong(lastTime);
+        output.writeLong(offset);
+        output.writeInt(stock.size());
+        for(Map.Entry<String, Integer> quantity : stock.entrySet()){
+            output.writeUTF(quantity.getKey());
+            output.writeInt(quantity.getValue());
+        }
+        byte[] snapshot = bytes.toByteArray();
+        try (FileChannel channel = FileChannel.open(getSnapshotFile().toPath(), StandardOpenOption.WRITE)){
+            if(channel.size() > snapshotsOffset){
+                channel.truncate(snapshotsOffset);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(4 + snapshot.length);
+            buffer.putInt(snapshot.length).put(snapshot).flip();
+            while(buffer.hasRemaining()){
+                channel.write(buffer, snapshotsOffset + buffer.position());
+            }
+        }
+        snapshots.add(new Snapshot(lastTime, offset, snapshotsOffset));
+        snapshotsOffset += 4 + snapshot.length;
+    }
+
+    /**
+     * Reads the quantities of a snapshot.
+     * @param snapshot the snapshot
+     * @param quantities the map the quantities are put into
+     * @return the time of the snapshot
+     * @throws IOException if the file cannot be read
+     */
+    private long readSnapshot(Snapshot snapshot, HashMap<String, Integer> quantities) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(getSnapshotFile())))){
+            skipFully(input, snapshot.fileOffset + 4 + 16);
+            quantities.clear();
+            quantities.putAll(readQuantities(input));
+        }
+        return snapshot.time;
+    }
+
+    /**
+     * Puts the quantities of the last snapshot made at or before the time into the map.
+     * @param time the time in milliseconds
+     * @param quantities the map the quantities are put into
+     * @return the position of the first event after the snapshot, or -1 if the log was started after the time
+     */
+    private long restore(long time, HashMap<String, Integer> quantities){
+        int low = 0;
+        int high = snapshots.size() - 1;
+        int found = -1;
+        while(low <= high){
+            int middle = (low + high) >>> 1;
+            if(snapshots.get(middle).time <= time){
+                found = middle;
+                low = middle + 1;
+            }
+            else {
+                high = middle - 1;
+            }
+        }
+        if(found < 0){
+            return -1;
+        }
+        try {
+            readSnapshot(snapshots.get(found), quantities);
+            return snapshots.get(found).eventOffset;
+        }
+        catch (IOException e){
+//            System.err.println("Cannot read the inventory snapshot");
+            return -1;
+        }
+    }
+
+    /**
+     * Reads the events from the position on, until the first event after the time or the last event that was read
+     * into memory.
+     * @param start the position of the first event
+     * @param time the time in milliseconds
+     * @param listener the listener called for every event
+     */
+    private void scan(long start, long time, Listener listener){
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(getEventFile())))){
+            skipFully(input, start);
+            for(long position = start ; position < offset ; ){
+                int length = input.readInt();
+                byte[] event = new byte[length];
+                input.readFully(event);
+                position += 4 + length;
+                DataInputStream eventInput = new DataInputStream(new ByteArrayInputStream(event));
+                long eventTime = eventInput.readLong();
+                if(eventTime > time){
+                    return;
+                }
+                byte type = eventInput.readByte();
+                listener.eventRecorded(eventTime, type, readQuantities(eventInput));
+            }
+        }
+        catch (IOException e){
+//            System.err.println("Cannot read the inventory log");
+        }
+    }
+
+    /**
+     * Changes the quantities in stock by an event.
+     * @param quantities the quantities in stock
+     * @param type the type of the event
+     * @param changed the supplies and quantities of the event
+     */
+    private static void apply(HashMap<String, Integer> quantities, byte type, Map<String, Integer> changed){
+        int sign = getSign(type);
+        if(sign == 0){
+            return;
+        }
+        for(Map.Entry<String, Integer> quantity : changed.entrySet()){
+            quantities.merge(quantity.getKey(), sign * quantity.getValue(), Integer::sum);
+        }
+    }
+
+    /**
+     * Tells the listeners about an event.
+     * @param time the time of the event
+     * @param type the type of the event
+     * @param changed the supplies and quantities of the event
+     */
+    private void notifyListeners(long time, byte type, Map<String, Integer> changed){
+        for(Listener listener : listeners){
+            listener.eventRecorded(time, type, changed);
+        }
+    }
+
+    /**
+     * Returns the position of the first event after the last snapshot.
+     * @return the position
+     */
+    private long lastSnapshotOffset(){
+        return snapshots.isEmpty() ? HEADER_SIZE : snapshots.get(snapshots.size() - 1).eventOffset;
+    }
+
+    /**
+     * Returns the channel of the event file, which is also locked to append an event.
+     * @return the channel
+     * @throws IOException if the file cannot be opened
+     */
+    private FileChannel getEventChannel() throws IOException {
+        if(eventChannel == null || !eventChannel.isOpen()){
+            eventChannel = FileChannel.open(getEventFile().toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        return eventChannel;
+    }
+
+    /**
+     * Returns how an event of the type changes the quantity in stock.
+     * @param type the type of the event
+     * @return 1 if it adds to the stock, -1 if it takes from the stock, 0 if it doesn't change it
+     */
+    static int getSign(byte type){
+        switch (type){
+            case RECEIVED:
+            case ADJUSTED:
+                return 1;
+            case CONSUMED:
+            case WASTED:
+                return -1;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Encodes an event.
+     * @param time the time in milliseconds
+     * @param type the type of the event
+     * @param quantities the supplies and quantities
+     * @return the event
+     * @throws IOException if the event cannot be encoded
+     */
+    private static byte[] encode(long time, byte type, Map<String, Integer> quantities) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeLong(time);
+        output.writeByte(type);
+        output.writeInt(quantities.size());
+        for(Map.Entry<String, Integer> quantity : quantities.entrySet()){
+            output.writeUTF(quantity.getKey());
+            output.writeInt(quantity.getValue());
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Reads the number of supplies followed by the name and quantity of every supply.
+     * @param input the input
+     * @return the supplies and quantities
+     * @throws IOException if the input is broken
+     */
+    private static LinkedHashMap<String, Integer> readQuantities(DataInputStream input) throws IOException {
+        int count = input.readInt();
+        LinkedHashMap<String, Integer> quantities = new LinkedHashMap<>();
+        for(int i = 0 ; i < count ; i++){
+            quantities.put(input.readUTF(), input.readInt());
+        }
+        return quantities;
+    }
+
+    /**
+     * Skips the bytes at the start of the input.
+     * @param input the input
+     * @param count the number of bytes
+     * @throws IOException if the input is shorter
+     */
+    private static void skipFully(DataInputStream input, long count) throws IOException {
+        while(count > 0){
+            long skipped = input.skip(count);
+            if(skipped <= 0){
+                throw new EOFException();
+            }
+            count -= skipped;
+        }
+    }
+
+    /**
+     * Returns the event file in the extras directory.
+     * @return the event file
+     */
+    private static File getEventFile(){
+        return new File(Config.getExtrasPath() + EVENTS);
+    }
+
+    /**
+     * Returns the snapshot file in the extras directory.
+     * @return the snapshot file
+     */
+    private static File getSnapshotFile(){
+        return new File(Config.getExtrasPath() + SNAPSHOTS);
+    }
+
+    /**
+     * The movements of one supply between two times.
+     */
+    public static class Movements {
+        private int opening;
+        private int closing;
+        private int[] totals;
+
+        /**
+         * Constructs Movements.
+         * @param opening the quantity in stock at the start
+         */
+        Movements(int opening){
+            this.opening = opening;
+            this.closing = opening;
+            totals = new int[ADJUSTED + 1];
+        }
+
+        /**
+         * Adds an event.
+         * @param type the type of the event
+         * @param quantity the quantity
+         */
+        void add(byte type, int quantity){
+            if(type > 0 && type < totals.length){
+                totals[type] += quantity;
+            }
+            closing += getSign(type) * quantity;
+        }
+
+        /**
+         * Returns the quantity in stock at the start.
+         * @return the quantity
+         */
+        public int getOpening(){
+            return opening;
+        }
+
+        /**
+         * Returns the quantity in stock at the end.
+         * @return the quantity
+         */
+        public int getClosing(){
+            return closing;
+        }
+
+        /**
+         * Returns the total quantity of the events of the type, like InventoryLog.WASTED.
+         * @param type the type of the events
+         * @return the total quantity
+         */
+        public int getTotal(byte type){
+            return type > 0 && type < totals.length ? totals[type] : 0;
+        }
+
+        /**
+         * Returns the quantity in stock at the end without the adjustments, which is what the stock should be after
+         * everything that was received, cooked and thrown away. The difference to the counted stock is the shrinkage.
+         * @return the expected quantity
+         */
+        public int getExpected(){
+            return opening + totals[RECEIVED] - totals[CONSUMED] - totals[WASTED];
+        }
+    }
+
+    /**
+     * The start of a snapshot in the snapshot file.
+     */
+    private static class Snapshot {
+        private long time;
+        private long eventOffset;
+        private long fileOffset;
+
+        /**
+         * Constructs a Snapshot.
+         * @param time the time of the last event before the snapshot
+         * @param eventOffset the position of the first event after the snapshot
+         * @param fileOffset the position of the snapshot in the snapshot file
+         */
+        Snapshot(long time, long eventOffset, long fileOffset){
+            this.time = time;
+            this.eventOffset = eventOffset;
+            this.fileOffset = fileOffset;
+        }
+    }
+
+    /**
+     * A listener that is told about the events. It is called while the log is locked, so it must not use the log.
+     */
+    public interface Listener {
+        /**
+         * Called for an event.
+         * @param time the time of the event
+         * @param type the type of the event
+         * @param changed the supplies and quantities of the event
+         */
+        void eventRecorded(long time, byte type, Map<String, Integer> changed);
+    }
+}
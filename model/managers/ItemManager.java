@@ -3,32 +3,38 @@ package model.managers;
 import model.configs.Config;
 import model.data.Item;
 
-import java.io.File;
-import java.io.IOException;
 import java.util.ArrayList;
-import java.util.logging.*;
+import java.util.function.Consumer;
 
 /**
  * The ItemManager class.
  *
  * The ItemManager class manages the customer menu items in this program. This class is responsible to save the Item
- * into the Items folder which represents all Items that are currently operating in the restaurant. It also creates
- * the lock file and check if an Item is lock (i,e, the Item is being editing by the program). The directory of the
+ * into the Items folder which represents all Items that are currently operating in the restaurant. It also locks
+ * the Item with the LockManager and check if an Item is lock (i,e, the Item is being editing by the program). The directory of the
  * folder can be changed by editing the config file which is used by the Config class.
+ *
+ * The Items are saved with optimistic concurrency: an Item is only saved if nobody saved it since it was read. When
+ * another program was faster, the latest copy is read and the change is applied to it again, which merges the two
+ * changes as long as they change different parts of the Item.
  * @see Item
  * @see Config
  */
 public class ItemManager {
     private final String KITCHEN = "kitchen";
     private final String FRONT = "front";
+    private final String ITEM_LOCK = "item:";
+    private final int RETRIES = 5;
 
     private FileManager fileManager;
+    private ItemRepository itemRepository;
 
     /**
      * Constructs an ItemManager.
      */
     public ItemManager(){
         fileManager = new FileManager();
+        itemRepository = ItemRepository.getItemRepository();
     }
 
     /**
@@ -38,34 +44,79 @@ public class ItemManager {
      */
     public void startItemCycle(Item item){
         item.getItemInfo().setLocation(KITCHEN);
-        fileManager.saveToFile(item, Config.getItemsPath());
+        fileManager.compareAndSave(item, Config.getItemsPath());
+    }
+
+    /**
+     * Saves Item file in Items directory if nobody saved the Item since it was read.
+     * @param item the customer item
+     * @return false if the Item was saved by another program in the meantime
+     */
+    public boolean saveItemFile(Item item){
+        return fileManager.compareAndSave(item, Config.getItemsPath());
+    }
+
+    /**
+     * Saves the Item file as a part of the unit of work, if nobody saved the Item since it was read.
+     * @param item the customer item
+     * @param work the unit of work
+     */
+    public void saveItemFile(Item item, UnitOfWork work){
+        work.saveIfUnchanged(item, Config.getItemsPath());
     }
 
     /**
-     * Saves Item file in Items directory.
+     * Applies the change to the Item and saves it. If another program saved the Item since it was read, the latest
+     * copy is read from the Items directory and the change is applied to that copy instead. Gives up after RETRIES
+     * tries or when the Item is not in the Items directory anymore.
      * @param item the customer item
+     * @param change the change of the Item
+     * @return the saved Item (the given one or the latest copy), or null if the change cannot be saved
      */
-    public void saveItemFile(Item item){
-        fileManager.saveToFile(item, Config.getItemsPath());
+    public Item updateItem(Item item, Consumer<Item> change){
+        Item current = item;
+        for(int i = 0 ; i < RETRIES && current != null ; i++){
+            change.accept(current);
+            if(saveItemFile(current)){
+                return current;
+            }
+            current = (Item) fileManager.readFromFile(Config.getItemsPath() + item.getFileName());
+        }
+//        System.err.println("Cannot save the item: " + item.getFileName());
+        return null;
     }
 
     /**
      * Sends the Item to the kitchen and saves the file
      * @param item the customer item
+     * @return the saved Item or null
      */
-    public void sendToKitchen(Item item){
-        item.getItemInfo().setLocation(KITCHEN);
-        saveItemFile(item);
+    public Item sendToKitchen(Item item){
+        return updateItem(item, current -> current.getItemInfo().setLocation(KITCHEN));
     }
 
     /**
      * Sends the Item to the front and saves the file.
      * @param item the customer item
+     * @return the saved Item or null
      */
-    public void sendToFront(Item item){
+    public Item sendToFront(Item item){
+        return updateItem(item, current -> {
+            current.getItemInfo().ready();
+            current.getItemInfo().setLocation(FRONT);
+        });
+    }
+
+    /**
+     * Sends the Item to the front as a part of the unit of work. The Item is only saved if nobody saved it since it
+     * was read.
+     * @param item the customer item
+     * @param work the unit of work
+     */
+    public void sendToFront(Item item, UnitOfWork work){
         item.getItemInfo().ready();
         item.getItemInfo().setLocation(FRONT);
-        saveItemFile(item);
+        work.saveIfUnchanged(item, Config.getItemsPath());
     }
 
     /**
@@ -79,45 +130,45 @@ public class ItemManager {
     /**
      * Acknowledge the Item. This means the Item is being seen in the kitchen and is preparing.
      * @param item the customer item
+     * @return the saved Item or null
      */
-    public void acknowledgeItem(Item item){
-        item.getItemInfo().seen();
-        saveItemFile(item);
+    public Item acknowledgeItem(Item item){
+        return updateItem(item, current -> current.getItemInfo().seen());
     }
 
     /**
      * Confirms that this Item has been delivered to the customer.
      * @param item the customer item
+     * @return the saved Item or null
      */
-    public void conFirmDeliveryItem(Item item){
-        item.getItemInfo().served();
-        saveItemFile(item);
+    public Item conFirmDeliveryItem(Item item){
+        return updateItem(item, current -> current.getItemInfo().served());
     }
 
     /**
-     * Creates a lock file for Item
+     * Takes the lease of the Item from the LockManager.
      * @param item the customer item
+     * @return true if this program holds the lease
      */
-    public void lockItemFile(Item item){
-        String path = Config.getLockFilesPath() + item.getFileName();
-        fileManager.writeFile("", path);
+    public boolean lockItemFile(Item item){
+        return LockManager.getLockManager().tryLock(ITEM_LOCK + item.getFileName());
     }
 
     /**
-     * Deletes the lock file for Item if exists
+     * Releases the lease of the Item.
      * @param item the customer item
      */
     public void unlockItemFile(Item item){
-        fileManager.deleteFile(item, Config.getLockFilesPath());
+        LockManager.getLockManager().release(ITEM_LOCK + item.getFileName());
     }
 
     /**
-     * Checks if the lock file exists or not.
+     * Checks if there is a valid lease on the Item.
      * @param item the customer item
-     * @return true iff the lock file exists
+     * @return true iff the Item is locked
      */
     public boolean isLockedItem(Item item){
-        return fileManager.isExisted(item, Config.getLockFilesPath());
+        return LockManager.getLockManager().isLocked(ITEM_LOCK + item.getFileName());
     }
 
     /**
@@ -126,17 +177,24 @@ public class ItemManager {
      * @return the customer item or null
      */
     public Item getItem(int itemNumber){
-        for(Item item : getItemList(FRONT)){
-            if(item.getItemInfo().getItemNumber() == itemNumber){
-                return item;
-            }
-        }
-        for(Item item : getItemList(KITCHEN)){
-            if(item.getItemInfo().getItemNumber() == itemNumber){
-                return item;
-            }
-        }
-        return null;
+        return itemRepository.getItem(itemNumber);
+    }
+
+    /**
+     * Marks the Item as changed by another program, so it is read again the next time the Items are searched.
+     * @param fileName the file name of the Item
+     */
+    public void invalidateItem(String fileName){
+        itemRepository.invalidate(fileName);
+    }
+
+    /**
+     * Starts or stops searching the Items through the changes only. Must only be on while this program is notified of
+     * the changes of the other programs.
+     * @param following true while the changes of the other programs are listened to
+     */
+    public void followChanges(boolean following){
+        itemRepository.setFollowing(following);
     }
 
     /**
@@ -156,14 +214,12 @@ public class ItemManager {
     }
 
     /**
-     * Returns the current item number from the currentItemNumber file and increment the number by one in the file
-     * @return the current item number
+     * Returns a new item number. The numbers are reserved in blocks from the currentItemNumber file by the
+     * NumberAllocator, so the file is only touched once per block and no other program gets the same number.
+     * @return the item number
      */
     public int getCurrentItemNumber(){
-        String content = fileManager.readFileContent(Config.getItemNumberFile());
-        int number = Integer.parseInt(content.trim());
-        fileManager.writeFile(Integer.toString(number+1), Config.getItemNumberFile());
-        return number;
+        return NumberAllocator.getItemNumberAllocator().next();
     }
 
     /**
@@ -172,13 +228,7 @@ public class ItemManager {
      * @return the Item list
      */
     public ArrayList<Item> searchByTableNumber(int tableNumber){
-        ArrayList<Item> items = getItemList("");
-        ArrayList<Item> searchItems = new ArrayList<>();
-        for(Item item : items){
-            if(item.getItemInfo().getTableNumber() == tableNumber){
-                searchItems.add(item);
-            }
-        }
+        ArrayList<Item> searchItems = itemRepository.getByTableNumber(tableNumber);
         return searchItems.size()==0 ? null : searchItems;
     }
 
@@ -188,13 +238,7 @@ public class ItemManager {
      * @return the Item list
      */
     public ArrayList<Item> searchByOrderNumber(int orderNumber){
-        ArrayList<Item> items = getItemList("");
-        ArrayList<Item> searchItems = new ArrayList<>();
-        for(Item item : items){
-            if(item.getItemInfo().getOrderNumber() == orderNumber){
-                searchItems.add(item);
-            }
-        }
+        ArrayList<Item> searchItems = itemRepository.getByOrderNumber(orderNumber);
         return searchItems.size()==0 ? null : searchItems;
     }
 
@@ -204,14 +248,7 @@ public class ItemManager {
      * @return the Item list
      */
     private ArrayList<Item> getItemList(String location){
-        ArrayList<Item> items = new ArrayList<>();
-        File[] itemFiles = fileManager.getFileList(Config.getItemsPath());
-        for(File file: itemFiles) {
-            Item item = (Item)fileManager.readFromFile(Config.getItemsPath() + file.getName());
-            if(item != null || location.equals("") || location.equals(item.getItemInfo().getLocation()))
-                items.add(item);
-        }
-        return items;
+        return itemRepository.getByLocation(location);
     }
 
     /**
@@ -222,4 +259,13 @@ public class ItemManager {
         fileManager.deleteFile(item, Config.getItemsPath());
     }
 
+    /**
+     * Deletes the Item file as a part of the unit of work.
+     * @param item the custom item
+     * @param work the unit of work
+     */
+    public void deleteItemFile(Item item, UnitOfWork work){
+        work.delete(item, Config.getItemsPath());
+    }
+
 }
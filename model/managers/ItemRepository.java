@@ -0,0 +1,301 @@
+package model.managers;
+
+import model.configs.Config;
+import model.data.Item;
+import model.data.ItemInfo;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * The ItemRepository class.
+ *
+ * The ItemRepository keeps every active Item of the Items folder resident in memory. It has a primary index by item
+ * number and secondary indexes by order number, table number and location (kitchen or front), so the ItemManager
+ * does not need to list and de-serialize the whole folder for every lookup.
+ *
+ * The repository stays coherent with the files written by the FileManager (by this program or by the other running
+ * programs) by remembering the stamp of each file it has loaded. A file is only read again when its stamp has
+ * changed. A lookup by item number only checks the stamp of its own file. The secondary indexes are kept up to date
+ * from the changes: the FileManager invalidates every Item file that this program writes or deletes, and the
+ * FileController invalidates the Items that the other programs notify. While the repository follows the changes, a
+ * lookup by order, table or location only checks the invalidated files, and the whole folder is only listed the first
+ * time. Otherwise, like a program that does not listen to the other programs, the whole folder is checked every time.
+ * The repository keeps the serialized bytes rather than the Item itself, so every caller gets its own copy of the
+ * Item and can modify it (or attach observers) without touching the cache.
+ * @see ItemManager
+ */
+public class ItemRepository {
+    private static ItemRepository itemRepository = new ItemRepository();
+
+    private FileManager fileManager;
+    private HashMap<Integer, Entry> items;
+    private HashMap<Integer, HashSet<Integer>> orderIndex;
+    private HashMap<Integer, HashSet<Integer>> tableIndex;
+    private HashMap<String, HashSet<Integer>> locationIndex;
+    private HashSet<String> stale;
+    private boolean following;
+    private boolean loaded;
+
+    /**
+     * Constructs an empty ItemRepository.
+     */
+    private ItemRepository(){
+        fileManager = new FileManager();
+        items = new HashMap<>();
+        orderIndex = new HashMap<>();
+        tableIndex = new HashMap<>();
+        locationIndex = new HashMap<>();
+        stale = new HashSet<>();
+    }
+
+    /**
+     * Returns this singleton item repository instance
+     * @return the item repository
+     */
+    public static ItemRepository getItemRepository(){
+        return itemRepository;
+    }
+
+    /**
+     * Returns the active Item with the given item number, or null if the Item is not in the Items folder. Only the
+     * file of this Item is checked, so the cost does not depend on the number of active Items.
+     * @param itemNumber the item number
+     * @return a copy of the Item or null
+     */
+    public synchronized Item getItem(int itemNumber){
+        Entry entry = refreshEntry(Integer.toString(itemNumber));
+        return entry == null ? null : entry.toItem();
+    }
+
+    /**
+     * Returns all the active Items of an order.
+     * @param orderNumber the order number
+     * @return the Item list
+     */
+    public synchronized ArrayList<Item> getByOrderNumber(int orderNumber){
+        refresh();
+        return toItems(orderIndex.get(orderNumber));
+    }
+
+    /**
+     * Returns all the active Items of a table.
+     * @param tableNumber the table number
+     * @return the Item list
+     */
+    public synchronized ArrayList<Item> getByTableNumber(int tableNumber){
+        refresh();
+        return toItems(tableIndex.get(tableNumber));
+    }
+
+    /**
+     * Returns all the active Items at a location. Pass empty string to get all active Items.
+     * @param location the location
+     * @return the Item list
+     */
+    public synchronized ArrayList<Item> getByLocation(String location){
+        refresh();
+        if(location.equals("")){
+            return toItems(items.keySet());
+        }
+        return toItems(locationIndex.get(location));
+    }
+
+    /**
+     * Marks the Item file as changed, so it is checked again the next time the secondary indexes are used.
+     * @param fileName the file name of the Item
+     */
+    public synchronized void invalidate(String fileName){
+        stale.add(fileName);
+    }
+
+    /**
+     * Starts or stops following the changes. This program must be notified of the changes of the other programs
+     * while it follows them. The whole folder is checked again the next time the secondary indexes are used, since
+     * the changes made before were not followed.
+     * @param following true to follow the changes
+     */
+    public synchronized void setFollowing(boolean following){
+        this.following = following;
+        loaded = false;
+    }
+
+    /**
+     * Brings the secondary indexes up to date. Only the invalidated files are checked if the changes are followed and
+     * the whole folder has been checked once, otherwise the whole folder is checked.
+     */
+    private void refresh(){
+        if(!following || !loaded){
+            stale.clear();
+            refreshAll();
+            loaded = following;
+            return;
+        }
+        for(String fileName : stale){
+            refreshEntry(fileName);
+        }
+        stale.clear();
+    }
+
+    /**
+     * Synchronizes the whole repository with the Items folder. New and modified files are read, the entries of
+     * deleted files are dropped. Unchanged files are only checked by their stamp.
+     */
+    private void refreshAll(){
+        HashSet<Integer> seen = new HashSet<>();
+        File[] files = fileManager.getFileList(Config.getItemsPath());
+        if(files != null) {
+            for (File file : files) {
+                Entry entry = refreshEntry(file.getName());
+                if (entry != null) {
+                    seen.add(entry.itemNumber);
+                }
+            }
+        }
+        for(Entry entry : new ArrayList<>(items.values())){
+            if(!seen.contains(entry.itemNumber)){
+                removeEntry(entry);
+            }
+        }
+    }
+
+    /**
+     * Synchronizes one entry with its file in the Items folder and returns it. Returns null if the file doesn't
+     * exist or can't be read.
+     * @param fileName the file name of the Item
+     * @return the up to date entry or null
+     */
+    private Entry refreshEntry(String fileName){
+        int itemNumber;
+        try {
+            itemNumber = Integer.parseInt(fileName);
+        } catch (NumberFormatException e){
+            return null;
+        }
+        Entry entry = items.get(itemNumber);
+        String path = Config.getItemsPath() + fileName;
+        String stamp = fileManager.getStamp(path);
+        if(stamp == null){
+            if(entry != null){
+                removeEntry(entry);
+            }
+            return null;
+        }
+        if(entry != null && entry.stamp.equals(stamp)){
+            return entry;
+        }
+        byte[] bytes = fileManager.readBytes(path);
+        Item item = bytes == null ? null : (Item) fileManager.readFromBytes(bytes);
+        if(entry != null){
+            removeEntry(entry);
+        }
+        if(item == null){
+            return null;
+        }
+        Entry newEntry = new Entry(item.getItemInfo(), bytes, stamp);
+        addEntry(newEntry);
+        return newEntry;
+    }
+
+    /**
+     * Adds the entry into the primary index and all the secondary indexes.
+     * @param entry the entry
+     */
+    private void addEntry(Entry entry){
+        items.put(entry.itemNumber, entry);
+        orderIndex.computeIfAbsent(entry.orderNumber, k -> new HashSet<>()).add(entry.itemNumber);
+        tableIndex.computeIfAbsent(entry.tableNumber, k -> new HashSet<>()).add(entry.itemNumber);
+        if(entry.location != null) {
+            locationIndex.computeIfAbsent(entry.location, k -> new HashSet<>()).add(entry.itemNumber);
+        }
+    }
+
+    /**
+     * Removes the entry from the primary index and all the secondary indexes.
+     * @param entry the entry
+     */
+    private void removeEntry(Entry entry){
+        items.remove(entry.itemNumber);
+        removeFromIndex(orderIndex, entry.orderNumber, entry.itemNumber);
+        removeFromIndex(tableIndex, entry.tableNumber, entry.itemNumber);
+        if(entry.location != null) {
+            removeFromIndex(locationIndex, entry.location, entry.itemNumber);
+        }
+    }
+
+    /**
+     * Helper to remove an item number from a secondary index.
+     * @param index the secondary index
+     * @param key the key in the index
+     * @param itemNumber the item number
+     */
+    private <K> void removeFromIndex(HashMap<K, HashSet<Integer>> index, K key, int itemNumber){
+        HashSet<Integer> numbers = index.get(key);
+        if(numbers != null){
+            numbers.remove(itemNumber);
+            if(numbers.isEmpty()){
+                index.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Returns copies of the Items for the given item numbers, sorted by item number.
+     * @param itemNumbers the item numbers
+     * @return the Item list
+     */
+    private ArrayList<Item> toItems(Collection<Integer> itemNumbers){
+        ArrayList<Item> result = new ArrayList<>();
+        if(itemNumbers == null){
+            return result;
+        }
+        ArrayList<Integer> numbers = new ArrayList<>(itemNumbers);
+        Collections.sort(numbers);
+        for(int number : numbers){
+            Item item = items.get(number).toItem();
+            if(item != null){
+                result.add(item);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * An entry of the repository. It keeps the indexed fields of the Item and its serialized bytes.
+     */
+    private class Entry {
+        private int itemNumber;
+        private int orderNumber;
+        private int tableNumber;
+        private String location;
+        private byte[] bytes;
+        private String stamp;
+
+        /**
+         * Constructs an entry.
+         * @param info the ItemInfo of the Item
+         * @param bytes the serialized bytes
+         * @param stamp the stamp of the file
+         */
+        Entry(ItemInfo info, byte[] bytes, String stamp){
+            itemNumber = info.getItemNumber();
+            orderNumber = info.getOrderNumber();
+            tableNumber = info.getTableNumber();
+            location = info.getLocation();
+            this.bytes = bytes;
+            this.stamp = stamp;
+        }
+
+        /**
+         * Returns a new copy of the Item.
+         * @return the Item
+         */
+        Item toItem(){
+            return (Item) fileManager.readFromBytes(bytes);
+        }
+    }
+}
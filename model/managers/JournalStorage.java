@@ -0,0 +1,469 @@
+package model.managers;
+
+import model.interfaces.StorageBackend;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.zip.CRC32;
+
+/**
+ * The JournalStorage class.
+ *
+ * The JournalStorage is a StorageBackend that appends every write and delete of the order, item, menu item and
+ * supply folders to one append-only journal file instead of creating one file per object. Every record has a
+ * length and a CRC32 checksum and the journal is forced to the disk after each append, so a crash can only lose the
+ * record that was being written, which is dropped during the recovery.
+ *
+ * The whole content of the managed folders is kept in memory. After a number of records, the journal is compacted:
+ * the content is written into a snapshot file (a temporary file which is renamed when complete) and the journal is
+ * restarted with a new generation number. On start up, the snapshot is loaded and the journal records of the same
+ * generation are replayed. If no journal exists yet, the existing files of the managed folders are imported.
+ *
+ * Several programs can share the same journal. Every operation takes a file lock on the journal (shared for reads,
+ * exclusive for writes) and first applies the records that other programs have appended since the last operation.
+ * Paths outside of the managed folders are passed to the FileStorage.
+ * @see FileStorage
+ */
+public class JournalStorage implements StorageBackend {
+    private static final int MAGIC = 0x524A4E4C;
+    private static final int HEADER_SIZE = 12;
+    private static final int SNAPSHOT_INTERVAL = 1000;
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+
+    private String[] folders;
+    private File snapshotFile;
+    private FileChannel channel;
+    private StorageBackend fileStorage;
+
+    private HashMap<String, HashMap<String, byte[]>> entries;
+    private HashMap<String, String> stamps;
+    private long generation;
+    private long offset;
+    private int recordsSinceSnapshot;
+
+    /**
+     * Constructs a JournalStorage and recovers its content from the snapshot and the journal in the given directory.
+     * @param folders the folder directories which are stored in the journal
+     * @param directory the directory of the journal and the snapshot files
+     * @throws IOException if the journal cannot be opened
+     */
+    public JournalStorage(String[] folders, String directory) throws IOException {
+        this.folders = folders;
+        fileStorage = new FileStorage();
+        entries = new HashMap<>();
+        stamps = new HashMap<>();
+        for(String folder : folders){
+            entries.put(folder, new HashMap<>());
+        }
+        snapshotFile = new File(directory + "journal.snapshot");
+        channel = FileChannel.open(new File(directory + "journal").toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        recover();
+    }
+
+    /**
+     * Reads the bytes stored at the path.
+     * @param path the path
+     * @return the bytes or null if nothing is stored at the path
+     */
+    @Override
+    public synchronized byte[] read(String path) {
+        String folder = getFolder(path);
+        if(folder == null){
+            return fileStorage.read(path);
+        }
+        readLatest();
+        return entries.get(folder).get(path.substring(folder.length()));
+    }
+
+    /**
+     * Appends a write record of the path into the journal.
+     * @param path the path
+     * @param data the bytes
+     * @return true iff the record is appended
+     */
+    @Override
+    public synchronized boolean write(String path, byte[] data) {
+        if(getFolder(path) == null){
+            return fileStorage.write(path, data);
+        }
+        return append(PUT, path, data);
+    }
+
+    /**
+     * Appends a delete record of the path into the journal if the path exists.
+     * @param path the path
+     * @return true iff something was deleted
+     */
+    @Override
+    public synchronized boolean delete(String path) {
+        if(getFolder(path) == null){
+            return fileStorage.delete(path);
+        }
+        return append(DELETE, path, null);
+    }
+
+    /**
+     * Checks if the path exists or not.
+     * @param path the path
+     * @return true if the path exists
+     */
+    @Override
+    public synchronized boolean exists(String path) {
+        String folder = getFolder(path);
+        if(folder == null){
+            return fileStorage.exists(path);
+        }
+        readLatest();
+        return entries.get(folder).containsKey(path.substring(folder.length()));
+    }
+
+    /**
+     * Returns the names of everything stored in a folder.
+     * @param folderName the folder directory
+     * @return the names
+     */
+    @Override
+    public synchronized String[] list(String folderName) {
+        if(!entries.containsKey(folderName)){
+            return fileStorage.list(folderName);
+        }
+        readLatest();
+        return entries.get(folderName).keySet().toArray(new String[0]);
+    }
+
+    /**
+     * Returns the position of the last record of the path as the stamp.
+     * @param path the path
+     * @return the stamp or null if the path doesn't exist
+     */
+    @Override
+    public synchronized String getStamp(String path) {
+        if(getFolder(path) == null){
+            return fileStorage.getStamp(path);
+        }
+        readLatest();
+        return stamps.get(path);
+    }
+
+    /**
+     * Returns the managed folder that the path is in, or null if the path is not in a managed folder.
+     * @param path the path
+     * @return the folder or null
+     */
+    private String getFolder(String path){
+        for(String folder : folders){
+            if(path.length() > folder.length() && path.startsWith(folder)
+                    && path.indexOf('/', folder.length()) < 0){
+                return folder;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Recovers the content when the program starts. Imports the existing files if there is no journal yet,
+     * finishes an interrupted compaction and drops a record that was only partially written.
+     * @throws IOException if the journal cannot be read
+     */
+    @SuppressWarnings("try")
+    private void recover() throws IOException {
+        try (FileLock lock = FileManager.lock(channel, 0, Long.MAX_VALUE, false)){
+            if(channel.size() < HEADER_SIZE && !snapshotFile.exists()){
+                importFiles();
+                generation = 1;
+                writeSnapshot();
+                resetJournal();
+                return;
+            }
+            load();
+            if(readJournalGeneration() != generation){
+                resetJournal();
+            }
+            else if(channel.size() > offset){
+                channel.truncate(offset);
+            }
+        }
+    }
+
+    /**
+     * Imports the existing files of the managed folders.
+     */
+    private void importFiles(){
+        for(String folder : folders){
+            for(String name : fileStorage.list(folder)){
+                byte[] data = fileStorage.read(folder + name);
+                if(data != null){
+                    entries.get(folder).put(name, data);
+                    stamps.put(folder + name, "0:0");
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies the records that other programs have appended since the last operation.
+     */
+    @SuppressWarnings("try")
+    private void readLatest(){
+        try (FileLock lock = FileManager.lock(channel, 0, Long.MAX_VALUE, true)){
+            catchUp();
+        }
+        catch (IOException e){
+//            System.err.println("Cannot read the journal");
+        }
+    }
+
+    /**
+     * Applies the new records of the journal, or reloads everything if the journal has been compacted by another
+     * program. Must be called while holding a lock on the journal.
+     * @throws IOException if the journal cannot be read
+     */
+    private void catchUp() throws IOException {
+        if(readJournalGeneration() != generation || channel.size() < offset){
+            load();
+        }
+        else {
+            replay();
+        }
+    }
+
+    /**
+     * Loads the snapshot and replays the journal if it belongs to the snapshot.
+     * @throws IOException if the files cannot be read
+     */
+    private void load() throws IOException {
+        for(HashMap<String, byte[]> folderEntries : entries.values()){
+            folderEntries.clear();
+        }
+        stamps.clear();
+        generation = snapshotFile.exists() ? readSnapshot() : 0;
+        offset = HEADER_SIZE;
+        recordsSinceSnapshot = 0;
+        if(readJournalGeneration() == generation){
+            replay();
+        }
+    }
+
+    /**
+     * Applies all complete and valid records from the current offset. Stops at the first record that is not
+     * complete or does not match its checksum.
+     * @throws IOException if the journal cannot be read
+     */
+    private void replay() throws IOException {
+        long size = channel.size();
+        if(size <= offset){
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int)(size - offset));
+        while(buffer.hasRemaining()){
+            if(channel.read(buffer, offset + buffer.position()) < 0){
+                break;
+            }
+        }
+        buffer.flip();
+        int applied = 0;
+        while(buffer.remaining() >= 12){
+            int start = buffer.position();
+            int length = buffer.getInt();
+            long checksum = buffer.getLong();
+            if(length < 0 || buffer.remaining() < length){
+                break;
+            }
+            byte[] record = new byte[length];
+            buffer.get(record);
+            CRC32 crc = new CRC32();
+            crc.update(record);
+            if(crc.getValue() != checksum){
+                break;
+            }
+            apply(record, generation + ":" + (offset + start));
+            recordsSinceSnapshot++;
+            applied = buffer.position();
+        }
+        offset += applied;
+    }
+
+    /**
+     * Applies one record to the content.
+     * @param record the record bytes
+     * @param stamp the stamp of the record
+     * @throws IOException if the record is corrupted
+     */
+    private void apply(byte[] record, String stamp) throws IOException {
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(record));
+        byte operation = input.readByte();
+        String path = input.readUTF();
+        String folder = getFolder(path);
+        if(folder == null){
+            return;
+        }
+        String name = path.substring(folder.length());
+        if(operation == PUT){
+            byte[] data = new byte[input.readInt()];
+            input.readFully(data);
+            entries.get(folder).put(name, data);
+            stamps.put(path, stamp);
+        }
+        else if(operation == DELETE){
+            entries.get(folder).remove(name);
+            stamps.remove(path);
+        }
+    }
+
+    /**
+     * Appends a record into the journal, forces it to the disk and applies it to the content. Compacts the journal
+     * when there are enough records since the last snapshot.
+     * @param operation PUT or DELETE
+     * @param path the path
+     * @param data the bytes for PUT
+     * @return false if the record is a DELETE of a path that doesn't exist or the record cannot be written
+     */
+    @SuppressWarnings("try")
+    private boolean append(byte operation, String path, byte[] data){
+        try (FileLock lock = FileManager.lock(channel, 0, Long.MAX_VALUE, false)){
+            catchUp();
+            if(operation == DELETE && !stamps.containsKey(path)){
+                return false;
+            }
+            // drop a partially written record left by a crashed program
+            if(channel.size() > offset){
+                channel.truncate(offset);
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream output = new DataOutputStream(bytes);
+            output.writeByte(operation);
+            output.writeUTF(path);
+            if(operation == PUT){
+                output.writeInt(data.length);
+                output.write(data);
+            }
+            output.flush();
+            byte[] record = bytes.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(record);
+            ByteBuffer buffer = ByteBuffer.allocate(12 + record.length);
+            buffer.putInt(record.length);
+            buffer.putLong(crc.getValue());
+            buffer.put(record);
+            buffer.flip();
+            long position = offset;
+            while(buffer.hasRemaining()){
+                channel.write(buffer, position + buffer.position());
+            }
+            channel.force(false);
+            apply(record, generation + ":" + position);
+            offset = position + 12 + record.length;
+            recordsSinceSnapshot++;
+            if(recordsSinceSnapshot >= SNAPSHOT_INTERVAL){
+                generation++;
+                writeSnapshot();
+                resetJournal();
+            }
+            return true;
+        }
+        catch (IOException e){
+//            System.err.println("Cannot append to the journal: " + path);
+            return false;
+        }
+    }
+
+    /**
+     * Writes the whole content into the snapshot file using the current generation. The snapshot is written into
+     * a temporary file first and renamed when complete.
+     * @throws IOException if the snapshot cannot be written
+     */
+    private void writeSnapshot() throws IOException {
+        File temp = new File(snapshotFile.getPath() + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(temp);
+             DataOutputStream output = new DataOutputStream(new BufferedOutputStream(file))){
+            output.writeInt(MAGIC);
+            output.writeLong(generation);
+            int count = 0;
+            for(HashMap<String, byte[]> folderEntries : entries.values()){
+                count += folderEntries.size();
+            }
+            output.writeInt(count);
+            for(String folder : entries.keySet()){
+                for(String name : entries.get(folder).keySet()){
+                    byte[] data = entries.get(folder).get(name);
+                    output.writeUTF(folder + name);
+                    output.writeInt(data.length);
+                    output.write(data);
+                }
+            }
+            output.flush();
+            file.getFD().sync();
+        }
+        Files.move(temp.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads the snapshot file into the content.
+     * @return the generation of the snapshot
+     * @throws IOException if the snapshot cannot be read
+     */
+    private long readSnapshot() throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshotFile)))){
+            if(input.readInt() != MAGIC){
+                throw new IOException("Not a journal snapshot: " + snapshotFile.getPath());
+            }
+            long snapshotGeneration = input.readLong();
+            int count = input.readInt();
+            for(int i = 0 ; i < count ; i++){
+                String path = input.readUTF();
+                byte[] data = new byte[input.readInt()];
+                input.readFully(data);
+                String folder = getFolder(path);
+                if(folder != null){
+                    entries.get(folder).put(path.substring(folder.length()), data);
+                    stamps.put(path, snapshotGeneration + ":0");
+                }
+            }
+            return snapshotGeneration;
+        }
+    }
+
+    /**
+     * Returns the generation written in the journal header, or -1 if the header is missing.
+     * @return the generation of the journal
+     * @throws IOException if the journal cannot be read
+     */
+    private long readJournalGeneration() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while(header.hasRemaining()){
+            if(channel.read(header, header.position()) < 0){
+                return -1;
+            }
+        }
+        header.flip();
+        return header.getInt() == MAGIC ? header.getLong() : -1;
+    }
+
+    /**
+     * Restarts the journal with the current generation. The new header is written before the old records are cut
+     * off, so the programs that are waiting for the lock see the new generation and reload the snapshot.
+     * @throws IOException if the journal cannot be written
+     */
+    private void resetJournal() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC);
+        header.putLong(generation);
+        header.flip();
+        while(header.hasRemaining()){
+            channel.write(header, header.position());
+        }
+        channel.truncate(HEADER_SIZE);
+        channel.force(true);
+        offset = HEADER_SIZE;
+        recordsSinceSnapshot = 0;
+    }
+}
@@ -0,0 +1,120 @@
+package model.managers;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The LatencyHistogram class.
+ *
+ * Counts times in microseconds in buckets, so the percentiles of many times can be found without keeping the times.
+ * The times below 64 have a bucket each, the larger ones have 32 buckets between every power of two, so a percentile
+ * is within about 3% of the real time. The buckets are atomic counters, so times can be added by many threads at once
+ * without a lock.
+ */
+public class LatencyHistogram {
+    private static final int LINEAR = 64;
+    private static final int SUB_BUCKETS = 32;
+    private static final int BUCKETS = LINEAR + (63 - 6) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * Adds a time.
+     * @param micros the time in microseconds
+     */
+    public void record(long micros){
+        counts.incrementAndGet(getBucket(Math.max(0, micros)));
+    }
+
+    /**
+     * Returns the number of times.
+     * @return the number of times
+     */
+    public long getCount(){
+        long count = 0;
+        for(int i = 0 ; i < BUCKETS ; i++){
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the time below which the percent of the times are, or 0 if there are no times. The percentile 100 is
+     * the largest time.
+     * @param percent the percent
+     * @return the time in microseconds
+     */
+    public long getPercentile(double percent){
+        long rank = (long) Math.ceil(getCount() * percent / 100);
+        long seen = 0;
+        for(int i = 0 ; i < BUCKETS ; i++){
+            seen += counts.get(i);
+            if(seen >= Math.max(1, rank)){
+                return getValue(i);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Writes the buckets that are not empty as " bucket:count".
+     * @return the text
+     */
+    public String toText(){
+        StringBuilder text = new StringBuilder();
+        for(int i = 0 ; i < BUCKETS ; i++){
+            long count = counts.get(i);
+            if(count > 0){
+                text.append(' ').append(i).append(':').append(count);
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Adds the buckets of a text written by toText, for example by another program.
+     * @param text the text
+     * @throws IllegalArgumentException if the text is not written by toText
+     */
+    public void add(String text){
+        for(String field : text.trim().split(" +")){
+            if(field.isEmpty()){
+                continue;
+            }
+            String[] bucket = field.split(":");
+            try {
+                counts.addAndGet(Integer.parseInt(bucket[0]), Long.parseLong(bucket[1]));
+            }
+            catch (NumberFormatException | IndexOutOfBoundsException e){
+                throw new IllegalArgumentException("Not a bucket of a histogram: " + field, e);
+            }
+        }
+    }
+
+    /**
+     * Returns the bucket of a time.
+     * @param micros the time
+     * @return the bucket
+     */
+    private static int getBucket(long micros){
+        if(micros < LINEAR){
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int sub = (int) ((micros >>> (exponent - 5)) & (SUB_BUCKETS - 1));
+        return LINEAR + (exponent - 6) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Returns the largest time of a bucket.
+     * @param bucket the bucket
+     * @return the time
+     */
+    private static long getValue(int bucket){
+        if(bucket < LINEAR){
+            return bucket;
+        }
+        int exponent = (bucket - LINEAR) / SUB_BUCKETS + 6;
+        int sub = (bucket - LINEAR) % SUB_BUCKETS;
+        return ((SUB_BUCKETS + sub + 1L) << (exponent - 5)) - 1;
+    }
+}
@@ -0,0 +1,302 @@
+package model.managers;
+
+import model.configs.Config;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Timer;
+import java.util.TimerTask;
+
+/**
+ * The LockManager class.
+ *
+ * The LockManager replaces the empty lock files of the lock file directory with leases. A lease has the name of
+ * the locked object, the id of the program that owns it and the time when it expires. All the leases are kept in
+ * one lease file in the lock file directory, and every change of the file is made while holding a FileChannel lock
+ * on it, so two programs cannot take the same lease.
+ *
+ * A daemon timer renews the leases of this program before they expire. If a program is closed without releasing
+ * its leases (or crashes), the leases expire and the objects can be locked by the other programs again.
+ *
+ * The lease table is cached in memory and is only read from the file again when the file has changed and the cache
+ * is older than CACHE_MILLIS, so the displays can check the lock status as often as they want.
+ */
+public class LockManager {
+    private static final long LEASE_MILLIS = 30000;
+    private static final long HEARTBEAT_MILLIS = 10000;
+    private static final long CACHE_MILLIS = 500;
+    private static final String LEASE_FILE = "leases";
+
+    private static LockManager lockManager = new LockManager();
+
+    private long owner;
+    private HashMap<String, Lease> leases;
+    private String stamp;
+    private long lastRead;
+    private Timer heartbeat;
+
+    /**
+     * Constructs a LockManager with an owner id made from the start time of the program.
+     */
+    private LockManager(){
+        owner = System.currentTimeMillis();
+        leases = new HashMap<>();
+        stamp = "";
+    }
+
+    /**
+     * Returns this singleton lock manager instance
+     * @return the lock manager
+     */
+    public static LockManager getLockManager(){
+        return lockManager;
+    }
+
+    /**
+     * Sets the id of this program that is written as the owner of its leases.
+     * @param owner the owner id
+     */
+    public synchronized void setOwner(long owner){
+        this.owner = owner;
+    }
+
+    /**
+     * Tries to take the lease of an object. Succeeds if nobody holds a valid lease on the object, or if this program
+     * already holds it (the lease is renewed then).
+     * @param name the name of the locked object
+     * @return true if this program holds the lease
+     */
+    public synchronized boolean tryLock(String name){
+        boolean locked = update(table -> {
+            Lease lease = table.get(name);
+            if(lease != null && lease.owner != owner && !lease.isExpired()){
+                return false;
+            }
+            table.put(name, new Lease(owner, System.currentTimeMillis() + LEASE_MILLIS));
+            return true;
+        });
+        if(locked){
+            startHeartbeat();
+        }
+        return locked;
+    }
+
+    /**
+     * Extends the lease of an object if this program holds it.
+     * @param name the name of the locked object
+     * @return false if this program doesn't hold the lease anymore
+     */
+    public synchronized boolean renew(String name){
+        return update(table -> {
+            Lease lease = table.get(name);
+            if(lease == null || lease.owner != owner){
+                return false;
+            }
+            table.put(name, new Lease(owner, System.currentTimeMillis() + LEASE_MILLIS));
+            return true;
+        });
+    }
+
+    /**
+     * Releases the lease of an object. Does nothing if the lease is held by another program.
+     * @param name the name of the locked object
+     */
+    public synchronized void release(String name){
+        update(table -> {
+            Lease lease = table.get(name);
+            if(lease != null && (lease.owner == owner || lease.isExpired())){
+                table.remove(name);
+                return true;
+            }
+            return false;
+        });
+    }
+
+    /**
+     * Releases all the leases of this program and stops renewing them. Must be called when the program is closed.
+     */
+    public synchronized void releaseAll(){
+        if(heartbeat != null){
+            heartbeat.cancel();
+            heartbeat = null;
+        }
+        update(table -> table.values().removeIf(lease -> lease.owner == owner));
+    }
+
+    /**
+     * Checks if an object is locked by any program (including this one). Uses the cached lease table.
+     * @param name the name of the locked object
+     * @return true if there is a valid lease on the object
+     */
+    public synchronized boolean isLocked(String name){
+        if(System.currentTimeMillis() - lastRead > CACHE_MILLIS){
+            String newStamp = new FileManager().getStamp(getLeaseFile());
+            if(newStamp == null || !newStamp.equals(stamp)){
+                update(table -> false);
+            }
+            lastRead = System.currentTimeMillis();
+        }
+        Lease lease = leases.get(name);
+        return lease != null && !lease.isExpired();
+    }
+
+    /**
+     * Starts the daemon timer that renews the leases of this program, if it is not running yet.
+     */
+    private void startHeartbeat(){
+        if(heartbeat != null){
+            return;
+        }
+        heartbeat = new Timer("lease heartbeat", true);
+        heartbeat.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                renewAll();
+            }
+        }, HEARTBEAT_MILLIS, HEARTBEAT_MILLIS);
+    }
+
+    /**
+     * Renews all the leases of this program.
+     */
+    private synchronized void renewAll(){
+        update(table -> {
+            boolean changed = false;
+            for(String name : new ArrayList<>(table.keySet())){
+                if(table.get(name).owner == owner){
+                    table.put(name, new Lease(owner, System.currentTimeMillis() + LEASE_MILLIS));
+                    changed = true;
+                }
+            }
+            return changed;
+        });
+    }
+
+    /**
+     * Reads the lease table while holding the lock on the lease file, applies the change and writes the table back
+     * if the change returns true. The cache is replaced by the table that is read. Expired leases are dropped when
+     * the table is written.
+     * @param change the change of the lease table
+     * @return the result of the change, or false if the lease file cannot be used
+     */
+    @SuppressWarnings("try")
+    private boolean update(Change change){
+        String path = getLeaseFile();
+        try (FileChannel channel = FileChannel.open(new File(path).toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+             FileLock lock = FileManager.lock(channel, 0, Long.MAX_VALUE, false)){
+            HashMap<String, Lease> table = read(channel);
+            boolean result = change.apply(table);
+            if(result){
+                table.values().removeIf(Lease::isExpired);
+                write(channel, table);
+            }
+            leases = table;
+            stamp = new FileManager().getStamp(path);
+            lastRead = System.currentTimeMillis();
+            return result;
+        }
+        catch (IOException e){
+//            System.err.println("Cannot use the lease file: " + path);
+            return false;
+        }
+    }
+
+    /**
+     * Reads the lease table from the lease file. Every line is the name, the owner and the expiry time separated by
+     * commas. The name is split from the right since it may contain commas.
+     * @param channel the channel of the lease file
+     * @return the lease table
+     * @throws IOException if the file cannot be read
+     */
+    private HashMap<String, Lease> read(FileChannel channel) throws IOException {
+        ByteBuffer content = ByteBuffer.allocate((int) channel.size());
+        while(content.hasRemaining() && channel.read(content, content.position()) > 0){
+            // keep reading until the whole file is in the buffer
+        }
+        HashMap<String, Lease> table = new HashMap<>();
+        for(String line : new String(content.array(), StandardCharsets.UTF_8).split("\n")){
+            int expiry = line.lastIndexOf(',');
+            int owner = expiry < 0 ? -1 : line.lastIndexOf(',', expiry - 1);
+            if(owner < 0){
+                continue;
+            }
+            try {
+                table.put(line.substring(0, owner), new Lease(Long.parseLong(line.substring(owner + 1, expiry)),
+                        Long.parseLong(line.substring(expiry + 1))));
+            } catch (NumberFormatException e){
+//                System.err.println("Skip the broken lease: " + line);
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Writes the lease table into the lease file.
+     * @param channel the channel of the lease file
+     * @param table the lease table
+     * @throws IOException if the file cannot be written
+     */
+    private void write(FileChannel channel, HashMap<String, Lease> table) throws IOException {
+        StringBuilder content = new StringBuilder();
+        for(String name : table.keySet()){
+            Lease lease = table.get(name);
+            content.append(name).append(',').append(lease.owner).append(',').append(lease.expiry).append('\n');
+        }
+        channel.truncate(0);
+        channel.write(ByteBuffer.wrap(content.toString().getBytes(StandardCharsets.UTF_8)), 0);
+    }
+
+    /**
+     * Returns the path of the lease file.
+     * @return the lease file path
+     */
+    private String getLeaseFile(){
+        return Config.getLockFilesPath() + LEASE_FILE;
+    }
+
+    /**
+     * A change of the lease table made while holding the lock on the lease file.
+     */
+    private interface Change {
+        /**
+         * Changes the lease table.
+         * @param table the lease table
+         * @return true if the table has to be written back
+         */
+        boolean apply(HashMap<String, Lease> table);
+    }
+
+    /**
+     * A lease on an object.
+     */
+    private static class Lease {
+        private long owner;
+        private long expiry;
+
+        /**
+         * Constructs a Lease.
+         * @param owner the owner id
+         * @param expiry the time when the lease expires in milliseconds
+         */
+        Lease(long owner, long expiry){
+            this.owner = owner;
+            this.expiry = expiry;
+        }
+
+        /**
+         * Checks if the lease has expired.
+         * @return true if the lease has expired
+         */
+        boolean isExpired(){
+            return System.currentTimeMillis() > expiry;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package model.managers;
+
+import model.configs.Config;
+import model.data.Meal;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+
+/**
+ * The MenuCache class.
+ *
+ * The MenuCache keeps the Meal menu items of the Food folder in memory, keyed by their names, so a new order does not
+ * have to de-serialize the whole menu for every Item. The folder is read once when the cache is first used. After
+ * that, a menu item is only read again when it is invalidated: when this program saves or deletes it through the
+ * MenuItemManager, or when another program notifies that it has changed.
+ *
+ * The cached Meals are prototypes that are shared by all callers and must not be modified. The callers that change
+ * a menu item get their own copy from the MenuItemManager; an order Item made from a prototype copies its
+ * ingredients anyway.
+ * @see MenuItemManager
+ */
+public class MenuCache {
+    private static MenuCache menuCache = new MenuCache();
+
+    private FileManager fileManager;
+    private LinkedHashMap<String, Meal> meals;
+    private HashSet<String> stale;
+    private boolean loaded;
+
+    /**
+     * Constructs an empty MenuCache. The Food folder is read when the cache is first used.
+     */
+    private MenuCache(){
+        fileManager = new FileManager();
+        meals = new LinkedHashMap<>();
+        stale = new HashSet<>();
+    }
+
+    /**
+     * Returns this singleton menu cache instance
+     * @return the menu cache
+     */
+    public static MenuCache getMenuCache(){
+        return menuCache;
+    }
+
+    /**
+     * Returns the prototype of the Meal menu item with the given name, or null if there is no such menu item.
+     * @param name the menu item name
+     * @return the shared prototype or null
+     */
+    public synchronized Meal getMeal(String name){
+        refresh();
+        Meal meal = meals.get(name);
+        if(meal == null && !meals.containsKey(name)){
+            // created by another program whose change has not arrived yet
+            meal = read(name);
+        }
+        return meal;
+    }
+
+    /**
+     * Returns the prototypes of all the Meal menu items.
+     * @return the shared prototypes
+     */
+    public synchronized ArrayList<Meal> getMeals(){
+        refresh();
+        ArrayList<Meal> list = new ArrayList<>();
+        for(Meal meal : meals.values()){
+            if(meal != null){
+                list.add(meal);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Marks the menu item as changed, so its file is read again the next time the cache is used.
+     * @param name the menu item name
+     */
+    public synchronized void invalidate(String name){
+        stale.add(name);
+    }
+
+    /**
+     * Reads the Food folder if it has not been read yet, and reads the invalidated menu items again.
+     */
+    private void refresh(){
+        if(!loaded){
+            for(File file : fileManager.getFileList(Config.getFoodPath())){
+                read(file.getName());
+            }
+            loaded = true;
+            stale.clear();
+        }
+        for(String name : stale){
+            read(name);
+        }
+        stale.clear();
+    }
+
+    /**
+     * Reads a menu item from the Food folder into the cache. A missing menu item is cached as null so it is not
+     * looked up again until it is invalidated.
+     * @param name the menu item name
+     * @return the Meal or null
+     */
+    private Meal read(String name){
+        Meal meal = (Meal) fileManager.readFromFile(Config.getFoodPath() + name);
+        meals.put(meal == null ? name : meal.getName(), meal);
+        return meal;
+    }
+}
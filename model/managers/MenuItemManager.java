@@ -5,29 +5,33 @@ import model.configs.Config;
 import model.data.Item;
 import model.data.Meal;
 
-import java.io.File;
 import java.util.ArrayList;
-import java.util.HashMap;
 
 /**
  * The MenuItemManager class.
  *
  * The MenuItemManager class manages the menu items in this program. This class is responsible to save the Item
- * into the MenuItems folder. It also creates the lock file and check if an MenuItem is lock
+ * into the MenuItems folder. It also locks the menu Item with the LockManager and check if an MenuItem is lock
  * (i,e, the Item is being editing by the program). The directory of the
  * folder can be changed by editing the config file which is used by the Config class.
+ *
+ * The menu items are read through the MenuCache. Every save and delete invalidates the menu item in the cache.
  * @see Item
  * @see Config
+ * @see MenuCache
  */
 public class MenuItemManager {
-    private FileManager fileManager;
+    private final String MENU_ITEM_LOCK = "menu:";
 
+    private FileManager fileManager;
+    private MenuCache menuCache;
 
     /**
      * Constructs a MenuItemManager.
      */
     public MenuItemManager() {
         fileManager = new FileManager();
+        menuCache = MenuCache.getMenuCache();
     }
 
     /**
@@ -36,6 +40,7 @@ public class MenuItemManager {
      */
     public void deleteMealItem(Item item) {
         fileManager.deleteFile(item, Config.getFoodPath());
+        menuCache.invalidate(item.getFileName());
     }
 
     /**
@@ -44,55 +49,65 @@ public class MenuItemManager {
      */
     public void saveMealItemFile(Item item) {
         fileManager.saveToFile(item, Config.getFoodPath());
+        menuCache.invalidate(item.getFileName());
+    }
+
+    /**
+     * Marks the menu item as changed by another program, so it is read again from its file.
+     * @param name the menu item name
+     */
+    public void invalidateMealItem(String name){
+        menuCache.invalidate(name);
     }
 
     /**
-     * Creates a lock file for menu Item
+     * Takes the lease of the menu Item from the LockManager.
      * @param item the menu item
+     * @return true if this program holds the lease
      */
-    public void lockMenuItemFile(Item item){
-        String path = Config.getLockFilesPath() + item.getFileName();
-        fileManager.writeFile("", path);
+    public boolean lockMenuItemFile(Item item){
+        return LockManager.getLockManager().tryLock(MENU_ITEM_LOCK + item.getFileName());
     }
 
     /**
-     * Deletes the lock file for menu Item if exists
+     * Releases the lease of the menu Item.
      * @param item the menu item
      */
     public void unlockMenuItemFile(Item item){
-        fileManager.deleteFile(item, Config.getLockFilesPath());
+        LockManager.getLockManager().release(MENU_ITEM_LOCK + item.getFileName());
     }
 
     /**
-     * Loads all the Meal menu items and returns the Meal list.
+     * Returns copies of all the Meal menu items.
      * @return the Meal menu item list
      */
     public ArrayList<Meal> getMealItemList(){
         // the path directory will be changed when we have more subclass of menu items.
-        ArrayList<Meal> menuItems =new ArrayList<>();
-        for(File fileName :fileManager.getFileList(Config.getFoodPath())){
-            Meal item = (Meal) (fileManager.readFromFile(Config.getFoodPath() + fileName.getName()));
-            if(item != null){
-                menuItems.add(item);
-            }
-
+        ArrayList<Meal> menuItems = new ArrayList<>();
+        for(Meal item : menuCache.getMeals()){
+            menuItems.add(new Meal(item, -1, -1, -1));
         }
         return menuItems;
     }
 
     /**
-     * Returns the Meal menu item given the name or null if Meal not found
-     * @param name
-     * @return
+     * Returns a copy of the Meal menu item given the name or null if Meal not found. The copy can be changed and
+     * saved.
+     * @param name the menu item name
+     * @return the Meal or null
      */
     public Meal getMealItem(String name){
-        ArrayList<Meal> menuItems = getMealItemList();
-        Meal newItem = null;
-        for(Meal item: menuItems) {
-            if(item.getName().equals(name)) {
-                newItem = item;
-            }
-        }
-        return newItem;
+        Meal item = menuCache.getMeal(name);
+        return item == null ? null : new Meal(item, -1, -1, -1);
+    }
+
+    /**
+     * Returns the shared prototype of the Meal menu item given the name or null if Meal not found. The prototype
+     * must not be changed, it is only used as the base of a new order Item.
+     * @param name the menu item name
+     * @return the prototype or null
+     */
+    public Meal getMealPrototype(String name){
+        return menuCache.getMeal(name);
     }
 }
@@ -0,0 +1,292 @@
+package model.managers;
+
+import model.configs.Config;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * The Metrics class.
+ *
+ * The Metrics keeps how long the operations of the control classes and the calls of the managers take, in a
+ * LatencyHistogram for every name, and how often some events happen, in a counter for every name. The histograms and
+ * counters don't lock, so they can be used by every thread. An operation is timed by taking begin() before it and
+ * calling record() with the name after it, or by running it through time(). The names are written like
+ * "Class.method", without spaces. When the metrics are turned off in the config file, begin() returns 0 and record()
+ * returns at once, so the timing costs nearly nothing.
+ *
+ * A daemon timer exports the histograms and counters of this program every EXPORT_MILLIS to a file in the metrics
+ * directory of the extras directory, named after the process id. The report adds the exports of all the programs
+ * together, so the manager screen shows the times of every terminal of the restaurant. Exports that were not written
+ * for STALE_MILLIS are from programs that stopped and are deleted.
+ * @see LatencyHistogram
+ */
+public class Metrics {
+    private static final String METRICS_FOLDER = "metrics/";
+    private static final String HISTOGRAM = "histogram";
+    private static final String COUNTER = "counter";
+    private static final long EXPORT_MILLIS = 60 * 1000L;
+    private static final long STALE_MILLIS = 24 * 60 * 60 * 1000L;
+
+    private static Metrics metrics = new Metrics();
+
+    private volatile boolean enabled;
+    private ConcurrentHashMap<String, LatencyHistogram> histograms;
+    private ConcurrentHashMap<String, LongAdder> counters;
+    private Timer timer;
+
+    /**
+     * Constructs the Metrics.
+     */
+    private Metrics(){
+        enabled = true;
+        histograms = new ConcurrentHashMap<>();
+        counters = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Returns this singleton metrics instance
+     * @return the metrics
+     */
+    public static Metrics getMetrics(){
+        return metrics;
+    }
+
+    /**
+     * Turns the timing and counting on or off.
+     * @param enabled true to turn it on
+     */
+    public void setEnabled(boolean enabled){
+        this.enabled = enabled;
+    }
+
+    /**
+     * Returns whether the timing and counting is on.
+     * @return true if it is on
+     */
+    public boolean isEnabled(){
+        return enabled;
+    }
+
+    /**
+     * Returns the time an operation begins, to be given to record() when it ends.
+     * @return the time in nanoseconds, or 0 if the metrics are turned off
+     */
+    public long begin(){
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Adds the time of an operation to its histogram. Does nothing if the operation began when the metrics were
+     * turned off.
+     * @param name the name of the operation
+     * @param begin the time returned by begin()
+     */
+    public void record(String name, long begin){
+        if(begin == 0){
+            return;
+        }
+        getHistogram(name).record((System.nanoTime() - begin) / 1000);
+    }
+
+    /**
+     * Runs the operation and adds its time to its histogram, also when it throws.
+     * @param name the name of the operation
+     * @param operation the operation
+     * @param <T> the type of the result
+     * @return the result of the operation
+     */
+    public <T> T time(String name, Supplier<T> operation){
+        long begin = begin();
+        try {
+            return operation.get();
+        }
+        finally {
+            record(name, begin);
+        }
+    }
+
+    /**
+     * Runs the operation and adds its time to its histogram, also when it throws.
+     * @param name the name of the operation
+     * @param operation the operation
+     */
+    public void time(String name, Runnable operation){
+        long begin = begin();
+        try {
+            operation.run();
+        }
+        finally {
+            record(name, begin);
+        }
+    }
+
+    /**
+     * Adds one to a counter.
+     * @param name the name of the counter
+     */
+    public void count(String name){
+        if(!enabled){
+            return;
+        }
+        LongAdder counter = counters.get(name);
+        if(counter == null){
+            counter = counters.computeIfAbsent(name, key -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    /**
+     * Returns the histogram of an operation of this program, made the first time it is used.
+     * @param name the name of the operation
+     * @return the histogram
+     */
+    public LatencyHistogram getHistogram(String name){
+        LatencyHistogram histogram = histograms.get(name);
+        if(histogram == null){
+            histogram = histograms.computeIfAbsent(name, key -> new LatencyHistogram());
+        }
+        return histogram;
+    }
+
+    /**
+     * Starts the daemon timer that exports the metrics, if it is not running yet.
+     */
+    public synchronized void start(){
+        if(timer != null){
+            return;
+        }
+        timer = new Timer("metrics", true);
+        timer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                export();
+            }
+        }, EXPORT_MILLIS, EXPORT_MILLIS);
+    }
+
+    /**
+     * Stops the timer and exports the metrics one last time.
+     */
+    public synchronized void stop(){
+        if(timer != null){
+            timer.cancel();
+            timer = null;
+            export();
+        }
+    }
+
+    /**
+     * Writes the histograms and counters of this program to its file in the metrics directory, one line each, and
+     * deletes the stale files of the other programs.
+     * @return true if the file is written
+     */
+    public boolean export(){
+        StringBuilder content = new StringBuilder();
+        for(Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(histograms).entrySet()){
+            content.append(HISTOGRAM).append(' ').append(entry.getKey()).append(entry.getValue().toText())
+                    .append('\n');
+        }
+        for(Map.Entry<String, LongAdder> entry : new TreeMap<>(counters).entrySet()){
+            content.append(COUNTER).append(' ').append(entry.getKey()).append(' ').append(entry.getValue().sum())
+                    .append('\n');
+        }
+        File folder = getFolder();
+        if(!folder.exists() && !folder.mkdirs()){
+//            System.err.println("Cannot make the metrics directory");
+            return false;
+        }
+        File[] files = folder.listFiles();
+        long now = System.currentTimeMillis();
+        for(File file : files == null ? new File[0] : files){
+            if(now - file.lastModified() > STALE_MILLIS && !file.delete()){
+//                System.err.println("Cannot delete the stale metrics " + file.getName());
+            }
+        }
+        Path target = new File(folder, Long.toString(ProcessHandle.current().pid())).toPath();
+        Path temp = target.resolveSibling("." + target.getFileName() + ".tmp");
+        try {
+            Files.write(temp, content.toString().getBytes(StandardCharsets.UTF_8));
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        }
+        catch (IOException e){
+//            System.err.println("Cannot export the metrics");
+            return false;
+        }
+    }
+
+    /**
+     * Returns a line for every operation with its number of calls and the 50th, 90th and 99th percentile and the
+     * largest of its times in milliseconds, and a line for every counter, sorted by name. The metrics of this program
+     * are exported first, then the exports of all the programs are added together.
+     * @return the lines of the report
+     */
+    public ArrayList<String> getReport(){
+        export();
+        TreeMap<String, LatencyHistogram> all = new TreeMap<>();
+        TreeMap<String, Long> allCounters = new TreeMap<>();
+        File[] files = getFolder().listFiles();
+        for(File file : files == null ? new File[0] : files){
+            if(file.getName().startsWith(".")){
+                continue;
+            }
+            List<String> lines;
+            try {
+                lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+            }
+            catch (IOException e){
+//                System.err.println("Cannot read the metrics " + file.getName());
+                continue;
+            }
+            for(String line : lines){
+                String[] fields = line.split(" ", 3);
+                try {
+                    if(fields[0].equals(HISTOGRAM) && fields.length >= 2){
+                        all.computeIfAbsent(fields[1], key -> new LatencyHistogram())
+                                .add(fields.length > 2 ? fields[2] : "");
+                    }
+                    else if(fields[0].equals(COUNTER) && fields.length == 3){
+                        allCounters.merge(fields[1], Long.parseLong(fields[2]), Long::sum);
+                    }
+                }
+                catch (IllegalArgumentException e){
+//                    System.err.println("Not a line of the metrics: " + line);
+                }
+            }
+        }
+        ArrayList<String> report = new ArrayList<>();
+        for(Map.Entry<String, LatencyHistogram> entry : all.entrySet()){
+            LatencyHistogram histogram = entry.getValue();
+            report.add(String.format("%s: %d calls, p50 %.2f ms, p90 %.2f ms, p99 %.2f ms, max %.2f ms",
+                    entry.getKey(), histogram.getCount(), histogram.getPercentile(50) / 1000.0,
+                    histogram.getPercentile(90) / 1000.0, histogram.getPercentile(99) / 1000.0,
+                    histogram.getPercentile(100) / 1000.0));
+        }
+        for(Map.Entry<String, Long> entry : allCounters.entrySet()){
+            report.add(entry.getKey() + ": " + entry.getValue());
+        }
+        return report;
+    }
+
+    /**
+     * Returns the metrics directory.
+     * @return the directory
+     */
+    private File getFolder(){
+        return new File(Config.getExtrasPath() + METRICS_FOLDER);
+    }
+}
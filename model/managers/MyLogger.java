@@ -1,37 +1,30 @@
 package model.managers;
 
-import java.io.IOException;
-import java.util.logging.FileHandler;
-import java.util.logging.Formatter;
 import java.util.logging.Logger;
-import java.util.logging.SimpleFormatter;
 
 /**
  * The logger class.
  *
- * The logger class is responsible to print log to a file for the program.
+ * The logger class is responsible to print log to a file for the program. The records are written by an
+ * AsyncLogHandler, so logging doesn't wait for the file. The records are not printed to the console as well.
+ * @see AsyncLogHandler
  */
 public class MyLogger {
     private static Logger logger;
-    private static FileHandler fileHandler;
-    private static Formatter formatter;
+    private static AsyncLogHandler handler;
 
     /**
      * Creates a logger that prints log to a given file location
      * @param filePath the given file location
      */
     public  MyLogger(String filePath){
-        if (logger == null){
-            try{
-                fileHandler = new FileHandler(filePath);
-
-            }catch (IOException e){
-
+        synchronized (MyLogger.class){
+            if (logger == null){
+                handler = new AsyncLogHandler(filePath);
+                logger = Logger.getLogger("Restaurant");
+                logger.setUseParentHandlers(false);
+                logger.addHandler(handler);
             }
-            formatter = new SimpleFormatter();
-            fileHandler.setFormatter(formatter);
-            logger = Logger.getLogger("Restaurant");
-            logger.addHandler(fileHandler);
         }
     }
 
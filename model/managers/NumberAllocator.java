@@ -0,0 +1,127 @@
+package model.managers;
+
+import model.configs.Config;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * The NumberAllocator class.
+ *
+ * The NumberAllocator hands out the order numbers and the item numbers. Every program reserves a block of numbers
+ * from the number file in the extras directory while holding a lock on the file, so two programs never get the same
+ * number. The numbers of the block are then handed out from memory without touching the file, and the file is only
+ * read and written again when the block is used up.
+ *
+ * The numbers are unique but they are not handed out in order across the programs, and the numbers left in the block
+ * of a program that is closed are never used.
+ */
+public class NumberAllocator {
+    private static final int ORDER_BLOCK_SIZE = 10;
+    private static final int ITEM_BLOCK_SIZE = 50;
+
+    private static NumberAllocator orderNumberAllocator =
+            new NumberAllocator(Config::getOrderNumberFile, ORDER_BLOCK_SIZE);
+    private static NumberAllocator itemNumberAllocator =
+            new NumberAllocator(Config::getItemNumberFile, ITEM_BLOCK_SIZE);
+
+    private Supplier<String> numberFile;
+    private int blockSize;
+    private AtomicReference<Block> block;
+
+    /**
+     * Constructs a NumberAllocator. The first block is reserved when the first number is needed.
+     * @param numberFile returns the path of the number file
+     * @param blockSize the number of numbers reserved at once
+     */
+    private NumberAllocator(Supplier<String> numberFile, int blockSize){
+        this.numberFile = numberFile;
+        this.blockSize = blockSize;
+        block = new AtomicReference<>(new Block(0, 0));
+    }
+
+    /**
+     * Returns the allocator of the order numbers.
+     * @return the order number allocator
+     */
+    public static NumberAllocator getOrderNumberAllocator(){
+        return orderNumberAllocator;
+    }
+
+    /**
+     * Returns the allocator of the item numbers.
+     * @return the item number allocator
+     */
+    public static NumberAllocator getItemNumberAllocator(){
+        return itemNumberAllocator;
+    }
+
+    /**
+     * Returns a number that has not been handed out by any program before.
+     * @return the number
+     */
+    public int next(){
+        while (true){
+            Block current = block.get();
+            int number = current.next.getAndIncrement();
+            if(number < current.limit){
+                return number;
+            }
+            reserveBlock(current);
+        }
+    }
+
+    /**
+     * Reserves a new block from the number file, unless another thread already replaced the used up block.
+     * @param usedUp the used up block
+     */
+    @SuppressWarnings("try")
+    private synchronized void reserveBlock(Block usedUp){
+        if(block.get() != usedUp){
+            return;
+        }
+        String path = numberFile.get();
+        try (FileChannel channel = FileChannel.open(new File(path).toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+             FileLock lock = FileManager.lock(channel, 0, Long.MAX_VALUE, false)){
+            ByteBuffer content = ByteBuffer.allocate((int) channel.size());
+            while(content.hasRemaining() && channel.read(content, content.position()) > 0){
+                // keep reading until the whole file is in the buffer
+            }
+            int start = Integer.parseInt(new String(content.array(), StandardCharsets.UTF_8).trim());
+            channel.truncate(0);
+            channel.write(ByteBuffer.wrap(Integer.toString(start + blockSize).getBytes(StandardCharsets.UTF_8)), 0);
+            channel.force(false);
+            block.set(new Block(start, start + blockSize));
+        }
+        catch (IOException | NumberFormatException e){
+            throw new IllegalStateException("Cannot reserve numbers from " + path, e);
+        }
+    }
+
+    /**
+     * A block of reserved numbers. The numbers from next (inclusive) to limit (exclusive) are not handed out yet.
+     */
+    private static class Block {
+        private AtomicInteger next;
+        private int limit;
+
+        /**
+         * Constructs a Block.
+         * @param start the first number of the block
+         * @param limit the number after the last number of the block
+         */
+        Block(int start, int limit){
+            next = new AtomicInteger(start);
+            this.limit = limit;
+        }
+    }
+}
@@ -0,0 +1,578 @@
+package model.managers;
+
+import model.configs.Config;
+import model.data.Item;
+import model.data.Order2;
+import model.interfaces.Savable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The OrderArchive class.
+ *
+ * The OrderArchive rolls the finished orders and their items out of the FinishedOrders and FinishedItems folders into
+ * one segment file per day in the archive directory of the extras directory, so the folders only keep the orders that
+ * were finished recently. A daemon timer archives every ARCHIVE_MILLIS the finished orders that were already there
+ * the last time, so an order stays in the folders for ARCHIVE_MILLIS at least. Only one program archives at a time.
+ *
+ * The orders are sorted by their number and written in blocks of BLOCK_ORDERS orders, and every block is compressed
+ * on its own. The index file of a segment has one entry for every block with its smallest and largest order number
+ * and its place in the segment, so finding an archived order reads the index entries and inflates only the blocks
+ * whose range has the number. The index entry is written after its block, and the files of the orders are deleted
+ * after the index entry, so an order can always be found in the folders or in the archive.
+ * @see OrderManager
+ */
+public class OrderArchive {
+    private static final String ARCHIVE_FOLDER = "archive/";
+    private static final String SEGMENT = ".segment";
+    private static final String INDEX = ".index";
+    private static final String ARCHIVE_LOCK = "lock";
+    private static final int BLOCK_ORDERS = 64;
+    private static final int ENTRY_SIZE = 20;
+    private static final int CACHED_BLOCKS = 4;
+    private static final long ARCHIVE_MILLIS = 10 * 60 * 1000L;
+
+    private static OrderArchive orderArchive = new OrderArchive();
+
+    private FileManager fileManager;
+    private HashSet<String> seen;
+    private HashMap<String, Long> indexPositions;
+    private ArrayList<Block> blocks;
+    private ArrayList<Block> written;
+    private int[] maxUpTo;
+    private LinkedHashMap<Block, byte[]> cache;
+    private Timer timer;
+
+    /**
+     * Constructs an OrderArchive.
+     */
+    private OrderArchive(){
+        fileManager = new FileManager();
+        seen = new HashSet<>();
+        indexPositions = new HashMap<>();
+        blocks = new ArrayList<>();
+        written = new ArrayList<>();
+        maxUpTo = new int[0];
+        cache = new LinkedHashMap<Block, byte[]>(CACHED_BLOCKS, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Block, byte[]> eldest) {
+                return size() > CACHED_BLOCKS;
+            }
+        };
+    }
+
+    /**
+     * Returns this singleton order archive instance
+     * @return the order archive
+     */
+    public static OrderArchive getOrderArchive(){
+        return orderArchive;
+    }
+
+    /**
+     * Starts the daemon timer that archives the finished orders, if it is not running yet.
+     */
+    public synchronized void start(){
+        if(timer != null){
+            return;
+        }
+        timer = new Timer("order archive", true);
+        timer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                archive();
+            }
+        }, 0, ARCHIVE_MILLIS);
+    }
+
+    /**
+     * Stops the timer.
+     */
+    public synchronized void stop(){
+        if(timer != null){
+            timer.cancel();
+            timer = null;
+        }
+    }
+
+    /**
+     * Archives the finished orders that were already in the FinishedOrders folder the last time this method was
+     * called, and remembers the other ones for the next time. Does nothing if another program is archiving.
+     * @return the number of archived orders
+     */
+    public synchronized int archive(){
+        ArrayList<Order2> orders = new ArrayList<>();
+        HashSet<String> next = new HashSet<>();
+        for(File file : fileManager.getFileList(Config.getFinishedOrdersPath())){
+            String name = file.getName();
+            if(!seen.contains(name)){
+                next.add(name);
+                continue;
+            }
+            Savable order = fileManager.readFromFile(Config.getFinishedOrdersPath() + name);
+            if(order instanceof Order2 && ((Order2) order).isFinished()){
+                orders.add((Order2) order);
+            }
+        }
+        seen = next;
+        if(orders.isEmpty()){
+            return 0;
+        }
+        orders.sort(Comparator.comparingInt(Order2::getOrderNumber));
+        try {
+            Files.createDirectories(getFolder());
+            try (FileChannel lockChannel = FileChannel.open(getFolder().resolve(ARCHIVE_LOCK),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                 FileLock lock = lockChannel.tryLock()){
+                if(lock == null){
+                    // another program is archiving, they are tried again next time
+                    for(Order2 order : orders){
+                        seen.add(order.getFileName());
+                    }
+                    return 0;
+                }
+                return write(orders);
+            }
+        }
+        catch (IOException e){
+//            System.err.println("Cannot archive the finished orders");
+            return 0;
+        }
+    }
+
+    /**
+     * Finds an archived order by its number. Its items are read from the archive as well.
+     * @param orderNumber the order number
+     * @return the order, or null if it is not archived
+     */
+    public synchronized Order2 getOrder(int orderNumber){
+        refresh();
+        int last = lastBlockFrom(orderNumber);
+        for(int i = last ; i >= 0 && maxUpTo[i] >= orderNumber ; i--){
+            Block block = blocks.get(i);
+            if(block.max < orderNumber){
+                continue;
+            }
+            try {
+                Order2 order = find(read(block, true), orderNumber);
+                if(order != null){
+                    return order;
+                }
+            }
+            catch (IOException | DataFormatException e){
+//                System.err.println("Cannot read the archive segment " + block.segment);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads the orders of the blocks that were added to the archive after the first blocks, in the order they were
+     * written. The blocks are streamed one at a time, so the whole archive is never in memory.
+     * @param from the number of blocks that were already read, 0 to read the whole archive
+     * @param action the action for every archived order
+     * @return the number of blocks that were read, to give as from the next time
+     */
+    public synchronized int forEachOrder(int from, Consumer<Order2> action){
+        refresh();
+        for(int i = from ; i < written.size() ; i++){
+            Block block = written.get(i);
+            try {
+                decode(read(block, false), number -> true, action);
+            }
+            catch (IOException | DataFormatException e){
+//                System.err.println("Cannot read the archive segment " + block.segment);
+            }
+        }
+        return written.size();
+    }
+
+    /**
+     * Writes the orders into the segment of today, one block at a time, and deletes the files of the orders of a
+     * block once its index entry is written.
+     * @param orders the orders sorted by their number
+     * @return the number of archived orders
+     * @throws IOException if the segment or its index cannot be written
+     */
+    private int write(ArrayList<Order2> orders) throws IOException {
+        String day = new SimpleDateFormat("yyyy-MM-dd").format(new Date());
+        int archived = 0;
+        try (FileChannel segment = FileChannel.open(getFolder().resolve(day + SEGMENT), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+             FileChannel index = FileChannel.open(getFolder().resolve(day + INDEX), StandardOpenOption.CREATE,
+                     StandardOpenOption.READ, StandardOpenOption.WRITE)){
+            // an entry that was cut by a crash is dropped
+            index.truncate(index.size() - index.size() % ENTRY_SIZE);
+            for(int from = 0 ; from < orders.size() ; from += BLOCK_ORDERS){
+                List<Order2> blockOrders = orders.subList(from, Math.min(orders.size(), from + BLOCK_ORDERS));
+                ArrayList<String> paths = new ArrayList<>();
+                byte[] data = compress(encode(blockOrders, paths));
+                long offset = segment.size();
+                writeFully(segment, ByteBuffer.wrap(data), offset);
+                segment.force(false);
+
+                ByteBuffer entry = ByteBuffer.allocate(ENTRY_SIZE);
+                entry.putInt(blockOrders.get(0).getOrderNumber());
+                entry.putInt(blockOrders.get(blockOrders.size() - 1).getOrderNumber());
+                entry.putLong(offset);
+                entry.putInt(data.length);
+                entry.flip();
+                writeFully(index, entry, index.size());
+                index.force(false);
+
+                for(String path : paths){
+                    fileManager.deleteBytes(path);
+                }
+                archived += blockOrders.size();
+            }
+        }
+        return archived;
+    }
+
+    /**
+     * Writes the orders of a block and their items: the number of orders, then for every order its number, its
+     * serialized bytes and the serialized bytes of its items.
+     * @param orders the orders of the block
+     * @param paths the paths of the written files are added to it, orders first
+     * @return the bytes of the block
+     * @throws IOException if the bytes cannot be written
+     */
+    private byte[] encode(List<Order2> orders, ArrayList<String> paths) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        ArrayList<String> itemPaths = new ArrayList<>();
+        out.writeInt(orders.size());
+        for(Order2 order : orders){
+            String orderPath = Config.getFinishedOrdersPath() + order.getFileName();
+            ArrayList<byte[]> items = new ArrayList<>();
+            for(Item item : order.getItems()){
+                String itemPath = Config.getFinishedItemsPath() + item.getFileName();
+                byte[] itemBytes = fileManager.readBytes(itemPath);
+                if(itemBytes != null){
+                    items.add(itemBytes);
+                    itemPaths.add(itemPath);
+                }
+            }
+            byte[] orderBytes = fileManager.readBytes(orderPath);
+            if(orderBytes == null){
+                orderBytes = fileManager.toBytes(order);
+            }
+            out.writeInt(order.getOrderNumber());
+            writeBytes(out, orderBytes);
+            out.writeInt(items.size());
+            for(byte[] itemBytes : items){
+                writeBytes(out, itemBytes);
+            }
+            paths.add(orderPath);
+        }
+        out.flush();
+        paths.addAll(itemPaths);
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Finds the order in the bytes of a block and reads it with its items.
+     * @param block the bytes of the block
+     * @param orderNumber the order number
+     * @return the order, or null if it is not in the block
+     * @throws IOException if the block is broken
+     */
+    private Order2 find(byte[] block, int orderNumber) throws IOException {
+        ArrayList<Order2> found = new ArrayList<>(1);
+        decode(block, number -> number == orderNumber, found::add);
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    /**
+     * Reads the wanted orders of a block with their items.
+     * @param block the bytes of the block
+     * @param wanted tells which order numbers are read, the other orders are skipped
+     * @param action the action for every order that is read
+     * @throws IOException if the block is broken
+     */
+    private void decode(byte[] block, IntPredicate wanted, Consumer<Order2> action) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(block));
+        int count = in.readInt();
+        for(int i = 0 ; i < count ; i++){
+            int number = in.readInt();
+            byte[] orderBytes = readBytes(in);
+            int items = in.readInt();
+            Savable order = wanted.test(number) ? fileManager.readFromBytes(orderBytes) : null;
+            if(!(order instanceof Order2)){
+                for(int j = 0 ; j < items ; j++){
+                    in.skipBytes(in.readInt());
+                }
+                continue;
+            }
+            // the item files were deleted when the order was archived
+            ((Order2) order).getItems().clear();
+            for(int j = 0 ; j < items ; j++){
+                Savable item = fileManager.readFromBytes(readBytes(in));
+                if(item instanceof Item){
+                    ((Order2) order).addItem((Item) item);
+                }
+            }
+            action.accept((Order2) order);
+        }
+    }
+
+    /**
+     * Reads the new index entries of the archive directory. Only the two latest segments can still grow, the other
+     * index files are read once.
+     */
+    private void refresh(){
+        String[] names = getFolder().toFile().list((dir, name) -> name.endsWith(INDEX));
+        if(names == null){
+            return;
+        }
+        Arrays.sort(names);
+        boolean added = false;
+        for(int i = 0 ; i < names.length ; i++){
+            if(indexPositions.containsKey(names[i]) && i < names.length - 2){
+                continue;
+            }
+            added |= readIndex(names[i]);
+        }
+        if(added){
+            blocks.sort(Comparator.comparingInt((Block block) -> block.min).thenComparingInt(block -> block.max));
+            maxUpTo = new int[blocks.size()];
+            int max = Integer.MIN_VALUE;
+            for(int i = 0 ; i < blocks.size() ; i++){
+                max = Math.max(max, blocks.get(i).max);
+                maxUpTo[i] = max;
+            }
+        }
+    }
+
+    /**
+     * Reads the entries of an index file that were not read yet.
+     * @param name the name of the index file
+     * @return true if a block was added
+     */
+    private boolean readIndex(String name){
+        long position = indexPositions.getOrDefault(name, 0L);
+        String segment = name.substring(0, name.length() - INDEX.length()) + SEGMENT;
+        boolean added = false;
+        try (FileChannel index = FileChannel.open(getFolder().resolve(name), StandardOpenOption.READ)){
+            long end = index.size() - index.size() % ENTRY_SIZE;
+            if(end <= position){
+                return false;
+            }
+            ByteBuffer entries = ByteBuffer.allocate((int) (end - position));
+            readFully(index, entries, position);
+            entries.flip();
+            while(entries.remaining() >= ENTRY_SIZE){
+                Block block = new Block(segment, entries.getInt(), entries.getInt(), entries.getLong(),
+                        entries.getInt());
+                blocks.add(block);
+                written.add(block);
+                added = true;
+            }
+            indexPositions.put(name, end);
+        }
+        catch (IOException e){
+//            System.err.println("Cannot read the archive index " + name);
+        }
+        return added;
+    }
+
+    /**
+     * Returns the last block, in the order of their smallest order number, whose smallest order number is not
+     * larger than the order number.
+     * @param orderNumber the order number
+     * @return the index of the block, or -1 if there is none
+     */
+    private int lastBlockFrom(int orderNumber){
+        int low = 0;
+        int high = blocks.size() - 1;
+        while(low <= high){
+            int middle = (low + high) >>> 1;
+            if(blocks.get(middle).min <= orderNumber){
+                low = middle + 1;
+            }
+            else {
+                high = middle - 1;
+            }
+        }
+        return high;
+    }
+
+    /**
+     * Reads and inflates a block, or returns it from the cache of the last blocks that were read.
+     * @param block the block
+     * @param cached true to keep the block in the cache
+     * @return the bytes of the block
+     * @throws IOException if the segment cannot be read
+     * @throws DataFormatException if the block is broken
+     */
+    private byte[] read(Block block, boolean cached) throws IOException, DataFormatException {
+        byte[] bytes = cache.get(block);
+        if(bytes != null){
+            return bytes;
+        }
+        ByteBuffer data = ByteBuffer.allocate(block.length);
+        try (FileChannel segment = FileChannel.open(getFolder().resolve(block.segment), StandardOpenOption.READ)){
+            readFully(segment, data, block.offset);
+        }
+        data.flip();
+        bytes = new byte[data.getInt()];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data.array(), Integer.BYTES, block.length - Integer.BYTES);
+            int read = 0;
+            while(read < bytes.length && !inflater.finished()){
+                int count = inflater.inflate(bytes, read, bytes.length - read);
+                if(count == 0 && (inflater.needsInput() || inflater.needsDictionary())){
+                    throw new DataFormatException("The block is cut");
+                }
+                read += count;
+            }
+        }
+        finally {
+            inflater.end();
+        }
+        if(cached){
+            cache.put(block, bytes);
+        }
+        return bytes;
+    }
+
+    /**
+     * Compresses the bytes of a block. The length of the bytes is written before the compressed bytes.
+     * @param bytes the bytes of the block
+     * @return the compressed bytes
+     */
+    private static byte[] compress(byte[] bytes){
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 64);
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            byte[] buffer = new byte[8192];
+            out.write(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).array(), 0, Integer.BYTES);
+            while(!deflater.finished()){
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+        }
+        finally {
+            deflater.end();
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Writes the length of the bytes and the bytes.
+     * @param out the output
+     * @param bytes the bytes
+     * @throws IOException if the bytes cannot be written
+     */
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads bytes written by writeBytes.
+     * @param in the input
+     * @return the bytes
+     * @throws IOException if the bytes cannot be read
+     */
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    /**
+     * Writes all the bytes of the buffer at the position.
+     * @param channel the channel
+     * @param buffer the buffer
+     * @param position the position
+     * @throws IOException if the bytes cannot be written
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while(buffer.hasRemaining()){
+            position += channel.write(buffer, position);
+        }
+    }
+
+    /**
+     * Reads bytes at the position until the buffer is full.
+     * @param channel the channel
+     * @param buffer the buffer
+     * @param position the position
+     * @throws IOException if the bytes cannot be read or the channel ends before
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while(buffer.hasRemaining()){
+            int read = channel.read(buffer, position);
+            if(read < 0){
+                throw new IOException("The file ends before the block");
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * Returns the archive directory.
+     * @return the archive directory
+     */
+    private static Path getFolder(){
+        return new File(Config.getExtrasPath() + ARCHIVE_FOLDER).toPath();
+    }
+
+    /**
+     * An index entry: the order numbers of a block and its place in its segment.
+     */
+    private static class Block {
+        private final String segment;
+        private final int min;
+        private final int max;
+        private final long offset;
+        private final int length;
+
+        /**
+         * Constructs a Block.
+         * @param segment the name of the segment file
+         * @param min the smallest order number of the block
+         * @param max the largest order number of the block
+         * @param offset the position of the block in the segment
+         * @param length the length of the block
+         */
+        Block(String segment, int min, int max, long offset, int length){
+            this.segment = segment;
+            this.min = min;
+            this.max = max;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+}
@@ -6,16 +6,24 @@ import model.interfaces.Savable;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.function.Consumer;
 
 /**
  * The OrderManager class
  *
  * It can create, edit, and delete orders. It manages orders, items, and all the action related to, such as lock
  * order file and search order file in the data base by table number or order number.
+ *
+ * Like the Items, the orders are saved with optimistic concurrency: a change is applied to the latest copy of the
+ * order again when another program saved the order since it was read.
  */
 public class OrderManager {
+    private final String ORDER_LOCK = "order:";
+    private final int RETRIES = 5;
+
     private FileManager fileManager;
     private ItemManager itemManager;
+    private Metrics metrics;
 
     /**
      * Constructs an OrderManager
@@ -23,6 +31,7 @@ public class OrderManager {
     public OrderManager(){
         fileManager = new FileManager();
         itemManager = new ItemManager();
+        metrics = Metrics.getMetrics();
     }
 
     /**
@@ -34,15 +43,46 @@ public class OrderManager {
         for (Item item : order.getItems()){
             itemManager.startItemCycle(item);
         }
-        fileManager.saveToFile(order, Config.getOrdersPath());
+        fileManager.compareAndSave(order, Config.getOrdersPath());
+    }
+
+    /**
+     * Saves the order to order file if nobody saved the order since it was read.
+     * @param order the order
+     * @return false if the order was saved by another program in the meantime
+     */
+    public boolean saveOrderFile(Order2 order){
+        return fileManager.compareAndSave(order, Config.getOrdersPath());
+    }
+
+    /**
+     * Saves the order as a part of the unit of work, if nobody saved the order since it was read.
+     * @param order the order
+     * @param work the unit of work
+     */
+    public void saveOrderFile(Order2 order, UnitOfWork work){
+        work.saveIfUnchanged(order, Config.getOrdersPath());
     }
 
     /**
-     * Saves the order to order file
+     * Applies the change to the order and saves it. If another program saved the order since it was read, the
+     * latest copy is read from the order directory and the change is applied to that copy instead. Gives up after
+     * RETRIES tries or when the order is not active anymore.
      * @param order the order
+     * @param change the change of the order
+     * @return the saved order (the given one or the latest copy), or null if the change cannot be saved
      */
-    public void saveOrderFile(Order2 order){
-        fileManager.saveToFile(order, Config.getOrdersPath());
+    public Order2 updateOrder(Order2 order, Consumer<Order2> change){
+        Order2 current = order;
+        for(int i = 0 ; i < RETRIES && current != null ; i++){
+            change.accept(current);
+            if(saveOrderFile(current)){
+                return current;
+            }
+            current = (Order2) fileManager.readFromFile(Config.getOrdersPath() + order.getFileName());
+        }
+//        System.err.println("Cannot save the order: " + order.getFileName());
+        return null;
     }
 
     /**
@@ -57,24 +97,37 @@ public class OrderManager {
     }
 
     /**
-     * Creates a lock file which represents this file has been locked.
+     * Deletes the order file and its items as a part of the unit of work.
+     * @param order the order to delete
+     * @param work the unit of work
+     */
+    public void deleteOrderFile(Order2 order, UnitOfWork work){
+        for(Item item : order.getItems()){
+            itemManager.deleteItemFile(item, work);
+        }
+        work.delete(order, Config.getOrdersPath());
+    }
+
+    /**
+     * Takes the lease of the order from the LockManager, which represents this order has been locked.
      * @param order the locked order
+     * @return true if this program holds the lease
      */
-    public void lockOrderFile(Order2 order){
-        String path = Config.getLockFilesPath() + order.getFileName();
-        fileManager.writeFile("", path);
+    public boolean lockOrderFile(Order2 order){
+        return LockManager.getLockManager().tryLock(ORDER_LOCK + order.getFileName());
     }
 
     /**
-     * Unlocks the order file and deletes the lock file if exists.
+     * Unlocks the order by releasing its lease.
      * @param order the locked order
      */
     public void unlockOrderFile(Order2 order){
-        fileManager.deleteFile(order, Config.getLockFilesPath());
+        LockManager.getLockManager().release(ORDER_LOCK + order.getFileName());
     }
 
     /**
-     * Send the order to the finish order folder. The items in the order will be send to finished item as well.
+     * Send the order to the finish order folder. The items in the order will be send to finished item as well, and
+     * the order is added to the SalesAnalytics.
      * @param order the order that is going to be finished
      */
     public void sendToFinishedOrder(Order2 order){
@@ -83,6 +136,7 @@ public class OrderManager {
             itemManager.sendToFinishedItem(item);
         }
         fileManager.changeFilePath(order, Config.getOrdersPath(), Config.getFinishedOrdersPath());
+        SalesAnalytics.getSalesAnalytics().add(order);
     }
 
     /**
@@ -101,43 +155,66 @@ public class OrderManager {
     }
 
     /**
-     * Searches the entire system for an order. Search active order folder first.
+     * Searches the entire system for an order. Search active order folder first, then the finished order folder and
+     * then the OrderArchive.
      * Return null if Order not found
      * @param orderNumber the search order number
      * @return the order
      */
     public Order2 getOrder(int orderNumber){
-        for(Order2 order : getOrderList()){
-            if(order.getOrderNumber() == orderNumber){
-                return order;
+        long begin = metrics.begin();
+        try {
+            Savable order = fileManager.readFromFile(Config.getOrdersPath() + orderNumber);
+            if(order == null){
+                order = fileManager.readFromFile(Config.getFinishedOrdersPath() + orderNumber);
             }
-        }
-        for(Order2 order : getFinishedOrderList()){
-            if(order.getOrderNumber() == orderNumber){
-                return order;
+            if(order == null){
+                return OrderArchive.getOrderArchive().getOrder(orderNumber);
             }
+            return (Order2)order;
+        }
+        finally {
+            metrics.record("OrderManager.getOrder", begin);
         }
-        return null;
     }
 
     /**
-     * Returns the current order number. Increment the order number file by one each time this method is called.
+     * Returns a new order number. The numbers are reserved in blocks from the order number file by the
+     * NumberAllocator, so no other program gets the same number.
      * @return the order number
      */
     public int getCurrentOrderNumber(){
-        String content = fileManager.readFileContent(Config.getOrderNumberFile());
-        int number = Integer.parseInt(content.trim());
-        fileManager.writeFile(Integer.toString(number+1), Config.getOrderNumberFile());
-        return number;
+        return NumberAllocator.getOrderNumberAllocator().next();
     }
 
     /**
-     * Returns true if the lock file exists for this order.
+     * Returns true if there is a valid lease on this order.
      * @param order the check order
-     * @return true iff the lock file exists
+     * @return true iff the order is locked
      */
     public boolean isLockedOrder(Order2 order){
-        return fileManager.isExisted(order, Config.getLockFilesPath());
+        return isLockedOrder(order.getOrderNumber());
+    }
+
+    /**
+     * Returns true if there is a valid lease on the order with the order number. Uses the lock status cache of the
+     * LockManager, so no order file is read.
+     * @param orderNumber the order number
+     * @return true iff the order is locked
+     */
+    public boolean isLockedOrder(int orderNumber){
+        return LockManager.getLockManager().isLocked(ORDER_LOCK + orderNumber);
+    }
+
+    /**
+     * Returns true if the order file exists in the active or finished order folder, or if the order is archived.
+     * @param orderNumber the order number
+     * @return true iff the order exists
+     */
+    public boolean isExistingOrder(int orderNumber){
+        return fileManager.getStamp(Config.getOrdersPath() + orderNumber) != null
+                || fileManager.getStamp(Config.getFinishedOrdersPath() + orderNumber) != null
+                || OrderArchive.getOrderArchive().getOrder(orderNumber) != null;
     }
 
     /**
@@ -154,19 +231,4 @@ public class OrderManager {
         }
         return orderList;
     }
-
-    /**
-     * Return a list of finished orders
-     * @return a list of finished orders
-     */
-    private ArrayList<Order2> getFinishedOrderList(){
-        ArrayList<Order2> orderList = new ArrayList<>();
-        for(File orderFile : fileManager.getFileList(Config.getFinishedOrdersPath())){
-            Order2 order = (Order2)fileManager.readFromFile(Config.getFinishedOrdersPath()+ orderFile.getName());
-            if(order != null) {
-                orderList.add(order);
-            }
-        }
-        return orderList;
-    }
 }
\ No newline at end of file
@@ -0,0 +1,309 @@
+package model.managers;
+
+import model.data.Supply2;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.TreeMap;
+
+/**
+ * The ReorderEngine class.
+ *
+ * The ReorderEngine works out how much of every supply has to be requested and writes the requests into
+ * Requests.txt. It listens to the events of the InventoryLog and keeps the rate at which every supply is consumed by
+ * the cooked items, smoothed exponentially over SMOOTHING_MILLIS, so the rate follows the recent days without
+ * jumping with every dish. A supply is requested when its stock is less than its total quantity needed plus what is
+ * expected to be consumed in the next LEAD_MILLIS, in multiples of its request amount. Without any consumption this is
+ * the same request as before.
+ *
+ * Only the supplies that changed since the last look are worked out again. A daemon timer writes the file every
+ * WRITE_MILLIS if a request changed, and works out all the supplies again every REFRESH_MILLIS, since the rates
+ * go down while nothing is consumed.
+ * @see InventoryLog
+ */
+public class ReorderEngine {
+    private static final String REQUESTS_FILE = "Requests.txt";
+    private static final long SMOOTHING_MILLIS = 24 * 60 * 60 * 1000L;
+    private static final long LEAD_MILLIS = 24 * 60 * 60 * 1000L;
+    private static final long HISTORY_MILLIS = 2 * SMOOTHING_MILLIS;
+    private static final long WRITE_MILLIS = 60 * 1000L;
+    private static final long REFRESH_MILLIS = 60 * 60 * 1000L;
+
+    private static ReorderEngine reorderEngine = new ReorderEngine();
+
+    private SupplyTable supplyTable;
+    private HashMap<String, Rate> rates;
+    private TreeMap<String, Integer> requests;
+    private HashSet<String> changed;
+    private boolean started;
+    private boolean written;
+    private long lastRefresh;
+    private Timer timer;
+
+    /**
+     * Constructs a ReorderEngine. It starts listening to the InventoryLog when it is first used.
+     */
+    private ReorderEngine(){
+        supplyTable = SupplyTable.getSupplyTable();
+        rates = new HashMap<>();
+        requests = new TreeMap<>();
+        changed = new HashSet<>();
+    }
+
+    /**
+     * Returns this singleton reorder engine instance
+     * @return the reorder engine
+     */
+    public static ReorderEngine getReorderEngine(){
+        return reorderEngine;
+    }
+
+    /**
+     * Starts the daemon timer that writes the requests, if it is not running yet.
+     */
+    public synchronized void start(){
+        if(timer != null){
+            return;
+        }
+        timer = new Timer("reorder engine", true);
+        timer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                writeRequests();
+            }
+        }, 0, WRITE_MILLIS);
+    }
+
+    /**
+     * Stops the timer and writes the requests one last time.
+     */
+    public void stop(){
+        synchronized (this){
+            if(timer == null){
+                return;
+            }
+            timer.cancel();
+            timer = null;
+        }
+        writeRequests();
+    }
+
+    /**
+     * Marks the supply as changed, so its request is worked out again before the next write. The changes of the
+     * quantities are seen through the InventoryLog; this is for the other fields, like the request amount.
+     * @param name the supply name
+     */
+    public synchronized void supplyChanged(String name){
+        changed.add(name);
+    }
+
+    /**
+     * Returns the rate at which the supply is consumed now.
+     * @param name the supply name
+     * @return the quantity consumed per hour
+     */
+    public double getRate(String name){
+        listen();
+        synchronized (this){
+            Rate rate = rates.get(name);
+            return rate == null ? 0 : rate.at(System.currentTimeMillis()) * 60 * 60 * 1000;
+        }
+    }
+
+    /**
+     * Returns the time when the stock of the supply is used up if it keeps being consumed at the current rate.
+     * @param name the supply name
+     * @return the time in milliseconds, or Long.MAX_VALUE if the supply is not consumed
+     */
+    public long getDepletionTime(String name){
+        listen();
+        long now = System.currentTimeMillis();
+        synchronized (this){
+            Rate rate = rates.get(name);
+            double perMilli = rate == null ? 0 : rate.at(now);
+            if(perMilli <= 0){
+                return Long.MAX_VALUE;
+            }
+            return now + (long) (Math.max(0, supplyTable.getQuantity(name)) / perMilli);
+        }
+    }
+
+    /**
+     * Returns the quantities that are requested now.
+     * @return the requested quantities by supply name
+     */
+    public TreeMap<String, Integer> getRequests(){
+        listen();
+        InventoryLog.getInventoryLog().getStock();
+        synchronized (this){
+            update();
+            return new TreeMap<>(requests);
+        }
+    }
+
+    /**
+     * Reads the new events, works out the requests of the changed supplies and writes Requests.txt if a request
+     * changed since the last write.
+     */
+    public void writeRequests(){
+        String content;
+        TreeMap<String, Integer> current = getRequests();
+        synchronized (this){
+            if(written){
+                return;
+            }
+            StringBuilder builder = new StringBuilder();
+            for(Map.Entry<String, Integer> request : current.entrySet()){
+                builder.append(request.getKey()).append(": ").append(request.getValue())
+                        .append(System.lineSeparator());
+            }
+            content = builder.toString();
+            written = true;
+        }
+        try {
+            replace(new File(REQUESTS_FILE).toPath(), content.getBytes(StandardCharsets.UTF_8));
+        }
+        catch (IOException e){
+//            System.err.println("Cannot write " + REQUESTS_FILE);
+            synchronized (this){
+                written = false;
+            }
+        }
+    }
+
+    /**
+     * Starts listening to the InventoryLog the first time the engine is used. The rates start from the events of
+     * the last HISTORY_MILLIS.
+     */
+    private void listen(){
+        synchronized (this){
+            if(started){
+                return;
+            }
+            started = true;
+            for(String name : supplyTable.getNames()){
+                changed.add(name);
+            }
+        }
+        InventoryLog.getInventoryLog().addListener(this::eventRecorded,
+                System.currentTimeMillis() - HISTORY_MILLIS);
+    }
+
+    /**
+     * Takes an event of the InventoryLog into account: a consumption changes the rate of its supplies, and every
+     * event marks its supplies as changed.
+     * @param time the time of the event
+     * @param type the type of the event
+     * @param quantities the supplies and quantities of the event
+     */
+    private synchronized void eventRecorded(long time, byte type, Map<String, Integer> quantities){
+        for(Map.Entry<String, Integer> quantity : quantities.entrySet()){
+            String name = quantity.getKey();
+            if(type == InventoryLog.CONSUMED){
+                rates.computeIfAbsent(name, key -> new Rate()).add(time, quantity.getValue());
+            }
+            if(type != InventoryLog.RESERVED && type != InventoryLog.RELEASED){
+                changed.add(name);
+            }
+        }
+    }
+
+    /**
+     * Works out the requests of the changed supplies, or of all of them every REFRESH_MILLIS. Must be called while
+     * holding the monitor of the engine.
+     */
+    private void update(){
+        long now = System.currentTimeMillis();
+        if(now - lastRefresh >= REFRESH_MILLIS){
+            lastRefresh = now;
+            changed.addAll(supplyTable.getNames());
+            changed.addAll(requests.keySet());
+        }
+        for(String name : changed){
+            int request = getRequest(name, now);
+            Integer old = request > 0 ? requests.put(name, request) : requests.remove(name);
+            if(old == null ? request > 0 : old != request){
+                written = false;
+            }
+        }
+        changed.clear();
+    }
+
+    /**
+     * Works out the request of a supply: enough multiples of the request amount to bring the stock up to the total
+     * quantity needed plus what is expected to be consumed in the next LEAD_MILLIS.
+     * @param name the supply name
+     * @param now the current time in milliseconds
+     * @return the requested quantity, or 0 if nothing is needed
+     */
+    private int getRequest(String name, long now){
+        Supply2 supply = supplyTable.getSupply(name);
+        if(supply == null || supply.getRequestAmount() <= 0){
+            return 0;
+        }
+        Rate rate = rates.get(name);
+        long expected = rate == null ? 0 : (long) Math.ceil(rate.at(now) * LEAD_MILLIS);
+        long missing = supply.getTotalQuantityNeeded() + expected - supply.getQuantity();
+        if(missing <= 0){
+            return 0;
+        }
+        long amounts = (missing + supply.getRequestAmount() - 1) / supply.getRequestAmount();
+        return (int) Math.min(Integer.MAX_VALUE, amounts * supply.getRequestAmount());
+    }
+
+    /**
+     * Writes the bytes into a temporary file and moves it over the target, so a reader never sees half a file.
+     * @param target the target file
+     * @param data the bytes
+     * @throws IOException if the file cannot be written
+     */
+    private static void replace(Path target, byte[] data) throws IOException {
+        Path temp = FileStorage.getTempFile(target);
+        try {
+            Files.write(temp, data, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * The exponentially smoothed rate at which a supply is consumed. Every consumption adds its quantity spread over
+     * SMOOTHING_MILLIS, and the rate decays by e every SMOOTHING_MILLIS.
+     */
+    private static class Rate {
+        private double perMilli;
+        private long time;
+
+        /**
+         * Adds a consumption.
+         * @param when the time of the consumption
+         * @param quantity the consumed quantity
+         */
+        void add(long when, int quantity){
+            perMilli = at(when) + quantity / (double) SMOOTHING_MILLIS;
+            time = Math.max(time, when);
+        }
+
+        /**
+         * Returns the rate at the time.
+         * @param when the time in milliseconds
+         * @return the quantity consumed per millisecond
+         */
+        double at(long when){
+            return when <= time ? perMilli : perMilli * Math.exp(-(when - time) / (double) SMOOTHING_MILLIS);
+        }
+    }
+}
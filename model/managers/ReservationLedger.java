@@ -0,0 +1,754 @@
+package model.managers;
+
+import model.configs.Config;
+import model.data.Item;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+
+/**
+ * The ReservationLedger class.
+ *
+ * The ReservationLedger keeps the supplies that are reserved for the items which are ordered but not cooked yet.
+ * Every reservation is one record with the order number, the item number, the time it was made and the quantity of
+ * every ingredient. A reservation made while the server is still choosing the items of a new order has no order and
+ * item number yet; it is bound to them when the order is made.
+ *
+ * The reservations are kept in one append-only file in the extras directory that is shared by all the programs.
+ * Every program reads the records that the others appended since its last look and adds them to the reserved
+ * quantity of every ingredient it keeps in memory, so a supply check never reads or writes the whole file.
+ *
+ * The ingredients are spread over STRIPES stripes by the hash of their names. A reservation checks the stock and
+ * appends its record while holding the stripes of its ingredients, both in this program and as a byte of the lock
+ * file for the other programs, so two servers can't both get the last of an ingredient while the reservations of
+ * other ingredients go on at the same time. Appending a record only takes the append lock (the first byte of the lock
+ * file) for as long as the write takes.
+ *
+ * A reservation that was never bound to an order after PENDING_TIMEOUT was left by a server who never finished the
+ * order (or by a program that was closed), and is released. A bound reservation whose item is gone or already cooked
+ * after that time is released as well. The file is rewritten with only the open reservations when it gets long.
+ *
+ * Every reservation and release that a program appends is also recorded in the InventoryLog.
+ * @see SupplyManager
+ * @see InventoryLog
+ */
+public class ReservationLedger {
+    public static final long NO_RESERVATION = -1;
+
+    private static final String LEDGER = "reservationLedger";
+    private static final String LEDGER_LOCK = "reservationLedger.lock";
+    private static final int MAGIC = 0x52534C31;
+    private static final int HEADER_SIZE = 12;
+    private static final byte RESERVE = 1;
+    private static final byte BIND = 2;
+    private static final byte RELEASE = 3;
+    private static final long PENDING_TIMEOUT = 30 * 60 * 1000L;
+    private static final long SWEEP_MILLIS = 60 * 1000L;
+    private static final int COMPACT_RECORDS = 1000;
+    private static final int STRIPES = 64;
+    private static final int RETRIES = 5;
+
+    private static ReservationLedger reservationLedger = new ReservationLedger();
+
+    private LinkedHashMap<Long, Reservation> reservations;
+    private HashMap<String, Integer> reserved;
+    private long generation;
+    private long offset;
+    private int records;
+    private long nextId;
+    private long lastSweep;
+
+    private final ReentrantLock[] stripes;
+    private final ReentrantLock appendLock;
+    private FileChannel lockChannel;
+    private FileChannel ledgerChannel;
+
+    /**
+     * Constructs an empty ReservationLedger. The file is read when the ledger is first used.
+     */
+    private ReservationLedger(){
+        reservations = new LinkedHashMap<>();
+        reserved = new HashMap<>();
+        nextId = 1;
+        stripes = new ReentrantLock[STRIPES];
+        for(int i = 0 ; i < STRIPES ; i++){
+            stripes[i] = new ReentrantLock();
+        }
+        appendLock = new ReentrantLock();
+    }
+
+    /**
+     * Returns this singleton reservation ledger instance
+     * @return the reservation ledger
+     */
+    public static ReservationLedger getReservationLedger(){
+        return reservationLedger;
+    }
+
+    /**
+     * Returns the reserved quantity of the supply.
+     * @param name the supply name
+     * @return the reserved quantity
+     */
+    public int getReserved(String name){
+        read();
+        synchronized (this){
+            return reserved.getOrDefault(name, 0);
+        }
+    }
+
+    /**
+     * Returns the reserved quantities of all supplies that have something reserved.
+     * @return the reserved quantities by supply name
+     */
+    public HashMap<String, Integer> getReservedSupplies(){
+        read();
+        synchronized (this){
+            return new HashMap<>(reserved);
+        }
+    }
+
+    /**
+     * Reserves the ingredients if the check accepts the reserved quantities of the ingredients, including the
+     * reservations of the other programs. The check and the reservation are made while holding the locks of the
+     * ingredients, so no other reservation of the same ingredients can be made in between.
+     * @param ingredients the ingredients and their quantities
+     * @param orderNumber the order number, or -1 if the order is not made yet
+     * @param itemNumber the item number, or -1 if the order is not made yet
+     * @param check the check of the reserved quantities of the ingredients, or null to reserve anyway
+     * @return the number of the reservation, or NO_RESERVATION if the check failed or the ledger can't be written
+     */
+    public long reserve(Map<String, Integer> ingredients, int orderNumber, int itemNumber,
+                        Predicate<Map<String, Integer>> check){
+        read();
+        long[] id = {NO_RESERVATION};
+        withStripes(ingredients.keySet(), () -> {
+            if(check != null && !check.test(snapshot(ingredients.keySet(), Collections.emptyList()))){
+                return true;
+            }
+            return withAppendLock(() -> {
+                id[0] = nextId;
+                append(reserveRecord(new Reservation(nextId, orderNumber, itemNumber, System.currentTimeMillis(),
+                        ingredients)));
+                return true;
+            });
+        });
+        return id[0];
+    }
+
+    /**
+     * Replaces the reservations of an item with one for its new ingredients, if the check accepts the reserved
+     * quantities without the old reservations of the item. Nothing is changed if the check fails.
+     * @param ingredients the new ingredients and their quantities
+     * @param orderNumber the order number
+     * @param itemNumber the item number
+     * @param check the check of the reserved quantities of the ingredients
+     * @return true if the item has the new reservation
+     */
+    public boolean replaceItem(Map<String, Integer> ingredients, int orderNumber, int itemNumber,
+                               Predicate<Map<String, Integer>> check){
+        read();
+        for(int tries = 0 ; tries < RETRIES ; tries++){
+            HashSet<String> names = new HashSet<>(ingredients.keySet());
+            synchronized (this){
+                for(Reservation reservation : findItem(itemNumber)){
+                    names.addAll(reservation.ingredients.keySet());
+                }
+            }
+            int[] result = {-1};
+            withStripes(names, () -> {
+                ArrayList<Reservation> old;
+                Map<String, Integer> others;
+                synchronized (this){
+                    catchUp();
+                    old = findItem(itemNumber);
+                    for(Reservation reservation : old){
+                        if(!names.containsAll(reservation.ingredients.keySet())){
+                            // the item was changed by another program before the locks were taken
+                            return true;
+                        }
+                    }
+                    others = snapshot(ingredients.keySet(), old);
+                }
+                if(!check.test(others)){
+                    result[0] = 0;
+                    return true;
+                }
+                boolean done = withAppendLock(() -> {
+                    for(Reservation reservation : old){
+                        append(shortRecord(RELEASE, reservation.id));
+                    }
+                    append(reserveRecord(new Reservation(nextId, orderNumber, itemNumber,
+                            System.currentTimeMillis(), ingredients)));
+                    return true;
+                });
+                result[0] = done ? 1 : 0;
+                return done;
+            });
+            if(result[0] >= 0){
+                return result[0] == 1;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Binds a reservation made before the order to the order number and the item number of its item.
+     * @param id the number of the reservation
+     * @param orderNumber the order number
+     * @param itemNumber the item number
+     * @return false if the reservation is not open anymore, because it has expired
+     */
+    public boolean bind(long id, int orderNumber, int itemNumber){
+        return withAppendLock(() -> {
+            if(!reservations.containsKey(id)){
+                return false;
+            }
+            append(bindRecord(id, orderNumber, itemNumber));
+            return true;
+        });
+    }
+
+    /**
+     * Releases a reservation. Nothing happens if it is not open anymore. Releasing only lowers the reserved
+     * quantities, so it doesn't need the locks of the ingredients.
+     * @param id the number of the reservation
+     */
+    public void release(long id){
+        withAppendLock(() -> {
+            if(reservations.containsKey(id)){
+                append(shortRecord(RELEASE, id));
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Releases the reservations of the items.
+     * @param itemNumbers the item numbers
+     */
+    public void releaseItems(Collection<Integer> itemNumbers){
+        withAppendLock(() -> {
+            for(int itemNumber : itemNumbers){
+                for(Reservation reservation : findItem(itemNumber)){
+                    append(shortRecord(RELEASE, reservation.id));
+                }
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Reads the records of the other programs, or creates the file if this is the first time the ledger is used.
+     */
+    private void read(){
+        if(getLedger().exists()){
+            synchronized (this){
+                catchUp();
+            }
+        }
+        else {
+            withAppendLock(() -> true);
+        }
+    }
+
+    /**
+     * Returns the reserved quantities of the ingredients without the reservations that are replaced, after reading
+     * the records of the other programs.
+     * @param names the ingredient names
+     * @param replaced the reservations that are replaced
+     * @return the reserved quantities
+     */
+    private HashMap<String, Integer> snapshot(Collection<String> names, Collection<Reservation> replaced){
+        HashMap<String, Integer> quantities = new HashMap<>();
+        synchronized (this){
+            catchUp();
+            for(String name : names){
+                quantities.put(name, reserved.getOrDefault(name, 0));
+            }
+            for(Reservation reservation : replaced){
+                for(Map.Entry<String, Integer> ingredient : reservation.ingredients.entrySet()){
+                    quantities.computeIfPresent(ingredient.getKey(),
+                            (name, quantity) -> quantity - ingredient.getValue());
+                }
+            }
+        }
+        return quantities;
+    }
+
+    /**
+     * Returns the open reservations of the item. Must be called while holding the monitor of the ledger.
+     * @param itemNumber the item number
+     * @return the reservations
+     */
+    private ArrayList<Reservation> findItem(int itemNumber){
+        ArrayList<Reservation> found = new ArrayList<>();
+        for(Reservation reservation : reservations.values()){
+            if(reservation.itemNumber == itemNumber){
+                found.add(reservation);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Runs the action while holding the locks of the stripes of the ingredients: first the lock of every stripe in
+     * this program, then the lock of its byte in the lock file, which is shared by all the programs. The stripes are
+     * always locked in the same order, so two actions can't wait for each other.
+     * @param names the ingredient names
+     * @param action the action
+     * @return the result of the action, or false if the locks cannot be taken
+     */
+    private boolean withStripes(Collection<String> names, BooleanSupplier action){
+        TreeSet<Integer> indexes = new TreeSet<>();
+        for(String name : names){
+            indexes.add(Math.floorMod(name.hashCode(), STRIPES));
+        }
+        ArrayList<ReentrantLock> locked = new ArrayList<>();
+        ArrayList<FileLock> fileLocks = new ArrayList<>();
+        try {
+            for(int index : indexes){
+                stripes[index].lock();
+                locked.add(stripes[index]);
+                fileLocks.add(FileManager.lock(getLockChannel(), 1 + index, 1, false));
+            }
+            return action.getAsBoolean();
+        }
+        catch (IOException e){
+//            System.err.println("Cannot lock the reservation ledger");
+            return false;
+        }
+        finally {
+            for(FileLock fileLock : fileLocks){
+                try {
+                    fileLock.release();
+                }
+                catch (IOException e){
+//                    System.err.println("Cannot unlock the reservation ledger");
+                }
+            }
+            for(ReentrantLock lock : locked){
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Runs the action while holding the append lock of the ledger, after reading the records of the other programs.
+     * Creates the file if it doesn't exist, cuts off a record that a program did not finish writing, releases the
+     * expired reservations and rewrites the file when it is long. The append lock is only held to write the records.
+     * @param action the action
+     * @return the result of the action, or false if the lock cannot be taken or the file cannot be written
+     */
+    @SuppressWarnings("try")
+    private boolean withAppendLock(BooleanSupplier action){
+        appendLock.lock();
+        try (FileLock lock = FileManager.lock(getLockChannel(), 0, 1, false)){
+            synchronized (this){
+                if(!getLedger().exists()){
+                    create();
+                }
+                boolean result;
+                try (FileChannel ledger = FileChannel.open(getLedger().toPath(), StandardOpenOption.READ,
+                        StandardOpenOption.WRITE)){
+                    catchUp(ledger);
+                    if(ledger.size() > offset){
+                        ledger.truncate(offset);
+                    }
+                    ledgerChannel = ledger;
+                    sweep();
+                    result = action.getAsBoolean();
+                }
+                finally {
+                    ledgerChannel = null;
+                }
+                if(records > COMPACT_RECORDS && records > 4 * reservations.size()){
+                    compact();
+                }
+                return result;
+            }
+        }
+        catch (IOException | UncheckedLedgerException e){
+//            System.err.println("Cannot write the reservation ledger");
+            return false;
+        }
+        finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the channel of the lock file, whose bytes are locked by the stripes and the append lock.
+     * @return the channel
+     * @throws IOException if the lock file cannot be opened
+     */
+    private synchronized FileChannel getLockChannel() throws IOException {
+        if(lockChannel == null || !lockChannel.isOpen()){
+            lockChannel = FileChannel.open(new File(Config.getExtrasPath() + LEDGER_LOCK).toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        }
+        return lockChannel;
+    }
+
+    /**
+     * Reads the records that were appended since the last read. Starts again from the beginning when the file was
+     * rewritten. A record that is not complete yet is read the next time.
+     */
+    private void catchUp(){
+        try (FileChannel channel = FileChannel.open(getLedger().toPath(), StandardOpenOption.READ)){
+            catchUp(channel);
+        }
+        catch (NoSuchFileException e){
+            // nothing is reserved before the ledger is created
+        }
+        catch (IOException e){
+//            System.err.println("Cannot read the reservation ledger");
+        }
+    }
+
+    /**
+     * Reads the records that were appended since the last read from the open ledger file.
+     * @param channel the ledger file
+     * @throws IOException if the file cannot be read
+     */
+    private void catchUp(FileChannel channel) throws IOException {
+        byte[] bytes;
+        {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while(header.hasRemaining() && channel.read(header, header.position()) > 0){
+                // read the whole header
+            }
+            if(header.hasRemaining() || header.getInt(0) != MAGIC){
+                return;
+            }
+            if(header.getLong(4) != generation){
+                generation = header.getLong(4);
+                reservations.clear();
+                reserved.clear();
+                offset = HEADER_SIZE;
+                records = 0;
+            }
+            long size = channel.size();
+            if(size <= offset){
+                return;
+            }
+            ByteBuffer tail = ByteBuffer.allocate((int) (size - offset));
+            while(tail.hasRemaining() && channel.read(tail, offset + tail.position()) > 0){
+                // read the whole tail
+            }
+            bytes = tail.array();
+        }
+        int position = 0;
+        while(bytes.length - position >= 4){
+            int length = ByteBuffer.wrap(bytes, position, 4).getInt();
+            if(length <= 0 || bytes.length - position - 4 < length){
+                break;
+            }
+            try {
+                apply(new DataInputStream(new ByteArrayInputStream(bytes, position + 4, length)));
+            }
+            catch (IOException e){
+//                System.err.println("Skip the broken reservation record");
+            }
+            position += 4 + length;
+            records++;
+        }
+        offset += position;
+    }
+
+    /**
+     * Applies one record to the reservations and the reserved quantities.
+     * @param input the record
+     * @throws IOException if the record is broken
+     */
+    private void apply(DataInputStream input) throws IOException {
+        byte type = input.readByte();
+        long id = input.readLong();
+        nextId = Math.max(nextId, id + 1);
+        if(type == RESERVE){
+            int orderNumber = input.readInt();
+            int itemNumber = input.readInt();
+            long time = input.readLong();
+            int count = input.readInt();
+            LinkedHashMap<String, Integer> ingredients = new LinkedHashMap<>();
+            for(int i = 0 ; i < count ; i++){
+                ingredients.put(input.readUTF(), input.readInt());
+            }
+            Reservation reservation = new Reservation(id, orderNumber, itemNumber, time, ingredients);
+            reservations.put(id, reservation);
+            for(Map.Entry<String, Integer> ingredient : ingredients.entrySet()){
+                reserved.merge(ingredient.getKey(), ingredient.getValue(), Integer::sum);
+            }
+        }
+        else if(type == BIND){
+            Reservation reservation = reservations.get(id);
+            if(reservation != null){
+                reservation.orderNumber = input.readInt();
+                reservation.itemNumber = input.readInt();
+            }
+        }
+        else if(type == RELEASE){
+            Reservation reservation = reservations.remove(id);
+            if(reservation != null){
+                for(Map.Entry<String, Integer> ingredient : reservation.ingredients.entrySet()){
+                    String name = ingredient.getKey();
+                    int quantity = reserved.getOrDefault(name, 0) - ingredient.getValue();
+                    if(quantity > 0){
+                        reserved.put(name, quantity);
+                    }
+                    else {
+                        reserved.remove(name);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Appends a record to the file, applies it and records the reserved or released ingredients in the InventoryLog.
+     * Must be called while holding the lock of the ledger.
+     * @param record the record
+     */
+    private void append(byte[] record){
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(4 + record.length);
+            buffer.putInt(record.length).put(record).flip();
+            while(buffer.hasRemaining()){
+                ledgerChannel.write(buffer, offset + buffer.position());
+            }
+            long id = ByteBuffer.wrap(record, 1, 8).getLong();
+            Reservation released = record[0] == RELEASE ? reservations.get(id) : null;
+            apply(new DataInputStream(new ByteArrayInputStream(record)));
+            offset += 4 + record.length;
+            records++;
+            if(record[0] == RESERVE){
+                InventoryLog.getInventoryLog().record(InventoryLog.RESERVED, reservations.get(id).ingredients);
+            }
+            else if(released != null){
+                InventoryLog.getInventoryLog().record(InventoryLog.RELEASED, released.ingredients);
+            }
+        }
+        catch (IOException e){
+            throw new UncheckedLedgerException(e);
+        }
+    }
+
+    /**
+     * Releases the reservations that have expired. Runs at most once every SWEEP_MILLIS. Must be called while
+     * holding the lock of the ledger.
+     */
+    private void sweep(){
+        long now = System.currentTimeMillis();
+        if(now - lastSweep < SWEEP_MILLIS){
+            return;
+        }
+        lastSweep = now;
+        FileManager fileManager = new FileManager();
+        for(Reservation reservation : new ArrayList<>(reservations.values())){
+            if(now - reservation.time < PENDING_TIMEOUT){
+                continue;
+            }
+            boolean expired = reservation.itemNumber == -1;
+            if(!expired){
+                Item item = (Item) fileManager.readFromFile(Config.getItemsPath() + reservation.itemNumber);
+                expired = item == null || item.getItemInfo().isReady();
+            }
+            if(expired){
+                append(shortRecord(RELEASE, reservation.id));
+            }
+        }
+    }
+
+    /**
+     * Creates the ledger file. The quantities of the old reserved supply file are moved into one reservation that
+     * is not bound to an order, so they are released after PENDING_TIMEOUT. Must be called while holding the lock
+     * of the ledger.
+     * @throws IOException if the file cannot be written
+     */
+    private void create() throws IOException {
+        LinkedHashMap<String, Integer> legacy = new LinkedHashMap<>();
+        File reservedSupply = new File(Config.getReservedSupplyFile());
+        if(reservedSupply.exists()){
+            for(String line : Files.readAllLines(reservedSupply.toPath())){
+                String[] supplyLine = line.split(",");
+                try {
+                    if(supplyLine.length == 2 && Integer.parseInt(supplyLine[1].trim()) > 0){
+                        legacy.put(supplyLine[0], Integer.parseInt(supplyLine[1].trim()));
+                    }
+                }
+                catch (NumberFormatException e){
+//                    System.err.println("Skip the broken reserved supply: " + line);
+                }
+            }
+        }
+        ArrayList<Reservation> open = new ArrayList<>();
+        if(!legacy.isEmpty()){
+            open.add(new Reservation(1, -1, -1, System.currentTimeMillis(), legacy));
+        }
+        write(open);
+        Files.deleteIfExists(reservedSupply.toPath());
+    }
+
+    /**
+     * Rewrites the file with only the open reservations. Must be called while holding the lock of the ledger.
+     * @throws IOException if the file cannot be written
+     */
+    private void compact() throws IOException {
+        write(new ArrayList<>(reservations.values()));
+        catchUp();
+    }
+
+    /**
+     * Writes a new file with a new generation and the reservations, and moves it over the ledger.
+     * @param open the reservations
+     * @throws IOException if the file cannot be written
+     */
+    private void write(ArrayList<Reservation> open) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeInt(MAGIC);
+        output.writeLong(ThreadLocalRandom.current().nextLong());
+        for(Reservation reservation : open){
+            byte[] record = reserveRecord(reservation);
+            output.writeInt(record.length);
+            output.write(record);
+        }
+        Path target = getLedger().toPath();
+        Path temp = FileStorage.getTempFile(target);
+        try {
+            Files.write(temp, bytes.toByteArray(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE, StandardOpenOption.SYNC);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Encodes a RESERVE record.
+     * @param reservation the reservation
+     * @return the record
+     */
+    private static byte[] reserveRecord(Reservation reservation){
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream output = new DataOutputStream(bytes);
+            output.writeByte(RESERVE);
+            output.writeLong(reservation.id);
+            output.writeInt(reservation.orderNumber);
+            output.writeInt(reservation.itemNumber);
+            output.writeLong(reservation.time);
+            output.writeInt(reservation.ingredients.size());
+            for(Map.Entry<String, Integer> ingredient : reservation.ingredients.entrySet()){
+                output.writeUTF(ingredient.getKey());
+                output.writeInt(ingredient.getValue());
+            }
+            return bytes.toByteArray();
+        }
+        catch (IOException e){
+            throw new UncheckedLedgerException(e);
+        }
+    }
+
+    /**
+     * Encodes a BIND record.
+     * @param id the number of the reservation
+     * @param orderNumber the order number
+     * @param itemNumber the item number
+     * @return the record
+     */
+    private static byte[] bindRecord(long id, int orderNumber, int itemNumber){
+        return ByteBuffer.allocate(17).put(BIND).putLong(id).putInt(orderNumber).putInt(itemNumber).array();
+    }
+
+    /**
+     * Encodes a record that only has the type and the number of the reservation.
+     * @param type the type of the record
+     * @param id the number of the reservation
+     * @return the record
+     */
+    private static byte[] shortRecord(byte type, long id){
+        return ByteBuffer.allocate(9).put(type).putLong(id).array();
+    }
+
+    /**
+     * Returns the ledger file in the extras directory.
+     * @return the ledger file
+     */
+    private static File getLedger(){
+        return new File(Config.getExtrasPath() + LEDGER);
+    }
+
+    /**
+     * One reservation: the ingredients reserved for one item.
+     */
+    private static class Reservation {
+        private long id;
+        private int orderNumber;
+        private int itemNumber;
+        private long time;
+        private LinkedHashMap<String, Integer> ingredients;
+
+        /**
+         * Constructs a Reservation.
+         * @param id the number of the reservation
+         * @param orderNumber the order number, or -1
+         * @param itemNumber the item number, or -1
+         * @param time the time the reservation was made in milliseconds
+         * @param ingredients the ingredients and their quantities
+         */
+        Reservation(long id, int orderNumber, int itemNumber, long time, Map<String, Integer> ingredients){
+            this.id = id;
+            this.orderNumber = orderNumber;
+            this.itemNumber = itemNumber;
+            this.time = time;
+            this.ingredients = new LinkedHashMap<>();
+            for(Map.Entry<String, Integer> ingredient : ingredients.entrySet()){
+                // nothing is reserved for the ingredients that are taken out completely
+                if(ingredient.getValue() > 0){
+                    this.ingredients.put(ingredient.getKey(), ingredient.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Thrown out of the actions when a record cannot be written, so the whole action is given up.
+     */
+    private static class UncheckedLedgerException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Constructs an UncheckedLedgerException.
+         * @param cause the IOException
+         */
+        UncheckedLedgerException(IOException cause){
+            super(cause);
+        }
+    }
+}
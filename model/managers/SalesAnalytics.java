@@ -0,0 +1,475 @@
+package model.managers;
+
+import model.configs.Config;
+import model.data.Item;
+import model.data.Order2;
+import model.interfaces.Savable;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The SalesAnalytics class.
+ *
+ * The SalesAnalytics keeps the sold items of the finished orders in columns, so the sales can be grouped by meal and
+ * time without reading the finished orders again. Every sold item is a row with the number of its meal name, its
+ * price and the time its order was finished, and every addition or subtraction of an item is a row of the modifier
+ * columns with the row of its item. The names are kept once in a dictionary and the columns are arrays of primitives.
+ *
+ * The orders are added when they are finished, and the finished orders of the other programs and of the OrderArchive
+ * are read before every query, once. A query takes the rows that were added until then and splits them between the
+ * threads of the common fork-join pool; every part adds up its rows in its own arrays, which are summed at the end.
+ * @see OrderArchive
+ */
+public class SalesAnalytics {
+    private static final int INITIAL_ROWS = 1024;
+    private static final int SPLIT_ROWS = 8192;
+    private static final int MAX_BUCKETS = 10000;
+    private static final String ADDITION = "+ ";
+    private static final String SUBTRACTION = "- ";
+
+    private static SalesAnalytics salesAnalytics = new SalesAnalytics();
+
+    private FileManager fileManager;
+    private BitSet addedOrders;
+    private int archivedBlocks;
+
+    private Dictionary meals;
+    private int items;
+    private int[] itemMeals;
+    private double[] itemPrices;
+    private long[] itemTimes;
+
+    private Dictionary modifiers;
+    private int modifierRows;
+    private int[] modifierItems;
+    private int[] modifierNames;
+    private int[] modifierQuantities;
+
+    /**
+     * Constructs an empty SalesAnalytics.
+     */
+    private SalesAnalytics(){
+        fileManager = new FileManager();
+        addedOrders = new BitSet();
+        meals = new Dictionary();
+        itemMeals = new int[INITIAL_ROWS];
+        itemPrices = new double[INITIAL_ROWS];
+        itemTimes = new long[INITIAL_ROWS];
+        modifiers = new Dictionary();
+        modifierItems = new int[INITIAL_ROWS];
+        modifierNames = new int[INITIAL_ROWS];
+        modifierQuantities = new int[INITIAL_ROWS];
+    }
+
+    /**
+     * Returns this singleton sales analytics instance
+     * @return the sales analytics
+     */
+    public static SalesAnalytics getSalesAnalytics(){
+        return salesAnalytics;
+    }
+
+    /**
+     * Adds the items of a finished order, unless the order was added before.
+     * @param order the finished order
+     */
+    public synchronized void add(Order2 order){
+        if(!order.isFinished() || order.getOrderNumber() < 0 || addedOrders.get(order.getOrderNumber())){
+            return;
+        }
+        addedOrders.set(order.getOrderNumber());
+        for(Item item : order.getItems()){
+            if(items == itemMeals.length){
+                itemMeals = Arrays.copyOf(itemMeals, items * 2);
+                itemPrices = Arrays.copyOf(itemPrices, items * 2);
+                itemTimes = Arrays.copyOf(itemTimes, items * 2);
+            }
+            itemMeals[items] = meals.getId(item.getName());
+            itemPrices[items] = item.getPrice();
+            itemTimes[items] = order.getFinishedAt();
+            addModifiers(item.getIngredients().getAddition(), ADDITION);
+            addModifiers(item.getIngredients().getSubtraction(), SUBTRACTION);
+            items++;
+        }
+    }
+
+    /**
+     * Returns the number of items and revenue of every meal in every time bucket. The buckets start at from and are
+     * bucketMillis long; the items of the orders that were finished before the time was kept are not counted.
+     * @param from the start of the first bucket in milliseconds
+     * @param to the end of the last bucket in milliseconds, not included
+     * @param bucketMillis the length of a bucket in milliseconds
+     * @return the rows of the buckets with sales, by bucket and then by meal name
+     */
+    public List<Row> getSalesByMeal(long from, long to, long bucketMillis){
+        if(bucketMillis <= 0 || to <= from || (to - from - 1) / bucketMillis >= MAX_BUCKETS){
+            throw new IllegalArgumentException("Invalid time buckets");
+        }
+        int buckets = (int) ((to - from - 1) / bucketMillis + 1);
+        Columns columns = getColumns();
+        Sums sums = ForkJoinPool.commonPool().invoke(new SalesTask(columns, 0, columns.items, from, to, bucketMillis,
+                buckets));
+        ArrayList<Row> rows = new ArrayList<>();
+        for(int bucket = 0 ; bucket < buckets ; bucket++){
+            for(int meal = 0 ; meal < columns.meals.length ; meal++){
+                int cell = bucket * columns.meals.length + meal;
+                if(sums.counts[cell] > 0){
+                    rows.add(new Row(columns.meals[meal], from + bucket * bucketMillis, sums.counts[cell],
+                            sums.revenues[cell]));
+                }
+            }
+        }
+        rows.sort(Comparator.comparingLong(Row::getBucket).thenComparing(Row::getName));
+        return rows;
+    }
+
+    /**
+     * Returns the additions and subtractions that were asked for most often between the two times. The count of a
+     * row is the quantity of the modifier and its revenue is the revenue of the items that had it.
+     * @param from the start time in milliseconds
+     * @param to the end time in milliseconds, not included
+     * @param limit the number of rows
+     * @return the rows of the most used modifiers, the most used first
+     */
+    public List<Row> getTopModifiers(long from, long to, int limit){
+        Columns columns = getColumns();
+        Sums sums = ForkJoinPool.commonPool().invoke(new ModifierTask(columns, 0, columns.modifierRows, from, to));
+        ArrayList<Row> rows = new ArrayList<>();
+        for(int modifier = 0 ; modifier < columns.modifiers.length ; modifier++){
+            if(sums.counts[modifier] > 0){
+                rows.add(new Row(columns.modifiers[modifier], from, sums.counts[modifier], sums.revenues[modifier]));
+            }
+        }
+        rows.sort(Comparator.comparingLong(Row::getCount).reversed().thenComparing(Row::getName));
+        return rows.subList(0, Math.min(limit, rows.size()));
+    }
+
+    /**
+     * Adds the finished orders of the FinishedOrders folder and of the OrderArchive that were not added yet, and
+     * returns the columns as they are now.
+     * @return the columns
+     */
+    private Columns getColumns(){
+        for(File file : fileManager.getFileList(Config.getFinishedOrdersPath())){
+            int orderNumber;
+            try {
+                orderNumber = Integer.parseInt(file.getName());
+            }
+            catch (NumberFormatException e){
+                continue;
+            }
+            if(!isAdded(orderNumber)){
+                Savable order = fileManager.readFromFile(Config.getFinishedOrdersPath() + file.getName());
+                if(order instanceof Order2){
+                    add((Order2) order);
+                }
+            }
+        }
+        int from;
+        synchronized (this){
+            from = archivedBlocks;
+        }
+        int to = OrderArchive.getOrderArchive().forEachOrder(from, this::add);
+        synchronized (this){
+            archivedBlocks = Math.max(archivedBlocks, to);
+            return new Columns(this);
+        }
+    }
+
+    /**
+     * Returns true if the order was added.
+     * @param orderNumber the order number
+     * @return true if the order was added
+     */
+    private synchronized boolean isAdded(int orderNumber){
+        return orderNumber >= 0 && addedOrders.get(orderNumber);
+    }
+
+    /**
+     * Adds the modifier rows of the current item. Must be called while holding the monitor of the SalesAnalytics.
+     * @param quantities the added or subtracted ingredients and their quantities
+     * @param prefix the prefix of the modifier name
+     */
+    private void addModifiers(Map<String, Integer> quantities, String prefix){
+        for(Map.Entry<String, Integer> quantity : quantities.entrySet()){
+            if(modifierRows == modifierItems.length){
+                modifierItems = Arrays.copyOf(modifierItems, modifierRows * 2);
+                modifierNames = Arrays.copyOf(modifierNames, modifierRows * 2);
+                modifierQuantities = Arrays.copyOf(modifierQuantities, modifierRows * 2);
+            }
+            modifierItems[modifierRows] = items;
+            modifierNames[modifierRows] = modifiers.getId(prefix + quantity.getKey());
+            modifierQuantities[modifierRows] = quantity.getValue();
+            modifierRows++;
+        }
+    }
+
+    /**
+     * A row of a query: the name of a meal or a modifier, the start of its time bucket, its count and its revenue.
+     */
+    public static class Row {
+        private final String name;
+        private final long bucket;
+        private final long count;
+        private final double revenue;
+
+        /**
+         * Constructs a Row.
+         * @param name the meal or modifier name
+         * @param bucket the start of the time bucket in milliseconds
+         * @param count the count
+         * @param revenue the revenue
+         */
+        Row(String name, long bucket, long count, double revenue){
+            this.name = name;
+            this.bucket = bucket;
+            this.count = count;
+            this.revenue = revenue;
+        }
+
+        /**
+         * Returns the meal or modifier name.
+         * @return the name
+         */
+        public String getName(){
+            return name;
+        }
+
+        /**
+         * Returns the start of the time bucket.
+         * @return the time in milliseconds
+         */
+        public long getBucket(){
+            return bucket;
+        }
+
+        /**
+         * Returns the number of items, or the quantity of a modifier.
+         * @return the count
+         */
+        public long getCount(){
+            return count;
+        }
+
+        /**
+         * Returns the revenue of the items.
+         * @return the revenue
+         */
+        public double getRevenue(){
+            return revenue;
+        }
+    }
+
+    /**
+     * The names of a column and their numbers, in the order they were first seen.
+     */
+    private static class Dictionary {
+        private ArrayList<String> names = new ArrayList<>();
+        private HashMap<String, Integer> ids = new HashMap<>();
+
+        /**
+         * Returns the number of the name, giving it the next number if it is new.
+         * @param name the name
+         * @return the number
+         */
+        int getId(String name){
+            Integer id = ids.get(name);
+            if(id == null){
+                id = names.size();
+                names.add(name);
+                ids.put(name, id);
+            }
+            return id;
+        }
+
+        /**
+         * Returns the names by their number.
+         * @return the names
+         */
+        String[] getNames(){
+            return names.toArray(new String[0]);
+        }
+    }
+
+    /**
+     * The columns as they were when a query started. The rows are only appended and the arrays are replaced when
+     * they grow, so the rows of a Columns never change.
+     */
+    private static class Columns {
+        private final String[] meals;
+        private final int items;
+        private final int[] itemMeals;
+        private final double[] itemPrices;
+        private final long[] itemTimes;
+        private final String[] modifiers;
+        private final int modifierRows;
+        private final int[] modifierItems;
+        private final int[] modifierNames;
+        private final int[] modifierQuantities;
+
+        /**
+         * Takes the columns of the SalesAnalytics. Must be called while holding its monitor.
+         * @param analytics the SalesAnalytics
+         */
+        Columns(SalesAnalytics analytics){
+            meals = analytics.meals.getNames();
+            items = analytics.items;
+            itemMeals = analytics.itemMeals;
+            itemPrices = analytics.itemPrices;
+            itemTimes = analytics.itemTimes;
+            modifiers = analytics.modifiers.getNames();
+            modifierRows = analytics.modifierRows;
+            modifierItems = analytics.modifierItems;
+            modifierNames = analytics.modifierNames;
+            modifierQuantities = analytics.modifierQuantities;
+        }
+    }
+
+    /**
+     * The counts and revenues of the cells of a query.
+     */
+    private static class Sums {
+        private final long[] counts;
+        private final double[] revenues;
+
+        /**
+         * Constructs Sums of zero.
+         * @param cells the number of cells
+         */
+        Sums(int cells){
+            counts = new long[cells];
+            revenues = new double[cells];
+        }
+
+        /**
+         * Adds the other sums to these sums.
+         * @param other the other sums
+         * @return these sums
+         */
+        Sums add(Sums other){
+            for(int i = 0 ; i < counts.length ; i++){
+                counts[i] += other.counts[i];
+                revenues[i] += other.revenues[i];
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Adds up the items of a range of rows by meal and time bucket, splitting the range while it is larger than
+     * SPLIT_ROWS.
+     */
+    private static class SalesTask extends RecursiveTask<Sums> {
+        private static final long serialVersionUID = 1L;
+
+        private final Columns columns;
+        private final int start;
+        private final int end;
+        private final long from;
+        private final long to;
+        private final long bucketMillis;
+        private final int buckets;
+
+        /**
+         * Constructs a SalesTask.
+         * @param columns the columns
+         * @param start the first row
+         * @param end the row after the last row
+         * @param from the start of the first bucket
+         * @param to the end of the last bucket
+         * @param bucketMillis the length of a bucket
+         * @param buckets the number of buckets
+         */
+        SalesTask(Columns columns, int start, int end, long from, long to, long bucketMillis, int buckets){
+            this.columns = columns;
+            this.start = start;
+            this.end = end;
+            this.from = from;
+            this.to = to;
+            this.bucketMillis = bucketMillis;
+            this.buckets = buckets;
+        }
+
+        @Override
+        protected Sums compute() {
+            if(end - start > SPLIT_ROWS){
+                int middle = (start + end) >>> 1;
+                SalesTask left = new SalesTask(columns, start, middle, from, to, bucketMillis, buckets);
+                left.fork();
+                Sums right = new SalesTask(columns, middle, end, from, to, bucketMillis, buckets).compute();
+                return right.add(left.join());
+            }
+            int mealCount = columns.meals.length;
+            Sums sums = new Sums(buckets * mealCount);
+            for(int row = start ; row < end ; row++){
+                long time = columns.itemTimes[row];
+                if(time >= from && time < to){
+                    int cell = (int) ((time - from) / bucketMillis) * mealCount + columns.itemMeals[row];
+                    sums.counts[cell]++;
+                    sums.revenues[cell] += columns.itemPrices[row];
+                }
+            }
+            return sums;
+        }
+    }
+
+    /**
+     * Adds up the modifiers of a range of modifier rows, splitting the range while it is larger than SPLIT_ROWS.
+     */
+    private static class ModifierTask extends RecursiveTask<Sums> {
+        private static final long serialVersionUID = 1L;
+
+        private final Columns columns;
+        private final int start;
+        private final int end;
+        private final long from;
+        private final long to;
+
+        /**
+         * Constructs a ModifierTask.
+         * @param columns the columns
+         * @param start the first modifier row
+         * @param end the modifier row after the last one
+         * @param from the start time
+         * @param to the end time
+         */
+        ModifierTask(Columns columns, int start, int end, long from, long to){
+            this.columns = columns;
+            this.start = start;
+            this.end = end;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Sums compute() {
+            if(end - start > SPLIT_ROWS){
+                int middle = (start + end) >>> 1;
+                ModifierTask left = new ModifierTask(columns, start, middle, from, to);
+                left.fork();
+                Sums right = new ModifierTask(columns, middle, end, from, to).compute();
+                return right.add(left.join());
+            }
+            Sums sums = new Sums(columns.modifiers.length);
+            for(int row = start ; row < end ; row++){
+                int item = columns.modifierItems[row];
+                long time = columns.itemTimes[item];
+                if(time >= from && time < to){
+                    int modifier = columns.modifierNames[row];
+                    sums.counts[modifier] += columns.modifierQuantities[row];
+                    sums.revenues[modifier] += columns.itemPrices[item];
+                }
+            }
+            return sums;
+        }
+    }
+}
@@ -4,25 +4,46 @@ import model.configs.Config;
 import model.data.Supply2;
 
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntUnaryOperator;
 
 /**
  * The SupplyManager class
  *
  * The SupplyManager class provides methods that deals with the supply. It manages the supply amounts and reduces
  * supply in stock when given the ingredients. It also loads and returns supply lists from the data base.
+ *
+ * The quantities are read and updated in the SupplyTable. The supply files are still saved in the Stock folder every
+ * time a supply changes. The supplies reserved for the items that are not cooked yet are kept in the
+ * ReservationLedger. Every change of the quantities is recorded in the InventoryLog. The supply requests are written
+ * by the ReorderEngine.
+ * @see SupplyTable
+ * @see ReservationLedger
+ * @see InventoryLog
+ * @see ReorderEngine
  */
 public class SupplyManager {
+    public static final int DEFAULT_QUANTITY_NEEDED = 20;
+
     private FileManager fileManager;
+    private SupplyTable supplyTable;
+    private ReservationLedger reservationLedger;
+    private InventoryLog inventoryLog;
+    private Metrics metrics;
 
     /**
      * Constructs a SupplyManager
      */
     public SupplyManager(){
         fileManager = new FileManager();
+        supplyTable = SupplyTable.getSupplyTable();
+        reservationLedger = ReservationLedger.getReservationLedger();
+        inventoryLog = InventoryLog.getInventoryLog();
+        metrics = Metrics.getMetrics();
     }
 
     /**
@@ -30,7 +51,72 @@ public class SupplyManager {
      * @param supply the supply
      */
     public void saveSupplyFile(Supply2 supply){
+        supplyTable.putSupply(supply);
         fileManager.saveToFile(supply, Config.getStockPath());
+        ReorderEngine.getReorderEngine().supplyChanged(supply.getName());
+    }
+
+    /**
+     * Saves a new supply and records its quantity as received.
+     * @param supply the supply
+     */
+    public void saveNewSupply(Supply2 supply){
+        saveSupplyFile(supply);
+        inventoryLog.record(InventoryLog.RECEIVED, supply.getName(), supply.getQuantity());
+    }
+
+    /**
+     * Changes the quantity of the supply by an event of the InventoryLog as a part of the unit of work. Like
+     * deductIngredients, the new quantity is worked out from the current one when the unit of work is committed, so
+     * the changes made by the other programs in the meantime are kept. The event is recorded after the file is
+     * written. Nothing changes if the supply doesn't exist.
+     * @param name the supply name
+     * @param event the type of the event, like InventoryLog.RECEIVED
+     * @param quantity the quantity of the event
+     * @param work the unit of work
+     */
+    public void changeQuantity(String name, byte event, int quantity, UnitOfWork work){
+        changeQuantity(name, event, current -> quantity, work);
+    }
+
+    /**
+     * Sets the quantity of the supply to the quantity that was counted as a part of the unit of work, and records
+     * the difference to the quantity in stock when the unit of work is committed as an adjustment. Nothing changes if
+     * the supply doesn't exist or the counted quantity is the quantity in stock.
+     * @param name the supply name
+     * @param counted the counted quantity
+     * @param work the unit of work
+     */
+    public void countQuantity(String name, int counted, UnitOfWork work){
+        changeQuantity(name, InventoryLog.ADJUSTED, current -> counted - current, work);
+    }
+
+    /**
+     * Changes the quantity of the supply by an event whose quantity is worked out from the quantity in stock when
+     * the unit of work is committed.
+     * @param name the supply name
+     * @param event the type of the event
+     * @param quantityOf gives the quantity of the event for the quantity in stock
+     * @param work the unit of work
+     */
+    private void changeQuantity(String name, byte event, IntUnaryOperator quantityOf, UnitOfWork work){
+        work.prepare(() -> {
+            Supply2 supply = getSupplyByName(name);
+            if(supply == null){
+                return;
+            }
+            int quantity = quantityOf.applyAsInt(supply.getQuantity());
+            if(quantity == 0){
+                return;
+            }
+            supply.addQuantity(InventoryLog.getSign(event) * quantity);
+            work.save(supply, Config.getStockPath());
+            work.onCommit(() -> {
+                supplyTable.putSupply(supply);
+                ReorderEngine.getReorderEngine().supplyChanged(name);
+                inventoryLog.record(event, name, quantity);
+            });
+        });
     }
 
     /**
@@ -39,7 +125,14 @@ public class SupplyManager {
      * @return the supply
      */
     public Supply2 getSupplyByName(String name){
-        return (Supply2) fileManager.readFromFile(Config.getStockPath() + name);
+        Supply2 supply = supplyTable.getSupply(name);
+        if(supply == null){
+            supply = (Supply2) fileManager.readFromFile(Config.getStockPath() + name);
+            if(supply != null){
+                supplyTable.putSupply(supply);
+            }
+        }
+        return supply;
     }
 
     /**
@@ -59,62 +152,123 @@ public class SupplyManager {
      * Returns a list of supplies in the data base
      * @return a list of supplies
      */
-    private ArrayList<Supply2> getSupplyList(){
+    public ArrayList<Supply2> getSupplyList(){
         ArrayList<Supply2> supplies = new ArrayList<>();
-        File[] supplyFiles = fileManager.getFileList(Config.getStockPath());
-        for(File file: supplyFiles) {
-            supplies.add((Supply2) fileManager.readFromFile(Config.getStockPath() + file.getName()));
+        for(String name : getSupplyNameList()) {
+            Supply2 supply = getSupplyByName(name);
+            if(supply != null) {
+                supplies.add(supply);
+            }
         }
         return supplies;
     }
 
     /**
-     * Deduct the quantity of the supply that is used to make an Item.
-     * @param ingredients that is used to make an Item.
+     * Deducts the used ingredients from the stock and releases the reservations of the items as a part of the unit of
+     * work. The new quantities are worked out from the current ones when the unit of work is committed, and the
+     * supply files and the SupplyTable are changed together with the other changes of the unit of work. The event is
+     * recorded and the reservations are released after the files are written, and only after the SupplyTable has the
+     * lower quantities: released first, another program could reserve the units that are about to be deducted.
+     * @param used the ingredients that were used, deducted from the stock
+     * @param event the type of the event recorded in the InventoryLog, InventoryLog.CONSUMED or InventoryLog.WASTED
+     * @param itemNumbers the items whose reservations are released
+     * @param work the unit of work
      */
-    public void deductIngredientUsage(HashMap<String, Integer> ingredients){
-        deductIngredientsFromReservedSupply(ingredients);
-        for (String name: ingredients.keySet()) {
-            Supply2 supply = getSupplyByName(name);
-            supply.removeQuantity(ingredients.get(name));
-            saveSupplyFile(supply);
-        }
+    public void deductIngredients(Map<String, Integer> used, byte event, Collection<Integer> itemNumbers,
+                                  UnitOfWork work){
+        work.prepare(() -> {
+            ArrayList<Supply2> supplies = new ArrayList<>();
+            HashMap<String, Integer> deducted = new HashMap<>();
+            for(String name : used.keySet()){
+                Supply2 supply = getSupplyByName(name);
+                if(supply != null){
+                    supply.removeQuantity(used.get(name));
+                    supplies.add(supply);
+                    deducted.put(name, used.get(name));
+                    work.save(supply, Config.getStockPath());
+                }
+            }
+            work.onCommit(() -> {
+                for(Supply2 supply : supplies){
+                    supplyTable.putSupply(supply);
+                }
+                inventoryLog.record(event, deducted);
+                reservationLedger.releaseItems(itemNumbers);
+            });
+        });
     }
+
     /**
-     * Deduct the quantity of the supply that reserved when the item is finished.
-     * @param ingredients that needs to deduct from reserved supplies
+     * Adds the quantities of a delivery to the stock as a part of the unit of work. The new quantities are worked out
+     * from the current ones when the unit of work is committed, and all the supply files are written in the same
+     * commit. A supply that doesn't exist yet is created with DEFAULT_QUANTITY_NEEDED. The delivery is recorded as one
+     * event after the files are written.
+     * @param delivery the supply names and the received quantities
+     * @param work the unit of work
      */
-    public void deductIngredientsFromReservedSupply(HashMap<String, Integer> ingredients){
-        HashMap<String, Integer> reservedSupplies = getReservedSupply();
-        for (String name : ingredients.keySet()){
-            int quantity = ingredients.get(name);
-            int reservedQuantity = (!reservedSupplies.containsKey(name)) ? 0 : reservedSupplies.get(name) - quantity;
-            if (reservedQuantity < 0){
-//                System.err.println("There is an error in reservedSupply!");
-                reservedQuantity = 0;
+    public void receiveSupplies(Map<String, Integer> delivery, UnitOfWork work){
+        work.prepare(() -> {
+            ArrayList<Supply2> supplies = new ArrayList<>();
+            for(Map.Entry<String, Integer> received : delivery.entrySet()){
+                Supply2 supply = getSupplyByName(received.getKey());
+                if(supply == null){
+                    supply = new Supply2(received.getKey(), DEFAULT_QUANTITY_NEEDED, 0);
+                }
+                supply.addQuantity(received.getValue());
+                supplies.add(supply);
+                work.save(supply, Config.getStockPath());
             }
-            reservedSupplies.put(name, reservedQuantity);
-        }
-        writeReservedSupply(reservedSupplies);
+            work.onCommit(() -> {
+                for(Supply2 supply : supplies){
+                    supplyTable.putSupply(supply);
+                    ReorderEngine.getReorderEngine().supplyChanged(supply.getName());
+                }
+                inventoryLog.record(InventoryLog.RECEIVED, delivery);
+            });
+        });
     }
+
     /**
-     * Update the supply request text file
+     * Reads the supply from the Stock folder into the SupplyTable again.
+     * @param name the supply name
      */
-    public void updateSupplyRequests() {
-        ArrayList<Supply2> supplies= getSupplyList();
-        try(PrintWriter file = new PrintWriter("Requests.txt")) {
-            for (Supply2 s : supplies) {
-                int need = 0;
-                while (s.getQuantity() + need < s.getTotalQuantityNeeded()) {
-                    need += s.getRequestAmount();
-                }
-                if (need != 0) {
-                    file.println(s.getName() + ": " + Integer.toString(need));
-                }
-            }
+    public void reloadSupply(String name){
+        Supply2 supply = (Supply2) fileManager.readFromFile(Config.getStockPath() + name);
+        if(supply != null){
+            supplyTable.putSupply(supply);
         }
-        catch (FileNotFoundException e) {
-//            e.printStackTrace();
+    }
+
+    /**
+     * Releases the reservation made before the order was made, when the server takes the item out of the order.
+     * @param reservation the number of the reservation
+     */
+    public void releaseReservation(long reservation){
+        reservationLedger.release(reservation);
+    }
+
+    /**
+     * Releases the reservations of an item that is taken out of its order.
+     * @param itemNumber the item number
+     */
+    public void releaseItemReservation(int itemNumber){
+        reservationLedger.releaseItems(Collections.singletonList(itemNumber));
+    }
+
+    /**
+     * Binds the reservation made before the order was made to the item. If the reservation has expired in the
+     * meantime, the ingredients of the item are reserved again without checking the stock, since the item is
+     * ordered anyway.
+     * @param reservation the number of the reservation
+     * @param neededSupplies the ingredients of the item
+     * @param orderNumber the order number
+     * @param itemNumber the item number
+     */
+    public void bindReservation(long reservation, Map<String, Integer> neededSupplies, int orderNumber,
+                                int itemNumber){
+        if(reservation == ReservationLedger.NO_RESERVATION
+                || !reservationLedger.bind(reservation, orderNumber, itemNumber)){
+            reservationLedger.reserve(neededSupplies, orderNumber, itemNumber, null);
         }
     }
 
@@ -123,73 +277,63 @@ public class SupplyManager {
      * @param neededSupplies the supplies of an item that needs to check to see if it is in stock
      * @return boolean
      */
-    public boolean checkNeededSupply(HashMap<String, Integer> neededSupplies, boolean reserve) {
-        HashMap<String, Integer> reservedSupplies = getReservedSupply();
-        boolean hasEnough = true;
-
-        for (String name : neededSupplies.keySet()) {
-            Supply2 s = getSupplyByName(name);
-            int quantity = neededSupplies.get(name);
-            if (reservedSupplies.containsKey(name))
-                quantity += reservedSupplies.get(name);
-            if (s.getQuantity() < quantity) {
-                hasEnough = false;
-                break;
-            }
+    public boolean checkNeededSupply(Map<String, Integer> neededSupplies) {
+        long begin = metrics.begin();
+        try {
+            return hasEnough(neededSupplies, reservationLedger.getReservedSupplies());
         }
-
-        if (hasEnough && reserve){
-            writeReservedSupply(mergeHashMaps(neededSupplies, reservedSupplies));
+        finally {
+            metrics.record("SupplyManager.checkNeededSupply", begin);
         }
-        return hasEnough;
     }
+
     /**
-     * Merge two hash maps with values added.
-     * @param a the first hash map
-     * @param b the second hash map
-     * @return a merged hash maps
+     * Reserves the supplies of an item if there is enough in stock besides the supplies reserved already.
+     * @param neededSupplies the supplies of the item
+     * @param orderNumber the order number, or -1 if the order is not made yet
+     * @param itemNumber the item number, or -1 if the order is not made yet
+     * @return the number of the reservation, or ReservationLedger.NO_RESERVATION if there is not enough
      */
-    private HashMap<String, Integer> mergeHashMaps(HashMap<String, Integer> a, HashMap<String, Integer> b){
-        HashMap<String, Integer> newHash = new HashMap<>(a);
-        for(String key : b.keySet()){
-            int value = b.get(key);
-            if (newHash.containsKey(key)) {
-                value += newHash.get(key);
-            }
-            newHash.put(key, value);
+    public long reserveNeededSupply(Map<String, Integer> neededSupplies, int orderNumber, int itemNumber) {
+        long begin = metrics.begin();
+        try {
+            return reservationLedger.reserve(neededSupplies, orderNumber, itemNumber,
+                    reserved -> hasEnough(neededSupplies, reserved));
+        }
+        finally {
+            metrics.record("SupplyManager.reserveNeededSupply", begin);
         }
-        return newHash;
     }
+
     /**
-     *
-     * @return Hash map that contains details of the reserved supplies
+     * Replaces the reservation of an item that is edited with the supplies it needs now, if there is enough in stock
+     * besides the supplies reserved for the other items.
+     * @param neededSupplies the supplies the item needs now
+     * @param orderNumber the order number
+     * @param itemNumber the item number
+     * @return false if there is not enough, in which case the item keeps its old reservation
      */
-    private HashMap<String, Integer> getReservedSupply(){
-        String content = fileManager.readFileContent(Config.getReservedSupplyFile());
-        HashMap<String, Integer> reservedSupplies = new HashMap<>();
-
-        for(String line : content.split("\n")){
-            if(!line.trim().isEmpty()) {
-                String[] supplyLine = line.split(",");
-                reservedSupplies.put(supplyLine[0], Integer.parseInt(supplyLine[1]));
-            }
-        }
-        return reservedSupplies;
+    public boolean replaceReservedSupply(Map<String, Integer> neededSupplies, int orderNumber, int itemNumber) {
+        return reservationLedger.replaceItem(neededSupplies, orderNumber, itemNumber,
+                reserved -> hasEnough(neededSupplies, reserved));
     }
+
     /**
-     * Write a file that keeps track of reserved supplies in directory "Extras"
-     * @param supplies that is needed to reserve
+     * Checks if there is enough of every supply in stock for the needed quantity and the reserved quantity.
+     * @param neededSupplies the supplies of an item
+     * @param reserved the reserved quantities
+     * @return true if there is enough
      */
-    private void writeReservedSupply(HashMap<String, Integer> supplies){
-        ArrayList<String> content = new ArrayList<>();
-        for (String supply: supplies.keySet()){
-            int quantity = supplies.get(supply);
-            // if the quantity is less than zero, then we don't need to keep track
-            if (quantity > 0){
-                content.add(supply + "," + quantity );
+    private boolean hasEnough(Map<String, Integer> neededSupplies, Map<String, Integer> reserved) {
+        for (Map.Entry<String, Integer> needed : neededSupplies.entrySet()) {
+            String name = needed.getKey();
+            Supply2 s = supplyTable.contains(name) ? null : getSupplyByName(name);
+            int quantityInStock = s == null ? supplyTable.getQuantity(name) : s.getQuantity();
+            int quantity = needed.getValue() + reserved.getOrDefault(name, 0);
+            if (quantityInStock < quantity) {
+                return false;
             }
         }
-        fileManager.writeFile(String.join("\n", content), Config.getReservedSupplyFile());
+        return true;
     }
-
 }
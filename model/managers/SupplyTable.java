@@ -0,0 +1,333 @@
+package model.managers;
+
+import model.configs.Config;
+import model.data.Supply2;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * The SupplyTable class.
+ *
+ * The SupplyTable is a memory mapped file in the extras directory which holds one fixed size record for every
+ * supply: the name, the quantity in stock, the total quantity needed, the request amount and a field that held the
+ * reserved quantity before the ReservationLedger and is kept so the existing table files keep their layout.
+ * The SupplyManager reads and updates the records in place, so checking the stock does not need to open and
+ * de-serialize the supply files. All running programs map the same file, so an update made by one program is
+ * seen by the others right away.
+ *
+ * The table is built from the Stock folder the first time it is used. A supply that is not in the table yet (or whose
+ * name is too long for a record) is read from the Stock folder by the SupplyManager as before.
+ * @see SupplyManager
+ */
+public class SupplyTable {
+    private static final int MAGIC = 0x53544231;
+    private static final int HEADER_SIZE = 16;
+    private static final int NAME_SIZE = 128;
+    private static final int RECORD_SIZE = NAME_SIZE + 16;
+    private static final int INITIAL_CAPACITY = 256;
+
+    private static final int QUANTITY = NAME_SIZE;
+    private static final int NEEDED = NAME_SIZE + 4;
+    private static final int REQUEST = NAME_SIZE + 8;
+    private static final int RESERVED = NAME_SIZE + 12;
+
+    private static SupplyTable supplyTable = new SupplyTable();
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int capacity;
+    private HashMap<String, Integer> slots;
+    private int indexedCount;
+
+    /**
+     * Constructs a SupplyTable. The file is mapped when the table is first used.
+     */
+    private SupplyTable(){
+        slots = new HashMap<>();
+    }
+
+    /**
+     * Returns this singleton supply table instance
+     * @return the supply table
+     */
+    public static SupplyTable getSupplyTable(){
+        return supplyTable;
+    }
+
+    /**
+     * Checks if the supply has a record in the table.
+     * @param name the supply name
+     * @return true if the supply is in the table
+     */
+    public synchronized boolean contains(String name){
+        return getSlot(name) >= 0;
+    }
+
+    /**
+     * Returns a Supply2 made from the record of the supply, or null if the supply is not in the table.
+     * @param name the supply name
+     * @return the supply or null
+     */
+    public synchronized Supply2 getSupply(String name){
+        int slot = getSlot(name);
+        if(slot < 0){
+            return null;
+        }
+        Supply2 supply = new Supply2(name, getInt(slot, NEEDED), getInt(slot, QUANTITY));
+        supply.setRequestAmount(getInt(slot, REQUEST));
+        return supply;
+    }
+
+    /**
+     * Writes the supply into its record while holding the lock on the record, or adds a new record if the supply is
+     * not in the table.
+     * @param supply the supply
+     * @return false if the supply cannot be stored in the table
+     */
+    @SuppressWarnings("try")
+    public synchronized boolean putSupply(Supply2 supply){
+        int slot = getSlot(supply.getName());
+        if(slot < 0){
+            slot = addRecord(supply.getName());
+            if(slot < 0){
+                return false;
+            }
+        }
+        try (FileLock lock = lockRecord(slot)){
+            putInt(slot, QUANTITY, supply.getQuantity());
+            putInt(slot, NEEDED, supply.getTotalQuantityNeeded());
+            putInt(slot, REQUEST, supply.getRequestAmount());
+            return true;
+        }
+        catch (IOException e){
+//            System.err.println("Cannot lock the record of " + supply.getName());
+            return false;
+        }
+    }
+
+    /**
+     * Returns the quantity in stock of the supply, or 0 if the supply is not in the table.
+     * @param name the supply name
+     * @return the quantity in stock
+     */
+    public synchronized int getQuantity(String name){
+        int slot = getSlot(name);
+        return slot < 0 ? 0 : getInt(slot, QUANTITY);
+    }
+
+    /**
+     * Returns the names of all supplies in the table.
+     * @return the supply names
+     */
+    public synchronized ArrayList<String> getNames(){
+        if(!open()){
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(slots.keySet());
+    }
+
+    /**
+     * Returns the slot of the supply, or -1 if the supply is not in the table.
+     * @param name the supply name
+     * @return the slot or -1
+     */
+    private int getSlot(String name){
+        if(!open()){
+            return -1;
+        }
+        Integer slot = slots.get(name);
+        return slot == null ? -1 : slot;
+    }
+
+    /**
+     * Maps the table file if it is not mapped yet and brings the name index up to date with the records that the
+     * other programs have added. Builds the table from the Stock folder if the file is new.
+     * @return false if the table file cannot be mapped
+     */
+    @SuppressWarnings("try")
+    private boolean open(){
+        try {
+            if(buffer == null){
+                File file = new File(Config.getExtrasPath() + "supplyTable");
+                channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE);
+                try (FileLock lock = FileManager.lock(channel, 0, Long.MAX_VALUE, false)){
+                    if(channel.size() < HEADER_SIZE || readHeader().getInt(0) != MAGIC){
+                        map(INITIAL_CAPACITY);
+                        buffer.putInt(0, MAGIC);
+                        buffer.putInt(4, 0);
+                        buffer.putInt(8, INITIAL_CAPACITY);
+                        build();
+                    }
+                    else {
+                        map(readHeader().getInt(8));
+                    }
+                }
+            }
+            if(buffer.getInt(8) != capacity){
+                map(buffer.getInt(8));
+            }
+            int count = buffer.getInt(4);
+            for(int slot = indexedCount ; slot < count ; slot++){
+                slots.put(getName(slot), slot);
+            }
+            indexedCount = Math.max(indexedCount, count);
+            return true;
+        }
+        catch (IOException e){
+//            System.err.println("Cannot open the supply table");
+            buffer = null;
+            return false;
+        }
+    }
+
+    /**
+     * Maps the header of the table file.
+     * @return the header
+     * @throws IOException if the file cannot be read
+     */
+    private MappedByteBuffer readHeader() throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+    }
+
+    /**
+     * Maps the table file with the given capacity.
+     * @param newCapacity the number of records
+     * @throws IOException if the file cannot be mapped
+     */
+    private void map(int newCapacity) throws IOException {
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) newCapacity * RECORD_SIZE);
+        capacity = newCapacity;
+    }
+
+    /**
+     * Fills a new table with the supplies of the Stock folder.
+     * @throws IOException if the file cannot be grown
+     */
+    private void build() throws IOException {
+        FileManager fileManager = new FileManager();
+        for(File file : fileManager.getFileList(Config.getStockPath())){
+            Supply2 supply = (Supply2) fileManager.readFromFile(Config.getStockPath() + file.getName());
+            if(supply != null) {
+                int slot = appendRecord(supply.getName());
+                if(slot >= 0) {
+                    putInt(slot, QUANTITY, supply.getQuantity());
+                    putInt(slot, NEEDED, supply.getTotalQuantityNeeded());
+                    putInt(slot, REQUEST, supply.getRequestAmount());
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a new empty record for the supply while holding the lock on the header and returns its slot.
+     * Returns -1 if the record cannot be added.
+     * @param name the supply name
+     * @return the slot or -1
+     */
+    @SuppressWarnings("try")
+    private int addRecord(String name){
+        try (FileLock lock = FileManager.lock(channel, 0, HEADER_SIZE, false)){
+            // another program may have added records (or grown the file) since the last look up
+            if(buffer.getInt(8) != capacity){
+                map(buffer.getInt(8));
+            }
+            int count = buffer.getInt(4);
+            for(int slot = indexedCount ; slot < count ; slot++){
+                slots.put(getName(slot), slot);
+            }
+            indexedCount = Math.max(indexedCount, count);
+            if(slots.containsKey(name)){
+                return slots.get(name);
+            }
+            return appendRecord(name);
+        }
+        catch (IOException e){
+            return -1;
+        }
+    }
+
+    /**
+     * Appends a new empty record for the supply and returns its slot. Doubles the capacity of the file if it is
+     * full. Returns -1 if the name is too long for a record. Must be called while holding the lock on the header.
+     * @param name the supply name
+     * @return the slot or -1
+     * @throws IOException if the file cannot be grown
+     */
+    private int appendRecord(String name) throws IOException {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        if(nameBytes.length > NAME_SIZE - 2){
+            return -1;
+        }
+        int count = buffer.getInt(4);
+        if(count == capacity){
+            map(capacity * 2);
+            buffer.putInt(8, capacity);
+        }
+        int base = HEADER_SIZE + count * RECORD_SIZE;
+        buffer.putShort(base, (short) nameBytes.length);
+        for(int i = 0 ; i < nameBytes.length ; i++){
+            buffer.put(base + 2 + i, nameBytes[i]);
+        }
+        for(int field = QUANTITY ; field <= RESERVED ; field += 4){
+            buffer.putInt(base + field, 0);
+        }
+        buffer.putInt(4, count + 1);
+        slots.put(name, count);
+        indexedCount = count + 1;
+        return count;
+    }
+
+    /**
+     * Locks the record of a slot in the table file. The record does not overlap the header, so a record can be
+     * written while another program adds a record.
+     * @param slot the slot
+     * @return the lock
+     * @throws IOException if the record cannot be locked
+     */
+    private FileLock lockRecord(int slot) throws IOException {
+        return FileManager.lock(channel, HEADER_SIZE + (long) slot * RECORD_SIZE, RECORD_SIZE, false);
+    }
+
+    /**
+     * Returns the name stored in a slot.
+     * @param slot the slot
+     * @return the supply name
+     */
+    private String getName(int slot){
+        int base = HEADER_SIZE + slot * RECORD_SIZE;
+        byte[] nameBytes = new byte[buffer.getShort(base)];
+        for(int i = 0 ; i < nameBytes.length ; i++){
+            nameBytes[i] = buffer.get(base + 2 + i);
+        }
+        return new String(nameBytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads an int field of a slot.
+     * @param slot the slot
+     * @param field the field offset in the record
+     * @return the value
+     */
+    private int getInt(int slot, int field){
+        return buffer.getInt(HEADER_SIZE + slot * RECORD_SIZE + field);
+    }
+
+    /**
+     * Writes an int field of a slot.
+     * @param slot the slot
+     * @param field the field offset in the record
+     * @param value the value
+     */
+    private void putInt(int slot, int field, int value){
+        buffer.putInt(HEADER_SIZE + slot * RECORD_SIZE + field, value);
+    }
+}
@@ -0,0 +1,410 @@
+package model.managers;
+
+import model.configs.Config;
+import model.interfaces.Savable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+/**
+ * The UnitOfWork class.
+ *
+ * A UnitOfWork collects all the file changes of one user action (the saved and deleted Savable objects and the text
+ * files) and writes them as one commit. The changes are first written into the redo log in the extras directory,
+ * then applied to their files, and the redo log is deleted at the end. All the programs share one redo log, and a
+ * redo log is only there while the save lock is held, unless the program that wrote it stopped or could not write all
+ * the files. So whoever takes the save lock next, any program at its next commit or at its start, first applies the
+ * redo log again before it changes anything, and either all or none of the changes of the action are seen. A redo
+ * log that cannot be applied is kept, and nothing else is saved under the lock until it is applied.
+ *
+ * A commit is made while holding the save lock of the FileManager. The prepare actions are run first under the lock,
+ * so they can read the current state (like the supply quantities) and add the changes that depend on it. The commit
+ * actions are run after the files are written and update the state that is kept in memory, like the SupplyTable.
+ *
+ * A Savable that is saved with saveIfUnchanged is only written if nobody saved it since it was read, like
+ * FileManager.compareAndSave. If one of them was saved in the meantime, nothing is written and commit returns false.
+ * @see FileManager
+ */
+public class UnitOfWork {
+    private static final String REDO_LOG = "unitOfWork";
+    private static final int MAGIC = 0x52554F57;
+    private static final byte WRITE = 1;
+    private static final byte DELETE = 2;
+    private static final byte TEXT = 3;
+
+    private FileManager fileManager;
+    private LinkedHashMap<String, Entry> entries;
+    private ArrayList<Runnable> prepareActions;
+    private ArrayList<Runnable> commitActions;
+    private boolean committed;
+
+    /**
+     * Constructs an empty UnitOfWork.
+     */
+    public UnitOfWork(){
+        fileManager = new FileManager();
+        entries = new LinkedHashMap<>();
+        prepareActions = new ArrayList<>();
+        commitActions = new ArrayList<>();
+    }
+
+    /**
+     * Saves the Savable object into the folder when the unit of work is committed. The object is serialized during
+     * the commit, so the changes made to it until then are saved as well.
+     * @param object the object
+     * @param folderName the folder directory
+     */
+    public void save(Savable object, String folderName){
+        add(new Entry(WRITE, folderName, object, false));
+    }
+
+    /**
+     * Saves the Savable object into the folder when the unit of work is committed, if nobody saved it since it was
+     * read. Its version is increased by one when it is saved.
+     * @param object the object
+     * @param folderName the folder directory
+     */
+    public void saveIfUnchanged(Savable object, String folderName){
+        add(new Entry(WRITE, folderName, object, true));
+    }
+
+    /**
+     * Deletes the file of the Savable object from the folder when the unit of work is committed.
+     * @param object the object
+     * @param folderName the folder directory
+     */
+    public void delete(Savable object, String folderName){
+        add(new Entry(DELETE, folderName, object, false));
+    }
+
+    /**
+     * Writes the text into a file when the unit of work is committed.
+     * @param content the String content
+     * @param filePath the path
+     */
+    public void writeText(String content, String filePath){
+        Entry entry = new Entry(TEXT, filePath, null, false);
+        entry.data = content.getBytes(StandardCharsets.UTF_8);
+        add(entry);
+    }
+
+    /**
+     * Adds an action that is run at the start of the commit while holding the save lock. It may add more changes.
+     * @param action the action
+     */
+    public void prepare(Runnable action){
+        prepareActions.add(action);
+    }
+
+    /**
+     * Adds an action that is run after the files of the commit are written.
+     * @param action the action
+     */
+    public void onCommit(Runnable action){
+        commitActions.add(action);
+    }
+
+    /**
+     * Returns the saved and deleted Savable objects of this unit of work in the order they were first added.
+     * @return the changed objects
+     */
+    public ArrayList<Savable> getChanged(){
+        ArrayList<Savable> changed = new ArrayList<>();
+        for(Entry entry : entries.values()){
+            if(entry.object != null){
+                changed.add(entry.object);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Writes all the changes of this unit of work as one commit. A unit of work can only be committed once. Once the
+     * redo log is written the commit counts, even if some of the files cannot be written then; the redo log is kept
+     * and the files are written when the redo log is applied again.
+     * @return false if an object saved with saveIfUnchanged was saved by another program, if the redo log of an
+     * unfinished commit cannot be applied, or if the changes cannot be written, in which case nothing is written
+     */
+    public boolean commit(){
+        if(committed){
+            throw new IllegalStateException("The unit of work is already committed");
+        }
+        boolean done = fileManager.withSaveLock(() -> {
+            for(Runnable action : prepareActions){
+                action.run();
+            }
+            for(Entry entry : entries.values()){
+                if(entry.checked && !fileManager.isCurrentVersion(entry.object, entry.folder)){
+                    return false;
+                }
+            }
+            if(!serialize()){
+                return false;
+            }
+            try {
+                writeRedoLog(new ArrayList<>(entries.values()));
+            }
+            catch (IOException e){
+//                System.err.println("Cannot write the redo log");
+                restoreVersions();
+                return false;
+            }
+            boolean applied = apply(fileManager, new ArrayList<>(entries.values()));
+            // the commit is in the redo log even if a file could not be written, which is written again later
+            for(Runnable action : commitActions){
+                action.run();
+            }
+            if(applied){
+                deleteRedoLog();
+            }
+            return true;
+        });
+        committed = true;
+        return done;
+    }
+
+    /**
+     * Applies the redo log of a commit that was not finished, if there is one. Must be called when the program
+     * starts.
+     */
+    public static void recover(){
+        // the save lock finishes the commit before it runs the action
+        new FileManager().withSaveLock(() -> true);
+    }
+
+    /**
+     * Applies the redo log of a commit that was not finished, if there is one, and brings the SupplyTable up to date
+     * with the supply files of the commit. Must be called while holding the save lock, so the redo log is never the
+     * one of a commit that is still being written.
+     * @param fileManager the file manager
+     * @return false if the redo log cannot be applied, in which case it is kept
+     */
+    static boolean rollForward(FileManager fileManager){
+        if(!getRedoLog().exists()){
+            return true;
+        }
+        ArrayList<Entry> redo = readRedoLog();
+        if(redo == null){
+            // a broken one that was never applied
+            deleteRedoLog();
+            return true;
+        }
+        if(!apply(fileManager, redo)){
+//            System.err.println("Cannot apply the redo log");
+            return false;
+        }
+        SupplyManager supplyManager = new SupplyManager();
+        for(Entry entry : redo){
+            if(entry.type == WRITE && entry.folder.startsWith(Config.getStockPath())){
+                supplyManager.reloadSupply(entry.folder.substring(Config.getStockPath().length()));
+            }
+        }
+        deleteRedoLog();
+        return true;
+    }
+
+    /**
+     * Adds a change. A later change of the same file replaces the earlier one.
+     * @param entry the change
+     */
+    private void add(Entry entry){
+        if(committed){
+            throw new IllegalStateException("The unit of work is already committed");
+        }
+        entries.put(entry.getPath(), entry);
+    }
+
+    /**
+     * Increases the versions of the checked objects and serializes the saved objects. Must be called while holding
+     * the save lock.
+     * @return false if an object cannot be serialized
+     */
+    private boolean serialize(){
+        for(Entry entry : entries.values()){
+            if(entry.checked){
+                entry.object.setVersion(entry.object.getVersion() + 1);
+            }
+        }
+        for(Entry entry : entries.values()){
+            if(entry.type == WRITE){
+                entry.data = fileManager.toBytes(entry.object);
+                if(entry.data == null){
+                    restoreVersions();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gives the checked objects their versions back after a commit has failed.
+     */
+    private void restoreVersions(){
+        for(Entry entry : entries.values()){
+            if(entry.checked){
+                entry.object.setVersion(entry.object.getVersion() - 1);
+            }
+        }
+    }
+
+    /**
+     * Writes the changes into their files. The other changes are still written when one of them fails.
+     * @param fileManager the file manager
+     * @param changes the changes
+     * @return true if all the changes are written
+     */
+    private static boolean apply(FileManager fileManager, ArrayList<Entry> changes){
+        boolean applied = true;
+        for(Entry entry : changes){
+            switch (entry.type){
+                case WRITE:
+                    applied &= fileManager.writeBytes(entry.getPath(), entry.data);
+                    break;
+                case DELETE:
+                    // a delete that is applied again finds nothing to delete
+                    applied &= fileManager.deleteBytes(entry.getPath()) || !fileManager.isExisted(entry.getPath());
+                    break;
+                case TEXT:
+                    try {
+                        replace(new File(entry.getPath()).toPath(), entry.data);
+                    }
+                    catch (IOException e){
+//                        System.err.println("File not written: " + entry.getPath());
+                        applied = false;
+                    }
+                    break;
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * Writes the redo log: the number of changes followed by the type, the path and the bytes of every change.
+     * @param changes the changes
+     * @throws IOException if the redo log cannot be written
+     */
+    private static void writeRedoLog(ArrayList<Entry> changes) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeInt(MAGIC);
+        output.writeInt(changes.size());
+        for(Entry entry : changes){
+            output.writeByte(entry.type);
+            output.writeUTF(entry.getPath());
+            byte[] data = entry.data == null ? new byte[0] : entry.data;
+            output.writeInt(data.length);
+            output.write(data);
+        }
+        replace(getRedoLog().toPath(), bytes.toByteArray());
+    }
+
+    /**
+     * Reads the redo log.
+     * @return the changes, or null if there is no complete redo log
+     */
+    private static ArrayList<Entry> readRedoLog(){
+        File redoLog = getRedoLog();
+        if(!redoLog.exists()){
+            return null;
+        }
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(
+                Files.readAllBytes(redoLog.toPath())))){
+            if(input.readInt() != MAGIC){
+                return null;
+            }
+            int count = input.readInt();
+            ArrayList<Entry> changes = new ArrayList<>();
+            for(int i = 0 ; i < count ; i++){
+                Entry entry = new Entry(input.readByte(), input.readUTF(), null, false);
+                entry.data = new byte[input.readInt()];
+                input.readFully(entry.data);
+                changes.add(entry);
+            }
+            return changes;
+        }
+        catch (IOException e){
+//            System.err.println("Skip the broken redo log");
+            return null;
+        }
+    }
+
+    /**
+     * Deletes the redo log.
+     */
+    private static void deleteRedoLog(){
+        if(getRedoLog().exists() && !getRedoLog().delete()){
+//            System.err.println("Cannot delete the redo log");
+        }
+    }
+
+    /**
+     * Returns the redo log file in the extras directory.
+     * @return the redo log
+     */
+    private static File getRedoLog(){
+        return new File(Config.getExtrasPath() + REDO_LOG);
+    }
+
+    /**
+     * Writes the bytes into a temporary file, forces them to the disk and moves the file over the target.
+     * @param target the target file
+     * @param data the bytes
+     * @throws IOException if the file cannot be written
+     */
+    private static void replace(Path target, byte[] data) throws IOException {
+        Path temp = FileStorage.getTempFile(target);
+        try {
+            Files.write(temp, data, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE, StandardOpenOption.SYNC);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * A change of one file. For a text change the folder is the whole path of the file.
+     */
+    private static class Entry {
+        private byte type;
+        private String folder;
+        private Savable object;
+        private boolean checked;
+        private byte[] data;
+
+        /**
+         * Constructs an Entry.
+         * @param type the type of the change
+         * @param folder the folder directory
+         * @param object the changed object, or null for a text change or a change read from the redo log
+         * @param checked true if the version of the object is checked
+         */
+        Entry(byte type, String folder, Savable object, boolean checked){
+            this.type = type;
+            this.folder = folder;
+            this.object = object;
+            this.checked = checked;
+        }
+
+        /**
+         * Returns the path of the changed file.
+         * @return the path
+         */
+        String getPath(){
+            return object == null ? folder : folder + object.getFileName();
+        }
+    }
+}
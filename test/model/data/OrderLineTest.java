@@ -0,0 +1,96 @@
+package model.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The OrderLineTest class.
+ *
+ * Writes order lines as text and reads them back, also when the names and the additional request contain the "-",
+ * "+" and "*" that start the lines of the text.
+ */
+public class OrderLineTest {
+
+    @Test
+    public void plainLineRoundTrip(){
+        OrderLine line = new OrderLine("Burger", new LinkedHashMap<>(), "");
+        assertEquals("Burger", line.toString());
+        assertRoundTrip(line);
+    }
+
+    @Test
+    public void choicesRoundTrip(){
+        LinkedHashMap<String, Integer> additions = new LinkedHashMap<>();
+        additions.put("Cheese", 2);
+        additions.put("Bacon", 1);
+        OrderLine line = new OrderLine("Cheese Burger", additions, new LinkedHashSet<>(Arrays.asList("Tomato")),
+                "no salt");
+        assertEquals("Cheese Burger\n \t +Cheese\n \t +Cheese\n \t +Bacon\n \t -Tomato\n \t *no salt",
+                line.toString());
+        assertRoundTrip(line);
+    }
+
+    @Test
+    public void namesWithMarkersRoundTrip(){
+        LinkedHashMap<String, Integer> additions = new LinkedHashMap<>();
+        additions.put("Salt+Pepper", 1);
+        additions.put("Extra-Hot Sauce", 2);
+        additions.put("Chef*Special", 1);
+        OrderLine line = new OrderLine("Half-Price +1 Burger*", additions,
+                new LinkedHashSet<>(Arrays.asList("Pico-de-gallo", "+Onion", "*Pickle")),
+                "-cut in half * 2 + extra napkins");
+        OrderLine read = assertRoundTrip(line);
+        assertEquals("Half-Price +1 Burger*", read.getName());
+        assertEquals(2, read.getAdditions().get("Extra-Hot Sauce"));
+        assertTrue(read.getSubtractions().contains("+Onion"));
+        assertEquals("-cut in half * 2 + extra napkins", read.getAdditionalRequest());
+    }
+
+    @Test
+    public void requestOfManyLinesRoundTrip(){
+        OrderLine line = new OrderLine("Burger", new LinkedHashMap<>(), "well done\n- no bun -\n*gluten free*");
+        assertEquals("Burger\n \t *well done\n \t *- no bun -\n \t **gluten free*", line.toString());
+        assertRoundTrip(line);
+    }
+
+    @Test
+    public void choicesKeepTheRequest(){
+        Map<String, Integer> choices = new LinkedHashMap<>();
+        choices.put("Cheese", 2);
+        choices.put("Tomato", -1);
+        choices.put("Onion", 0);
+        OrderLine line = new OrderLine("Cheese Burger", choices, "no salt");
+        assertEquals(Map.of("Cheese", 2), line.getAdditions());
+        assertEquals(Set.of("Tomato"), line.getSubtractions());
+        assertEquals("no salt", line.getAdditionalRequest());
+        assertRoundTrip(line);
+    }
+
+    @Test
+    public void parseSkipsUnknownLinesAndWhiteSpace(){
+        OrderLine line = OrderLine.parse("  Burger \n\n \t + Cheese \n note\n\t-Tomato\r\n \t *  no salt ");
+        assertEquals(new OrderLine("Burger", Map.of("Cheese", 1), Set.of("Tomato"), "no salt"), line);
+    }
+
+    /**
+     * Checks that the text of the order line reads back to the same order line and that it is written again the
+     * same way.
+     * @param line the order line
+     * @return the order line read back
+     */
+    private static OrderLine assertRoundTrip(OrderLine line){
+        String text = line.toString();
+        OrderLine read = OrderLine.parse(text);
+        assertEquals(line, read);
+        assertEquals(text, read.toString());
+        return read;
+    }
+}
@@ -0,0 +1,389 @@
+package model.managers;
+
+import model.configs.Config;
+import model.data.Ingredients;
+import model.data.Item;
+import model.data.ItemInfo;
+import model.data.Meal;
+import model.data.Order2;
+import model.data.Supply2;
+import model.interfaces.Savable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The BinaryCodecTest class.
+ *
+ * Encodes and decodes every type the BinaryCodec supports and compares the objects field by field, also for the
+ * records of the first format version, the orders written before the finished time was added and the files written
+ * by the Java serialization. The tests run in the folder of the surefire plugin, where Config.init makes the data
+ * folders, since an Order2 saves its Items there.
+ */
+public class BinaryCodecTest {
+    private BinaryCodec codec;
+    private FileManager fileManager;
+
+    @BeforeAll
+    public static void initConfig(){
+        Config.init();
+    }
+
+    @BeforeEach
+    public void setUp(){
+        codec = new BinaryCodec();
+        fileManager = new FileManager();
+        clearFolder(Config.getItemsPath());
+        clearFolder(Config.getFinishedItemsPath());
+    }
+
+    @AfterEach
+    public void tearDown(){
+        FileManager.setBinaryFormat(true);
+    }
+
+    @Test
+    public void menuMealRoundTrip(){
+        Meal meal = newMenuMeal();
+        Meal decoded = (Meal) roundTrip(meal);
+        assertMealEquals(meal, decoded);
+    }
+
+    @Test
+    public void orderedMealRoundTrip(){
+        Meal meal = newOrderedMeal(5001, 2001, 7);
+        meal.getIngredients().addAddition("Cheese");
+        meal.getIngredients().addSubtraction("Onion");
+        meal.getItemInfo().setLocation("kitchen");
+        meal.getItemInfo().setAdditionalRequest("no salt, éxtra spicy");
+        meal.getItemInfo().ready();
+        Meal decoded = (Meal) roundTrip(meal);
+        assertMealEquals(meal, decoded);
+        assertTrue(decoded.getItemInfo().isReady());
+        assertFalse(decoded.getItemInfo().isServed());
+    }
+
+    @Test
+    public void everyItemStatusRoundTrip(){
+        for(int status = 0 ; status < 4 ; status++){
+            Meal meal = newOrderedMeal(5010 + status, 2002, 3);
+            if(status == 1){
+                meal.getItemInfo().seen();
+            }
+            else if(status == 2){
+                meal.getItemInfo().ready();
+            }
+            else if(status == 3){
+                meal.getItemInfo().served();
+            }
+            assertMealEquals(meal, (Meal) roundTrip(meal));
+        }
+    }
+
+    @Test
+    public void emptyIngredientsAndNullStringsRoundTrip(){
+        Meal meal = new Meal("Water", 0);
+        meal.setDescription(null);
+        meal.getItemInfo().setAdditionalRequest(null);
+        Meal decoded = (Meal) roundTrip(meal);
+        assertMealEquals(meal, decoded);
+        assertTrue(decoded.getIngredients().getBaseIngredient().isEmpty());
+        assertNull(decoded.getDescription());
+        assertNull(decoded.getItemInfo().getLocation());
+    }
+
+    @Test
+    public void negativeNumbersRoundTrip(){
+        Meal meal = new Meal("Refund", -12.5);
+        HashMap<String, Integer> base = new HashMap<>();
+        base.put("Bread", -3);
+        base.put("Butter", Integer.MIN_VALUE);
+        base.put("Salt", Integer.MAX_VALUE);
+        meal.getIngredients().setBaseIngredient(base);
+        assertMealEquals(meal, (Meal) roundTrip(meal));
+
+        Supply2 supply = new Supply2("Bread", -1, -40);
+        supply.setRequestAmount(-7);
+        assertSupplyEquals(supply, (Supply2) roundTrip(supply));
+    }
+
+    @Test
+    public void ingredientsSharingNamesRoundTrip(){
+        Meal meal = newMenuMeal();
+        HashMap<String, Integer> same = new HashMap<>(meal.getIngredients().getBaseIngredient());
+        meal.getIngredients().setAvailableAddition(same);
+        meal.getIngredients().setAvailableSubtraction(same);
+        Ingredients decoded = ((Meal) roundTrip(meal)).getIngredients();
+        assertIngredientsEquals(meal.getIngredients(), decoded);
+        assertEquals(decoded.getBaseIngredient(), decoded.getAvailableAddition());
+    }
+
+    @Test
+    public void supplyRoundTrip(){
+        Supply2 supply = new Supply2("Romaine lettuce", 15, 230);
+        supply.setRequestAmount(45);
+        assertSupplyEquals(supply, (Supply2) roundTrip(supply));
+    }
+
+    @Test
+    public void activeOrderRoundTrip(){
+        Order2 order = new Order2(2003, 12);
+        order.addItem(newOrderedMeal(5020, 2003, 12));
+        order.addItem(newOrderedMeal(5021, 2003, 12));
+        Order2 decoded = (Order2) roundTrip(order);
+        assertOrderEquals(order, decoded);
+        assertTrue(fileManager.isExisted(order.getItems().get(0), Config.getItemsPath()));
+    }
+
+    @Test
+    public void finishedOrderRoundTrip(){
+        Order2 order = new Order2(2004, 1);
+        order.addItem(newOrderedMeal(5030, 2004, 1));
+        order.finished();
+        Order2 decoded = (Order2) roundTrip(order);
+        assertOrderEquals(order, decoded);
+        assertTrue(decoded.getFinishedAt() > 0);
+        assertTrue(fileManager.isExisted(order.getItems().get(0), Config.getFinishedItemsPath()));
+    }
+
+    @Test
+    public void emptyOrderRoundTrip(){
+        Order2 order = new Order2(2005, 0);
+        assertOrderEquals(order, (Order2) roundTrip(order));
+    }
+
+    @Test
+    public void versionIsKept(){
+        Meal meal = newMenuMeal();
+        meal.setVersion(300);
+        Order2 order = new Order2(2006, 4);
+        order.setVersion(1);
+        Supply2 supply = new Supply2("Eggs", 10, 60);
+        supply.setVersion(Integer.MAX_VALUE);
+        for(Savable savable : new Savable[]{meal, order, supply}){
+            byte[] bytes = codec.encode(savable);
+            assertEquals(savable.getVersion(), codec.readVersion(bytes));
+            assertEquals(savable.getVersion(), codec.decode(bytes).getVersion());
+        }
+    }
+
+    @Test
+    public void firstFormatVersionIsRead(){
+        Meal meal = newOrderedMeal(5040, 2007, 9);
+        meal.getItemInfo().seen();
+        Supply2 supply = new Supply2("Rice", 5, 18);
+        Order2 order = new Order2(2007, 9);
+        order.addItem(meal);
+        for(Savable savable : new Savable[]{meal, supply, order}){
+            byte[] bytes = toFirstFormatVersion(codec.encode(savable));
+            assertTrue(codec.isBinary(bytes));
+            assertEquals(0, codec.readVersion(bytes));
+            Savable decoded = codec.decode(bytes);
+            assertNotNull(decoded);
+            assertEquals(0, decoded.getVersion());
+        }
+        assertMealEquals(meal, (Meal) codec.decode(toFirstFormatVersion(codec.encode(meal))));
+        assertSupplyEquals(supply, (Supply2) codec.decode(toFirstFormatVersion(codec.encode(supply))));
+        assertOrderEquals(order, (Order2) codec.decode(toFirstFormatVersion(codec.encode(order))));
+    }
+
+    @Test
+    public void orderWithoutFinishedTimeIsRead(){
+        Order2 order = new Order2(2008, 2);
+        order.addItem(newOrderedMeal(5050, 2008, 2));
+        byte[] bytes = codec.encode(order);
+        Order2 decoded = (Order2) codec.decode(Arrays.copyOf(bytes, bytes.length - Long.BYTES));
+        assertNotNull(decoded);
+        assertEquals(0, decoded.getFinishedAt());
+        assertEquals(order.getItems().size(), decoded.getItems().size());
+    }
+
+    @Test
+    public void javaSerializedFilesAreRead(){
+        FileManager.setBinaryFormat(false);
+        Meal meal = newOrderedMeal(5060, 2009, 6);
+        meal.getItemInfo().served();
+        Supply2 supply = new Supply2("Milk", 8, 31);
+        Order2 order = new Order2(2009, 6);
+        order.addItem(meal);
+        byte[] mealBytes = fileManager.toBytes(meal);
+        byte[] supplyBytes = fileManager.toBytes(supply);
+        byte[] orderBytes = fileManager.toBytes(order);
+        assertFalse(codec.isBinary(mealBytes));
+        assertFalse(codec.isBinary(orderBytes));
+        assertNull(codec.decode(mealBytes));
+
+        assertMealEquals(meal, (Meal) fileManager.readFromBytes(mealBytes));
+        assertSupplyEquals(supply, (Supply2) fileManager.readFromBytes(supplyBytes));
+        assertOrderEquals(order, (Order2) fileManager.readFromBytes(orderBytes));
+    }
+
+    @Test
+    public void binaryFormatIsReadByFileManager(){
+        Supply2 supply = new Supply2("Garlic", 3, 12);
+        byte[] bytes = fileManager.toBytes(supply);
+        assertTrue(codec.isBinary(bytes));
+        assertSupplyEquals(supply, (Supply2) fileManager.readFromBytes(bytes));
+    }
+
+    @Test
+    public void corruptedRecordsAreRefused(){
+        byte[] bytes = codec.encode(newMenuMeal());
+        assertNull(codec.decode(Arrays.copyOf(bytes, bytes.length / 2)));
+        byte[] newer = bytes.clone();
+        newer[2] = 100;
+        assertNull(codec.decode(newer));
+        assertEquals(-1, codec.readVersion(newer));
+        byte[] unknownType = bytes.clone();
+        unknownType[3] = 9;
+        assertNull(codec.decode(unknownType));
+    }
+
+    @Test
+    public void unsupportedTypesAreNotEncoded(){
+        Item item = new PlainItem();
+        assertFalse(codec.canEncode(item));
+        assertNull(codec.encode(item));
+    }
+
+    /**
+     * Encodes and decodes the object and checks that the same bytes are written again.
+     * @param savable the object
+     * @return the decoded object
+     */
+    private Savable roundTrip(Savable savable){
+        byte[] bytes = codec.encode(savable);
+        assertNotNull(bytes);
+        assertTrue(codec.isBinary(bytes));
+        Savable decoded = codec.decode(bytes);
+        assertNotNull(decoded);
+        assertInstanceOf(savable.getClass(), decoded);
+        assertArrayEquals(bytes, codec.encode(decoded));
+        return decoded;
+    }
+
+    /**
+     * Rewrites a record of format version 2 as format version 1, which has no object version.
+     * @param bytes the record of an object of version 0
+     * @return the record of format version 1
+     */
+    private static byte[] toFirstFormatVersion(byte[] bytes){
+        assertEquals(0, bytes[4]);
+        byte[] first = new byte[bytes.length - 1];
+        System.arraycopy(bytes, 0, first, 0, 4);
+        System.arraycopy(bytes, 5, first, 4, bytes.length - 5);
+        first[2] = 1;
+        return first;
+    }
+
+    private static Meal newMenuMeal(){
+        Meal meal = new Meal("Hamburger", 12.99);
+        meal.setDescription("A beef burger with fries");
+        HashMap<String, Integer> base = new HashMap<>();
+        base.put("Bread", 2);
+        base.put("Beef Burger Patty", 1);
+        base.put("Onion", 1);
+        HashMap<String, Integer> additions = new HashMap<>();
+        additions.put("Cheese", 1);
+        additions.put("Bacon", 2);
+        HashMap<String, Integer> subtractions = new HashMap<>();
+        subtractions.put("Onion", 1);
+        meal.getIngredients().setBaseIngredient(base);
+        meal.getIngredients().setAvailableAddition(additions);
+        meal.getIngredients().setAvailableSubtraction(subtractions);
+        return meal;
+    }
+
+    private static Meal newOrderedMeal(int itemNumber, int orderNumber, int tableNumber){
+        return new Meal(newMenuMeal(), itemNumber, orderNumber, tableNumber);
+    }
+
+    private static void assertMealEquals(Meal expected, Meal actual){
+        assertNotNull(actual);
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getDescription(), actual.getDescription());
+        assertEquals(expected.getPrice(), actual.getPrice());
+        assertEquals(expected.getVersion(), actual.getVersion());
+        assertEquals(expected.getFileName(), actual.getFileName());
+        assertItemInfoEquals(expected.getItemInfo(), actual.getItemInfo());
+        assertIngredientsEquals(expected.getIngredients(), actual.getIngredients());
+    }
+
+    private static void assertItemInfoEquals(ItemInfo expected, ItemInfo actual){
+        assertEquals(expected.getItemNumber(), actual.getItemNumber());
+        assertEquals(expected.getOrderNumber(), actual.getOrderNumber());
+        assertEquals(expected.getTableNumber(), actual.getTableNumber());
+        assertEquals(expected.getLocation(), actual.getLocation());
+        assertEquals(expected.getAdditionalRequest(), actual.getAdditionalRequest());
+        assertEquals(expected.isSeen(), actual.isSeen());
+        assertEquals(expected.isReady(), actual.isReady());
+        assertEquals(expected.isServed(), actual.isServed());
+    }
+
+    private static void assertIngredientsEquals(Ingredients expected, Ingredients actual){
+        assertMapEquals(expected.getBaseIngredient(), actual.getBaseIngredient());
+        assertMapEquals(expected.getAddition(), actual.getAddition());
+        assertMapEquals(expected.getSubtraction(), actual.getSubtraction());
+        assertMapEquals(expected.getAvailableAddition(), actual.getAvailableAddition());
+        assertMapEquals(expected.getAvailableSubtraction(), actual.getAvailableSubtraction());
+        assertMapEquals(expected.getNeededIngredients(), actual.getNeededIngredients());
+    }
+
+    private static void assertMapEquals(Map<String, Integer> expected, Map<String, Integer> actual){
+        assertEquals(new HashMap<>(expected), new HashMap<>(actual));
+    }
+
+    private static void assertSupplyEquals(Supply2 expected, Supply2 actual){
+        assertNotNull(actual);
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getQuantity(), actual.getQuantity());
+        assertEquals(expected.getTotalQuantityNeeded(), actual.getTotalQuantityNeeded());
+        assertEquals(expected.getRequestAmount(), actual.getRequestAmount());
+        assertEquals(expected.getVersion(), actual.getVersion());
+    }
+
+    private static void assertOrderEquals(Order2 expected, Order2 actual){
+        assertNotNull(actual);
+        assertEquals(expected.getOrderNumber(), actual.getOrderNumber());
+        assertEquals(expected.getTableNumber(), actual.getTableNumber());
+        assertEquals(expected.isFinished(), actual.isFinished());
+        assertEquals(expected.getFinishedAt(), actual.getFinishedAt());
+        assertEquals(expected.getVersion(), actual.getVersion());
+        assertEquals(expected.getItems().size(), actual.getItems().size());
+        for(int i = 0 ; i < expected.getItems().size() ; i++){
+            assertMealEquals((Meal) expected.getItems().get(i), (Meal) actual.getItems().get(i));
+        }
+    }
+
+    private static void clearFolder(String folder){
+        File[] files = new File(folder).listFiles();
+        for(File file : files == null ? new File[0] : files){
+            assertTrue(file.delete());
+        }
+    }
+
+    /**
+     * An Item type the codec doesn't know.
+     */
+    private static class PlainItem extends Item {
+        private static final long serialVersionUID = 1L;
+
+        PlainItem(){
+            super("Plain", 1);
+        }
+    }
+}
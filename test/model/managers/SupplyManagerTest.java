@@ -0,0 +1,66 @@
+package model.managers;
+
+import model.configs.Config;
+import model.data.Supply2;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The SupplyManagerTest class.
+ *
+ * Checks that deducting the used ingredients of an item never lets another reservation take the units that are
+ * deducted. Every test uses a supply of its own, since the SupplyTable and the ReservationLedger are shared by the
+ * whole program.
+ */
+public class SupplyManagerTest {
+    private SupplyManager supplyManager;
+    private String name;
+
+    @BeforeAll
+    public static void initConfig(){
+        Config.init();
+    }
+
+    @BeforeEach
+    public void setUp(){
+        supplyManager = new SupplyManager();
+        name = "Cheese" + System.nanoTime();
+        supplyManager.saveNewSupply(new Supply2(name, SupplyManager.DEFAULT_QUANTITY_NEEDED, 1));
+    }
+
+    @Test
+    public void reserveDuringDeductCannotTakeTheDeductedUnit(){
+        Map<String, Integer> needed = Collections.singletonMap(name, 1);
+        long reservation = supplyManager.reserveNeededSupply(needed, 1, 1);
+        assertNotEquals(ReservationLedger.NO_RESERVATION, reservation);
+
+        UnitOfWork work = new UnitOfWork();
+        supplyManager.deductIngredients(needed, InventoryLog.CONSUMED, Collections.singletonList(1), work);
+        long[] during = {0};
+        // runs inside the commit, between the supply files being written and the commit being finished
+        work.onCommit(() -> during[0] = supplyManager.reserveNeededSupply(needed, 2, 2));
+        assertTrue(work.commit());
+
+        assertEquals(ReservationLedger.NO_RESERVATION, during[0]);
+        assertEquals(0, supplyManager.getSupplyByName(name).getQuantity());
+        assertEquals(ReservationLedger.NO_RESERVATION, supplyManager.reserveNeededSupply(needed, 3, 3));
+    }
+
+    @Test
+    public void deductReleasesTheReservationOfTheItem(){
+        Map<String, Integer> needed = Collections.singletonMap(name, 1);
+        supplyManager.reserveNeededSupply(needed, 1, 1);
+        UnitOfWork work = new UnitOfWork();
+        supplyManager.deductIngredients(needed, InventoryLog.CONSUMED, Collections.singletonList(1), work);
+        work.commit();
+        assertEquals(0, ReservationLedger.getReservationLedger().getReserved(name));
+    }
+}
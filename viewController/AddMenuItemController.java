@@ -1,6 +1,7 @@
 package viewController;
 
 import control.DataGetter;
+import control.IoExecutor;
 import control.MenuItemController;
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
@@ -242,7 +243,8 @@ public class AddMenuItemController extends ControlledScene  implements Observer{
             addToHashMap(subtractionsFlow, subtractions);
 
 
-            menuItemController.createMeal(name, price, newDescription, ingredients, additions, subtractions);
+            IoExecutor.getIoExecutor().run(() ->
+                    menuItemController.createMeal(name, price, newDescription, ingredients, additions, subtractions));
 
             back();
         }
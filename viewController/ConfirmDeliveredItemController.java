@@ -2,6 +2,7 @@ package viewController;
 
 import control.CustomerItemController;
 import control.DataGetter;
+import control.IoExecutor;
 import control.StatusChecker;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
@@ -97,9 +98,15 @@ public class ConfirmDeliveredItemController extends ControlledScene implements O
         ObservableList<Integer> selectedItemsIndices;
         if(itemList.getSelectionModel().getSelectedIndices() != null) {
             selectedItemsIndices = itemList.getSelectionModel().getSelectedIndices();
+            ArrayList<Integer> itemNumbers = new ArrayList<>();
             for (Integer i : selectedItemsIndices) {
-                customerItemController.confirmDelivery(items.get(i).getItemInfo().getItemNumber());
+                itemNumbers.add(items.get(i).getItemInfo().getItemNumber());
             }
+            IoExecutor.getIoExecutor().run(() -> {
+                for (int itemNumber : itemNumbers) {
+                    customerItemController.confirmDelivery(itemNumber);
+                }
+            });
         }
     }
 }
@@ -2,6 +2,7 @@ package viewController;
 
 import control.CustomerItemController;
 import control.DataGetter;
+import control.IoExecutor;
 import control.StatusChecker;
 import javafx.event.EventHandler;
 import javafx.fxml.FXML;
@@ -86,16 +87,15 @@ public class KitchenDisplayController extends  ControlledScene implements Observ
      */
     public void seenItemAction(){
         warningLabel.setText("");
-        for(int i = 0 ; i < 4 ; i++){
-            if(orders[i] == null || !statusChecker.isEditableOrder(orders[i].getOrderNumber())){
-                break;
-            }
-            ArrayList<Item> orderItems = getUncookedItems(orders[i].getItems());
-            for(int k : listViews[i].getSelectionModel().getSelectedIndices()){
-                customerItemController.acknowledgeItem(orders[i].getOrderNumber(),
-                                                        orderItems.get(k).getItemInfo().getItemNumber());
+        ArrayList<Integer> orderNumbers = new ArrayList<>();
+        ArrayList<ArrayList<Integer>> selectedItems = getSelectedItems(orderNumbers);
+        IoExecutor.getIoExecutor().run(() -> {
+            for(int i = 0 ; i < orderNumbers.size() ; i++){
+                for(int itemNumber : selectedItems.get(i)){
+                    customerItemController.acknowledgeItem(orderNumbers.get(i), itemNumber);
+                }
             }
-        }
+        }, warningLabel::setText);
         clearListViewSelection();
         refreshListViewHandler();
     }
@@ -105,38 +105,59 @@ public class KitchenDisplayController extends  ControlledScene implements Observ
      * finished if the previous order hasn't been finished already. Refresh the view upon clicking the button
      */
     public void finishItemAction(){
-        int checkIndex = -1;
-        int notCheckedItemsNum = 0; // number of items that cannot be prepared right now
         warningLabel.setText("");
-        for(int i = 0 ; i < 4 ; i++){
-            if(orders[i] == null) {
-                break;
-            }
-            else if(i != 0 && (!statusChecker.isSeenOrder(orders[i-1].getOrderNumber()) || checkIndex != - 1) ){
-                // only set it when first found a unseen order
-                if(checkIndex == -1){
-                    checkIndex = i-1;
+        ArrayList<Integer> orderNumbers = new ArrayList<>();
+        ArrayList<ArrayList<Integer>> selectedItems = getSelectedItems(orderNumbers);
+        IoExecutor.getIoExecutor().supply(() -> {
+            int checkIndex = -1;
+            int notCheckedItemsNum = 0; // number of items that cannot be prepared right now
+            for(int i = 0 ; i < orderNumbers.size() ; i++){
+                if(i != 0 && (!statusChecker.isSeenOrder(orderNumbers.get(i-1)) || checkIndex != - 1) ){
+                    // only set it when first found a unseen order
+                    if(checkIndex == -1){
+                        checkIndex = i-1;
+                    }
+                    notCheckedItemsNum += selectedItems.get(i).size();
+                    // skip the rest of the selected items
+                    continue;
                 }
-                notCheckedItemsNum += listViews[i].getSelectionModel().getSelectedItems().size();
-                // skip the rest of the selected items
-                continue;
-            }
-            // if the order is locked, don't finish anything yet
-            if(statusChecker.isEditableOrder(orders[i].getOrderNumber())) {
-                ArrayList<Item> orderItems = getUncookedItems(orders[i].getItems());
-                for (int k : listViews[i].getSelectionModel().getSelectedIndices()) {
-                    customerItemController.readyItem(orders[i].getOrderNumber(),
-                                                     orderItems.get(k).getItemInfo().getItemNumber());
+                // the order may be edited at the same time, the item saves are merged by the ItemManager
+                for (int itemNumber : selectedItems.get(i)) {
+                    customerItemController.readyItem(orderNumbers.get(i), itemNumber);
                 }
             }
-        }
-        if(notCheckedItemsNum != 0 && checkIndex != -1){
-            warningLabel.setText("Order not prepared: #" + orders[checkIndex].getOrderNumber() + ". Please prepare it first");
-        }
+            if(notCheckedItemsNum != 0 && checkIndex != -1){
+                return "Order not prepared: #" + orderNumbers.get(checkIndex) + ". Please prepare it first";
+            }
+            return "";
+        }, warningLabel::setText, warningLabel::setText);
         clearListViewSelection();
         refreshListViewHandler();
     }
 
+    /**
+     * Returns the numbers of the selected items of the shown orders, read on the thread of the GUI so they can be
+     * used by an io thread.
+     * @param orderNumbers the list that the numbers of the shown orders are added to
+     * @return the numbers of the selected items of every shown order
+     */
+    private ArrayList<ArrayList<Integer>> getSelectedItems(ArrayList<Integer> orderNumbers){
+        ArrayList<ArrayList<Integer>> selectedItems = new ArrayList<>();
+        for(int i = 0 ; i < 4 ; i++){
+            if(orders[i] == null){
+                break;
+            }
+            ArrayList<Item> orderItems = getUncookedItems(orders[i].getItems());
+            ArrayList<Integer> itemNumbers = new ArrayList<>();
+            for(int k : listViews[i].getSelectionModel().getSelectedIndices()){
+                itemNumbers.add(orderItems.get(k).getItemInfo().getItemNumber());
+            }
+            orderNumbers.add(orders[i].getOrderNumber());
+            selectedItems.add(itemNumbers);
+        }
+        return selectedItems;
+    }
+
     /**
      * Refresh the list view and the screen.
      */
@@ -1,6 +1,7 @@
 package viewController;
 
 import control.DataGetter;
+import control.IoExecutor;
 import control.OrderModifier;
 import control.StatusChecker;
 import control.SupplyModifier;
@@ -21,6 +22,7 @@ import javafx.stage.Stage;
 import model.data.Item;
 import model.data.Meal;
 import model.data.ObservableItem;
+import model.data.OrderLine;
 import model.interfaces.Observable;
 import model.interfaces.Observer;
 
@@ -48,6 +50,8 @@ public class MakeAnOrderController extends ControlledScene implements Observer{
     private StatusChecker statusChecker;
     private OrderModifier orderModifier;
     boolean validInput = true;
+    // the number of times the scene was left, so the answers of the io thread for an earlier order are not shown
+    private int visits;
     private final int BUTTON_SIZE = 125;
 
     private HashMap<String, Item> menuItems;
@@ -98,21 +102,44 @@ public class MakeAnOrderController extends ControlledScene implements Observer{
     private void itemSelected(ActionEvent e) {
         Button button = (Button)e.getSource();
         Item i = menuItems.get(button.getText());
-        if(supplyModifier.haveEnoughSupply(i, false)){
+        IoExecutor ioExecutor = IoExecutor.getIoExecutor();
+        int visit = visits;
+        ioExecutor.supply(() -> supplyModifier.haveEnoughSupply(i, false), enough -> {
+            if(visit != visits){
+                return;
+            }
+            if(!enough){
+                messageBox("We ran out of the supply!");
+                return;
+            }
             ItemCustomizer itemCustomizer = new ItemCustomizer();
             if(itemCustomizer.display(i)) {
                 String additionalRequest = itemCustomizer.getDescription();
                 HashMap<String, Integer> ingredients = itemCustomizer.getIngredients();
                 String itemName = itemCustomizer.getItemName();
-                String itemInfo = itemInfoToString(itemName, ingredients, additionalRequest);
-                if(supplyModifier.haveEnoughSupply(itemInfo, true))
-                    addItemToOrderView(itemInfo);
-                else
-                    messageBox("Don't have enough supplies for addOns!");
-
+                OrderLine orderLine = new OrderLine(itemName, ingredients, additionalRequest);
+                ioExecutor.supply(() -> supplyModifier.reserveSupply(orderLine), reservation -> {
+                    if(visit != visits){
+                        // the scene was left before the supply was reserved
+                        ioExecutor.run(() -> supplyModifier.cancelSupplyReserved(reservation));
+                    }
+                    else if(reservation != SupplyModifier.NO_RESERVATION)
+                        addItemToOrderView(orderLine, reservation);
+                    else
+                        messageBox("Don't have enough supplies for addOns!");
+                }, message -> showFailure(visit, message));
             }
-        } else{
-            messageBox("We ran out of the supply!");
+        }, message -> showFailure(visit, message));
+    }
+
+    /**
+     * Shows the message of a call that failed if the scene was not left since the call was given.
+     * @param visit the visit of the scene when the call was given
+     * @param message the message
+     */
+    private void showFailure(int visit, String message){
+        if(visit == visits){
+            messageBox(message);
         }
     }
 
@@ -120,54 +147,28 @@ public class MakeAnOrderController extends ControlledScene implements Observer{
      * Add a item information the the order display so that the
      * user can check check what they ordered. Also create an option
      * for the user to remove the stuff they just orderd.
-     * @param itemInfoText - the iteminfo that the user ordered.
+     * @param orderLine - the order line that the user ordered.
+     * @param reservation - the reservation of the supply for the item.
      */
-    private void addItemToOrderView(String itemInfoText){
+    private void addItemToOrderView(OrderLine orderLine, long reservation){
         Label itemInfo = new Label();
         itemInfo.setMinWidth(300);
         itemInfo.setMaxWidth(300);
 
-        itemInfo.setText(itemInfoText);
+        itemInfo.setText(orderLine.toString());
+        itemInfo.setUserData(orderLine);
 
         Button deleteButton = new Button("Delete");
         deleteButton.setOnAction(e -> deleteItem(e));
 
         HBox item = new HBox();
+        item.setUserData(reservation);
         item.setAlignment(Pos.CENTER_LEFT);
         item.getChildren().addAll(itemInfo, deleteButton);
 
         orderView.getChildren().add(item);
     }
 
-    /**
-     * Convert the info the user input when choosing the menu item to a
-     * info string that satisfy the format for ItemConverter.
-     * When the ingredient value = -1, the ingredient is needed to be subtracted
-     * When the ingredient value =0, there nothing need to be changed.
-     * When the ingredient value = 1, extra ingredient on the item
-     * When the ingredient value = 2, 2x extra ingredient on the item.
-     * When the ingredient value = 3, 3x extra ingredient on the item
-     * @param name - name of the menu item
-     * @param ingredients - hashmap of ingredients
-     * @param additionalRequest - additional request for the item.
-     * @return String of item informatino
-     */
-    private String itemInfoToString(String name, HashMap<String, Integer> ingredients, String additionalRequest){
-        String text = name;
-        for (String ingredient : ingredients.keySet()){
-            int quantity = ingredients.get(ingredient);
-            if (quantity < 0){
-                text = text + "\n \t -" + ingredient;
-            }
-            else{
-                for(int i = 0; i < quantity; i++){
-                    text = text + "\n \t +" + ingredient;
-                }
-            }
-        }
-        return additionalRequest.isEmpty() ? text : text + "\n \t *" + additionalRequest;
-    }
-
     /**
      * Delete the item from the orderView and remove the supply that
      * was reserved.
@@ -175,8 +176,8 @@ public class MakeAnOrderController extends ControlledScene implements Observer{
      */
     private void deleteItem(ActionEvent e) {
         HBox itemInfo = (HBox) ((Button) e.getSource()).getParent();
-        String item = ((Label) itemInfo.getChildren().get(0)).getText();
-        supplyModifier.cancelSupplyReserved(item);
+        long reservation = (Long) itemInfo.getUserData();
+        IoExecutor.getIoExecutor().run(() -> supplyModifier.cancelSupplyReserved(reservation));
         orderView.getChildren().remove(itemInfo);
 
     }
@@ -189,13 +190,16 @@ public class MakeAnOrderController extends ControlledScene implements Observer{
     private void okButton_Clicked() {
         checkUserInput();
         if(validInput) {
-            ArrayList<String> itemInfos = new ArrayList<>();
+            ArrayList<OrderLine> itemInfos = new ArrayList<>();
+            ArrayList<Long> reservations = new ArrayList<>();
             int tableNumber = Integer.parseInt(tableNumberTextBox.getText());
             for (Node n : orderView.getChildren()) {
                 HBox box = (HBox) n;
-                itemInfos.add(((Label) box.getChildren().get(0)).getText());
+                itemInfos.add((OrderLine) box.getChildren().get(0).getUserData());
+                reservations.add((Long) box.getUserData());
             }
-            orderModifier.makeNewOrder(tableNumber, itemInfos);
+            IoExecutor.getIoExecutor().run(() -> orderModifier.makeNewOrder(tableNumber, itemInfos, reservations),
+                    this::messageBox);
             back();
         }
     }
@@ -238,18 +242,19 @@ public class MakeAnOrderController extends ControlledScene implements Observer{
      */
     @FXML
     private void exit(){
-        ArrayList<String> itemInfos = new ArrayList<>();
+        ArrayList<Long> reservations = new ArrayList<>();
         for (Node n : orderView.getChildren()) {
             HBox box = (HBox) n;
-            itemInfos.add(((Label) box.getChildren().get(0)).getText());
+            reservations.add((Long) box.getUserData());
         }
-        supplyModifier.cancelSupplyReserved(itemInfos);
+        IoExecutor.getIoExecutor().run(() -> supplyModifier.cancelSupplyReserved(reservations));
         back();
     }
 
     /**exit the scene and clear all user input on the screen
      */
     private void back(){
+        visits++;
         orderView.getChildren().clear();
         errorLabel.setText("");
         tableNumberTextBox.setText("");
@@ -1,6 +1,7 @@
 package viewController;
 
 import control.DataGetter;
+import control.IoExecutor;
 import control.MenuItemController;
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
@@ -17,6 +18,7 @@ import model.interfaces.Observer;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Map;
 
 
 /**
@@ -161,7 +163,7 @@ public class ManageMenuItemController extends ControlledScene implements Observe
      * @param ingredients the HashMap of ingredient with their names as key and quantity as value.
      * @return a list of buttons
      */
-    private ArrayList<Button> createButtons(HashMap<String, Integer> ingredients) {
+    private ArrayList<Button> createButtons(Map<String, Integer> ingredients) {
         ArrayList<Button> buttonList = new ArrayList<>();
         for(String ingredient: ingredients.keySet()) {
             Button button = new Button(ingredient +" "+ ingredients.get(ingredient));
@@ -292,7 +294,8 @@ public class ManageMenuItemController extends ControlledScene implements Observe
             addToHashMap(additionsFlow, additions);
             addToHashMap(subtractionsFlow, subtractions);
 
-            menuItemController.editMeal(name, newDescription, ingredients, additions, subtractions);
+            IoExecutor.getIoExecutor().run(() ->
+                    menuItemController.editMeal(name, newDescription, ingredients, additions, subtractions));
 
             back();
         }
@@ -2,11 +2,13 @@ package viewController;
 
 import Main.main;
 import control.DataGetter;
+import control.IoExecutor;
 import control.LockFileController;
 import control.OrderModifier;
 import control.StatusChecker;
 import javafx.fxml.FXML;
 import javafx.scene.control.Button;
+import javafx.scene.control.Label;
 import javafx.scene.control.ListView;
 import model.data.Order2;
 import model.interfaces.Observable;
@@ -25,6 +27,8 @@ public class ManageOrderController extends ControlledScene implements Observer{
     ListView orderList;
     @FXML
     Button delete;
+    @FXML
+    Label warningLabel;
 
     private HashMap<Integer,Order2> orders;
 
@@ -70,37 +74,53 @@ public class ManageOrderController extends ControlledScene implements Observer{
     }
 
     /**
-     * Switch to PaymentDisplay.fxml for make payment for the chosen order if the chosen order is editable.
+     * Switch to PaymentDisplay.fxml for make payment for the chosen order if the chosen order is editable. The order is
+     * locked before the scene is switched, and the payment is refused if another program is editing it.
      */
     public void pay() {
+        warningLabel.setText("");
         if(orderList.getSelectionModel().getSelectedItem() != null) {
             String nameOnList = (String) orderList.getSelectionModel().getSelectedItem();
             int orderNumber = Integer.parseInt(nameOnList.split("\\D+")[2]);
             if(statusChecker.isEditableOrder(orderNumber)) {
                 Order2 chosenOrder = orders.get(orderNumber);
-                PaymentDisplayController paymentDisplayController = (PaymentDisplayController)
-                        sceneController.getController(main.PaymentDisplayID);
-                paymentDisplayController.serOrder(chosenOrder);
-                sceneController.switchScene(main.PaymentDisplayID);
-                lockFileController.lockFile(chosenOrder);
+                IoExecutor.getIoExecutor().supply(() -> lockFileController.lockFile(chosenOrder), locked -> {
+                    if(!locked){
+                        warningLabel.setText("Someone else is editing order #" + orderNumber);
+                        updateOrderView();
+                        return;
+                    }
+                    PaymentDisplayController paymentDisplayController = (PaymentDisplayController)
+                            sceneController.getController(main.PaymentDisplayID);
+                    paymentDisplayController.serOrder(chosenOrder);
+                    sceneController.switchScene(main.PaymentDisplayID);
+                }, warningLabel::setText);
             }
         }
     }
 
     /**
-     *  Switch to ManageOrderController2.fxml for editing the order if the chosen order is editable.
+     *  Switch to ManageOrderController2.fxml for editing the order if the chosen order is editable. The order is
+     *  locked before the scene is switched, and the edit is refused if another program is editing it.
      */
     public void edit() {
+        warningLabel.setText("");
         if(orderList.getSelectionModel().getSelectedItem() != null) {
             String nameOnList = (String) orderList.getSelectionModel().getSelectedItem();
             int orderNumber = Integer.parseInt(nameOnList.split("\\D+")[2]);
             if(statusChecker.isEditableOrder(orderNumber)) {
                 Order2 chosenOrder = orders.get(orderNumber);
-                ManageOrderController2 controller =
-                        (ManageOrderController2) sceneController.getController(main.EditOrderDisplayID);
-                controller.intiView(chosenOrder);
-                sceneController.switchScene(main.EditOrderDisplayID);
-                lockFileController.lockFile(chosenOrder);
+                IoExecutor.getIoExecutor().supply(() -> lockFileController.lockFile(chosenOrder), locked -> {
+                    if(!locked){
+                        warningLabel.setText("Someone else is editing order #" + orderNumber);
+                        updateOrderView();
+                        return;
+                    }
+                    ManageOrderController2 controller =
+                            (ManageOrderController2) sceneController.getController(main.EditOrderDisplayID);
+                    controller.intiView(chosenOrder);
+                    sceneController.switchScene(main.EditOrderDisplayID);
+                }, warningLabel::setText);
             }
         }
     }
@@ -109,12 +129,13 @@ public class ManageOrderController extends ControlledScene implements Observer{
      *  Delete the chosen order if the chosen order is editable.
      */
     public void delete() {
+        warningLabel.setText("");
         if(orderList.getSelectionModel().getSelectedItem() != null) {
             String nameOnList = (String) orderList.getSelectionModel().getSelectedItem();
             int orderNumber = Integer.parseInt(nameOnList.split("\\D+")[2]);
             if(statusChecker.isEditableOrder(orderNumber)) {
                 orderList.getItems().remove(nameOnList);
-                orderModifier.deleteOrder(orderNumber);
+                IoExecutor.getIoExecutor().run(() -> orderModifier.deleteOrder(orderNumber), warningLabel::setText);
             }
         }
     }
@@ -14,6 +14,7 @@ import javafx.stage.Stage;
 import model.data.Item;
 import model.data.Meal;
 import model.data.Order2;
+import model.data.OrderLine;
 import model.interfaces.Observable;
 import model.interfaces.Observer;
 import java.util.ArrayList;
@@ -78,9 +79,12 @@ public class ManageOrderController2 extends ControlledScene implements Observer{
      */
     @FXML
     public void back(){
-        if(statusChecker.isEmptyOrder(currentOrder))
-            orderModifier.deleteOrder(currentOrder.getOrderNumber());
-        lockFileController.unlockFile(currentOrder);
+        Order2 order = currentOrder;
+        IoExecutor.getIoExecutor().run(() -> {
+            if(statusChecker.isEmptyOrder(order))
+                orderModifier.deleteOrder(order.getOrderNumber());
+            lockFileController.unlockFile(order);
+        }, this::messageBox);
         currentOrder = null;
         sceneController.switchToPrevScene();
     }
@@ -113,52 +117,31 @@ public class ManageOrderController2 extends ControlledScene implements Observer{
     private void itemSelected(ActionEvent e) {
         Button button = (Button)e.getSource();
         Item i = menuItems.get(button.getText());
-        if(supplyModifier.haveEnoughSupply(i, false)){
+        IoExecutor ioExecutor = IoExecutor.getIoExecutor();
+        int orderNumber = currentOrder.getOrderNumber();
+        ioExecutor.supply(() -> supplyModifier.haveEnoughSupply(i, false), enough -> {
+            if(!enough){
+                messageBox("We ran out of the supply!");
+                return;
+            }
             ItemCustomizer itemCustomizer = new ItemCustomizer();
             if(itemCustomizer.display(i)) {
                 String additionalRequest = itemCustomizer.getDescription();
                 HashMap<String, Integer> ingredients = itemCustomizer.getIngredients();
                 String itemName = itemCustomizer.getItemName();
-                String itemInfo = itemInfoToString(itemName, ingredients, additionalRequest);
-                if(supplyModifier.haveEnoughSupply(itemInfo, true)) {
-                    orderModifier.addItemToOrder(currentOrder.getOrderNumber(),
-                            itemInfoToString(itemName, ingredients, additionalRequest));
-                }else
-                    messageBox("Don't have enough supplies for addOns!");
-
-            }
-        } else{
-            messageBox("We ran out of the supply!");
-        }
-    }
-
-    /**
-     * Convert the info the user input when choosing the menu item to a
-     * info string that satisfy the format for ItemConverter.
-     * When the ingredient value = -1, the ingredient is needed to be subtracted
-     * When the ingredient value =0, there nothing need to be changed.
-     * When the ingredient value = 1, extra ingredient on the item
-     * When the ingredient value = 2, 2x extra ingredient on the item.
-     * When the ingredient value = 3, 3x extra ingredient on the item
-     * @param name - name of the menu item
-     * @param ingredients - hashmap of ingredients
-     * @param additionalRequest - additional request for the item.
-     * @return String of item informatino
-     */
-    private String itemInfoToString(String name, HashMap<String, Integer> ingredients, String additionalRequest){
-        String text = name;
-        for (String ingredient : ingredients.keySet()){
-            int quantity = ingredients.get(ingredient);
-            if (quantity < 0){
-                text = text + "\n \t -" + ingredient;
-            }
-            else{
-                for(int i = 0; i < quantity; i++){
-                    text = text + "\n \t +" + ingredient;
-                }
+                OrderLine orderLine = new OrderLine(itemName, ingredients, additionalRequest);
+                ioExecutor.supply(() -> {
+                    long reservation = supplyModifier.reserveSupply(orderLine);
+                    if(reservation != SupplyModifier.NO_RESERVATION) {
+                        orderModifier.addItemToOrder(orderNumber, orderLine, reservation);
+                    }
+                    return reservation;
+                }, reservation -> {
+                    if(reservation == SupplyModifier.NO_RESERVATION)
+                        messageBox("Don't have enough supplies for addOns!");
+                }, this::messageBox);
             }
-        }
-        return additionalRequest.isEmpty() ? text : text + "\n \t *" + additionalRequest;
+        }, this::messageBox);
     }
 
     /**
@@ -170,13 +153,20 @@ public class ManageOrderController2 extends ControlledScene implements Observer{
         int index = deliveredItemView.getSelectionModel().getSelectedIndex();
         if(index >= 0) {
             Item item = deliverItemList.get(index);
-            if(supplyModifier.haveEnoughSupply(item, true)){
-                String reason = textPopUp().toUpperCase();
-                orderModifier.returnItem(item.getItemInfo().getItemNumber(), reason);
-            }
-            else{
-                messageBox("There are not enough supply!");
-            }
+            IoExecutor ioExecutor = IoExecutor.getIoExecutor();
+            ioExecutor.supply(() -> supplyModifier.haveEnoughSupply(item, true), enough -> {
+                if(enough){
+                    String reason = textPopUp().toUpperCase();
+                    ioExecutor.supply(() -> orderModifier.returnItem(item.getItemInfo().getItemNumber(), reason),
+                            returned -> {
+                                if(!returned)
+                                    messageBox("The item could not be returned, please try again!");
+                            }, this::messageBox);
+                }
+                else{
+                    messageBox("There are not enough supply!");
+                }
+            }, this::messageBox);
         }
     }
 
@@ -188,7 +178,8 @@ public class ManageOrderController2 extends ControlledScene implements Observer{
         if(index >= 0) {
             Item item = pendingItemList.get(index);
             pendingItemsView.getItems().remove(index);
-            orderModifier.deleteItem(item.getItemInfo().getItemNumber());
+            IoExecutor.getIoExecutor().run(() -> orderModifier.deleteItem(item.getItemInfo().getItemNumber()),
+                    this::messageBox);
         }
     }
 
@@ -206,16 +197,21 @@ public class ManageOrderController2 extends ControlledScene implements Observer{
                 if (itemCustomizer.display(item)) {
                     String additionalRequest = itemCustomizer.getDescription();
                     HashMap<String, Integer> ingredients = itemCustomizer.getIngredients();
-                    String oldItem = itemCustomizer.getItemName();
-                    String newItem = itemInfoToString(oldItem, ingredients, additionalRequest);
-                    supplyModifier.cancelSupplyReserved(oldItem);
-                    if(supplyModifier.haveEnoughSupply(newItem, true)) {
-                        orderModifier.editItem(item.getItemInfo().getItemNumber()
-                                , itemInfoToString(oldItem, ingredients, additionalRequest));
-                    }else{
-                        supplyModifier.haveEnoughSupply(oldItem, true);
-                        messageBox("Not enough supply for your edit!");
-                    }
+                    OrderLine newItem = new OrderLine(itemCustomizer.getItemName(), ingredients, additionalRequest);
+                    IoExecutor.getIoExecutor().supply(() -> {
+                        if(!supplyModifier.changeSupplyReserved(item, newItem)) {
+                            return "Not enough supply for your edit!";
+                        }
+                        if(!orderModifier.editItem(item.getItemInfo().getItemNumber(), newItem)) {
+                            // the item keeps its old ingredients, so it keeps its old reservation too
+                            supplyModifier.changeSupplyReserved(item, OrderLine.fromItem(item));
+                            return "The item could not be edited, please try again!";
+                        }
+                        return null;
+                    }, failure -> {
+                        if(failure != null)
+                            messageBox(failure);
+                    }, this::messageBox);
                 }
             } else {
                 warningLabel.setText("They are preparing the item Already!");
@@ -1,5 +1,6 @@
 package viewController;
 
+import control.IoExecutor;
 import control.SupplyModifier;
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
@@ -47,7 +48,8 @@ public class ManageSupplyController extends ControlledScene {
     private void save() {
         if(validInput() && isNumber) {
             int requestAmount = Integer.parseInt(requestAmountField.getText());
-            supplyModifier.editSupply(supplyName, requestAmount);
+            String name = supplyName;
+            IoExecutor.getIoExecutor().run(() -> supplyModifier.editSupply(name, requestAmount));
             Stage stage = (Stage)requestAmountField.getScene().getWindow();
             stage.close();
         }
@@ -1,11 +1,40 @@
 package viewController;
 
 import Main.main;
+import control.DataGetter;
+import control.IoExecutor;
+import javafx.fxml.FXML;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListView;
+import model.managers.SalesAnalytics;
+
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
 
 /**
- * ManagerDisplayController class. Controller for the MangerDisplay. A manager can manage menu item or mange the supply.
+ * ManagerDisplayController class. Controller for the MangerDisplay. A manager can manage menu item or mange the supply,
+ * and see the sales of today by hour and meal or the most asked additions and subtractions of the week.
  */
 public class ManagerDisplayController extends ControlledScene{
+    private static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+    private static final int TOP_MODIFIERS = 10;
+
+    @FXML
+    Label reportLabel;
+    @FXML
+    ListView<String> reportListView;
+
+    private DataGetter dataGetter;
+
+    /**
+     * Initialize the scene and the data getter.
+     */
+    @FXML
+    public void initialize() {
+        dataGetter = new DataGetter();
+        reportLabel.setText("");
+    }
 
     /**
      * Switch to the MenuController.fxml scene for managing menu items.
@@ -27,4 +56,61 @@ public class ManagerDisplayController extends ControlledScene{
     public void ReceiveSupply_Clicked() {
         sceneController.switchScene(main.ReceiveSupplyDisplayID);
     }
+
+    /**
+     * Shows the number of items and the revenue of every meal in every hour of today.
+     */
+    public void todaySales_Clicked() {
+        long from = getStartOfToday();
+        SimpleDateFormat hour = new SimpleDateFormat("HH:mm");
+        IoExecutor.getIoExecutor().supply(() -> dataGetter.getHourlySales(from, from + DAY_MILLIS), rows -> {
+            reportListView.getItems().clear();
+            double total = 0;
+            for(SalesAnalytics.Row row : rows){
+                reportListView.getItems().add(hour.format(new Date(row.getBucket())) + "   " + row.getName() + "   x"
+                        + row.getCount() + "   $" + String.format("%.2f", row.getRevenue()));
+                total += row.getRevenue();
+            }
+            reportLabel.setText("Sales of today: $" + String.format("%.2f", total));
+        }, reportLabel::setText);
+    }
+
+    /**
+     * Shows the additions and subtractions that were asked for most often in the last seven days.
+     */
+    public void topModifiers_Clicked() {
+        long to = System.currentTimeMillis();
+        IoExecutor.getIoExecutor().supply(() -> dataGetter.getTopModifiers(to - 7 * DAY_MILLIS, to, TOP_MODIFIERS),
+                rows -> {
+            reportListView.getItems().clear();
+            for(SalesAnalytics.Row row : rows){
+                reportListView.getItems().add(row.getName() + "   x" + row.getCount() + "   on $"
+                        + String.format("%.2f", row.getRevenue()) + " of items");
+            }
+            reportLabel.setText("Top modifiers of the week");
+        }, reportLabel::setText);
+    }
+
+    /**
+     * Shows how long the operations of all the terminals take.
+     */
+    public void operationTimes_Clicked() {
+        IoExecutor.getIoExecutor().supply(dataGetter::getOperationTimes, report -> {
+            reportListView.getItems().setAll(report);
+            reportLabel.setText("Operation times");
+        }, reportLabel::setText);
+    }
+
+    /**
+     * Returns the time of the last midnight.
+     * @return the time in milliseconds
+     */
+    private static long getStartOfToday() {
+        Calendar calendar = Calendar.getInstance();
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return calendar.getTimeInMillis();
+    }
 }
@@ -2,6 +2,7 @@ package viewController;
 
 import Main.main;
 import control.DataGetter;
+import control.IoExecutor;
 import control.MenuItemController;
 import control.StatusChecker;
 import javafx.fxml.FXML;
@@ -88,7 +89,7 @@ public class MenuController extends ControlledScene implements Observer {
         if(menuList.getSelectionModel().getSelectedItem() != null) {
             String chosenItemName = menuList.getSelectionModel().getSelectedItem();
             menuList.getItems().remove(chosenItemName);
-            menuItemController.deleteMenuItem(menuList.getSelectionModel().getSelectedItem());
+            IoExecutor.getIoExecutor().run(() -> menuItemController.deleteMenuItem(chosenItemName));
         }
     }
 
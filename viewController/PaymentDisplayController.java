@@ -134,6 +134,7 @@ public class PaymentDisplayController extends ControlledScene {
     private void print() {
         if(!(chosenItemsList.getChildren().isEmpty())) {
             printBill.setDisable(true);
+            ArrayList<ArrayList<Integer>> bills = new ArrayList<>();
             for (Node node : chosenItemsList.getChildren()) {
                 ArrayList<Integer> itemNumbers = new ArrayList<>();
                 for (Node n : ((GridPane) node).getChildren()) {
@@ -143,14 +144,36 @@ public class PaymentDisplayController extends ControlledScene {
                         itemNumbers.add(Integer.parseInt(itemNumber));
                     }
                 }
-                receiptController.printReceipt(itemNumbers, checkNumPeople.isSelected());
-                double amount = receiptController.calculatePaymentPrice(itemNumbers, checkNumPeople.isSelected());
-                double paidAmount = paidAmountPopUp(amount);
-                receiptController.printPaymentReceipt(itemNumbers, checkNumPeople.isSelected(), paidAmount);
+                bills.add(itemNumbers);
             }
-            orderModifier.finishOrder(currentOrder.getOrderNumber());
+            printBill(bills, 0, checkNumPeople.isSelected());
+        }
+    }
+
+    /**
+     * Prints the receipt of a bill and asks for the paid amount, then prints the final receipt and goes on with the
+     * next bill. The receipts are written on the io thread. After the last bill the order is finished.
+     * @param bills the item numbers of every bill
+     * @param bill the index of the bill
+     * @param isMoreThanEight if there is more than 8 people for this bill
+     */
+    private void printBill(ArrayList<ArrayList<Integer>> bills, int bill, boolean isMoreThanEight) {
+        IoExecutor ioExecutor = IoExecutor.getIoExecutor();
+        if(bill == bills.size()) {
+            int orderNumber = currentOrder.getOrderNumber();
+            ioExecutor.run(() -> orderModifier.finishOrder(orderNumber));
             cancel();
+            return;
         }
+        ArrayList<Integer> itemNumbers = bills.get(bill);
+        ioExecutor.supply(() -> {
+            receiptController.printReceipt(itemNumbers, isMoreThanEight);
+            return receiptController.calculatePaymentPrice(itemNumbers, isMoreThanEight);
+        }, amount -> {
+            double paidAmount = paidAmountPopUp(amount);
+            ioExecutor.run(() -> receiptController.printPaymentReceipt(itemNumbers, isMoreThanEight, paidAmount));
+            printBill(bills, bill + 1, isMoreThanEight);
+        });
     }
 
     /**
@@ -205,7 +228,8 @@ public class PaymentDisplayController extends ControlledScene {
         itemsList.getItems().clear();
         chosenItemsList.getChildren().clear();
         checkNumPeople.selectedProperty().setValue(false);
-        fileController.unlockFile(currentOrder);
+        Order2 order = currentOrder;
+        IoExecutor.getIoExecutor().run(() -> fileController.unlockFile(order));
         currentOrder = null;
         sceneController.switchToPrevScene();
     }
@@ -1,6 +1,7 @@
 package viewController;
 
 import control.DataGetter;
+import control.IoExecutor;
 import control.SupplyModifier;
 import javafx.beans.value.ObservableValue;
 import javafx.event.EventHandler;
@@ -10,23 +11,29 @@ import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.Label;
 import javafx.scene.control.ListView;
+import javafx.scene.control.SelectionMode;
 import javafx.scene.control.TextField;
 import javafx.scene.input.MouseEvent;
 import javafx.beans.value.ChangeListener;
 
+import javafx.stage.FileChooser;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 import model.data.Supply2;
 import model.interfaces.Observable;
 import model.interfaces.Observer;
+import model.managers.DeliveryManifest;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 
 /**
  * ReceiveSupplyController class. Controller ReceiveSupply.fxml. It allow user to add the quantity to existing supply and
- * create new supply.
+ * create new supply. Several supplies can be selected to add the same quantity to all of them at once, and a whole
+ * delivery can be imported from a CSV delivery manifest.
  */
 public class ReceiveSupplyController extends ControlledScene implements Observer{
 
@@ -69,6 +76,7 @@ public class ReceiveSupplyController extends ControlledScene implements Observer
         userMsgLabel.setText("");
         quantityNoteLabel.setText("");
         supplyListView.setOnMouseClicked(listViewMouseEvent);
+        supplyListView.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
 
         updateSupplyListView();
     }
@@ -113,7 +121,9 @@ public class ReceiveSupplyController extends ControlledScene implements Observer
         if(validText){
             if(quantity>0) {
                 String name = String.join(" ", supplyNameTextField.getText().trim().split("\\s+"));
-                supplyModifier.createSupply(name, quantity);
+                int amount = quantity;
+                IoExecutor.getIoExecutor().run(() -> supplyModifier.createSupply(name, amount),
+                        quantityNoteLabel::setText);
                 quantityNoteLabel.setText("Added: " + supplyNameTextField.getText() + " Quantity: " + quantity);
 
                 supplyNameTextField.setText("");
@@ -134,19 +144,29 @@ public class ReceiveSupplyController extends ControlledScene implements Observer
     }
 
     /**
-     * Save the change to the quantity of a current supply.
+     * Save the change to the quantity of the selected current supplies, all in one delivery.
      */
     @FXML
     private void addCurrentSupply(){
-        String supplyName = supplyListView.getSelectionModel().getSelectedItem();
-        if(quantity > 0 && supplyName != null){
-            supplyName = getSupplyName(supplyName);
-            supplyModifier.addQuantityToSupply(supplyName, quantity);
-            quantityNoteLabel.setText(supplyName + " added " + quantity);
+        ArrayList<String> selected = new ArrayList<>(supplyListView.getSelectionModel().getSelectedItems());
+        if(quantity > 0 && !selected.isEmpty()){
+            LinkedHashMap<String, Integer> delivery = new LinkedHashMap<>();
+            for(String listViewItem : selected){
+                delivery.put(getSupplyName(listViewItem), quantity);
+            }
+            int amount = quantity;
+            IoExecutor.getIoExecutor().supply(() -> supplyModifier.receiveSupplies(delivery), received -> {
+                if(received){
+                    quantityNoteLabel.setText(String.join(", ", delivery.keySet()) + " added " + amount);
+                }
+                else {
+                    quantityNoteLabel.setText("The delivery could not be saved, please try again.");
+                }
+                updateSupplyListView();
+            }, quantityNoteLabel::setText);
             quantityTextField.setText("");
-            updateSupplyListView();
         }
-        else if(supplyName == null) {
+        else if(selected.isEmpty()) {
             quantityNoteLabel.setText("Please select an Item to continue..");
         }
         else {
@@ -252,6 +272,31 @@ public class ReceiveSupplyController extends ControlledScene implements Observer
         sceneController.switchToPrevScene();
     }
 
+    /**
+     * Let the user choose a CSV delivery manifest and add the whole delivery to the stock.
+     */
+    public void importDelivery(){
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Import a Delivery Manifest");
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV files", "*.csv", "*.txt"));
+        File file = fileChooser.showOpenDialog(supplyListView.getScene().getWindow());
+        if(file != null){
+            IoExecutor.getIoExecutor().supply(() -> supplyModifier.importDeliveryManifest(file), manifest -> {
+                if(manifest == null){
+                    quantityNoteLabel.setText("The delivery manifest could not be imported.");
+                }
+                else if(manifest.getRejectedLines().isEmpty()){
+                    quantityNoteLabel.setText(manifest.getQuantities().size() + " supplies received.");
+                }
+                else {
+                    quantityNoteLabel.setText(manifest.getQuantities().size() + " supplies received, "
+                            + manifest.getRejectedLines().size() + " lines skipped: "
+                            + manifest.getRejectedLines().get(0));
+                }
+            }, quantityNoteLabel::setText);
+        }
+    }
+
     /**
      * Open the pop when the Edit button is pressed to edit the request amount.
      */